@@ -1,13 +1,16 @@
 package com.davonlibrary.dao;
 
 import com.davonlibrary.entity.Author;
+import com.davonlibrary.event.CatalogChangedEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 import java.util.List;
 import java.util.Optional;
+import org.hibernate.jpa.HibernateHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +25,8 @@ public class AuthorDAO {
 
   @Inject EntityManager entityManager;
 
+  @Inject Event<CatalogChangedEvent> catalogEvents;
+
   /**
    * Find an author by ID.
    *
@@ -159,6 +164,7 @@ public class AuthorDAO {
     try {
       entityManager.persist(author);
       entityManager.flush();
+      catalogEvents.fire(CatalogChangedEvent.authorSaved(author));
       LOGGER.info("Author saved successfully: {} {}", author.firstName, author.lastName);
       return author;
     } catch (Exception e) {
@@ -177,6 +183,7 @@ public class AuthorDAO {
   public Author update(Author author) {
     try {
       Author updatedAuthor = entityManager.merge(author);
+      catalogEvents.fire(CatalogChangedEvent.authorSaved(updatedAuthor));
       LOGGER.info("Author updated successfully: {} {}", author.firstName, author.lastName);
       return updatedAuthor;
     } catch (Exception e) {
@@ -197,6 +204,7 @@ public class AuthorDAO {
       Author author = entityManager.find(Author.class, id);
       if (author != null) {
         entityManager.remove(author);
+        catalogEvents.fire(CatalogChangedEvent.authorDeleted(id));
         LOGGER.info("Author deleted successfully: {} {}", author.firstName, author.lastName);
         return true;
       }
@@ -216,8 +224,9 @@ public class AuthorDAO {
   public List<Author> findAll() {
     try {
       TypedQuery<Author> query =
-          entityManager.createQuery(
-              "SELECT a FROM Author a ORDER BY a.lastName, a.firstName", Author.class);
+          entityManager
+              .createQuery("SELECT a FROM Author a ORDER BY a.lastName, a.firstName", Author.class)
+              .setHint(HibernateHints.HINT_CACHEABLE, true);
       return query.getResultList();
     } catch (Exception e) {
       LOGGER.error("Error finding all authors", e);
@@ -1,6 +1,7 @@
 package com.davonlibrary.dao;
 
 import com.davonlibrary.entity.BookCopy;
+import com.davonlibrary.service.BookAvailabilityService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -22,6 +23,8 @@ public class BookCopyDAO {
 
   @Inject EntityManager entityManager;
 
+  @Inject BookAvailabilityService bookAvailabilityService;
+
   /**
    * Find a book copy by ID.
    *
@@ -179,6 +182,7 @@ public class BookCopyDAO {
     try {
       entityManager.persist(bookCopy);
       entityManager.flush();
+      bookAvailabilityService.copyAdded(bookCopy);
       LOGGER.info(
           "Book copy saved successfully: Book={}, Barcode={}",
           bookCopy.book.title,
@@ -200,7 +204,13 @@ public class BookCopyDAO {
   @Transactional
   public BookCopy update(BookCopy bookCopy) {
     try {
+      BookCopy current =
+          bookCopy.id != null ? entityManager.find(BookCopy.class, bookCopy.id) : null;
+      BookCopy.BookCopyStatus previous = current != null ? current.status : null;
       BookCopy updatedBookCopy = entityManager.merge(bookCopy);
+      if (current != null) {
+        bookAvailabilityService.recordStatusChange(updatedBookCopy, previous);
+      }
       LOGGER.info("Book copy updated successfully: ID={}", bookCopy.id);
       return updatedBookCopy;
     } catch (Exception e) {
@@ -220,6 +230,7 @@ public class BookCopyDAO {
     try {
       BookCopy bookCopy = entityManager.find(BookCopy.class, id);
       if (bookCopy != null) {
+        bookAvailabilityService.copyRemoved(bookCopy);
         entityManager.remove(bookCopy);
         LOGGER.info("Book copy deleted successfully: ID={}", id);
         return true;
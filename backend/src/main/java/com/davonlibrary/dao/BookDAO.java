@@ -1,11 +1,21 @@
 package com.davonlibrary.dao;
 
 import com.davonlibrary.entity.Book;
+import com.davonlibrary.event.CatalogChangedEvent;
+import com.davonlibrary.repository.BookRepository;
+import com.davonlibrary.search.CatalogSearchIndex;
+import com.davonlibrary.search.InvertedIndex;
+import com.davonlibrary.service.PopularityService;
+import com.davonlibrary.service.PopularityService.RankedCount;
+import com.davonlibrary.service.PopularityService.Subject;
+import com.davonlibrary.service.PopularityService.Window;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import org.slf4j.Logger;
@@ -22,6 +32,14 @@ public class BookDAO {
 
   @Inject EntityManager entityManager;
 
+  @Inject BookRepository bookRepository;
+
+  @Inject CatalogSearchIndex searchIndex;
+
+  @Inject PopularityService popularityService;
+
+  @Inject Event<CatalogChangedEvent> catalogEvents;
+
   /**
    * Find a book by its ID.
    *
@@ -67,11 +85,7 @@ public class BookDAO {
   @Transactional
   public List<Book> findByTitleContaining(String searchTerm) {
     try {
-      TypedQuery<Book> query =
-          entityManager.createQuery(
-              "SELECT b FROM Book b WHERE LOWER(b.title) LIKE LOWER(:searchTerm)", Book.class);
-      query.setParameter("searchTerm", "%" + searchTerm + "%");
-      return query.getResultList();
+      return bookRepository.findByIds(searchIndex.search(searchTerm, InvertedIndex.Field.TITLE));
     } catch (Exception e) {
       LOGGER.error("Error finding books by title: {}", searchTerm, e);
       return List.of();
@@ -107,14 +121,8 @@ public class BookDAO {
   @Transactional
   public List<Book> findByAuthorName(String authorName) {
     try {
-      TypedQuery<Book> query =
-          entityManager.createQuery(
-              "SELECT b FROM Book b JOIN b.author a "
-                  + "WHERE LOWER(a.firstName) LIKE LOWER(:authorName) "
-                  + "OR LOWER(a.lastName) LIKE LOWER(:authorName)",
-              Book.class);
-      query.setParameter("authorName", "%" + authorName + "%");
-      return query.getResultList();
+      return bookRepository.findByIds(
+          searchIndex.search(authorName, InvertedIndex.Field.AUTHOR));
     } catch (Exception e) {
       LOGGER.error("Error finding books by author name: {}", authorName, e);
       return List.of();
@@ -158,24 +166,22 @@ public class BookDAO {
   }
 
   /**
-   * Find the most popular books (most borrowed).
+   * Find the most popular books (most borrowed), from the in-memory borrow counts.
    *
    * @param limit the maximum number of results
-   * @return list of popular books
+   * @return list of popular books, most borrowed first
    */
   @Transactional
   public List<Book> findMostPopular(int limit) {
     try {
-      TypedQuery<Book> query =
-          entityManager.createQuery(
-              "SELECT b FROM Book b "
-                  + "LEFT JOIN b.bookCopies bc "
-                  + "LEFT JOIN bc.loans l "
-                  + "GROUP BY b.id, b.title, b.isbn, b.availableCopies, b.totalCopies "
-                  + "ORDER BY COUNT(l.id) DESC",
-              Book.class);
-      query.setMaxResults(limit);
-      return query.getResultList();
+      List<Book> books = new ArrayList<>();
+      for (RankedCount count : popularityService.top(Subject.BOOK, Window.ALL_TIME, limit)) {
+        Book book = entityManager.find(Book.class, count.id);
+        if (book != null) {
+          books.add(book);
+        }
+      }
+      return books;
     } catch (Exception e) {
       LOGGER.error("Error finding most popular books", e);
       return List.of();
@@ -191,8 +197,13 @@ public class BookDAO {
   @Transactional
   public Book save(Book book) {
     try {
+      // Copy counts are maintained by BookAvailabilityService as copies are added
+      book.totalCopies = 0;
+      book.availableCopies = 0;
+      book.status = Book.BookStatus.UNAVAILABLE;
       entityManager.persist(book);
       entityManager.flush();
+      catalogEvents.fire(CatalogChangedEvent.bookSaved(book));
       LOGGER.info("Book saved successfully: {}", book.title);
       return book;
     } catch (Exception e) {
@@ -210,7 +221,15 @@ public class BookDAO {
   @Transactional
   public Book update(Book book) {
     try {
+      Book current = book.id != null ? entityManager.find(Book.class, book.id) : null;
+      if (current != null) {
+        // Keep the maintained copy counts rather than whatever the caller loaded
+        book.totalCopies = current.totalCopies;
+        book.availableCopies = current.availableCopies;
+        book.status = current.status;
+      }
       Book updatedBook = entityManager.merge(book);
+      catalogEvents.fire(CatalogChangedEvent.bookSaved(updatedBook));
       LOGGER.info("Book updated successfully: {}", book.title);
       return updatedBook;
     } catch (Exception e) {
@@ -231,6 +250,7 @@ public class BookDAO {
       Book book = entityManager.find(Book.class, id);
       if (book != null) {
         entityManager.remove(book);
+        catalogEvents.fire(CatalogChangedEvent.bookDeleted(id));
         LOGGER.info("Book deleted successfully: {}", book.title);
         return true;
       }
@@ -275,7 +295,8 @@ public class BookDAO {
   }
 
   /**
-   * Search books by multiple criteria.
+   * Search books by multiple criteria. Criteria are matched word by word against the catalog
+   * search index; blank criteria are ignored.
    *
    * @param title the title search term
    * @param authorName the author name search term
@@ -285,34 +306,14 @@ public class BookDAO {
   @Transactional
   public List<Book> searchBooks(String title, String authorName, String isbn) {
     try {
-      StringBuilder jpql = new StringBuilder("SELECT b FROM Book b JOIN b.author a WHERE 1=1");
-
-      if (title != null && !title.trim().isEmpty()) {
-        jpql.append(" AND LOWER(b.title) LIKE LOWER(:title)");
-      }
-      if (authorName != null && !authorName.trim().isEmpty()) {
-        jpql.append(
-            " AND (LOWER(a.firstName) LIKE LOWER(:authorName) OR LOWER(a.lastName) LIKE LOWER(:authorName))");
-      }
-      if (isbn != null && !isbn.trim().isEmpty()) {
-        jpql.append(" AND b.isbn LIKE :isbn");
-      }
-
-      jpql.append(" ORDER BY b.title");
-
-      TypedQuery<Book> query = entityManager.createQuery(jpql.toString(), Book.class);
-
-      if (title != null && !title.trim().isEmpty()) {
-        query.setParameter("title", "%" + title + "%");
-      }
-      if (authorName != null && !authorName.trim().isEmpty()) {
-        query.setParameter("authorName", "%" + authorName + "%");
+      boolean hasCriteria =
+          (title != null && !title.trim().isEmpty())
+              || (authorName != null && !authorName.trim().isEmpty())
+              || (isbn != null && !isbn.trim().isEmpty());
+      if (!hasCriteria) {
+        return findAll();
       }
-      if (isbn != null && !isbn.trim().isEmpty()) {
-        query.setParameter("isbn", "%" + isbn + "%");
-      }
-
-      return query.getResultList();
+      return bookRepository.findByIds(searchIndex.search(title, authorName, isbn));
     } catch (Exception e) {
       LOGGER.error("Error searching books", e);
       return List.of();
@@ -1,13 +1,16 @@
 package com.davonlibrary.dao;
 
 import com.davonlibrary.entity.Library;
+import com.davonlibrary.event.LibraryChangedEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 import java.util.List;
 import java.util.Optional;
+import org.hibernate.jpa.HibernateHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +21,8 @@ public class LibraryDAO {
 
   @Inject EntityManager entityManager;
 
+  @Inject Event<LibraryChangedEvent> libraryEvents;
+
   @Transactional
   public Optional<Library> findById(Long id) {
     try {
@@ -33,7 +38,9 @@ public class LibraryDAO {
   public List<Library> findAll() {
     try {
       TypedQuery<Library> query =
-          entityManager.createQuery("SELECT l FROM Library l ORDER BY l.name", Library.class);
+          entityManager
+              .createQuery("SELECT l FROM Library l ORDER BY l.name", Library.class)
+              .setHint(HibernateHints.HINT_CACHEABLE, true);
       return query.getResultList();
     } catch (Exception e) {
       LOGGER.error("Error finding all libraries", e);
@@ -46,6 +53,7 @@ public class LibraryDAO {
     try {
       entityManager.persist(library);
       entityManager.flush();
+      libraryEvents.fire(LibraryChangedEvent.saved(library));
       LOGGER.info("Library saved successfully: {}", library.name);
       return library;
     } catch (Exception e) {
@@ -58,6 +66,7 @@ public class LibraryDAO {
   public Library update(Library library) {
     try {
       Library updatedLibrary = entityManager.merge(library);
+      libraryEvents.fire(LibraryChangedEvent.saved(updatedLibrary));
       LOGGER.info("Library updated successfully: {}", library.name);
       return updatedLibrary;
     } catch (Exception e) {
@@ -72,6 +81,7 @@ public class LibraryDAO {
       Library library = entityManager.find(Library.class, id);
       if (library != null) {
         entityManager.remove(library);
+        libraryEvents.fire(LibraryChangedEvent.deleted(id));
         LOGGER.info("Library deleted successfully: {}", library.name);
         return true;
       }
@@ -1,7 +1,9 @@
 package com.davonlibrary.dao;
 
 import com.davonlibrary.entity.LibraryMembership;
+import com.davonlibrary.event.MembershipEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
@@ -18,6 +20,8 @@ public class LibraryMembershipDAO {
 
   @Inject EntityManager entityManager;
 
+  @Inject Event<MembershipEvent> membershipEvents;
+
   @Transactional
   public Optional<LibraryMembership> findById(Long id) {
     try {
@@ -64,6 +68,7 @@ public class LibraryMembershipDAO {
     try {
       entityManager.persist(membership);
       entityManager.flush();
+      membershipEvents.fire(MembershipEvent.of(membership));
       LOGGER.info(
           "Library membership saved successfully: User={}, Library={}",
           membership.user.id,
@@ -83,6 +88,7 @@ public class LibraryMembershipDAO {
   public LibraryMembership update(LibraryMembership membership) {
     try {
       LibraryMembership updatedMembership = entityManager.merge(membership);
+      membershipEvents.fire(MembershipEvent.of(updatedMembership));
       LOGGER.info("Library membership updated successfully: ID={}", membership.id);
       return updatedMembership;
     } catch (Exception e) {
@@ -97,6 +103,7 @@ public class LibraryMembershipDAO {
       LibraryMembership membership = entityManager.find(LibraryMembership.class, id);
       if (membership != null) {
         entityManager.remove(membership);
+        membershipEvents.fire(MembershipEvent.deleted(membership));
         LOGGER.info("Library membership deleted successfully: ID={}", id);
         return true;
       }
@@ -1,6 +1,7 @@
 package com.davonlibrary.dao;
 
 import com.davonlibrary.entity.Reservation;
+import com.davonlibrary.service.ReservationQueueService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -23,6 +24,8 @@ public class ReservationDAO {
 
   @Inject EntityManager entityManager;
 
+  @Inject ReservationQueueService reservationQueueService;
+
   /**
    * Find a reservation by ID.
    *
@@ -227,6 +230,7 @@ public class ReservationDAO {
     try {
       entityManager.persist(reservation);
       entityManager.flush();
+      reservationQueueService.recordChange(reservation);
       LOGGER.info(
           "Reservation saved successfully: User={}, Book={}",
           reservation.user.id,
@@ -252,6 +256,7 @@ public class ReservationDAO {
   public Reservation update(Reservation reservation) {
     try {
       Reservation updatedReservation = entityManager.merge(reservation);
+      reservationQueueService.recordChange(updatedReservation);
       LOGGER.info("Reservation updated successfully: ID={}", reservation.id);
       return updatedReservation;
     } catch (Exception e) {
@@ -272,6 +277,7 @@ public class ReservationDAO {
       Reservation reservation = entityManager.find(Reservation.class, id);
       if (reservation != null) {
         entityManager.remove(reservation);
+        reservationQueueService.recordRemoved(reservation);
         LOGGER.info("Reservation deleted successfully: ID={}", id);
         return true;
       }
@@ -1,7 +1,9 @@
 package com.davonlibrary.dao;
 
 import com.davonlibrary.entity.User;
+import com.davonlibrary.event.ActivityEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
@@ -22,6 +24,8 @@ public class UserDAO {
 
   @Inject EntityManager entityManager;
 
+  @Inject Event<ActivityEvent> activityEvents;
+
   /**
    * Find a user by ID.
    *
@@ -183,6 +187,7 @@ public class UserDAO {
     try {
       entityManager.persist(user);
       entityManager.flush();
+      activityEvents.fire(ActivityEvent.registration(user));
       LOGGER.info("User saved successfully: {} {}", user.firstName, user.lastName);
       return user;
     } catch (Exception e) {
@@ -1,5 +1,6 @@
 package com.davonlibrary.dto;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 public class ActivityDTO {
@@ -18,6 +19,35 @@ public class ActivityDTO {
     this.bookTitle = bookTitle;
   }
 
+  /**
+   * Creates the activity of a book being loaned.
+   *
+   * @param userName the borrower's full name
+   * @param bookTitle the title of the book
+   * @param loanDate when the loan was made
+   * @return the activity
+   */
+  public static ActivityDTO loan(String userName, String bookTitle, LocalDateTime loanDate) {
+    return new ActivityDTO("Loan", "Book loaned to " + userName, loanDate, userName, bookTitle);
+  }
+
+  /**
+   * Creates the activity of a user registering.
+   *
+   * @param userName the user's full name
+   * @param joinDate the date the user joined, today if unknown
+   * @return the activity
+   */
+  public static ActivityDTO newUser(String userName, LocalDate joinDate) {
+    LocalDate effectiveJoinDate = joinDate != null ? joinDate : LocalDate.now();
+    return new ActivityDTO(
+        "New User",
+        "New user registered: " + userName,
+        effectiveJoinDate.atStartOfDay(),
+        userName,
+        null);
+  }
+
   public LocalDateTime getTimestamp() {
     return timestamp;
   }
@@ -0,0 +1,59 @@
+package com.davonlibrary.dto;
+
+import com.davonlibrary.entity.BookCopy;
+
+/**
+ * List view of a book copy as returned by the book copies API.
+ *
+ * <p>The projection constructor is used directly from JPQL constructor expressions, so a list of
+ * copies is read in one joined query and serialized without touching the lazy book and library
+ * associations of managed entities.
+ */
+public class BookCopyDTO {
+  public Long id;
+  public String barcode;
+  public String status;
+  public String location;
+  public String notes;
+  public Long bookId;
+  public String bookTitle;
+  public Long libraryId;
+  public String libraryName;
+
+  /** Default constructor for JSON binding. */
+  public BookCopyDTO() {}
+
+  /**
+   * Projection constructor used by the book copy list queries.
+   *
+   * @param id the book copy ID
+   * @param barcode the copy barcode
+   * @param status the copy status
+   * @param location the shelf location, may be null
+   * @param notes the copy notes, may be null
+   * @param bookId the ID of the book the copy belongs to
+   * @param bookTitle the title of the book
+   * @param libraryId the ID of the library holding the copy
+   * @param libraryName the name of the library
+   */
+  public BookCopyDTO(
+      Long id,
+      String barcode,
+      BookCopy.BookCopyStatus status,
+      String location,
+      String notes,
+      Long bookId,
+      String bookTitle,
+      Long libraryId,
+      String libraryName) {
+    this.id = id;
+    this.barcode = barcode;
+    this.status = status != null ? status.name() : null;
+    this.location = location;
+    this.notes = notes;
+    this.bookId = bookId;
+    this.bookTitle = bookTitle;
+    this.libraryId = libraryId;
+    this.libraryName = libraryName;
+  }
+}
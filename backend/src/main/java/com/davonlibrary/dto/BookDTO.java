@@ -0,0 +1,58 @@
+package com.davonlibrary.dto;
+
+import com.davonlibrary.entity.Book;
+
+/**
+ * Catalog view of a book as returned by the books API.
+ *
+ * <p>The projection constructor is used directly from JPQL constructor expressions so a catalog
+ * page can be read in one grouped query instead of loading entities and counting copies per row.
+ */
+public class BookDTO {
+  public Long id;
+  public String title;
+  public String isbn;
+  public String author;
+  public Integer availableCopies;
+  public Integer totalCopies;
+  public String status;
+
+  /** Default constructor for JSON binding. */
+  public BookDTO() {}
+
+  /**
+   * Projection constructor used by the grouped catalog query.
+   *
+   * @param id the book ID
+   * @param title the book title
+   * @param isbn the book ISBN
+   * @param authorFirstName the author's first name, null when the book has no author
+   * @param authorLastName the author's last name, null when the book has no author
+   * @param totalCopies number of copies of the book
+   * @param availableCopies number of copies currently available, null when there are no copies
+   * @param status the persisted book status, may be null for legacy rows
+   */
+  public BookDTO(
+      Long id,
+      String title,
+      String isbn,
+      String authorFirstName,
+      String authorLastName,
+      Long totalCopies,
+      Long availableCopies,
+      Book.BookStatus status) {
+    this.id = id;
+    this.title = title;
+    this.isbn = isbn;
+    this.author =
+        authorFirstName == null && authorLastName == null
+            ? "Unknown Author"
+            : authorFirstName + " " + authorLastName;
+    this.totalCopies = totalCopies != null ? totalCopies.intValue() : 0;
+    this.availableCopies = availableCopies != null ? availableCopies.intValue() : 0;
+    this.status =
+        status != null
+            ? status.name()
+            : (this.availableCopies > 0 ? "AVAILABLE" : "UNAVAILABLE");
+  }
+}
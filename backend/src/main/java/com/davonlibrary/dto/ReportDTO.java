@@ -0,0 +1,67 @@
+package com.davonlibrary.dto;
+
+import com.davonlibrary.entity.Report;
+import java.time.LocalDateTime;
+
+/**
+ * List view of a report as returned by the reports API.
+ *
+ * <p>The projection constructor is used directly from JPQL constructor expressions, so report
+ * lists are read without loading managed entities or the long description of each report.
+ */
+public class ReportDTO {
+  public Long id;
+  public String type;
+  public String title;
+  public String status;
+  public LocalDateTime generatedDate;
+  public LocalDateTime startDate;
+  public LocalDateTime endDate;
+  public String generatedBy;
+  public Long fileSize;
+  public Integer totalRecords;
+  public String errorMessage;
+
+  /** Default constructor for JSON binding. */
+  public ReportDTO() {}
+
+  /**
+   * Projection constructor used by the report list queries.
+   *
+   * @param id the report ID
+   * @param type the report type
+   * @param title the report title
+   * @param status the report status, may be null for legacy rows
+   * @param generatedDate when the report was requested
+   * @param startDate the start of the reporting period, may be null
+   * @param endDate the end of the reporting period, may be null
+   * @param generatedBy who requested the report, may be null
+   * @param fileSize the size of the generated file, null until generated
+   * @param totalRecords the number of records in the report
+   * @param errorMessage the last generation error, may be null
+   */
+  public ReportDTO(
+      Long id,
+      Report.ReportType type,
+      String title,
+      Report.ReportStatus status,
+      LocalDateTime generatedDate,
+      LocalDateTime startDate,
+      LocalDateTime endDate,
+      String generatedBy,
+      Long fileSize,
+      Integer totalRecords,
+      String errorMessage) {
+    this.id = id;
+    this.type = type != null ? type.name() : null;
+    this.title = title;
+    this.status = status != null ? status.name() : null;
+    this.generatedDate = generatedDate;
+    this.startDate = startDate;
+    this.endDate = endDate;
+    this.generatedBy = generatedBy;
+    this.fileSize = fileSize;
+    this.totalRecords = totalRecords;
+    this.errorMessage = errorMessage;
+  }
+}
@@ -0,0 +1,72 @@
+package com.davonlibrary.dto;
+
+import com.davonlibrary.entity.Staff;
+import java.time.LocalDate;
+
+/**
+ * List view of a staff member as returned by the staff API.
+ *
+ * <p>The projection constructor is used directly from JPQL constructor expressions, so a staff
+ * list is read in one joined query and serialized without touching the lazy library and supervisor
+ * associations of managed entities.
+ */
+public class StaffDTO {
+  public Long id;
+  public String firstName;
+  public String lastName;
+  public String email;
+  public String position;
+  public String department;
+  public String employeeId;
+  public LocalDate hireDate;
+  public String employmentStatus;
+  public Long libraryId;
+  public String libraryName;
+  public Long supervisorId;
+
+  /** Default constructor for JSON binding. */
+  public StaffDTO() {}
+
+  /**
+   * Projection constructor used by the staff list queries.
+   *
+   * @param id the staff ID
+   * @param firstName the first name
+   * @param lastName the last name
+   * @param email the email address
+   * @param position the position
+   * @param department the department, may be null
+   * @param employeeId the employee ID, may be null
+   * @param hireDate the hire date
+   * @param employmentStatus the employment status
+   * @param libraryId the ID of the library the staff member works at
+   * @param libraryName the name of the library
+   * @param supervisorId the ID of the supervisor, null when there is none
+   */
+  public StaffDTO(
+      Long id,
+      String firstName,
+      String lastName,
+      String email,
+      String position,
+      String department,
+      String employeeId,
+      LocalDate hireDate,
+      Staff.EmploymentStatus employmentStatus,
+      Long libraryId,
+      String libraryName,
+      Long supervisorId) {
+    this.id = id;
+    this.firstName = firstName;
+    this.lastName = lastName;
+    this.email = email;
+    this.position = position;
+    this.department = department;
+    this.employeeId = employeeId;
+    this.hireDate = hireDate;
+    this.employmentStatus = employmentStatus != null ? employmentStatus.name() : null;
+    this.libraryId = libraryId;
+    this.libraryName = libraryName;
+    this.supervisorId = supervisorId;
+  }
+}
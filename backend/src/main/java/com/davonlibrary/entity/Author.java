@@ -10,6 +10,7 @@ import java.util.List;
 /** Author entity representing book authors in the library system. */
 @Entity
 @Table(name = "authors")
+@Cacheable
 public class Author extends PanacheEntity {
 
   @NotBlank(message = "First name is required")
@@ -0,0 +1,130 @@
+package com.davonlibrary.entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+/**
+ * Batch job entity for bulk maintenance tasks run in chunks. The job records a checkpoint, the ID
+ * of the last row it has processed, in the same transaction as each chunk's work, so a job
+ * interrupted by a crash or redeploy resumes after its last committed chunk. A job may cover only
+ * a range of its rows' partition key (users or books), so one task can be spread over several jobs
+ * run by different instances.
+ */
+@Entity
+@Table(name = "batch_jobs")
+public class BatchJob extends PanacheEntityBase {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  public Long id;
+
+  @NotNull(message = "Job type is required")
+  @Enumerated(EnumType.STRING)
+  @Column(name = "type", nullable = false)
+  public JobType type;
+
+  @NotNull(message = "Job status is required")
+  @Enumerated(EnumType.STRING)
+  @Column(name = "status", nullable = false)
+  public JobStatus status = JobStatus.PENDING;
+
+  @Column(name = "chunk_size", nullable = false)
+  public Integer chunkSize;
+
+  /** Rows created before this date are cleaned up, for notification cleanup jobs. */
+  @Column(name = "cutoff_date")
+  public LocalDateTime cutoffDate;
+
+  /** First partition key covered by the job, null when the job covers every row. */
+  @Column(name = "range_start")
+  public Long rangeStart;
+
+  /** Partition key after the range covered by the job, null when the job covers every row. */
+  @Column(name = "range_end")
+  public Long rangeEnd;
+
+  /** Node ID of the instance running the job; its chunks only commit while it is the owner. */
+  @Column(name = "owner", length = 100)
+  public String owner;
+
+  /** ID of the last row processed by a committed chunk, null before the first chunk. */
+  @Column(name = "last_id")
+  public Long lastId;
+
+  @Column(name = "total_rows")
+  public Long totalRows;
+
+  @Column(name = "processed_rows", nullable = false)
+  public Long processedRows = 0L;
+
+  /** Rows the job changed: fines created or recalculated, notifications sent or deleted. */
+  @Column(name = "affected_rows", nullable = false)
+  public Long affectedRows = 0L;
+
+  @Column(name = "chunks", nullable = false)
+  public Integer chunks = 0;
+
+  @Column(name = "attempts", nullable = false)
+  public Integer attempts = 0;
+
+  @Column(name = "created_date", nullable = false)
+  public LocalDateTime createdDate = LocalDateTime.now();
+
+  @Column(name = "started_date")
+  public LocalDateTime startedDate;
+
+  @Column(name = "checkpoint_date")
+  public LocalDateTime checkpointDate;
+
+  @Column(name = "completed_date")
+  public LocalDateTime completedDate;
+
+  @Column(name = "error_message", length = 1000)
+  public String errorMessage;
+
+  /** Batch job type enumeration. */
+  public enum JobType {
+    OVERDUE_FINES,
+    FINE_RECALCULATION,
+    OVERDUE_REMINDERS,
+    DUE_SOON_REMINDERS,
+    NOTIFICATION_CLEANUP,
+    RESERVATION_EXPIRY
+  }
+
+  /** Batch job status enumeration. */
+  public enum JobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+  }
+
+  /** Default constructor for JPA. */
+  public BatchJob() {}
+
+  /**
+   * Constructor with essential fields.
+   *
+   * @param type the job type
+   * @param chunkSize the rows per chunk and transaction
+   */
+  public BatchJob(JobType type, int chunkSize) {
+    this.type = type;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Checks if the job has finished, successfully or not.
+   *
+   * @return true if the job is completed, failed or cancelled
+   */
+  public boolean isFinished() {
+    return status == JobStatus.COMPLETED
+        || status == JobStatus.FAILED
+        || status == JobStatus.CANCELLED;
+  }
+}
@@ -12,6 +12,7 @@ import java.util.List;
 /** Book entity representing books in the library system. */
 @Entity
 @Table(name = "books")
+@Cacheable
 public class Book extends PanacheEntity {
 
   @NotBlank(message = "Title is required")
@@ -1,16 +1,22 @@
 package com.davonlibrary.entity;
 
+import com.davonlibrary.service.LibraryStatsService;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.quarkus.arc.Arc;
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import org.hibernate.jpa.HibernateHints;
 
 /** Library entity representing physical library locations. */
 @Entity
 @Table(name = "libraries")
+@Cacheable
 public class Library extends PanacheEntityBase {
 
   @Id
@@ -216,18 +222,15 @@ public class Library extends PanacheEntityBase {
   }
 
   /**
-   * Gets the library with the most active borrowers.
+   * Gets the library with the most active borrowers, from the counts kept by {@link
+   * LibraryStatsService}.
    *
    * @return the library with the most active borrowers, or null if no libraries exist
    */
   public static Library getLibraryWithMostActiveBorrowers() {
-    List<Library> allLibraries = Library.listAll();
-    if (allLibraries.isEmpty()) {
-      return null;
-    }
-    return allLibraries.stream()
-        .max(Comparator.comparing(Library::getActiveBorrowerCount))
-        .orElse(null);
+    List<LibraryStatsService.BranchStats> top =
+        stats().rank(LibraryStatsService.Ranking.ACTIVE_BORROWERS, 1);
+    return top.isEmpty() ? null : Library.findById(top.get(0).libraryId);
   }
 
   /**
@@ -236,10 +239,7 @@ public class Library extends PanacheEntityBase {
    * @return list of libraries ordered by active borrower count
    */
   public static List<Library> getLibrariesOrderedByActiveBorrowers() {
-    List<Library> allLibraries = Library.listAll();
-    return allLibraries.stream()
-        .sorted(Comparator.comparing(Library::getActiveBorrowerCount).reversed())
-        .toList();
+    return orderedBy(LibraryStatsService.Ranking.ACTIVE_BORROWERS);
   }
 
   /**
@@ -248,12 +248,27 @@ public class Library extends PanacheEntityBase {
    * @return list of libraries ordered by member count
    */
   public static List<Library> getLibrariesOrderedByMemberCount() {
-    List<Library> allLibraries = Library.listAll();
+    return orderedBy(LibraryStatsService.Ranking.MEMBERS);
+  }
+
+  /** Lists all libraries in rank order; libraries without counts yet come last. */
+  private static List<Library> orderedBy(LibraryStatsService.Ranking ranking) {
+    long[] rankedIds = stats().rankedIds(ranking);
+    Map<Long, Integer> ranks = new HashMap<>(rankedIds.length * 2);
+    for (int i = 0; i < rankedIds.length; i++) {
+      ranks.put(rankedIds[i], i);
+    }
+    List<Library> allLibraries =
+        Library.<Library>findAll().withHint(HibernateHints.HINT_CACHEABLE, true).list();
     return allLibraries.stream()
-        .sorted(Comparator.comparing(Library::getMemberCount).reversed())
+        .sorted(Comparator.comparing(library -> ranks.getOrDefault(library.id, Integer.MAX_VALUE)))
         .toList();
   }
 
+  private static LibraryStatsService stats() {
+    return Arc.container().instance(LibraryStatsService.class).get();
+  }
+
   /**
    * Gets the number of staff members in this library.
    *
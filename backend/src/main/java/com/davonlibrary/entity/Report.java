@@ -77,6 +77,12 @@ public class Report extends PanacheEntity {
   @Column(name = "max_retries")
   public Integer maxRetries = 3;
 
+  @Column(name = "retry_not_before")
+  public LocalDateTime retryNotBefore;
+
+  @Column(name = "owner", length = 100)
+  public String owner;
+
   /** Report type enumeration. */
   public enum ReportType {
     OVERDUE_BOOKS,
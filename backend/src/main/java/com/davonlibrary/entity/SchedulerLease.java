@@ -0,0 +1,44 @@
+package com.davonlibrary.entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Scheduler lease entity, shared by the backend instances of a cluster. A lease is held by one
+ * instance until it expires unless renewed: the scheduler leader lease, one liveness lease per
+ * instance and one row per recurring task recording the last period it ran for.
+ */
+@Entity
+@Table(name = "scheduler_leases")
+public class SchedulerLease extends PanacheEntityBase {
+
+  @Id
+  @Column(name = "name", length = 100)
+  public String name;
+
+  @Column(name = "owner", length = 100)
+  public String owner;
+
+  @Column(name = "acquired_at")
+  public LocalDateTime acquiredAt;
+
+  @Column(name = "expires_at")
+  public LocalDateTime expiresAt;
+
+  /** Last period a recurring task ran for, such as {@code 2024-05-01} for a daily task. */
+  @Column(name = "last_period", length = 50)
+  public String lastPeriod;
+
+  /** Default constructor for JPA. */
+  public SchedulerLease() {}
+
+  /**
+   * Constructor with the lease name.
+   *
+   * @param name the lease name
+   */
+  public SchedulerLease(String name) {
+    this.name = name;
+  }
+}
@@ -1,5 +1,11 @@
 package com.davonlibrary.entity;
 
+import com.davonlibrary.event.ActivityEvent;
+import com.davonlibrary.event.LoanEvent;
+import com.davonlibrary.event.MembershipEvent;
+import com.davonlibrary.repository.BookRepository;
+import com.davonlibrary.service.BookAvailabilityService;
+import io.quarkus.arc.Arc;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
@@ -118,7 +124,7 @@ public class Staff extends PanacheEntity {
   }
 
   /**
-   * Searches for books by title.
+   * Searches for books by title using the catalog search index.
    *
    * @param title the title to search for
    * @return list of books matching the title
@@ -127,7 +133,7 @@ public class Staff extends PanacheEntity {
     if (title == null || title.trim().isEmpty()) {
       return List.of();
     }
-    return Book.list("LOWER(title) LIKE LOWER(?1)", "%" + title.trim() + "%");
+    return Arc.container().instance(BookRepository.class).get().findByTitleContaining(title);
   }
 
   /**
@@ -137,15 +143,11 @@ public class Staff extends PanacheEntity {
    * @return true if the book is available for borrowing
    */
   public boolean checkAvailability(Long bookId) {
-    Book book = Book.findById(bookId);
-    if (book == null) {
+    if (bookId == null) {
       return false;
     }
-
-    // Find an available copy of the book
-    return BookCopy.find("book = ?1 and status = ?2", book, BookCopy.BookCopyStatus.AVAILABLE)
-        .firstResultOptional()
-        .isPresent();
+    return Arc.container().instance(BookAvailabilityService.class).get().getAvailableCopies(bookId)
+        > 0;
   }
 
   /**
@@ -166,9 +168,19 @@ public class Staff extends PanacheEntity {
       return false;
     }
 
+    BookCopy.BookCopyStatus previous = bookCopy.status;
     Loan loan = activeLoans.get(0);
     loan.returnBook();
     bookCopy.returnCopy();
+    Arc.container()
+        .instance(BookAvailabilityService.class)
+        .get()
+        .recordStatusChange(bookCopy, previous);
+    Arc.container()
+        .beanManager()
+        .getEvent()
+        .select(LoanEvent.class)
+        .fire(LoanEvent.of(LoanEvent.Kind.RETURNED, loan));
 
     return true;
   }
@@ -183,8 +195,18 @@ public class Staff extends PanacheEntity {
     try {
       // Create a library membership for the user
       LibraryMembership membership = new LibraryMembership(user, this.library);
-      membership.persist();
       user.persist();
+      membership.persist();
+      Arc.container()
+          .beanManager()
+          .getEvent()
+          .select(MembershipEvent.class)
+          .fire(MembershipEvent.of(membership));
+      Arc.container()
+          .beanManager()
+          .getEvent()
+          .select(ActivityEvent.class)
+          .fire(ActivityEvent.registration(user));
       return true;
     } catch (Exception e) {
       return false;
@@ -0,0 +1,40 @@
+package com.davonlibrary.event;
+
+import com.davonlibrary.dto.ActivityDTO;
+import com.davonlibrary.entity.User;
+import java.time.LocalDateTime;
+
+/**
+ * Fired when something shown in the recent-activity feed happens: a book is loaned or a user
+ * registers. Carries the activity ready to show, so the feed needs no database read after commit.
+ */
+public class ActivityEvent {
+
+  public final ActivityDTO activity;
+
+  public ActivityEvent(ActivityDTO activity) {
+    this.activity = activity;
+  }
+
+  /**
+   * Creates an event for a loan.
+   *
+   * @param user the borrower
+   * @param bookTitle the title of the loaned book
+   * @param loanDate when the loan was made
+   * @return the event
+   */
+  public static ActivityEvent loan(User user, String bookTitle, LocalDateTime loanDate) {
+    return new ActivityEvent(ActivityDTO.loan(user.getFullName(), bookTitle, loanDate));
+  }
+
+  /**
+   * Creates an event for a newly registered user.
+   *
+   * @param user the user
+   * @return the event
+   */
+  public static ActivityEvent registration(User user) {
+    return new ActivityEvent(ActivityDTO.newUser(user.getFullName(), user.joinDate));
+  }
+}
@@ -0,0 +1,35 @@
+package com.davonlibrary.event;
+
+import com.davonlibrary.entity.BookCopy.BookCopyStatus;
+
+/**
+ * Fired when a book copy is added, removed or changes status. A null {@code from} status means the
+ * copy was added; a null {@code to} status means it was removed.
+ */
+public class BookCopyStatusChangedEvent {
+
+  public final long bookId;
+  public final Long copyId;
+  public final Long libraryId;
+  public final BookCopyStatus from;
+  public final BookCopyStatus to;
+
+  public BookCopyStatusChangedEvent(
+      long bookId, Long copyId, Long libraryId, BookCopyStatus from, BookCopyStatus to) {
+    this.bookId = bookId;
+    this.copyId = copyId;
+    this.libraryId = libraryId;
+    this.from = from;
+    this.to = to;
+  }
+
+  /** Returns the change in the book's total copy count (-1, 0 or +1). */
+  public int totalDelta() {
+    return (to != null ? 1 : 0) - (from != null ? 1 : 0);
+  }
+
+  /** Returns the change in the book's available copy count (-1, 0 or +1). */
+  public int availableDelta() {
+    return (to == BookCopyStatus.AVAILABLE ? 1 : 0) - (from == BookCopyStatus.AVAILABLE ? 1 : 0);
+  }
+}
@@ -0,0 +1,93 @@
+package com.davonlibrary.event;
+
+import com.davonlibrary.entity.Author;
+import com.davonlibrary.entity.Book;
+
+/**
+ * Fired when a book or author is saved or deleted. Carries a snapshot of the searchable fields so
+ * observers running after commit do not need to read the database again.
+ */
+public class CatalogChangedEvent {
+
+  /** Kind of catalog change. */
+  public enum Kind {
+    BOOK_SAVED,
+    BOOK_DELETED,
+    AUTHOR_SAVED,
+    AUTHOR_DELETED
+  }
+
+  public final Kind kind;
+  public final Long bookId;
+  public final Long authorId;
+  public final String title;
+  public final String isbn;
+  public final String authorFirstName;
+  public final String authorLastName;
+
+  private CatalogChangedEvent(
+      Kind kind,
+      Long bookId,
+      Long authorId,
+      String title,
+      String isbn,
+      String authorFirstName,
+      String authorLastName) {
+    this.kind = kind;
+    this.bookId = bookId;
+    this.authorId = authorId;
+    this.title = title;
+    this.isbn = isbn;
+    this.authorFirstName = authorFirstName;
+    this.authorLastName = authorLastName;
+  }
+
+  /**
+   * Creates an event for a book that was created or updated.
+   *
+   * @param book the saved book
+   * @return the event
+   */
+  public static CatalogChangedEvent bookSaved(Book book) {
+    Author author = book.author;
+    return new CatalogChangedEvent(
+        Kind.BOOK_SAVED,
+        book.id,
+        author != null ? author.id : null,
+        book.title,
+        book.isbn,
+        author != null ? author.firstName : null,
+        author != null ? author.lastName : null);
+  }
+
+  /**
+   * Creates an event for a deleted book.
+   *
+   * @param bookId the deleted book ID
+   * @return the event
+   */
+  public static CatalogChangedEvent bookDeleted(Long bookId) {
+    return new CatalogChangedEvent(Kind.BOOK_DELETED, bookId, null, null, null, null, null);
+  }
+
+  /**
+   * Creates an event for an author that was created or updated.
+   *
+   * @param author the saved author
+   * @return the event
+   */
+  public static CatalogChangedEvent authorSaved(Author author) {
+    return new CatalogChangedEvent(
+        Kind.AUTHOR_SAVED, null, author.id, null, null, author.firstName, author.lastName);
+  }
+
+  /**
+   * Creates an event for a deleted author.
+   *
+   * @param authorId the deleted author ID
+   * @return the event
+   */
+  public static CatalogChangedEvent authorDeleted(Long authorId) {
+    return new CatalogChangedEvent(Kind.AUTHOR_DELETED, null, authorId, null, null, null, null);
+  }
+}
@@ -0,0 +1,39 @@
+package com.davonlibrary.event;
+
+import com.davonlibrary.entity.Library;
+
+/** Fired when a library is saved or deleted. Carries the fields shown alongside its counts. */
+public class LibraryChangedEvent {
+
+  public final long libraryId;
+  public final String name;
+  public final String city;
+  public final boolean deleted;
+
+  public LibraryChangedEvent(long libraryId, String name, String city, boolean deleted) {
+    this.libraryId = libraryId;
+    this.name = name;
+    this.city = city;
+    this.deleted = deleted;
+  }
+
+  /**
+   * Creates an event for a library that was created or updated.
+   *
+   * @param library the saved library
+   * @return the event
+   */
+  public static LibraryChangedEvent saved(Library library) {
+    return new LibraryChangedEvent(library.id, library.name, library.city, false);
+  }
+
+  /**
+   * Creates an event for a deleted library.
+   *
+   * @param libraryId the deleted library ID
+   * @return the event
+   */
+  public static LibraryChangedEvent deleted(long libraryId) {
+    return new LibraryChangedEvent(libraryId, null, null, true);
+  }
+}
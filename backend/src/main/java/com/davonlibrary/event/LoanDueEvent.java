@@ -0,0 +1,27 @@
+package com.davonlibrary.event;
+
+import java.time.LocalDate;
+
+/**
+ * Fired by the due-date scheduler when active loans cross a due-date threshold: they become due
+ * soon, or they become overdue. One event is fired per kind and day with all loans that crossed
+ * it, outside of any transaction.
+ */
+public class LoanDueEvent {
+
+  /** Threshold the loans crossed. */
+  public enum Kind {
+    DUE_SOON,
+    OVERDUE
+  }
+
+  public final Kind kind;
+  public final LocalDate date;
+  public final long[] loanIds;
+
+  public LoanDueEvent(Kind kind, LocalDate date, long[] loanIds) {
+    this.kind = kind;
+    this.date = date;
+    this.loanIds = loanIds;
+  }
+}
@@ -0,0 +1,63 @@
+package com.davonlibrary.event;
+
+import com.davonlibrary.entity.Book;
+import com.davonlibrary.entity.Loan;
+import java.time.LocalDate;
+
+/**
+ * Fired when a loan is created, returned or has its due date extended. Carries the IDs and due
+ * date so observers running after commit do not need to read the database again.
+ */
+public class LoanEvent {
+
+  /** Kind of loan change. */
+  public enum Kind {
+    BORROWED,
+    RETURNED,
+    EXTENDED
+  }
+
+  public final Kind kind;
+  public final long loanId;
+  public final Long userId;
+  public final Long bookCopyId;
+  public final Long bookId;
+  public final Long authorId;
+  public final LocalDate dueDate;
+
+  public LoanEvent(
+      Kind kind,
+      long loanId,
+      Long userId,
+      Long bookCopyId,
+      Long bookId,
+      Long authorId,
+      LocalDate dueDate) {
+    this.kind = kind;
+    this.loanId = loanId;
+    this.userId = userId;
+    this.bookCopyId = bookCopyId;
+    this.bookId = bookId;
+    this.authorId = authorId;
+    this.dueDate = dueDate;
+  }
+
+  /**
+   * Creates an event for a loan.
+   *
+   * @param kind the kind of change
+   * @param loan the loan after the change
+   * @return the event
+   */
+  public static LoanEvent of(Kind kind, Loan loan) {
+    Book book = loan.bookCopy != null ? loan.bookCopy.book : null;
+    return new LoanEvent(
+        kind,
+        loan.id,
+        loan.user != null ? loan.user.id : null,
+        loan.bookCopy != null ? loan.bookCopy.id : null,
+        book != null ? book.id : null,
+        book != null && book.author != null ? book.author.id : null,
+        loan.dueDate);
+  }
+}
@@ -0,0 +1,43 @@
+package com.davonlibrary.event;
+
+import com.davonlibrary.entity.LibraryMembership;
+
+/**
+ * Fired when a library membership is created, changes status or is deleted. Carries the IDs so
+ * observers running after commit do not need to read the database again.
+ */
+public class MembershipEvent {
+
+  public final long membershipId;
+  public final long userId;
+  public final long libraryId;
+  public final boolean active;
+
+  public MembershipEvent(long membershipId, long userId, long libraryId, boolean active) {
+    this.membershipId = membershipId;
+    this.userId = userId;
+    this.libraryId = libraryId;
+    this.active = active;
+  }
+
+  /**
+   * Creates an event for a membership's current status.
+   *
+   * @param membership the membership after the change
+   * @return the event
+   */
+  public static MembershipEvent of(LibraryMembership membership) {
+    return new MembershipEvent(
+        membership.id, membership.user.id, membership.library.id, membership.isActive());
+  }
+
+  /**
+   * Creates an event for a deleted membership.
+   *
+   * @param membership the membership before it was deleted
+   * @return the event
+   */
+  public static MembershipEvent deleted(LibraryMembership membership) {
+    return new MembershipEvent(membership.id, membership.user.id, membership.library.id, false);
+  }
+}
@@ -0,0 +1,43 @@
+package com.davonlibrary.event;
+
+import com.davonlibrary.entity.Reservation;
+
+/**
+ * Fired when a reservation joins or leaves its book's queue: it is created or reactivated, or it
+ * is cancelled, fulfilled, expired or deleted.
+ */
+public class ReservationEvent {
+
+  /** Queue change. */
+  public enum Kind {
+    QUEUED,
+    DEQUEUED
+  }
+
+  public final Kind kind;
+  public final long reservationId;
+  public final long bookId;
+  public final long userId;
+
+  public ReservationEvent(Kind kind, long reservationId, long bookId, long userId) {
+    this.kind = kind;
+    this.reservationId = reservationId;
+    this.bookId = bookId;
+    this.userId = userId;
+  }
+
+  /**
+   * Creates an event for a reservation's current status: queued if it is active, dequeued
+   * otherwise.
+   *
+   * @param reservation the reservation after the change
+   * @return the event
+   */
+  public static ReservationEvent of(Reservation reservation) {
+    return new ReservationEvent(
+        reservation.status == Reservation.ReservationStatus.ACTIVE ? Kind.QUEUED : Kind.DEQUEUED,
+        reservation.id,
+        reservation.book.id,
+        reservation.user.id);
+  }
+}
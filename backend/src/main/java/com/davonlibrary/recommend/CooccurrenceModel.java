@@ -0,0 +1,445 @@
+package com.davonlibrary.recommend;
+
+import com.davonlibrary.util.LongLongHashMap;
+import com.davonlibrary.util.SparseIntMatrix;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Item-to-item co-occurrence model of the loan history, for "borrowers also borrowed" lists.
+ *
+ * <p>Each user's window is the {@code maxHistory} distinct books they borrowed most recently, and
+ * two books co-occur once for every user whose window holds both. The counts are kept in a
+ * symmetric {@link SparseIntMatrix} over dense book ordinals, along with the number of windows
+ * holding each book.
+ * Related books are ranked by cosine similarity, {@code together / sqrt(borrowersA * borrowersB)},
+ * among the books borrowed together by at least {@code minSupport} users, so the most popular
+ * titles do not top every list. Capping the window bounds the pairs a heavy borrower adds.
+ *
+ * <p>A full build counts the pairs of every window in parallel: a fork/join task splits the users
+ * into ranges, each leaf counts its users' pairs into a matrix of its own, and halves are summed
+ * as their tasks join. Pairs borrowed together by fewer than {@code minSupport} users are then
+ * dropped, as they are never ranked; on a long loan history they are most of the pairs. After
+ * that, a borrow of a book not yet in the user's window is applied in O({@code maxHistory}): the
+ * book is paired with the rest of the window and, when the window is full, the book borrowed
+ * longest ago is unpaired and dropped. Borrowing a book already in the window only makes it the
+ * most recent, so a borrow may safely be applied twice. A dropped pair counts again from zero and
+ * unpairing skips pairs no longer counted, so counts never exceed the true ones, but a pair may
+ * reach {@code minSupport} later than it should until the next full build.
+ *
+ * <p>The top related books of each book are cached, so a lookup is a memory read once its list has
+ * been ranked. A borrow clears the lists of the books whose pair counts it changed; the lists of
+ * other books keep the borrower counts they were ranked with until they are next cleared. Not
+ * thread-safe; callers guard access themselves.
+ */
+public class CooccurrenceModel {
+
+  /** Number of related books ranked and cached per book, and the most a lookup returns. */
+  public static final int MAX_RELATED = 50;
+
+  private static final Recommendation[] NONE = new Recommendation[0];
+  private static final int[] NO_HISTORY = new int[0];
+
+  private final int maxHistory;
+  private final int minSupport;
+
+  // bookId -> ordinal, and by ordinal the ID, the windows holding it and its cached ranking
+  private final LongLongHashMap bookOrdinals = new LongLongHashMap(1024);
+  private long[] bookIds = new long[1024];
+  private int[] borrowers = new int[1024];
+  private Recommendation[][] related = new Recommendation[1024][];
+  private int bookCount;
+
+  // userId -> ordinal, and by ordinal the user's window of book ordinals, oldest first
+  private final LongLongHashMap userOrdinals = new LongLongHashMap(1024);
+  private int[][] histories = new int[1024][];
+  private int[] historyLengths = new int[1024];
+  private int userCount;
+
+  private SparseIntMatrix together = new SparseIntMatrix();
+  private long loans;
+
+  /**
+   * Creates an empty model.
+   *
+   * @param maxHistory the number of distinct recent books kept per user
+   * @param minSupport the fewest users who must have borrowed two books for them to be related
+   */
+  public CooccurrenceModel(int maxHistory, int minSupport) {
+    if (maxHistory < 2 || minSupport < 1) {
+      throw new IllegalArgumentException("maxHistory must be at least 2 and minSupport at least 1");
+    }
+    this.maxHistory = maxHistory;
+    this.minSupport = minSupport;
+  }
+
+  /**
+   * Applies a borrow.
+   *
+   * @param userId the borrowing user's ID
+   * @param bookId the borrowed book's ID
+   * @return true if the book was new to the user's window, so the counts changed
+   */
+  public boolean borrow(long userId, long bookId) {
+    int book = bookOrdinal(bookId);
+    int user = userOrdinal(userId);
+    int[] history = histories[user];
+    int length = historyLengths[user];
+    for (int i = 0; i < length; i++) {
+      if (history[i] == book) {
+        // Already paired with the rest of the window; it only becomes the most recent
+        System.arraycopy(history, i + 1, history, i, length - i - 1);
+        history[length - 1] = book;
+        return false;
+      }
+    }
+    if (length == maxHistory) {
+      int oldest = history[0];
+      for (int i = 1; i < length; i++) {
+        pair(oldest, history[i], -1);
+      }
+      borrowers[oldest]--;
+      related[oldest] = null;
+      System.arraycopy(history, 1, history, 0, --length);
+    }
+    for (int i = 0; i < length; i++) {
+      pair(book, history[i], 1);
+    }
+    if (length == history.length) {
+      history = Arrays.copyOf(history, Math.min(maxHistory, Math.max(4, length * 2)));
+      histories[user] = history;
+    }
+    history[length] = book;
+    historyLengths[user] = length + 1;
+    borrowers[book]++;
+    related[book] = null;
+    return true;
+  }
+
+  /**
+   * Gets the books most often borrowed by the borrowers of a book, best first.
+   *
+   * @param bookId the book ID
+   * @param limit the maximum number of books, at most {@link #MAX_RELATED}
+   * @return the related books
+   */
+  public List<Recommendation> related(long bookId, int limit) {
+    long ordinal = bookOrdinals.get(bookId, -1L);
+    if (ordinal < 0 || limit <= 0) {
+      return List.of();
+    }
+    int book = (int) ordinal;
+    Recommendation[] ranked = related[book];
+    if (ranked == null) {
+      ranked = rank(book);
+      related[book] = ranked;
+    }
+    return List.of(Arrays.copyOf(ranked, Math.min(limit, ranked.length)));
+  }
+
+  /**
+   * Counts the users who borrowed both books within their windows.
+   *
+   * @param bookId one book ID
+   * @param otherBookId the other book ID
+   * @return the number of users
+   */
+  public int together(long bookId, long otherBookId) {
+    long a = bookOrdinals.get(bookId, -1L);
+    long b = bookOrdinals.get(otherBookId, -1L);
+    return a < 0 || b < 0 ? 0 : together.get((int) a, (int) b);
+  }
+
+  /** Returns the number of books borrowed at least once. */
+  public int bookCount() {
+    return bookCount;
+  }
+
+  /** Returns the number of users who borrowed at least once. */
+  public int userCount() {
+    return userCount;
+  }
+
+  /** Returns the number of distinct pairs of books borrowed together. */
+  public long pairCount() {
+    return together.nonZeroCount() / 2;
+  }
+
+  /** Returns the number of loans read by the build. */
+  public long loanCount() {
+    return loans;
+  }
+
+  /**
+   * Estimates the heap used by the model.
+   *
+   * @return estimated footprint in bytes
+   */
+  public long estimatedBytes() {
+    long bytes = together.estimatedBytes() + bookOrdinals.estimatedBytes();
+    bytes += userOrdinals.estimatedBytes();
+    bytes += 8L * bookIds.length + 4L * borrowers.length + 4L * related.length;
+    bytes += 8L * histories.length;
+    for (int user = 0; user < userCount; user++) {
+      bytes += 16 + 4L * histories[user].length;
+    }
+    return bytes;
+  }
+
+  private void pair(int book, int other, int delta) {
+    if (delta < 0 && together.get(book, other) == 0) {
+      // Dropped below the minimum support by the last full build
+      return;
+    }
+    together.add(book, other, delta);
+    together.add(other, book, delta);
+    related[other] = null;
+  }
+
+  private Recommendation[] rank(int book) {
+    if (together.rowSize(book) == 0) {
+      return NONE;
+    }
+    Ranking ranking = new Ranking(Math.max(1, borrowers[book]));
+    together.forEachInRow(book, ranking::offer);
+    return ranking.toArray();
+  }
+
+  private int bookOrdinal(long bookId) {
+    long ordinal = bookOrdinals.get(bookId, -1L);
+    if (ordinal >= 0) {
+      return (int) ordinal;
+    }
+    if (bookCount == bookIds.length) {
+      int capacity = bookCount * 2;
+      bookIds = Arrays.copyOf(bookIds, capacity);
+      borrowers = Arrays.copyOf(borrowers, capacity);
+      related = Arrays.copyOf(related, capacity);
+    }
+    bookIds[bookCount] = bookId;
+    bookOrdinals.put(bookId, bookCount);
+    return bookCount++;
+  }
+
+  private int userOrdinal(long userId) {
+    long ordinal = userOrdinals.get(userId, -1L);
+    return ordinal >= 0 ? (int) ordinal : addUser(userId, NO_HISTORY, 0);
+  }
+
+  private int addUser(long userId, int[] history, int length) {
+    if (userCount == histories.length) {
+      histories = Arrays.copyOf(histories, userCount * 2);
+      historyLengths = Arrays.copyOf(historyLengths, userCount * 2);
+    }
+    histories[userCount] = history;
+    historyLengths[userCount] = length;
+    userOrdinals.put(userId, userCount);
+    return userCount++;
+  }
+
+  /** Keeps the best related books of one book seen so far, best first. */
+  private class Ranking {
+    final double borrowersOfBook;
+    final int[] books = new int[MAX_RELATED];
+    final int[] counts = new int[MAX_RELATED];
+    final double[] scores = new double[MAX_RELATED];
+    int size;
+
+    Ranking(double borrowersOfBook) {
+      this.borrowersOfBook = borrowersOfBook;
+    }
+
+    void offer(int other, int count) {
+      if (count < minSupport) {
+        return;
+      }
+      double score = count / Math.sqrt(borrowersOfBook * Math.max(1, borrowers[other]));
+      if (size == MAX_RELATED && !before(score, count, other, size - 1)) {
+        return;
+      }
+      int at = size < MAX_RELATED ? size++ : size - 1;
+      while (at > 0 && before(score, count, other, at - 1)) {
+        books[at] = books[at - 1];
+        counts[at] = counts[at - 1];
+        scores[at] = scores[at - 1];
+        at--;
+      }
+      books[at] = other;
+      counts[at] = count;
+      scores[at] = score;
+    }
+
+    /** Orders by score, then by count, then by book ID. */
+    boolean before(double score, int count, int other, int at) {
+      if (score != scores[at]) {
+        return score > scores[at];
+      }
+      if (count != counts[at]) {
+        return count > counts[at];
+      }
+      return bookIds[other] < bookIds[books[at]];
+    }
+
+    Recommendation[] toArray() {
+      Recommendation[] ranked = new Recommendation[size];
+      for (int i = 0; i < size; i++) {
+        ranked[i] = new Recommendation(bookIds[books[i]], scores[i], counts[i]);
+      }
+      return ranked;
+    }
+  }
+
+  /**
+   * Builds a model from the loan history. Loans must be given grouped by user, each user's most
+   * recent first, as only the first {@code maxHistory} distinct books of each user are kept.
+   */
+  public static class Loader {
+    private final CooccurrenceModel model;
+    private final int[] window;
+    // By book ordinal: the sequence number of the last user seen borrowing it
+    private int[] seenBy = new int[1024];
+    private long currentUser;
+    private int sequence;
+    private int length;
+
+    /**
+     * Creates a loader.
+     *
+     * @param maxHistory the number of distinct recent books kept per user
+     * @param minSupport the fewest users who must have borrowed two books for them to be related
+     */
+    public Loader(int maxHistory, int minSupport) {
+      model = new CooccurrenceModel(maxHistory, minSupport);
+      window = new int[maxHistory];
+    }
+
+    /**
+     * Adds a loan.
+     *
+     * @param userId the borrowing user's ID
+     * @param bookId the borrowed book's ID
+     * @throws IllegalArgumentException if the user's loans were already given before another's
+     */
+    public void loan(long userId, long bookId) {
+      model.loans++;
+      if (sequence == 0 || userId != currentUser) {
+        flush();
+        if (model.userOrdinals.containsKey(userId)) {
+          throw new IllegalArgumentException("Loans must be grouped by user: " + userId);
+        }
+        currentUser = userId;
+        sequence++;
+      }
+      if (length == window.length) {
+        return;
+      }
+      int book = model.bookOrdinal(bookId);
+      if (book >= seenBy.length) {
+        seenBy = Arrays.copyOf(seenBy, Math.max(book + 1, seenBy.length * 2));
+      }
+      if (seenBy[book] != sequence) {
+        seenBy[book] = sequence;
+        window[length++] = book;
+      }
+    }
+
+    /**
+     * Counts the pairs of every user's window in parallel, drops those below the minimum support
+     * and returns the model.
+     *
+     * @param pool the pool to count in
+     * @return the model
+     */
+    public CooccurrenceModel finish(ForkJoinPool pool) {
+      flush();
+      int users = model.userCount;
+      int threshold = Math.max(256, users / (pool.getParallelism() * 8));
+      model.together =
+          pool.invoke(new PairCounter(model.histories, model.historyLengths, 0, users, threshold));
+      for (int user = 0; user < users; user++) {
+        for (int i = 0; i < model.historyLengths[user]; i++) {
+          model.borrowers[model.histories[user][i]]++;
+        }
+      }
+      if (model.minSupport > 1) {
+        model.together.removeBelow(model.minSupport);
+      }
+      return model;
+    }
+
+    private void flush() {
+      if (length == 0) {
+        return;
+      }
+      // The window was filled most recent first; keep it oldest first
+      int[] history = new int[length];
+      for (int i = 0; i < length; i++) {
+        history[i] = window[length - 1 - i];
+      }
+      model.addUser(currentUser, history, length);
+      length = 0;
+    }
+  }
+
+  /** Counts the pairs of a range of users' windows, splitting the range while it is large. */
+  private static class PairCounter extends RecursiveTask<SparseIntMatrix> {
+    private final int[][] histories;
+    private final int[] lengths;
+    private final int from;
+    private final int to;
+    private final int threshold;
+
+    PairCounter(int[][] histories, int[] lengths, int from, int to, int threshold) {
+      this.histories = histories;
+      this.lengths = lengths;
+      this.from = from;
+      this.to = to;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected SparseIntMatrix compute() {
+      if (to - from <= threshold) {
+        SparseIntMatrix counts = new SparseIntMatrix();
+        for (int user = from; user < to; user++) {
+          int[] history = histories[user];
+          for (int i = 0; i < lengths[user]; i++) {
+            for (int j = i + 1; j < lengths[user]; j++) {
+              counts.add(history[i], history[j], 1);
+              counts.add(history[j], history[i], 1);
+            }
+          }
+        }
+        return counts;
+      }
+      int middle = (from + to) >>> 1;
+      PairCounter left = new PairCounter(histories, lengths, from, middle, threshold);
+      left.fork();
+      SparseIntMatrix right =
+          new PairCounter(histories, lengths, middle, to, threshold).compute();
+      SparseIntMatrix counts = left.join();
+      // Sum the smaller matrix into the larger one
+      if (counts.nonZeroCount() < right.nonZeroCount()) {
+        right.addAll(counts);
+        return right;
+      }
+      counts.addAll(right);
+      return counts;
+    }
+  }
+
+  /** Related book DTO. */
+  public static class Recommendation {
+    public final long bookId;
+    public final double score;
+    public final int borrowedTogether;
+
+    public Recommendation(long bookId, double score, int borrowedTogether) {
+      this.bookId = bookId;
+      this.score = score;
+      this.borrowedTogether = borrowedTogether;
+    }
+  }
+}
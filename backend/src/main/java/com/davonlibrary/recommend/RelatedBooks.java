@@ -0,0 +1,231 @@
+package com.davonlibrary.recommend;
+
+import com.davonlibrary.event.LoanEvent;
+import com.davonlibrary.recommend.CooccurrenceModel.Recommendation;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves "borrowers also borrowed" lists from an in-memory {@link CooccurrenceModel} of the loan
+ * history.
+ *
+ * <p>The model is built at startup from every loan, read grouped by user with the most recent
+ * first, and its pairs are counted on a fork/join pool of its own, bounded so a rebuild leaves
+ * processors to the request threads and the common pool, and shut down when the count is done. It
+ * is kept current from borrowed {@link LoanEvent}s. A borrow of a book already in the user's
+ * window changes nothing, so a rebuild can replay the borrows committed while it was loading. A
+ * periodic rebuild picks up changes made outside the application and refreshes the borrower
+ * counts of cached lists.
+ *
+ * <p>The model holds every user's window and the pair counts in the heap, and a rebuild holds the
+ * old model, the new one and the partial counts of its tasks at once. When disabled, nothing is
+ * built or kept and every list is empty.
+ */
+@ApplicationScoped
+public class RelatedBooks {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RelatedBooks.class);
+
+  private static final int FETCH_SIZE = 1000;
+
+  @Inject EntityManager entityManager;
+
+  @ConfigProperty(name = "library.recommendations.enabled", defaultValue = "true")
+  boolean enabled;
+
+  @ConfigProperty(name = "library.recommendations.max-history", defaultValue = "100")
+  int maxHistory;
+
+  @ConfigProperty(name = "library.recommendations.min-support", defaultValue = "2")
+  int minSupport;
+
+  @ConfigProperty(name = "library.recommendations.build-threads")
+  Optional<Integer> buildThreads;
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  private final Object stateLock = new Object();
+  private CooccurrenceModel model;
+  // Borrows committed while a rebuild is loading; null when no rebuild is running
+  private List<LoanEvent> pendingChanges;
+
+  void onStart(@Observes StartupEvent event) {
+    if (!enabled) {
+      LOGGER.info("Related books are disabled");
+      return;
+    }
+    try {
+      rebuild();
+    } catch (Exception e) {
+      LOGGER.warn("Related books could not be built; lists will be empty", e);
+    }
+  }
+
+  @Scheduled(
+      every = "${library.recommendations.rebuild-interval:24h}",
+      delayed = "${library.recommendations.rebuild-interval:24h}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void scheduledRebuild() {
+    if (!enabled) {
+      return;
+    }
+    try {
+      rebuild();
+    } catch (Exception e) {
+      LOGGER.error("Related books rebuild failed", e);
+    }
+  }
+
+  /**
+   * Rebuilds the model from the loan history.
+   *
+   * @return the statistics of the new model
+   * @throws IllegalStateException if related books are disabled or a rebuild is already running
+   */
+  public ModelStats rebuild() {
+    if (!enabled) {
+      throw new IllegalStateException("Related books are disabled");
+    }
+    if (!rebuildLock.tryLock()) {
+      throw new IllegalStateException("Related books rebuild already in progress");
+    }
+    try {
+      long start = System.nanoTime();
+      synchronized (stateLock) {
+        pendingChanges = new ArrayList<>();
+      }
+      CooccurrenceModel fresh;
+      try {
+        CooccurrenceModel.Loader loader =
+            QuarkusTransaction.requiringNew().timeout(600).call(this::load);
+        // Count the pairs after the transaction, which only has to cover the read
+        ForkJoinPool pool =
+            new ForkJoinPool(
+                buildThreads
+                    .filter(threads -> threads > 0)
+                    .orElse(Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+        try {
+          fresh = loader.finish(pool);
+        } finally {
+          pool.shutdown();
+        }
+      } catch (RuntimeException e) {
+        synchronized (stateLock) {
+          pendingChanges = null;
+        }
+        throw e;
+      }
+      ModelStats stats;
+      synchronized (stateLock) {
+        for (LoanEvent change : pendingChanges) {
+          fresh.borrow(change.userId, change.bookId);
+        }
+        model = fresh;
+        pendingChanges = null;
+        stats = stats(fresh);
+      }
+      LOGGER.info(
+          "Related books built: {} loans, {} users, {} books, {} pairs, ~{} MB in {} ms",
+          stats.loans,
+          stats.users,
+          stats.books,
+          stats.pairs,
+          stats.estimatedBytes / (1024 * 1024),
+          (System.nanoTime() - start) / 1_000_000);
+      return stats;
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the books most often borrowed by the borrowers of a book, best first.
+   *
+   * @param bookId the book ID
+   * @param limit the maximum number of books, at most {@link CooccurrenceModel#MAX_RELATED}
+   * @return the related books; empty until the model is built
+   */
+  public List<Recommendation> related(long bookId, int limit) {
+    synchronized (stateLock) {
+      return model != null ? model.related(bookId, limit) : List.of();
+    }
+  }
+
+  /** Returns the statistics of the current model; all zero until it is built. */
+  public ModelStats getStats() {
+    synchronized (stateLock) {
+      return model != null ? stats(model) : new ModelStats(0, 0, 0, 0, 0);
+    }
+  }
+
+  void onLoanChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) LoanEvent event) {
+    if (event.kind != LoanEvent.Kind.BORROWED || event.userId == null || event.bookId == null) {
+      return;
+    }
+    synchronized (stateLock) {
+      if (model != null) {
+        model.borrow(event.userId, event.bookId);
+      }
+      if (pendingChanges != null) {
+        pendingChanges.add(event);
+      }
+    }
+  }
+
+  private CooccurrenceModel.Loader load() {
+    CooccurrenceModel.Loader loader = new CooccurrenceModel.Loader(maxHistory, minSupport);
+    try (Stream<Object[]> rows =
+        entityManager
+            .createQuery(
+                "SELECT l.user.id, c.book.id FROM Loan l JOIN l.bookCopy c"
+                    + " ORDER BY l.user.id, l.loanDate DESC, l.id DESC",
+                Object[].class)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream()) {
+      rows.forEach(row -> loader.loan((Long) row[0], (Long) row[1]));
+    }
+    return loader;
+  }
+
+  private static ModelStats stats(CooccurrenceModel model) {
+    return new ModelStats(
+        model.loanCount(),
+        model.userCount(),
+        model.bookCount(),
+        model.pairCount(),
+        model.estimatedBytes());
+  }
+
+  /** Co-occurrence model statistics DTO. */
+  public static class ModelStats {
+    public final long loans;
+    public final int users;
+    public final int books;
+    public final long pairs;
+    public final long estimatedBytes;
+
+    public ModelStats(long loans, int users, int books, long pairs, long estimatedBytes) {
+      this.loans = loans;
+      this.users = users;
+      this.books = books;
+      this.pairs = pairs;
+      this.estimatedBytes = estimatedBytes;
+    }
+  }
+}
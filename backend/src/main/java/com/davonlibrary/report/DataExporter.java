@@ -0,0 +1,209 @@
+package com.davonlibrary.report;
+
+import com.davonlibrary.util.Csv;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams whole datasets (the catalog, the loan history, fines) to an output stream as NDJSON or
+ * CSV. Each dataset is one projection query read through a forward-only cursor with a fixed fetch
+ * size and written row by row as it arrives, so neither the result set nor any entities are held
+ * in memory and an export of any size runs in flat memory. Rows are in ID order.
+ */
+@ApplicationScoped
+public class DataExporter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DataExporter.class);
+
+  private static final int FETCH_SIZE = 1000;
+  // Rows written between flushes, so the client receives the export as it is read
+  private static final int FLUSH_INTERVAL = 1000;
+  private static final int EXPORT_TIMEOUT_SECONDS = 3600;
+
+  /** Datasets that can be exported. */
+  public enum Dataset {
+    CATALOG(
+        new String[] {
+          "book_id", "title", "isbn", "author", "status", "total_copies", "available_copies"
+        },
+        "SELECT b.id, b.title, b.isbn, concat(a.firstName, ' ', a.lastName), b.status,"
+            + " b.totalCopies, b.availableCopies"
+            + " FROM Book b LEFT JOIN b.author a ORDER BY b.id"),
+    LOANS(
+        new String[] {
+          "loan_id", "user_id", "book_copy_id", "book_id", "title", "loan_date", "due_date",
+          "return_date", "status"
+        },
+        "SELECT l.id, l.user.id, c.id, b.id, b.title, l.loanDate, l.dueDate, l.returnDate,"
+            + " l.status"
+            + " FROM Loan l JOIN l.bookCopy c JOIN c.book b ORDER BY l.id"),
+    FINES(
+        new String[] {
+          "fine_id", "user_id", "loan_id", "amount", "paid_amount", "status", "fine_date",
+          "payment_date", "payment_method"
+        },
+        "SELECT f.id, f.user.id, l.id, f.amount, f.paidAmount, f.status, f.fineDate,"
+            + " f.paymentDate, f.paymentMethod"
+            + " FROM Fine f LEFT JOIN f.loan l ORDER BY f.id");
+
+    final String[] columns;
+    final String query;
+
+    Dataset(String[] columns, String query) {
+      this.columns = columns;
+      this.query = query;
+    }
+
+    /**
+     * Parses a dataset name, ignoring case.
+     *
+     * @param name the dataset name
+     * @return the dataset
+     * @throws IllegalArgumentException if there is no such dataset
+     */
+    public static Dataset parse(String name) {
+      try {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException | NullPointerException e) {
+        throw new IllegalArgumentException("Unknown export dataset: " + name);
+      }
+    }
+  }
+
+  /** Output formats of an export. */
+  public enum Format {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    public final String mediaType;
+    public final String extension;
+
+    Format(String mediaType, String extension) {
+      this.mediaType = mediaType;
+      this.extension = extension;
+    }
+
+    /**
+     * Parses a format name, ignoring case.
+     *
+     * @param name the format name
+     * @return the format
+     * @throws IllegalArgumentException if there is no such format
+     */
+    public static Format parse(String name) {
+      try {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException | NullPointerException e) {
+        throw new IllegalArgumentException("Unknown export format: " + name);
+      }
+    }
+  }
+
+  @Inject EntityManager entityManager;
+
+  @Inject ObjectMapper objectMapper;
+
+  /**
+   * Streams a dataset to an output stream in its own read-only transaction. The stream is flushed
+   * but not closed.
+   *
+   * @param dataset the dataset to export
+   * @param format the output format
+   * @param out the output stream
+   * @return the number of rows written
+   */
+  public long export(Dataset dataset, Format format, OutputStream out) {
+    long start = System.nanoTime();
+    long rows =
+        QuarkusTransaction.requiringNew()
+            .timeout(EXPORT_TIMEOUT_SECONDS)
+            .call(() -> format == Format.CSV ? writeCsv(dataset, out) : writeNdjson(dataset, out));
+    LOGGER.info(
+        "Exported {} {} rows as {} in {} ms",
+        rows,
+        dataset,
+        format,
+        (System.nanoTime() - start) / 1_000_000);
+    return rows;
+  }
+
+  private long writeNdjson(Dataset dataset, OutputStream out) throws IOException {
+    long rows = 0;
+    try (JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        ScrollableResults<Object[]> results = scroll(dataset)) {
+      // Do not close the response stream along with the generator
+      json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+      while (results.next()) {
+        Object[] row = results.get();
+        json.writeStartObject();
+        for (int i = 0; i < row.length; i++) {
+          json.writeFieldName(dataset.columns[i]);
+          json.writeObject(row[i]);
+        }
+        json.writeEndObject();
+        if (++rows % FLUSH_INTERVAL == 0) {
+          json.flush();
+        }
+      }
+      if (rows > 0) {
+        json.writeRaw('\n');
+      }
+      json.flush();
+    }
+    return rows;
+  }
+
+  private long writeCsv(Dataset dataset, OutputStream out) throws IOException {
+    long rows = 0;
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    writer.write(String.join(",", dataset.columns));
+    writer.write('\n');
+    StringBuilder line = new StringBuilder(256);
+    try (ScrollableResults<Object[]> results = scroll(dataset)) {
+      while (results.next()) {
+        Object[] row = results.get();
+        line.setLength(0);
+        for (int i = 0; i < row.length; i++) {
+          if (i > 0) {
+            line.append(',');
+          }
+          Csv.append(line, row[i]);
+        }
+        line.append('\n');
+        writer.append(line);
+        if (++rows % FLUSH_INTERVAL == 0) {
+          writer.flush();
+        }
+      }
+    }
+    writer.flush();
+    return rows;
+  }
+
+  private ScrollableResults<Object[]> scroll(Dataset dataset) {
+    return entityManager
+        .unwrap(Session.class)
+        .createQuery(dataset.query, Object[].class)
+        .setFetchSize(FETCH_SIZE)
+        .setReadOnly(true)
+        .scroll(ScrollMode.FORWARD_ONLY);
+  }
+}
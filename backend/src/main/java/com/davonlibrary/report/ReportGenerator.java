@@ -0,0 +1,267 @@
+package com.davonlibrary.report;
+
+import com.davonlibrary.entity.Report;
+import com.davonlibrary.entity.Report.ReportType;
+import com.davonlibrary.entity.Reservation.ReservationStatus;
+import com.davonlibrary.util.Csv;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+
+/**
+ * Writes the data of a report as CSV. Each report type is one projection query whose rows are
+ * streamed from the database straight to the writer, so no report is held in memory whatever its
+ * size. Must be called inside a transaction.
+ */
+@ApplicationScoped
+public class ReportGenerator {
+
+  private static final int FETCH_SIZE = 1000;
+
+  private static final Map<ReportType, Section> SECTIONS = new EnumMap<>(ReportType.class);
+
+  static {
+    SECTIONS.put(
+        ReportType.OVERDUE_BOOKS,
+        new Section(
+            "loan_id,user_id,user_name,email,book_id,title,barcode,loan_date,due_date",
+            "SELECT l.id, u.id, concat(u.firstName, ' ', u.lastName), u.email, b.id, b.title,"
+                + " c.barcode, l.loanDate, l.dueDate"
+                + " FROM Loan l JOIN l.user u JOIN l.bookCopy c JOIN c.book b"
+                + " WHERE l.returnDate IS NULL AND l.dueDate < :today",
+            "l.loanDate",
+            "",
+            "l.dueDate, l.id",
+            -1));
+    SECTIONS.put(
+        ReportType.FINE_COLLECTION,
+        new Section(
+            "fine_id,user_id,loan_id,amount,paid_amount,status,fine_date,payment_date,"
+                + "payment_method",
+            "SELECT f.id, u.id, l.id, f.amount, f.paidAmount, f.status, f.fineDate,"
+                + " f.paymentDate, f.paymentMethod"
+                + " FROM Fine f JOIN f.user u LEFT JOIN f.loan l WHERE 1 = 1",
+            "f.fineDate",
+            "",
+            "f.fineDate, f.id",
+            4));
+    SECTIONS.put(
+        ReportType.POPULAR_BOOKS,
+        new Section(
+            "book_id,title,author,loans",
+            "SELECT b.id, b.title, concat(a.firstName, ' ', a.lastName), COUNT(l.id)"
+                + " FROM Loan l JOIN l.bookCopy c JOIN c.book b LEFT JOIN b.author a WHERE 1 = 1",
+            "l.loanDate",
+            "b.id, b.title, a.firstName, a.lastName",
+            "COUNT(l.id) DESC, b.id",
+            -1));
+    SECTIONS.put(
+        ReportType.USER_ACTIVITY,
+        new Section(
+            "user_id,user_name,email,loans,active_loans,last_loan_date",
+            "SELECT u.id, concat(u.firstName, ' ', u.lastName), u.email, COUNT(l.id),"
+                + " SUM(CASE WHEN l.returnDate IS NULL THEN 1 ELSE 0 END), MAX(l.loanDate)"
+                + " FROM Loan l JOIN l.user u WHERE 1 = 1",
+            "l.loanDate",
+            "u.id, u.firstName, u.lastName, u.email",
+            "COUNT(l.id) DESC, u.id",
+            -1));
+    SECTIONS.put(
+        ReportType.LOAN_STATISTICS,
+        new Section(
+            "loan_date,loans,returned,overdue",
+            "SELECT cast(l.loanDate as LocalDate), COUNT(l.id),"
+                + " SUM(CASE WHEN l.returnDate IS NOT NULL THEN 1 ELSE 0 END),"
+                + " SUM(CASE WHEN l.returnDate IS NULL AND l.dueDate < :today THEN 1 ELSE 0 END)"
+                + " FROM Loan l WHERE 1 = 1",
+            "l.loanDate",
+            "cast(l.loanDate as LocalDate)",
+            "cast(l.loanDate as LocalDate)",
+            -1));
+    SECTIONS.put(
+        ReportType.RESERVATION_QUEUE,
+        new Section(
+            "book_id,title,active_reservations,oldest_reservation_date",
+            "SELECT b.id, b.title, COUNT(r.id), MIN(r.reservationDate)"
+                + " FROM Reservation r JOIN r.book b WHERE r.status = :activeReservation",
+            "r.reservationDate",
+            "b.id, b.title",
+            "COUNT(r.id) DESC, b.id",
+            -1));
+    SECTIONS.put(
+        ReportType.INVENTORY_STATUS,
+        new Section(
+            "library_id,library_name,book_id,title,status,copies",
+            "SELECT lib.id, lib.name, b.id, b.title, c.status, COUNT(c.id)"
+                + " FROM BookCopy c JOIN c.book b LEFT JOIN c.library lib WHERE 1 = 1",
+            null,
+            "lib.id, lib.name, b.id, b.title, c.status",
+            "lib.id, b.id, c.status",
+            -1));
+    SECTIONS.put(
+        ReportType.FINANCIAL_SUMMARY,
+        new Section(
+            "status,fines,amount,paid_amount",
+            "SELECT f.status, COUNT(f.id), SUM(f.amount), SUM(f.paidAmount)"
+                + " FROM Fine f WHERE 1 = 1",
+            "f.fineDate",
+            "f.status",
+            "f.status",
+            2));
+    // Staff actions are not recorded, so performance is reported as the staff roster
+    SECTIONS.put(
+        ReportType.STAFF_PERFORMANCE,
+        new Section(
+            "staff_id,employee_id,name,position,department,library,employment_status,hire_date",
+            "SELECT s.id, s.employeeId, concat(s.firstName, ' ', s.lastName), s.position,"
+                + " s.department, lib.name, s.employmentStatus, s.hireDate"
+                + " FROM Staff s LEFT JOIN s.library lib WHERE 1 = 1",
+            "s.createdDate",
+            "",
+            "s.id",
+            -1));
+    SECTIONS.put(
+        ReportType.SYSTEM_USAGE,
+        new Section(
+            "metric,value",
+            "SELECT 'users', COUNT(u.id) FROM User u"
+                + " UNION ALL SELECT 'books', COUNT(b.id) FROM Book b"
+                + " UNION ALL SELECT 'book_copies', COUNT(c.id) FROM BookCopy c"
+                + " UNION ALL SELECT 'loans', COUNT(l.id) FROM Loan l"
+                + " UNION ALL SELECT 'active_loans', COUNT(l.id) FROM Loan l"
+                + " WHERE l.returnDate IS NULL"
+                + " UNION ALL SELECT 'reservations', COUNT(r.id) FROM Reservation r"
+                + " UNION ALL SELECT 'fines', COUNT(f.id) FROM Fine f"
+                + " UNION ALL SELECT 'notifications', COUNT(n.id) FROM Notification n",
+            null,
+            "",
+            "",
+            -1));
+  }
+
+  @Inject EntityManager entityManager;
+
+  /**
+   * Streams the data of a report to a writer as CSV with a header line. Reports with a start and
+   * end date only include rows whose main date falls in [start, end).
+   *
+   * @param report the report to write
+   * @param out the writer
+   * @return the number of data rows written and the report's total amount, if it has one
+   * @throws IOException if writing fails
+   */
+  public ReportOutput write(Report report, Writer out) throws IOException {
+    Section section = SECTIONS.get(report.type);
+    if (section == null) {
+      throw new IllegalArgumentException("Unsupported report type: " + report.type);
+    }
+    boolean ranged =
+        section.rangePath != null && report.startDate != null && report.endDate != null;
+    StringBuilder hql = new StringBuilder(section.query);
+    if (ranged) {
+      hql.append(" AND ")
+          .append(section.rangePath)
+          .append(" >= :start AND ")
+          .append(section.rangePath)
+          .append(" < :end");
+    }
+    if (!section.groupBy.isEmpty()) {
+      hql.append(" GROUP BY ").append(section.groupBy);
+    }
+    if (!section.orderBy.isEmpty()) {
+      hql.append(" ORDER BY ").append(section.orderBy);
+    }
+
+    TypedQuery<Object[]> query =
+        entityManager
+            .createQuery(hql.toString(), Object[].class)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true);
+    if (section.query.contains(":today")) {
+      query.setParameter("today", LocalDate.now());
+    }
+    if (section.query.contains(":activeReservation")) {
+      query.setParameter("activeReservation", ReservationStatus.ACTIVE);
+    }
+    if (ranged) {
+      // Fine dates are LocalDate; the other range paths are LocalDateTime
+      boolean dateOnly = section.rangePath.equals("f.fineDate");
+      query.setParameter("start", dateOnly ? report.startDate.toLocalDate() : report.startDate);
+      query.setParameter("end", dateOnly ? report.endDate.toLocalDate() : report.endDate);
+    }
+
+    out.write(section.header);
+    out.write('\n');
+    long records = 0;
+    BigDecimal totalAmount = section.amountColumn >= 0 ? BigDecimal.ZERO : null;
+    StringBuilder line = new StringBuilder(256);
+    try (Stream<Object[]> rows = query.getResultStream()) {
+      // An iterator rather than forEach, so write failures propagate as IOException
+      Iterator<Object[]> iterator = rows.iterator();
+      while (iterator.hasNext()) {
+        Object[] row = iterator.next();
+        line.setLength(0);
+        for (int i = 0; i < row.length; i++) {
+          if (i > 0) {
+            line.append(',');
+          }
+          Csv.append(line, row[i]);
+        }
+        line.append('\n');
+        out.append(line);
+        records++;
+        if (totalAmount != null && row[section.amountColumn] != null) {
+          totalAmount = totalAmount.add((BigDecimal) row[section.amountColumn]);
+        }
+      }
+    }
+    out.flush();
+    return new ReportOutput(records, totalAmount);
+  }
+
+  /** Rows written for a report and its total amount. */
+  public static class ReportOutput {
+    public final long records;
+    public final BigDecimal totalAmount;
+
+    public ReportOutput(long records, BigDecimal totalAmount) {
+      this.records = records;
+      this.totalAmount = totalAmount;
+    }
+  }
+
+  /** The query of one report type, split so a date range can be added before any grouping. */
+  private static class Section {
+    final String header;
+    final String query;
+    final String rangePath;
+    final String groupBy;
+    final String orderBy;
+    final int amountColumn;
+
+    Section(
+        String header,
+        String query,
+        String rangePath,
+        String groupBy,
+        String orderBy,
+        int amountColumn) {
+      this.header = header;
+      this.query = query;
+      this.rangePath = rangePath;
+      this.groupBy = groupBy;
+      this.orderBy = orderBy;
+      this.amountColumn = amountColumn;
+    }
+  }
+}
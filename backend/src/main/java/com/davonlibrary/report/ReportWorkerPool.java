@@ -0,0 +1,303 @@
+package com.davonlibrary.report;
+
+import com.davonlibrary.entity.Report;
+import com.davonlibrary.entity.Report.ReportStatus;
+import com.davonlibrary.report.ReportGenerator.ReportOutput;
+import com.davonlibrary.repository.ReportRepository;
+import com.davonlibrary.service.ClusterLeaseService;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates pending reports on a bounded pool of workers. Each poll claims at most as many pending
+ * reports as there are idle workers, so reports wait in the database rather than in memory. A
+ * worker streams the report to a file through {@link ReportGenerator} and records the file and its
+ * metrics on the report. A failed report goes back to pending with its retry count raised and is
+ * not picked up again until an exponentially growing backoff, recorded on the report, has passed;
+ * once its retries are used up it is marked failed. A report left processing by a run that stopped
+ * counts as failed too, so a report that brings the application down is not retried forever.
+ *
+ * <p>A claimed report records its instance as owner, and only the owner records the outcome. A
+ * single instance takes back the reports left processing when it starts. In a cluster an instance
+ * restarts under a new node ID, so the reports of instances whose liveness leases have expired,
+ * its own earlier run included, are taken back by the scheduler leader, and those of live
+ * instances are left to them.
+ */
+@ApplicationScoped
+public class ReportWorkerPool {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReportWorkerPool.class);
+
+  private static final int GENERATION_TIMEOUT_SECONDS = 3600;
+  private static final int MAX_ERROR_LENGTH = 1000;
+  private static final String INTERRUPTED = "Generation was interrupted by its instance stopping";
+
+  @Inject ReportRepository reportRepository;
+
+  @Inject ReportGenerator reportGenerator;
+
+  @Inject ClusterLeaseService clusterLeases;
+
+  @ConfigProperty(name = "library.reports.workers", defaultValue = "2")
+  int workers;
+
+  @ConfigProperty(name = "library.reports.output-dir", defaultValue = "reports")
+  String outputDir;
+
+  @ConfigProperty(name = "library.reports.retry-backoff", defaultValue = "30s")
+  Duration retryBackoff;
+
+  private ExecutorService executor;
+  private Semaphore idleWorkers;
+
+  @PostConstruct
+  void init() {
+    AtomicInteger threads = new AtomicInteger();
+    executor =
+        Executors.newFixedThreadPool(
+            workers,
+            runnable -> {
+              Thread thread = new Thread(runnable, "report-worker-" + threads.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    idleWorkers = new Semaphore(workers);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    if (clusterLeases.isEnabled()) {
+      // Processing reports may belong to live instances; the leader requeues those of stopped ones
+      return;
+    }
+    try {
+      // Reports left processing by a run that stopped before finishing them
+      int requeued =
+          QuarkusTransaction.requiringNew()
+              .call(
+                  () -> requeueInterrupted(reportRepository.findByStatus(ReportStatus.PROCESSING)));
+      if (requeued > 0) {
+        LOGGER.info("Requeued or failed {} reports left processing", requeued);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Interrupted reports could not be requeued", e);
+    }
+  }
+
+  @Scheduled(
+      every = "${library.reports.poll-interval:10s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void tick() {
+    poll();
+  }
+
+  /**
+   * Requeues the processing reports of instances whose liveness leases have expired, each counted
+   * as a failed attempt. Called by the scheduler leader.
+   *
+   * @return the number of reports requeued or failed
+   */
+  public int requeueOrphaned() {
+    LocalDateTime now = LocalDateTime.now();
+    int requeued =
+        QuarkusTransaction.requiringNew()
+            .call(() -> requeueInterrupted(reportRepository.findProcessingOrphaned(now)));
+    if (requeued > 0) {
+      LOGGER.info("Requeued or failed {} reports of stopped instances", requeued);
+    }
+    return requeued;
+  }
+
+  private int requeueInterrupted(List<Report> interrupted) {
+    interrupted.forEach(report -> retryOrFail(report, INTERRUPTED, null));
+    return interrupted.size();
+  }
+
+  /**
+   * Claims pending reports for the idle workers and starts generating them.
+   *
+   * @return the number of reports started
+   */
+  public synchronized int poll() {
+    int idle = idleWorkers.availablePermits();
+    if (idle == 0) {
+      return 0;
+    }
+    List<Long> claimed;
+    try {
+      claimed = QuarkusTransaction.requiringNew().call(() -> claim(idle));
+    } catch (Exception e) {
+      LOGGER.error("Failed to claim pending reports", e);
+      return 0;
+    }
+    for (Long reportId : claimed) {
+      idleWorkers.acquireUninterruptibly();
+      executor.execute(
+          () -> {
+            try {
+              generate(reportId);
+            } finally {
+              idleWorkers.release();
+            }
+          });
+    }
+    return claimed.size();
+  }
+
+  private List<Long> claim(int limit) {
+    String nodeId = clusterLeases.getNodeId();
+    List<Long> claimed = new ArrayList<>(limit);
+    for (Report report : reportRepository.findToProcess(LocalDateTime.now(), limit)) {
+      if (reportRepository.claimForProcessing(report.id, nodeId)) {
+        claimed.add(report.id);
+      }
+    }
+    return claimed;
+  }
+
+  private void generate(Long reportId) {
+    long start = System.nanoTime();
+    Report report =
+        QuarkusTransaction.requiringNew().call(() -> reportRepository.findById(reportId));
+    if (report == null) {
+      return;
+    }
+    Path file =
+        Paths.get(outputDir)
+            .resolve(
+                "report-" + reportId + "-" + report.type.name().toLowerCase(Locale.ROOT) + ".csv");
+    Path partial = file.resolveSibling(file.getFileName() + ".part");
+    try {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      ReportOutput output =
+          QuarkusTransaction.requiringNew()
+              .timeout(GENERATION_TIMEOUT_SECONDS)
+              .call(
+                  () -> {
+                    try (Writer out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                      return reportGenerator.write(report, out);
+                    }
+                  });
+      Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+      long fileSize = Files.size(file);
+      long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+      boolean recorded =
+          QuarkusTransaction.requiringNew()
+              .call(() -> recordCompleted(reportId, file, fileSize, output, elapsedMs));
+      if (!recorded) {
+        // Cancelled, deleted or taken back from this instance while generating
+        Files.deleteIfExists(file);
+        return;
+      }
+      LOGGER.info(
+          "Generated report {} ({}): {} records, {} bytes in {} ms",
+          reportId,
+          report.type,
+          output.records,
+          fileSize,
+          elapsedMs);
+    } catch (Exception e) {
+      deleteQuietly(partial);
+      long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+      try {
+        QuarkusTransaction.requiringNew().run(() -> recordFailure(reportId, e, elapsedMs));
+      } catch (Exception recordError) {
+        LOGGER.error("Failed to record the failure of report {}", reportId, recordError);
+      }
+    }
+  }
+
+  private boolean recordCompleted(
+      Long reportId, Path file, long fileSize, ReportOutput output, long elapsedMs) {
+    Report report = reportRepository.findById(reportId);
+    if (!isProcessingHere(report)) {
+      return false;
+    }
+    report.markAsCompleted(
+        file.toString(), fileSize, (int) Math.min(Integer.MAX_VALUE, output.records));
+    report.totalAmount = output.totalAmount;
+    report.processingTimeMs = elapsedMs;
+    report.errorMessage = null;
+    report.retryNotBefore = null;
+    return true;
+  }
+
+  private void recordFailure(Long reportId, Exception error, long elapsedMs) {
+    Report report = reportRepository.findById(reportId);
+    if (!isProcessingHere(report)) {
+      return;
+    }
+    String message = error.getMessage() != null ? error.getMessage() : error.toString();
+    if (message.length() > MAX_ERROR_LENGTH) {
+      message = message.substring(0, MAX_ERROR_LENGTH);
+    }
+    report.processingTimeMs = elapsedMs;
+    retryOrFail(report, message, error);
+  }
+
+  private boolean isProcessingHere(Report report) {
+    return report != null
+        && report.status == ReportStatus.PROCESSING
+        && clusterLeases.getNodeId().equals(report.owner);
+  }
+
+  /** Puts a failed report back to pending after a backoff, or marks it failed if out of retries. */
+  private void retryOrFail(Report report, String message, Exception error) {
+    report.owner = null;
+    if (report.retryCount < report.maxRetries) {
+      report.retryCount++;
+      report.status = ReportStatus.PENDING;
+      report.errorMessage = message;
+      Duration delay = retryBackoff.multipliedBy(1L << Math.min(report.retryCount - 1, 16));
+      report.retryNotBefore = LocalDateTime.now().plus(delay);
+      LOGGER.warn(
+          "Report {} failed, retry {} of {} in {} ms",
+          report.id,
+          report.retryCount,
+          report.maxRetries,
+          delay.toMillis(),
+          error);
+    } else {
+      report.markAsFailed(message);
+      report.retryNotBefore = null;
+      LOGGER.error("Report {} failed after {} retries", report.id, report.retryCount, error);
+    }
+  }
+
+  private static void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LOGGER.warn("Could not delete {}", path, e);
+    }
+  }
+}
@@ -2,11 +2,19 @@ package com.davonlibrary.repository;
 
 import com.davonlibrary.entity.Author;
 import com.davonlibrary.entity.Book;
+import com.davonlibrary.service.PopularityService;
+import com.davonlibrary.service.PopularityService.RankedCount;
+import com.davonlibrary.service.PopularityService.Subject;
+import com.davonlibrary.service.PopularityService.Window;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /** Repository for Author entity operations and queries. */
@@ -15,6 +23,8 @@ public class AuthorRepository implements PanacheRepository<Author> {
 
   @Inject EntityManager em;
 
+  @Inject PopularityService popularityService;
+
   /**
    * Finds authors by name containing search term.
    *
@@ -59,17 +69,21 @@ public class AuthorRepository implements PanacheRepository<Author> {
   }
 
   /**
-   * Gets the most popular authors (by number of books).
+   * Gets the most popular authors (by number of borrows of their books), from the in-memory
+   * borrow counts.
    *
    * @param limit the maximum number of results
-   * @return list of popular authors
+   * @return list of popular authors with borrow count, most borrowed first
    */
-  @SuppressWarnings("unchecked")
   public List<Object[]> getMostPopularAuthors(int limit) {
-    return em.createQuery(
-            "SELECT a, COUNT(b) as bookCount FROM Author a LEFT JOIN a.books b GROUP BY a ORDER BY COUNT(b) DESC")
-        .setMaxResults(limit)
-        .getResultList();
+    List<Object[]> rows = new ArrayList<>();
+    for (RankedCount count : popularityService.top(Subject.AUTHOR, Window.ALL_TIME, limit)) {
+      Author author = findById(count.id);
+      if (author != null) {
+        rows.add(new Object[] {author, count.count});
+      }
+    }
+    return rows;
   }
 
   /**
@@ -92,6 +106,22 @@ public class AuthorRepository implements PanacheRepository<Author> {
     return count("SELECT COUNT(b) FROM Book b WHERE b.author.id = ?1", authorId) > 0;
   }
 
+  /**
+   * Gets the full names of authors by ID in one query.
+   *
+   * @param ids the author IDs
+   * @return the full names of the authors that exist, by ID
+   */
+  public Map<Long, String> findFullNames(Collection<Long> ids) {
+    Map<Long, String> names = new HashMap<>();
+    if (!ids.isEmpty()) {
+      for (Author author : list("id IN ?1", ids)) {
+        names.put(author.id, author.getFullName());
+      }
+    }
+    return names;
+  }
+
   /**
    * Gets author statistics.
    *
@@ -0,0 +1,161 @@
+package com.davonlibrary.repository;
+
+import com.davonlibrary.entity.BatchJob;
+import com.davonlibrary.entity.BatchJob.JobStatus;
+import com.davonlibrary.entity.BatchJob.JobType;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Sort;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/** Repository for BatchJob entity operations and queries. */
+@ApplicationScoped
+public class BatchJobRepository implements PanacheRepository<BatchJob> {
+
+  /**
+   * Finds the most recent jobs.
+   *
+   * @param limit the maximum number of jobs
+   * @return list of jobs, newest first
+   */
+  public List<BatchJob> findRecent(int limit) {
+    return findAll(Sort.by("id").descending()).page(0, limit).list();
+  }
+
+  /**
+   * Finds the oldest jobs waiting to run.
+   *
+   * @param limit the maximum number of jobs
+   * @return list of pending jobs in creation order
+   */
+  public List<BatchJob> findToRun(int limit) {
+    return find("status = ?1 ORDER BY id", JobStatus.PENDING).page(0, limit).list();
+  }
+
+  /**
+   * Finds a pending or running job of a type whose range overlaps a range.
+   *
+   * @param type the job type
+   * @param rangeStart the first partition key of the range, or null for every row
+   * @param rangeEnd the partition key after the range, or null for every row
+   * @return the first unfinished overlapping job if exists
+   */
+  public Optional<BatchJob> findUnfinishedOverlapping(
+      JobType type, Long rangeStart, Long rangeEnd) {
+    if (rangeStart == null || rangeEnd == null) {
+      return find(
+              "type = ?1 AND status IN (?2, ?3) ORDER BY id",
+              type,
+              JobStatus.PENDING,
+              JobStatus.RUNNING)
+          .firstResultOptional();
+    }
+    return find(
+            "type = ?1 AND status IN (?2, ?3)"
+                + " AND (rangeStart IS NULL OR (rangeStart < ?5 AND rangeEnd > ?4)) ORDER BY id",
+            type,
+            JobStatus.PENDING,
+            JobStatus.RUNNING,
+            rangeStart,
+            rangeEnd)
+        .firstResultOptional();
+  }
+
+  /**
+   * Claims a pending job for running, so that only one worker of one instance runs it.
+   *
+   * @param jobId the job ID
+   * @param owner the node ID of the claiming instance
+   * @return true if the job was still pending and is now running
+   */
+  public boolean claimForRunning(Long jobId, String owner) {
+    return update(
+            "status = ?1, owner = ?2, attempts = attempts + 1, startedDate = ?3,"
+                + " errorMessage = null WHERE id = ?4 AND status = ?5",
+            JobStatus.RUNNING,
+            owner,
+            LocalDateTime.now(),
+            jobId,
+            JobStatus.PENDING)
+        == 1;
+  }
+
+  /**
+   * Records a processed chunk on a running job. Called in the chunk's transaction, so the
+   * checkpoint commits or rolls back with the chunk's work.
+   *
+   * @param jobId the job ID
+   * @param owner the node ID of the instance running the job
+   * @param lastId the ID of the last row of the chunk
+   * @param rows the rows in the chunk
+   * @param affected the rows the chunk changed
+   * @return true if the job is still running on the owner and the chunk was recorded
+   */
+  public boolean recordChunk(Long jobId, String owner, long lastId, int rows, long affected) {
+    return update(
+            "lastId = ?1, processedRows = processedRows + ?2, affectedRows = affectedRows + ?3,"
+                + " chunks = chunks + 1, checkpointDate = ?4"
+                + " WHERE id = ?5 AND status = ?6 AND owner = ?7",
+            lastId,
+            (long) rows,
+            affected,
+            LocalDateTime.now(),
+            jobId,
+            JobStatus.RUNNING,
+            owner)
+        == 1;
+  }
+
+  /**
+   * Marks a job run by an owner as finished.
+   *
+   * @param jobId the job ID
+   * @param owner the node ID of the instance running the job
+   * @param status the final status
+   * @param errorMessage the error of a failed job, or null
+   * @return true if the job was still running on the owner
+   */
+  public boolean finish(Long jobId, String owner, JobStatus status, String errorMessage) {
+    return update(
+            "status = ?1, completedDate = ?2, errorMessage = ?3"
+                + " WHERE id = ?4 AND status = ?5 AND owner = ?6",
+            status,
+            LocalDateTime.now(),
+            errorMessage,
+            jobId,
+            JobStatus.RUNNING,
+            owner)
+        == 1;
+  }
+
+  /**
+   * Puts the running jobs back to pending, to resume from their checkpoints. Only safe when no
+   * other instance can be running jobs.
+   *
+   * @return the number of jobs requeued
+   */
+  public int requeueRunning() {
+    return update(
+        "status = ?1, owner = null WHERE status = ?2", JobStatus.PENDING, JobStatus.RUNNING);
+  }
+
+  /**
+   * Puts the running jobs whose instance's liveness lease has expired back to pending. The
+   * chunks such an instance may still be running no longer commit, as it is no longer the owner.
+   *
+   * @param now the current time
+   * @return the number of jobs requeued
+   */
+  public int requeueOrphaned(LocalDateTime now) {
+    return update(
+        "status = ?1, owner = null WHERE status = ?2 AND (owner IS NULL OR owner NOT IN"
+            + " (SELECT l.owner FROM SchedulerLease l WHERE l.name LIKE ?3"
+            + " AND l.owner IS NOT NULL AND l.expiresAt >= ?4))",
+        JobStatus.PENDING,
+        JobStatus.RUNNING,
+        SchedulerLeaseRepository.NODE_PREFIX + "%",
+        now);
+  }
+}
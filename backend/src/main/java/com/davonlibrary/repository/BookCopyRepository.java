@@ -1,16 +1,38 @@
 package com.davonlibrary.repository;
 
+import com.davonlibrary.dto.BookCopyDTO;
 import com.davonlibrary.entity.BookCopy;
 import com.davonlibrary.entity.BookCopy.BookCopyStatus;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.TypedQuery;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.List;
 import java.util.Optional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
 
 /** Repository for BookCopy entity operations and queries. */
 @ApplicationScoped
 public class BookCopyRepository implements PanacheRepository<BookCopy> {
 
+  private static final String SUMMARY_SELECT =
+      "SELECT new com.davonlibrary.dto.BookCopyDTO(bc.id, bc.barcode, bc.status, bc.location,"
+          + " bc.notes, b.id, b.title, l.id, l.name)"
+          + " FROM BookCopy bc JOIN bc.book b JOIN bc.library l";
+
+  // Takes the first copy no other transaction holds, skipping locked rows instead of waiting
+  private static final String SQL_SERVER_CLAIM =
+      "UPDATE TOP (1) book_copies WITH (UPDLOCK, READPAST, ROWLOCK) SET status = ?"
+          + " OUTPUT inserted.id WHERE book_id = ? AND status = ?";
+
+  // Candidates tried per round by the portable claim before looking again
+  private static final int CLAIM_CANDIDATES = 8;
+
+  @ConfigProperty(name = "quarkus.datasource.db-kind")
+  String databaseKind;
+
   /**
    * Finds a book copy by barcode.
    *
@@ -167,6 +189,132 @@ public class BookCopyRepository implements PanacheRepository<BookCopy> {
     return count("barcode", barcode) > 0;
   }
 
+  /**
+   * Atomically claims one available copy of a book by switching it to CHECKED_OUT. Concurrent
+   * callers never receive the same copy. Must be called inside a transaction; the claim is undone
+   * if that transaction rolls back.
+   *
+   * @param bookId the book ID
+   * @return the claimed copy, or empty if no copy is available
+   */
+  public Optional<BookCopy> claimAvailableCopy(Long bookId) {
+    Long copyId =
+        "mssql".equalsIgnoreCase(databaseKind)
+            ? claimWithReadPast(bookId)
+            : claimWithCompareAndSet(bookId);
+    if (copyId == null) {
+      return Optional.empty();
+    }
+    BookCopy copy = findById(copyId);
+    if (copy.status != BookCopyStatus.CHECKED_OUT) {
+      // Already loaded before the claim; pick up the new status
+      getEntityManager().refresh(copy);
+    }
+    return Optional.of(copy);
+  }
+
+  private Long claimWithReadPast(Long bookId) {
+    return getEntityManager()
+        .unwrap(Session.class)
+        .doReturningWork(
+            connection -> {
+              try (PreparedStatement statement = connection.prepareStatement(SQL_SERVER_CLAIM)) {
+                statement.setString(1, BookCopyStatus.CHECKED_OUT.name());
+                statement.setLong(2, bookId);
+                statement.setString(3, BookCopyStatus.AVAILABLE.name());
+                try (ResultSet rs = statement.executeQuery()) {
+                  return rs.next() ? rs.getLong(1) : null;
+                }
+              }
+            });
+  }
+
+  private Long claimWithCompareAndSet(Long bookId) {
+    while (true) {
+      List<Long> candidates =
+          getEntityManager()
+              .createQuery(
+                  "SELECT c.id FROM BookCopy c WHERE c.book.id = :bookId AND c.status = :available"
+                      + " ORDER BY c.id",
+                  Long.class)
+              .setParameter("bookId", bookId)
+              .setParameter("available", BookCopyStatus.AVAILABLE)
+              .setMaxResults(CLAIM_CANDIDATES)
+              .getResultList();
+      if (candidates.isEmpty()) {
+        return null;
+      }
+      for (Long candidate : candidates) {
+        int claimed =
+            getEntityManager()
+                .createQuery(
+                    "UPDATE BookCopy c SET c.status = :checkedOut"
+                        + " WHERE c.id = :id AND c.status = :available")
+                .setParameter("checkedOut", BookCopyStatus.CHECKED_OUT)
+                .setParameter("id", candidate)
+                .setParameter("available", BookCopyStatus.AVAILABLE)
+                .executeUpdate();
+        if (claimed == 1) {
+          return candidate;
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds book copies with a status as list views, without loading entities.
+   *
+   * @param status the book copy status
+   * @return list of book copies with the status ordered by ID
+   */
+  public List<BookCopyDTO> findSummariesByStatus(BookCopyStatus status) {
+    return summaryQuery(" WHERE bc.status = :status")
+        .setParameter("status", status)
+        .getResultList();
+  }
+
+  /**
+   * Finds book copies in a library as list views, without loading entities.
+   *
+   * @param libraryId the library ID
+   * @return list of book copies in the library ordered by ID
+   */
+  public List<BookCopyDTO> findSummariesByLibrary(Long libraryId) {
+    return summaryQuery(" WHERE l.id = :libraryId")
+        .setParameter("libraryId", libraryId)
+        .getResultList();
+  }
+
+  /**
+   * Finds copies of a book as list views, without loading entities.
+   *
+   * @param bookId the book ID
+   * @return list of copies of the book ordered by ID
+   */
+  public List<BookCopyDTO> findSummariesByBook(Long bookId) {
+    return summaryQuery(" WHERE b.id = :bookId").setParameter("bookId", bookId).getResultList();
+  }
+
+  /**
+   * Finds a page of book copies as list views, in ID order.
+   *
+   * @param afterId the ID of the last row of the previous page, or null for the first page
+   * @param limit the page size
+   * @return the page
+   */
+  public KeysetPage<BookCopyDTO> findSummaryPage(Long afterId, int limit) {
+    TypedQuery<BookCopyDTO> query =
+        afterId != null
+            ? summaryQuery(" WHERE bc.id > :afterId").setParameter("afterId", afterId)
+            : summaryQuery("");
+    return KeysetPage.of(query.setMaxResults(limit + 1).getResultList(), limit, row -> row.id);
+  }
+
+  private TypedQuery<BookCopyDTO> summaryQuery(String where) {
+    return getEntityManager()
+        .createQuery(SUMMARY_SELECT + where + " ORDER BY bc.id", BookCopyDTO.class);
+  }
+
   /**
    * Gets book copy statistics for a library.
    *
@@ -1,9 +1,25 @@
 package com.davonlibrary.repository;
 
+import com.davonlibrary.dto.BookDTO;
 import com.davonlibrary.entity.Book;
 import com.davonlibrary.entity.BookCopy;
+import com.davonlibrary.search.CatalogFacets;
+import com.davonlibrary.search.CatalogSearchIndex;
+import com.davonlibrary.search.FacetIndex;
+import com.davonlibrary.search.InvertedIndex;
+import com.davonlibrary.service.PopularityService;
+import com.davonlibrary.service.PopularityService.RankedCount;
+import com.davonlibrary.service.PopularityService.Subject;
+import com.davonlibrary.service.PopularityService.Window;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.TypedQuery;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +27,26 @@ import java.util.Optional;
 @ApplicationScoped
 public class BookRepository implements PanacheRepository<Book> {
 
+  /** Largest catalog page a client may request. */
+  public static final int MAX_CATALOG_PAGE_SIZE = 500;
+
+  private static final String CATALOG_SELECT =
+      "SELECT new com.davonlibrary.dto.BookDTO(b.id, b.title, b.isbn, a.firstName, a.lastName,"
+          + " COUNT(bc.id), SUM(CASE WHEN bc.status = :available THEN 1 ELSE 0 END), b.status)"
+          + " FROM Book b LEFT JOIN b.author a LEFT JOIN b.bookCopies bc";
+
+  private static final String CATALOG_GROUP_BY =
+      " GROUP BY b.id, b.title, b.isbn, a.firstName, a.lastName, b.status";
+
+  // SQL Server accepts at most 2100 parameters per statement
+  private static final int ID_BATCH_SIZE = 1000;
+
+  @Inject CatalogSearchIndex searchIndex;
+
+  @Inject CatalogFacets catalogFacets;
+
+  @Inject PopularityService popularityService;
+
   /**
    * Finds a book by ISBN.
    *
@@ -22,14 +58,13 @@ public class BookRepository implements PanacheRepository<Book> {
   }
 
   /**
-   * Finds books by title containing search term.
+   * Finds books whose title contains words starting with each word of the search term.
    *
    * @param searchTerm the search term
    * @return list of books matching the search
    */
   public List<Book> findByTitleContaining(String searchTerm) {
-    String pattern = "%" + searchTerm.toLowerCase() + "%";
-    return list("LOWER(title) LIKE ?1", pattern);
+    return findByIds(searchIndex.search(searchTerm, InvertedIndex.Field.TITLE));
   }
 
   /**
@@ -49,8 +84,7 @@ public class BookRepository implements PanacheRepository<Book> {
    * @return list of books by authors matching the name
    */
   public List<Book> findByAuthorName(String authorName) {
-    String pattern = "%" + authorName.toLowerCase() + "%";
-    return list("LOWER(author.firstName) LIKE ?1 OR LOWER(author.lastName) LIKE ?1", pattern);
+    return findByIds(searchIndex.search(authorName, InvertedIndex.Field.AUTHOR));
   }
 
   /**
@@ -72,15 +106,20 @@ public class BookRepository implements PanacheRepository<Book> {
   }
 
   /**
-   * Finds the most popular books (most borrowed).
+   * Finds the most popular books (most borrowed), from the in-memory borrow counts.
    *
    * @param limit the maximum number of results
-   * @return list of popular books
+   * @return list of popular books, most borrowed first
    */
   public List<Book> findMostPopular(int limit) {
-    return find("SELECT b FROM Book b LEFT JOIN b.loans l GROUP BY b ORDER BY COUNT(l) DESC")
-        .page(0, limit)
-        .list();
+    List<Book> books = new ArrayList<>();
+    for (RankedCount count : popularityService.top(Subject.BOOK, Window.ALL_TIME, limit)) {
+      Book book = findById(count.id);
+      if (book != null) {
+        books.add(book);
+      }
+    }
+    return books;
   }
 
   /**
@@ -94,7 +133,8 @@ public class BookRepository implements PanacheRepository<Book> {
   }
 
   /**
-   * Searches books by multiple criteria.
+   * Searches books by multiple criteria. Author and availability filters are answered from the
+   * catalog facets once they are loaded.
    *
    * @param searchTerm search term for title and author
    * @param authorId specific author ID (optional)
@@ -102,31 +142,120 @@ public class BookRepository implements PanacheRepository<Book> {
    * @return list of books matching the criteria
    */
   public List<Book> searchBooks(String searchTerm, Long authorId, boolean availableOnly) {
-    StringBuilder query = new StringBuilder("1=1");
+    boolean hasTerm = searchTerm != null && !searchTerm.trim().isEmpty();
+    if (catalogFacets.isLoaded() && (authorId != null || availableOnly)) {
+      long[] ids =
+          catalogFacets.filter(
+              new FacetIndex.Filter(
+                  authorId, null, null, availableOnly ? Book.BookStatus.AVAILABLE : null));
+      return findByIds(hasTerm ? intersect(ids, searchIndex.search(searchTerm)) : ids);
+    }
+    if (!hasTerm) {
+      if (authorId != null) {
+        return availableOnly
+            ? list("author.id = ?1 AND availableCopies > 0", authorId)
+            : list("author.id", authorId);
+      }
+      return availableOnly ? findAvailable() : listAll();
+    }
+
+    List<Book> books = findByIds(searchIndex.search(searchTerm));
+    books.removeIf(
+        book ->
+            (authorId != null && (book.author == null || !authorId.equals(book.author.id)))
+                || (availableOnly && (book.availableCopies == null || book.availableCopies <= 0)));
+    return books;
+  }
 
-    if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-      String pattern = "%" + searchTerm.toLowerCase() + "%";
-      query
-          .append(" AND (LOWER(title) LIKE '")
-          .append(pattern)
-          .append("'")
-          .append(" OR LOWER(author.firstName) LIKE '")
-          .append(pattern)
-          .append("'")
-          .append(" OR LOWER(author.lastName) LIKE '")
-          .append(pattern)
-          .append("')");
+  /**
+   * Finds books by ID, sorted by title. IDs are loaded in batches to stay within the database's
+   * parameter limit.
+   *
+   * @param ids the book IDs
+   * @return the books that exist, sorted by title
+   */
+  public List<Book> findByIds(long[] ids) {
+    List<Book> books = new ArrayList<>(ids.length);
+    for (int from = 0; from < ids.length; from += ID_BATCH_SIZE) {
+      books.addAll(list("id IN ?1", idBatch(ids, from)));
     }
+    books.sort(Comparator.comparing(book -> book.title, String.CASE_INSENSITIVE_ORDER));
+    return books;
+  }
 
-    if (authorId != null) {
-      query.append(" AND author.id = ").append(authorId);
+  /**
+   * Finds the catalog view of books by ID, sorted by title.
+   *
+   * @param ids the book IDs
+   * @return the catalog entries of the books that exist, sorted by title
+   */
+  public List<BookDTO> findCatalogEntries(long[] ids) {
+    List<BookDTO> books = new ArrayList<>(ids.length);
+    for (int from = 0; from < ids.length; from += ID_BATCH_SIZE) {
+      books.addAll(
+          getEntityManager()
+              .createQuery(CATALOG_SELECT + " WHERE b.id IN :ids" + CATALOG_GROUP_BY, BookDTO.class)
+              .setParameter("available", BookCopy.BookCopyStatus.AVAILABLE)
+              .setParameter("ids", idBatch(ids, from))
+              .getResultList());
+    }
+    books.sort(Comparator.comparing(book -> book.title, String.CASE_INSENSITIVE_ORDER));
+    return books;
+  }
+
+  /**
+   * Finds the catalog view of the first books by title among the given IDs. Only the titles of
+   * the other books are read, so a broad match costs one light query per batch of IDs.
+   *
+   * @param ids the book IDs
+   * @param limit the maximum number of books
+   * @return the catalog entries of the first books by title, sorted by title
+   */
+  public List<BookDTO> findCatalogEntries(long[] ids, int limit) {
+    if (ids.length <= limit) {
+      return findCatalogEntries(ids);
     }
+    List<Object[]> titles = new ArrayList<>(ids.length);
+    for (int from = 0; from < ids.length; from += ID_BATCH_SIZE) {
+      titles.addAll(
+          getEntityManager()
+              .createQuery("SELECT b.id, b.title FROM Book b WHERE b.id IN :ids", Object[].class)
+              .setParameter("ids", idBatch(ids, from))
+              .getResultList());
+    }
+    titles.sort(
+        Comparator.comparing((Object[] row) -> (String) row[1], String.CASE_INSENSITIVE_ORDER));
+    long[] first = new long[Math.min(limit, titles.size())];
+    for (int i = 0; i < first.length; i++) {
+      first[i] = (Long) titles.get(i)[0];
+    }
+    return findCatalogEntries(first);
+  }
 
-    if (availableOnly) {
-      query.append(" AND availableCopies > 0");
+  private static long[] intersect(long[] a, long[] b) {
+    long[] result = new long[Math.min(a.length, b.length)];
+    int size = 0;
+    for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        result[size++] = a[i];
+        i++;
+        j++;
+      }
     }
+    return Arrays.copyOf(result, size);
+  }
 
-    return list(query.toString());
+  private static List<Long> idBatch(long[] ids, int from) {
+    int to = Math.min(ids.length, from + ID_BATCH_SIZE);
+    List<Long> batch = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      batch.add(ids[i]);
+    }
+    return batch;
   }
 
   /**
@@ -197,11 +326,18 @@ public class BookRepository implements PanacheRepository<Book> {
    * @return book statistics
    */
   public BookStats getBookStats() {
-    long totalBooks = count();
-    long availableBooks = count("availableCopies > 0");
-    long outOfStockBooks = count("availableCopies = 0 OR availableCopies IS NULL");
+    Object[] row =
+        getEntityManager()
+            .createQuery(
+                "SELECT COUNT(b),"
+                    + " COALESCE(SUM(CASE WHEN b.availableCopies > 0 THEN 1 ELSE 0 END), 0)"
+                    + " FROM Book b",
+                Object[].class)
+            .getSingleResult();
+    long totalBooks = ((Number) row[0]).longValue();
+    long availableBooks = ((Number) row[1]).longValue();
 
-    return new BookStats(totalBooks, availableBooks, outOfStockBooks);
+    return new BookStats(totalBooks, availableBooks, totalBooks - availableBooks);
   }
 
   /** Book statistics DTO. */
@@ -217,26 +353,148 @@ public class BookRepository implements PanacheRepository<Book> {
     }
   }
 
-  public Book findByIdWithCopies(Long id) {
-    return find("SELECT b FROM Book b LEFT JOIN FETCH b.bookCopies WHERE b.id = ?1", id)
-        .firstResult();
+  /**
+   * Finds the catalog view of a single book, with copy counts computed in the same query.
+   *
+   * @param id the book ID
+   * @return the catalog entry if found
+   */
+  public Optional<BookDTO> findCatalogEntry(Long id) {
+    return getEntityManager()
+        .createQuery(CATALOG_SELECT + " WHERE b.id = :id" + CATALOG_GROUP_BY, BookDTO.class)
+        .setParameter("available", BookCopy.BookCopyStatus.AVAILABLE)
+        .setParameter("id", id)
+        .getResultStream()
+        .findFirst();
   }
 
   /**
-   * Recomputes and persists aggregate fields and status for a book.
+   * Finds a page of the catalog using keyset pagination.
+   *
+   * <p>Books, authors and copy counts are read with one grouped query per page. Pages are ordered
+   * by the sort key with the book ID as tie-breaker, and the next page starts strictly after the
+   * last row of the previous one, so the cost of a page does not grow with its depth.
+   *
+   * @param sort the sort key, either "title" or "id"
+   * @param descending whether to sort in descending order
+   * @param cursor the cursor returned with the previous page, or null for the first page
+   * @param limit the page size, or null to read the whole catalog in one query
+   * @return the catalog page
+   * @throws IllegalArgumentException if the sort key, cursor or limit is invalid
    */
-  public void updateAggregates(Long bookId) {
-    Book book = findById(bookId);
-    if (book == null) {
-      return;
+  public CatalogPage findCatalogPage(String sort, boolean descending, String cursor, Integer limit) {
+    boolean byTitle = sort == null || sort.isBlank() || "title".equalsIgnoreCase(sort);
+    if (!byTitle && !"id".equalsIgnoreCase(sort)) {
+      throw new IllegalArgumentException("Unsupported sort key: " + sort);
+    }
+    if (limit != null && (limit < 1 || limit > MAX_CATALOG_PAGE_SIZE)) {
+      throw new IllegalArgumentException(
+          "Limit must be between 1 and " + MAX_CATALOG_PAGE_SIZE);
+    }
+
+    String direction = descending ? "DESC" : "ASC";
+    String comparison = descending ? "<" : ">";
+    CatalogCursor after = cursor != null && !cursor.isBlank() ? CatalogCursor.decode(cursor) : null;
+
+    StringBuilder jpql = new StringBuilder(CATALOG_SELECT);
+    if (after != null) {
+      if (after.byTitle != byTitle || after.descending != descending) {
+        throw new IllegalArgumentException("Cursor does not match the requested sort order");
+      }
+      if (byTitle) {
+        jpql.append(" WHERE (b.title ")
+            .append(comparison)
+            .append(" :lastTitle OR (b.title = :lastTitle AND b.id ")
+            .append(comparison)
+            .append(" :lastId))");
+      } else {
+        jpql.append(" WHERE b.id ").append(comparison).append(" :lastId");
+      }
+    }
+    jpql.append(CATALOG_GROUP_BY).append(" ORDER BY ");
+    if (byTitle) {
+      jpql.append("b.title ").append(direction).append(", ");
+    }
+    jpql.append("b.id ").append(direction);
+
+    TypedQuery<BookDTO> query =
+        getEntityManager()
+            .createQuery(jpql.toString(), BookDTO.class)
+            .setParameter("available", BookCopy.BookCopyStatus.AVAILABLE);
+    if (after != null) {
+      query.setParameter("lastId", after.lastId);
+      if (byTitle) {
+        query.setParameter("lastTitle", after.lastTitle);
+      }
+    }
+    if (limit != null) {
+      // Read one extra row to know whether another page follows
+      query.setMaxResults(limit + 1);
+    }
+
+    List<BookDTO> books = query.getResultList();
+    String nextCursor = null;
+    if (limit != null && books.size() > limit) {
+      books = books.subList(0, limit);
+      BookDTO last = books.get(limit - 1);
+      nextCursor = new CatalogCursor(byTitle, descending, last.id, last.title).encode();
+    }
+    return new CatalogPage(books, nextCursor);
+  }
+
+  /** A page of catalog entries and the cursor of the page after it. */
+  public static class CatalogPage {
+    public final List<BookDTO> books;
+    public final String nextCursor;
+
+    public CatalogPage(List<BookDTO> books, String nextCursor) {
+      this.books = books;
+      this.nextCursor = nextCursor;
+    }
+  }
+
+  /** Position of the last row of a catalog page, encoded as an opaque URL-safe string. */
+  private static class CatalogCursor {
+    final boolean byTitle;
+    final boolean descending;
+    final long lastId;
+    final String lastTitle;
+
+    CatalogCursor(boolean byTitle, boolean descending, long lastId, String lastTitle) {
+      this.byTitle = byTitle;
+      this.descending = descending;
+      this.lastId = lastId;
+      this.lastTitle = lastTitle;
+    }
+
+    String encode() {
+      String raw =
+          (byTitle ? "t" : "i") + (descending ? "d" : "a") + ":" + lastId + ":"
+              + (byTitle ? lastTitle : "");
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CatalogCursor decode(String cursor) {
+      try {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int idEnd = raw.indexOf(':', 3);
+        if (raw.length() < 4 || raw.charAt(2) != ':' || idEnd < 0) {
+          throw new IllegalArgumentException("Malformed cursor");
+        }
+        boolean byTitle = raw.charAt(0) == 't';
+        boolean descending = raw.charAt(1) == 'd';
+        long lastId = Long.parseLong(raw.substring(3, idEnd));
+        return new CatalogCursor(byTitle, descending, lastId, raw.substring(idEnd + 1));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+      }
     }
-    long total = BookCopy.count("book.id", bookId);
-    long available =
-        BookCopy.count(
-            "book.id = ?1 and status = ?2", bookId, BookCopy.BookCopyStatus.AVAILABLE);
-    book.totalCopies = (int) total;
-    book.availableCopies = (int) available;
-    book.status = available > 0 ? Book.BookStatus.AVAILABLE : Book.BookStatus.UNAVAILABLE;
-    getEntityManager().merge(book);
+  }
+
+  public Book findByIdWithCopies(Long id) {
+    return find("SELECT b FROM Book b LEFT JOIN FETCH b.bookCopies WHERE b.id = ?1", id)
+        .firstResult();
   }
 }
@@ -0,0 +1,506 @@
+package com.davonlibrary.repository;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs bulk jobs over the rows of a query a chunk at a time, in constant memory.
+ *
+ * <p>Each chunk is its own transaction: the next rows after the last ID of the previous chunk are
+ * scrolled forward-only and handed to the job one at a time, then the session is flushed and
+ * cleared and the chunk committed. A job over any number of rows holds at most one chunk of
+ * entities and never one long transaction, and the chunks committed before a failure keep their
+ * work. Chunks are ordered by ID, so rows a job changes or deletes are not read twice.
+ *
+ * <p>A resumable job passes a {@link Checkpoint}: the run starts after the checkpoint's last ID and
+ * the checkpoint records each chunk inside the chunk's transaction, so the recorded progress never
+ * runs ahead of or behind the committed work.
+ *
+ * <p>A source restricted to a list of IDs, such as the loans a scheduler already tracks in memory,
+ * reads each chunk by primary key from the next slice of the list instead of scanning its query.
+ */
+@ApplicationScoped
+public class ChunkedScroll {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedScroll.class);
+
+  // SQL Server accepts at most 2100 parameters per statement
+  private static final int ID_BATCH_SIZE = 1000;
+
+  @Inject EntityManager entityManager;
+
+  @ConfigProperty(name = "library.bulk.chunk-size", defaultValue = "500")
+  int chunkSize;
+
+  @ConfigProperty(name = "library.bulk.chunk-timeout", defaultValue = "300")
+  int chunkTimeoutSeconds;
+
+  /** Handles one row of a chunk inside the chunk's transaction. */
+  @FunctionalInterface
+  public interface RowHandler<T> {
+
+    /**
+     * Handles a row.
+     *
+     * @param row the row
+     * @return whether the row counts towards the job's result
+     */
+    boolean handle(T row);
+  }
+
+  /** Where a resumable job starts and how it records its progress. */
+  public interface Checkpoint {
+
+    /**
+     * Gets the ID of the last row already processed.
+     *
+     * @return the last processed ID, or {@link Long#MIN_VALUE} to start from the first row
+     */
+    long lastId();
+
+    /**
+     * Gets the rows per chunk and transaction.
+     *
+     * @return the chunk size
+     */
+    int chunkSize();
+
+    /**
+     * Records a processed chunk. Called inside the chunk's transaction after its rows have been
+     * handled; throwing rolls the chunk back and stops the run.
+     *
+     * @param lastId the ID of the last row of the chunk
+     * @param rows the rows in the chunk
+     * @param counted the rows of the chunk counted by the job
+     */
+    void chunkProcessed(long lastId, int rows, long counted);
+  }
+
+  /**
+   * Gets a checkpoint that starts from the first row with the configured chunk size and records
+   * nothing.
+   *
+   * @return the checkpoint
+   */
+  public Checkpoint fromStart() {
+    int size = chunkSize;
+    return new Checkpoint() {
+      @Override
+      public long lastId() {
+        return Long.MIN_VALUE;
+      }
+
+      @Override
+      public int chunkSize() {
+        return size;
+      }
+
+      @Override
+      public void chunkProcessed(long lastId, int rows, long counted) {}
+    };
+  }
+
+  /**
+   * Runs a job over every row of its source with the configured chunk size.
+   *
+   * @param job the job
+   * @return the rows processed and the timing of the chunks
+   */
+  public <T> ChunkRun run(Job<T> job) {
+    return run(job, fromStart());
+  }
+
+  /**
+   * Runs a job over the rows of its source after a checkpoint.
+   *
+   * @param job the job
+   * @param checkpoint where to start, the chunk size and where to record progress
+   * @return the rows processed and the timing of the chunks of this run
+   */
+  public <T> ChunkRun run(Job<T> job, Checkpoint checkpoint) {
+    int chunkSize = checkpoint.chunkSize();
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be positive");
+    }
+    ChunkRun run = new ChunkRun(job.name);
+    long start = System.nanoTime();
+    long[] lastId = {checkpoint.lastId()};
+    boolean more;
+    do {
+      long chunkStart = System.nanoTime();
+      long[] chunk =
+          QuarkusTransaction.requiringNew()
+              .timeout(chunkTimeoutSeconds)
+              .call(() -> processChunk(job, chunkSize, checkpoint, lastId));
+      int rows = (int) chunk[0];
+      more = chunk[2] != 0;
+      long chunkMs = (System.nanoTime() - chunkStart) / 1_000_000;
+      if (rows > 0) {
+        run.addChunk(rows, chunk[1], chunkMs);
+        LOGGER.debug(
+            "{}: chunk {} processed {} rows ({} counted) in {} ms",
+            job.name,
+            run.chunks,
+            rows,
+            chunk[1],
+            chunkMs);
+      }
+    } while (more);
+    run.elapsedMs = (System.nanoTime() - start) / 1_000_000;
+    LOGGER.info(
+        "{}: {} rows ({} counted) in {} chunks, {} ms (slowest chunk {} ms)",
+        job.name,
+        run.rows,
+        run.counted,
+        run.chunks,
+        run.elapsedMs,
+        run.maxChunkMs);
+    return run;
+  }
+
+  /**
+   * Counts the rows of a job's source after a row ID.
+   *
+   * @param job the job
+   * @param afterId the ID to count after, or {@link Long#MIN_VALUE} for every row
+   * @return the number of rows
+   */
+  public long count(Job<?> job, long afterId) {
+    Source<?> source = job.source;
+    if (source.ids != null) {
+      return source.ids.length - after(source.ids, afterId);
+    }
+    Query<Long> query =
+        entityManager
+            .unwrap(Session.class)
+            .createQuery(
+                source.countQuery() + " AND " + source.idPath + " > :chunkAfterId", Long.class)
+            .setParameter("chunkAfterId", afterId);
+    source.parameters.forEach(query::setParameter);
+    return query.getSingleResult();
+  }
+
+  /**
+   * Splits the rows of a job's source into ranges of its partition key of about equal width, or of
+   * about equal row counts for a source restricted to a list of IDs, so the ranges can be run as
+   * separate jobs on different instances.
+   *
+   * @param job the job, whose source must have a partition key
+   * @param partitions the number of ranges wanted
+   * @return the ranges as {@code [from, to)} pairs in key order, fewer than requested if the keys
+   *     span fewer values, or none if the source has no rows
+   */
+  public List<long[]> partitions(Job<?> job, int partitions) {
+    Source<?> source = job.source;
+    if (source.partitionPath == null) {
+      throw new IllegalArgumentException(job.name + " cannot be partitioned");
+    }
+    if (partitions < 1) {
+      throw new IllegalArgumentException("Partitions must be positive");
+    }
+    if (source.ids != null) {
+      long[] ids = source.ids;
+      List<long[]> ranges = new ArrayList<>(Math.min(partitions, ids.length));
+      int perRange = (ids.length + partitions - 1) / partitions;
+      for (int i = 0; i < ids.length; i += perRange) {
+        long to = i + perRange < ids.length ? ids[i + perRange] : ids[ids.length - 1] + 1;
+        ranges.add(new long[] {ids[i], to});
+      }
+      return ranges;
+    }
+    Query<Object[]> query =
+        entityManager.unwrap(Session.class).createQuery(source.boundsQuery(), Object[].class);
+    source.parameters.forEach(query::setParameter);
+    Object[] bounds = query.getSingleResult();
+    List<long[]> ranges = new ArrayList<>(partitions);
+    if (bounds[0] == null) {
+      return ranges;
+    }
+    long min = ((Number) bounds[0]).longValue();
+    long max = ((Number) bounds[1]).longValue();
+    long width = Math.max(1, (max - min + partitions) / partitions);
+    for (long from = min; from <= max; from += width) {
+      ranges.add(new long[] {from, Math.min(from + width, max + 1)});
+    }
+    return ranges;
+  }
+
+  private <T> long[] processChunk(
+      Job<T> job, int chunkSize, Checkpoint checkpoint, long[] lastId) {
+    Source<T> source = job.source;
+    Session session = entityManager.unwrap(Session.class);
+    Query<T> query;
+    long[] slice = null;
+    boolean more;
+    if (source.ids != null) {
+      // The next IDs of the list, read by primary key
+      int from = after(source.ids, lastId[0]);
+      int to = Math.min(source.ids.length, from + Math.min(chunkSize, ID_BATCH_SIZE));
+      if (from == to) {
+        return new long[] {0, 0, 0};
+      }
+      slice = Arrays.copyOfRange(source.ids, from, to);
+      more = to < source.ids.length;
+      query =
+          session
+              .createQuery(
+                  source.query
+                      + " AND "
+                      + source.idPath
+                      + " IN :chunkIds ORDER BY "
+                      + source.idPath,
+                  source.type)
+              .setParameter("chunkIds", Arrays.stream(slice).boxed().toList())
+              .setFetchSize(slice.length);
+    } else {
+      query =
+          session
+              .createQuery(
+                  source.query
+                      + " AND "
+                      + source.idPath
+                      + " > :chunkAfterId ORDER BY "
+                      + source.idPath,
+                  source.type)
+              .setParameter("chunkAfterId", lastId[0])
+              .setMaxResults(chunkSize)
+              .setFetchSize(chunkSize);
+      more = false;
+    }
+    source.parameters.forEach(query::setParameter);
+
+    long rows = 0;
+    long counted = 0;
+    long chunkLastId = lastId[0];
+    try (ScrollableResults<T> results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+      while (results.next()) {
+        T row = results.get();
+        chunkLastId = source.idOf.apply(row);
+        rows++;
+        if (job.handler.handle(row)) {
+          counted++;
+        }
+      }
+    }
+    if (slice != null) {
+      // IDs of the slice whose rows no longer match are passed over too
+      chunkLastId = slice[slice.length - 1];
+      checkpoint.chunkProcessed(chunkLastId, (int) rows, counted);
+    } else if (rows > 0) {
+      checkpoint.chunkProcessed(chunkLastId, (int) rows, counted);
+      more = rows == chunkSize;
+    }
+    session.flush();
+    session.clear();
+    // Only move past the chunk once its work is about to commit
+    lastId[0] = chunkLastId;
+    return new long[] {rows, counted, more ? 1 : 0};
+  }
+
+  private static int after(long[] sortedIds, long id) {
+    int index = Arrays.binarySearch(sortedIds, id);
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  private static int atLeast(long[] sortedIds, long id) {
+    int index = Arrays.binarySearch(sortedIds, id);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  /**
+   * The rows of a bulk job: a query with a WHERE clause, the path of its ID and the parameters.
+   * Queries join only to-one associations, so the rows can be counted by dropping the fetches.
+   *
+   * @param <T> the row type
+   */
+  public static class Source<T> {
+    final Class<T> type;
+    final String query;
+    final String idPath;
+    final Function<T, Long> idOf;
+    final Map<String, Object> parameters = new LinkedHashMap<>();
+    String partitionPath;
+    long[] ids;
+
+    private Source(Class<T> type, String query, String idPath, Function<T, Long> idOf) {
+      this.type = type;
+      this.query = query;
+      this.idPath = idPath;
+      this.idOf = idOf;
+    }
+
+    /**
+     * Creates a source.
+     *
+     * @param type the row type
+     * @param query the query, ending in a WHERE clause the chunk condition can be ANDed to
+     * @param idPath the path of the row ID in the query, such as {@code l.id}
+     * @param idOf gets the ID of a row
+     * @return the source
+     */
+    public static <T> Source<T> of(
+        Class<T> type, String query, String idPath, Function<T, Long> idOf) {
+      return new Source<>(type, query, idPath, idOf);
+    }
+
+    String countQuery() {
+      return "SELECT COUNT("
+          + idPath
+          + ")"
+          + query.substring(query.indexOf(" FROM ")).replace(" JOIN FETCH ", " JOIN ");
+    }
+
+    String boundsQuery() {
+      return "SELECT MIN("
+          + partitionPath
+          + "), MAX("
+          + partitionPath
+          + ")"
+          + query.substring(query.indexOf(" FROM ")).replace(" JOIN FETCH ", " JOIN ");
+    }
+
+    /**
+     * Sets the key the rows can be partitioned by across instances, such as {@code l.user.id}.
+     *
+     * @param path the path of the partition key in the query
+     * @return this source
+     */
+    public Source<T> partitionedBy(String path) {
+      this.partitionPath = path;
+      return this;
+    }
+
+    /**
+     * Restricts the source to the rows with IDs in a list and partitions it by ID. Chunks then read
+     * the next IDs of the list by primary key; the query's WHERE clause still applies, so rows that
+     * stopped matching after the list was taken are skipped.
+     *
+     * @param sortedIds the row IDs in ascending order
+     * @return this source
+     */
+    public Source<T> among(long[] sortedIds) {
+      this.ids = sortedIds;
+      this.partitionPath = idPath;
+      return this;
+    }
+
+    /**
+     * Narrows the source to the rows with a partition key in a range.
+     *
+     * @param from the first key of the range
+     * @param to the key after the range
+     * @return a new source over the rows in the range
+     */
+    Source<T> range(long from, long to) {
+      Source<T> narrowed =
+          new Source<>(
+              type,
+              query
+                  + " AND "
+                  + partitionPath
+                  + " >= :partitionFrom AND "
+                  + partitionPath
+                  + " < :partitionTo",
+              idPath,
+              idOf);
+      narrowed.parameters.putAll(parameters);
+      narrowed.partitionPath = partitionPath;
+      if (ids != null) {
+        narrowed.ids = Arrays.copyOfRange(ids, atLeast(ids, from), atLeast(ids, to));
+      }
+      return narrowed.with("partitionFrom", from).with("partitionTo", to);
+    }
+
+    /**
+     * Binds a named parameter of the query.
+     *
+     * @param name the parameter name
+     * @param value the value
+     * @return this source
+     */
+    public Source<T> with(String name, Object value) {
+      parameters.put(name, value);
+      return this;
+    }
+  }
+
+  /**
+   * A bulk job: its name, the rows it processes and the work it does for each row.
+   *
+   * @param <T> the row type
+   */
+  public static class Job<T> {
+    final String name;
+    final Source<T> source;
+    final RowHandler<T> handler;
+
+    private Job(String name, Source<T> source, RowHandler<T> handler) {
+      this.name = name;
+      this.source = source;
+      this.handler = handler;
+    }
+
+    /**
+     * Creates a job.
+     *
+     * @param name the job name, for logging
+     * @param source the rows to process
+     * @param handler the work to do for each row
+     * @return the job
+     */
+    public static <T> Job<T> of(String name, Source<T> source, RowHandler<T> handler) {
+      return new Job<>(name, source, handler);
+    }
+
+    /**
+     * Narrows the job to the rows with a partition key in a range.
+     *
+     * @param from the first key of the range
+     * @param to the key after the range
+     * @return a new job over the rows in the range
+     * @throws IllegalArgumentException if the job's source has no partition key
+     */
+    public Job<T> range(long from, long to) {
+      if (source.partitionPath == null) {
+        throw new IllegalArgumentException(name + " cannot be partitioned");
+      }
+      return new Job<>(name + " [" + from + ", " + to + ")", source.range(from, to), handler);
+    }
+  }
+
+  /** Rows processed by a bulk job and the timing of its chunks. */
+  public static class ChunkRun {
+    public final String job;
+    public int chunks;
+    public long rows;
+    public long counted;
+    public long elapsedMs;
+    public long maxChunkMs;
+
+    ChunkRun(String job) {
+      this.job = job;
+    }
+
+    void addChunk(int chunkRows, long chunkCounted, long chunkMs) {
+      chunks++;
+      rows += chunkRows;
+      counted += chunkCounted;
+      maxChunkMs = Math.max(maxChunkMs, chunkMs);
+    }
+  }
+}
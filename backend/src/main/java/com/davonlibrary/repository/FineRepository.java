@@ -2,6 +2,7 @@ package com.davonlibrary.repository;
 
 import com.davonlibrary.entity.Fine;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -25,6 +26,23 @@ public class FineRepository implements PanacheRepository<Fine> {
     return list("status = ?1", Fine.FineStatus.ACTIVE);
   }
 
+  /**
+   * Finds a page of active fines in ID order.
+   *
+   * @param afterId the ID of the last fine of the previous page, or null for the first page
+   * @param limit the page size
+   * @return the page of active fines
+   */
+  public KeysetPage<Fine> findActivePage(Long afterId, int limit) {
+    List<Fine> fines =
+        afterId != null
+            ? find("status = ?1 AND id > ?2", Sort.by("id"), Fine.FineStatus.ACTIVE, afterId)
+                .page(0, limit + 1)
+                .list()
+            : find("status = ?1", Sort.by("id"), Fine.FineStatus.ACTIVE).page(0, limit + 1).list();
+    return KeysetPage.of(fines, limit, fine -> fine.id);
+  }
+
   /**
    * Finds all paid fines.
    *
@@ -225,6 +243,22 @@ public class FineRepository implements PanacheRepository<Fine> {
         Fine.FineStatus.ACTIVE);
   }
 
+  /**
+   * Gets the fines needing recalculation as a source for chunked bulk jobs, partitionable by user.
+   *
+   * @return the fines needing recalculation source
+   */
+  public ChunkedScroll.Source<Fine> needingRecalculationSource() {
+    return ChunkedScroll.Source.of(
+            Fine.class,
+            "SELECT f FROM Fine f JOIN f.loan l WHERE f.status = :status"
+                + " AND l.returnDate IS NULL AND l.dueDate < CURRENT_DATE",
+            "f.id",
+            (Fine fine) -> fine.id)
+        .with("status", Fine.FineStatus.ACTIVE)
+        .partitionedBy("f.user.id");
+  }
+
   /**
    * Finds fines by transaction ID.
    *
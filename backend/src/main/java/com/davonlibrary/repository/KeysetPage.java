@@ -0,0 +1,99 @@
+package com.davonlibrary.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of rows read with keyset pagination and the opaque cursor of the page after it.
+ *
+ * <p>Paged queries order by the primary key and start strictly after (or before, for newest-first
+ * lists) the last ID of the previous page, so every page is one range read on an index however
+ * deep it is, and no request holds more than {@link #MAX_LIMIT} rows. Queries read one row past
+ * the limit to know whether another page follows.
+ *
+ * @param <T> the row type
+ */
+public class KeysetPage<T> {
+
+  /** Rows per page when a client does not ask for a page size. */
+  public static final int DEFAULT_LIMIT = 50;
+
+  /** Largest page a client may request. */
+  public static final int MAX_LIMIT = 500;
+
+  /** Response header carrying the cursor of the next page on endpoints that return a list. */
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  private static final String CURSOR_PREFIX = "k:";
+
+  public final List<T> items;
+  public final String nextCursor;
+
+  public KeysetPage(List<T> items, String nextCursor) {
+    this.items = items;
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Resolves a requested page size.
+   *
+   * @param requested the requested size, or null for the default
+   * @return the page size to read
+   * @throws IllegalArgumentException if the size is out of range
+   */
+  public static int limit(Integer requested) {
+    if (requested == null) {
+      return DEFAULT_LIMIT;
+    }
+    if (requested < 1 || requested > MAX_LIMIT) {
+      throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+    }
+    return requested;
+  }
+
+  /**
+   * Decodes a cursor into the ID of the last row of the previous page.
+   *
+   * @param cursor the cursor returned with the previous page, or null for the first page
+   * @return the ID to continue after, or null for the first page
+   * @throws IllegalArgumentException if the cursor is malformed
+   */
+  public static Long after(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      if (!raw.startsWith(CURSOR_PREFIX)) {
+        throw new IllegalArgumentException("Malformed cursor");
+      }
+      return Long.parseLong(raw.substring(CURSOR_PREFIX.length()));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+    }
+  }
+
+  /**
+   * Builds a page from rows read with a maximum of {@code limit + 1}.
+   *
+   * @param rows the rows read, in page order
+   * @param limit the page size
+   * @param idOf gets the ID of a row
+   * @param <T> the row type
+   * @return the page, with a next cursor when more rows were read than fit in it
+   */
+  public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, Long> idOf) {
+    if (rows.size() <= limit) {
+      return new KeysetPage<>(rows, null);
+    }
+    List<T> items = rows.subList(0, limit);
+    String raw = CURSOR_PREFIX + idOf.apply(items.get(limit - 1));
+    return new KeysetPage<>(
+        items,
+        Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString(raw.getBytes(StandardCharsets.UTF_8)));
+  }
+}
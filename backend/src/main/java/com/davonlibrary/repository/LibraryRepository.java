@@ -6,7 +6,10 @@ import com.davonlibrary.entity.Staff;
 import com.davonlibrary.entity.User;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /** Repository for Library entity operations and queries. */
@@ -159,6 +162,22 @@ public class LibraryRepository implements PanacheRepository<Library> {
     return new LibraryStats(totalMembers, totalStaff, totalBookCopies, availableBookCopies);
   }
 
+  /**
+   * Gets the names of libraries by ID in one query.
+   *
+   * @param ids the library IDs
+   * @return the names of the libraries that exist, by ID
+   */
+  public Map<Long, String> findNames(Collection<Long> ids) {
+    Map<Long, String> names = new HashMap<>();
+    if (!ids.isEmpty()) {
+      for (Library library : list("id IN ?1", ids)) {
+        names.put(library.id, library.name);
+      }
+    }
+    return names;
+  }
+
   /**
    * Finds the main library branch.
    *
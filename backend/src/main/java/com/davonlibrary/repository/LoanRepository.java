@@ -1,13 +1,21 @@
 package com.davonlibrary.repository;
 
+import com.davonlibrary.entity.Book;
 import com.davonlibrary.entity.Loan;
+import com.davonlibrary.entity.User;
+import com.davonlibrary.service.PopularityService;
+import com.davonlibrary.service.PopularityService.RankedCount;
+import com.davonlibrary.service.PopularityService.Subject;
+import com.davonlibrary.service.PopularityService.Window;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,12 +23,53 @@ import java.util.Optional;
 @ApplicationScoped
 public class LoanRepository implements PanacheRepository<Loan> {
 
+  // SQL Server accepts at most 2100 parameters per statement
+  private static final int ID_BATCH_SIZE = 1000;
+
+  // Every count of the loan statistics in one pass over the loans
+  private static final String LOAN_STATS =
+      "SELECT COUNT(l),"
+          + " COALESCE(SUM(CASE WHEN l.returnDate IS NULL THEN 1 ELSE 0 END), 0),"
+          + " COALESCE(SUM(CASE WHEN l.returnDate IS NULL AND l.dueDate < :today"
+          + " THEN 1 ELSE 0 END), 0)"
+          + " FROM Loan l";
+
+  private static final String LOAN_WITH_DETAILS =
+      "SELECT l FROM Loan l LEFT JOIN FETCH l.user"
+          + " LEFT JOIN FETCH l.bookCopy c LEFT JOIN FETCH c.book";
+
   @Inject EntityManager em;
 
+  @Inject PopularityService popularityService;
+
   public List<Loan> findByUser(Long userId) {
     return list("user.id", userId);
   }
 
+  /**
+   * Finds a page of a user's loans, newest first, with the copy and book of each loan.
+   *
+   * @param userId the user ID
+   * @param beforeId the ID of the last loan of the previous page, or null for the first page
+   * @param limit the page size
+   * @return the page of loans
+   */
+  public KeysetPage<Loan> findPageByUser(Long userId, Long beforeId, int limit) {
+    TypedQuery<Loan> query =
+        em.createQuery(
+                "SELECT l FROM Loan l LEFT JOIN FETCH l.bookCopy bc LEFT JOIN FETCH bc.book"
+                    + " WHERE l.user.id = :userId"
+                    + (beforeId != null ? " AND l.id < :beforeId" : "")
+                    + " ORDER BY l.id DESC",
+                Loan.class)
+            .setParameter("userId", userId)
+            .setMaxResults(limit + 1);
+    if (beforeId != null) {
+      query.setParameter("beforeId", beforeId);
+    }
+    return KeysetPage.of(query.getResultList(), limit, loan -> loan.id);
+  }
+
   public List<Loan> findRecent(int limit) {
     return find("", Sort.by("loanDate").descending()).page(0, limit).list();
   }
@@ -43,6 +92,69 @@ public class LoanRepository implements PanacheRepository<Loan> {
     return list("returnDate IS NULL AND dueDate < ?1", LocalDate.now());
   }
 
+  /**
+   * Gets the overdue loans as a source for chunked bulk jobs, with the user, copy and book of each
+   * loan, partitionable by loan ID.
+   *
+   * @return the overdue loans source
+   */
+  public ChunkedScroll.Source<Loan> overdueSource() {
+    return ChunkedScroll.Source.of(
+            Loan.class,
+            LOAN_WITH_DETAILS + " WHERE l.returnDate IS NULL AND l.dueDate < :today",
+            "l.id",
+            (Loan loan) -> loan.id)
+        .with("today", LocalDate.now())
+        .partitionedBy("l.id");
+  }
+
+  /**
+   * Gets the loans due within specified days, today included, as a source for chunked bulk jobs,
+   * with the user, copy and book of each loan, partitionable by loan ID.
+   *
+   * @param days number of days ahead to check
+   * @return the due-soon loans source
+   */
+  public ChunkedScroll.Source<Loan> dueSoonSource(int days) {
+    LocalDate today = LocalDate.now();
+    return ChunkedScroll.Source.of(
+            Loan.class,
+            LOAN_WITH_DETAILS
+                + " WHERE l.returnDate IS NULL AND l.dueDate <= :dueDateLimit"
+                + " AND l.dueDate >= :today",
+            "l.id",
+            (Loan loan) -> loan.id)
+        .with("dueDateLimit", today.plusDays(days))
+        .with("today", today)
+        .partitionedBy("l.id");
+  }
+
+  /**
+   * Finds loans by ID, fetching their user, copy and book for notification and fine processing.
+   *
+   * @param ids the loan IDs, sorted
+   * @return the loans that exist, in ID order
+   */
+  public List<Loan> findByIds(long[] ids) {
+    List<Loan> loans = new ArrayList<>(ids.length);
+    for (int from = 0; from < ids.length; from += ID_BATCH_SIZE) {
+      loans.addAll(
+          em.createQuery(LOAN_WITH_DETAILS + " WHERE l.id IN :ids ORDER BY l.id", Loan.class)
+              .setParameter("ids", idBatch(ids, from))
+              .getResultList());
+    }
+    return loans;
+  }
+
+  private static List<Long> idBatch(long[] ids, int from) {
+    int to = Math.min(ids.length, from + ID_BATCH_SIZE);
+    List<Long> batch = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      batch.add(ids[i]);
+    }
+    return batch;
+  }
+
   /**
    * Finds loans due within specified days.
    *
@@ -201,17 +313,13 @@ public class LoanRepository implements PanacheRepository<Loan> {
   }
 
   /**
-   * Gets the most borrowed books.
+   * Gets the most borrowed books, from the in-memory borrow counts.
    *
    * @param limit the maximum number of results
-   * @return list of most borrowed books with loan count
+   * @return list of most borrowed books with loan count, most borrowed first
    */
-  @SuppressWarnings("unchecked")
   public List<Object[]> getMostBorrowedBooks(int limit) {
-    return em.createQuery(
-            "SELECT l.bookCopy.book, COUNT(l) as loanCount FROM Loan l GROUP BY l.bookCopy.book ORDER BY COUNT(l) DESC")
-        .setMaxResults(limit)
-        .getResultList();
+    return withEntities(Book.class, popularityService.top(Subject.BOOK, Window.ALL_TIME, limit));
   }
 
   /**
@@ -220,12 +328,8 @@ public class LoanRepository implements PanacheRepository<Loan> {
    * @return loan statistics
    */
   public LoanStats getLoanStats() {
-    long totalLoans = count();
-    long activeLoans = count("returnDate IS NULL");
-    long overdueLoans = count("returnDate IS NULL AND dueDate < ?1", LocalDate.now());
-    long returnedLoans = count("returnDate IS NOT NULL");
-
-    return new LoanStats(totalLoans, activeLoans, overdueLoans, returnedLoans);
+    return loanStats(
+        em.createQuery(LOAN_STATS, Object[].class).setParameter("today", LocalDate.now()));
   }
 
   /**
@@ -235,30 +339,41 @@ public class LoanRepository implements PanacheRepository<Loan> {
    * @return loan statistics for the library
    */
   public LoanStats getLoanStatsByLibrary(Long libraryId) {
-    long totalLoans = count("user.library.id = ?1", libraryId);
-    long activeLoans = count("user.library.id = ?1 AND returnDate IS NULL", libraryId);
-    long overdueLoans =
-        count(
-            "user.library.id = ?1 AND returnDate IS NULL AND dueDate < ?2",
-            libraryId,
-            LocalDate.now());
-    long returnedLoans = count("user.library.id = ?1 AND returnDate IS NOT NULL", libraryId);
-
-    return new LoanStats(totalLoans, activeLoans, overdueLoans, returnedLoans);
+    return loanStats(
+        em.createQuery(LOAN_STATS + " WHERE l.user.library.id = :libraryId", Object[].class)
+            .setParameter("today", LocalDate.now())
+            .setParameter("libraryId", libraryId));
+  }
+
+  private static LoanStats loanStats(TypedQuery<Object[]> query) {
+    Object[] row = query.getSingleResult();
+    long totalLoans = ((Number) row[0]).longValue();
+    long activeLoans = ((Number) row[1]).longValue();
+    long overdueLoans = ((Number) row[2]).longValue();
+
+    return new LoanStats(totalLoans, activeLoans, overdueLoans, totalLoans - activeLoans);
   }
 
   /**
-   * Gets users with the most active loans.
+   * Gets users with the most active loans, from the in-memory loan counts.
    *
    * @param limit the maximum number of results
-   * @return list of users with most active loans
+   * @return list of users with their active loan count, most loans first
    */
-  @SuppressWarnings("unchecked")
   public List<Object[]> getUsersWithMostActiveLoans(int limit) {
-    return em.createQuery(
-            "SELECT l.user, COUNT(l) as activeLoanCount FROM Loan l WHERE l.returnDate IS NULL GROUP BY l.user ORDER BY COUNT(l) DESC")
-        .setMaxResults(limit)
-        .getResultList();
+    return withEntities(User.class, popularityService.topActiveBorrowers(limit));
+  }
+
+  /** Pairs leaderboard counts with their entities, skipping entities deleted since. */
+  private List<Object[]> withEntities(Class<?> type, List<RankedCount> counts) {
+    List<Object[]> rows = new ArrayList<>(counts.size());
+    for (RankedCount count : counts) {
+      Object entity = em.find(type, count.id);
+      if (entity != null) {
+        rows.add(new Object[] {entity, count.count});
+      }
+    }
+    return rows;
   }
 
   /** Loan statistics DTO. */
@@ -1,12 +1,15 @@
 package com.davonlibrary.repository;
 
+import com.davonlibrary.entity.LibraryMembership.MembershipStatus;
 import com.davonlibrary.entity.Notification;
 import com.davonlibrary.entity.Notification.NotificationPriority;
 import com.davonlibrary.entity.Notification.NotificationType;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -16,6 +19,16 @@ public class NotificationRepository implements PanacheRepository<Notification> {
 
   @Inject EntityManager em;
 
+  /** Groups of users a notification can be broadcast to. */
+  public enum Audience {
+    /** Every user. */
+    ALL_USERS,
+    /** Users whose home library is the library or who hold an active membership of it. */
+    LIBRARY_MEMBERS,
+    /** Users with at least one loan not yet returned. */
+    ACTIVE_BORROWERS
+  }
+
   /**
    * Finds all unread notifications for a user.
    *
@@ -26,6 +39,32 @@ public class NotificationRepository implements PanacheRepository<Notification> {
     return list("user.id = ?1 AND isRead = ?2", userId, false);
   }
 
+  /**
+   * Finds a page of a user's unread notifications, newest first.
+   *
+   * @param userId the user ID
+   * @param beforeId the ID of the last notification of the previous page, or null for the first
+   *     page
+   * @param limit the page size
+   * @return the page of unread notifications
+   */
+  public KeysetPage<Notification> findUnreadPageByUser(Long userId, Long beforeId, int limit) {
+    List<Notification> notifications =
+        beforeId != null
+            ? find(
+                    "user.id = ?1 AND isRead = ?2 AND id < ?3",
+                    Sort.descending("id"),
+                    userId,
+                    false,
+                    beforeId)
+                .page(0, limit + 1)
+                .list()
+            : find("user.id = ?1 AND isRead = ?2", Sort.descending("id"), userId, false)
+                .page(0, limit + 1)
+                .list();
+    return KeysetPage.of(notifications, limit, notification -> notification.id);
+  }
+
   /**
    * Finds all notifications for a user.
    *
@@ -87,6 +126,23 @@ public class NotificationRepository implements PanacheRepository<Notification> {
     return list("createdDate < ?1", cutoffDate.plusDays(1)); // BUG: Should be < cutoffDate
   }
 
+  /**
+   * Gets the notifications created before a cutoff as a source for chunked bulk jobs,
+   * partitionable by user.
+   *
+   * @param cutoffDate the cutoff date
+   * @return the old notifications source
+   */
+  public ChunkedScroll.Source<Notification> olderThanSource(LocalDateTime cutoffDate) {
+    return ChunkedScroll.Source.of(
+            Notification.class,
+            "SELECT n FROM Notification n WHERE n.createdDate < :cutoffDate",
+            "n.id",
+            (Notification notification) -> notification.id)
+        .with("cutoffDate", cutoffDate)
+        .partitionedBy("n.user.id");
+  }
+
   /**
    * Finds notifications that can be retried.
    *
@@ -259,4 +315,104 @@ public class NotificationRepository implements PanacheRepository<Notification> {
     // BUG: Incorrect overdue check
     return list("isSent = ?1 AND createdDate < ?2", false, oneHourAgo.plusHours(1));
   }
+
+  /**
+   * Counts the users in an audience.
+   *
+   * @param audience the audience
+   * @param libraryId the library ID, for {@link Audience#LIBRARY_MEMBERS}
+   * @return the number of users
+   */
+  public long countAudience(Audience audience, Long libraryId) {
+    Query query =
+        em.createQuery("SELECT COUNT(u) FROM User u WHERE 1 = 1" + audienceFilter(audience));
+    bindAudience(query, audience, libraryId);
+    return (Long) query.getSingleResult();
+  }
+
+  /**
+   * Finds where the next chunk of an audience ends, reading only user IDs.
+   *
+   * @param audience the audience
+   * @param libraryId the library ID, for {@link Audience#LIBRARY_MEMBERS}
+   * @param afterUserId the last user ID of the previous chunk, or 0 for the first chunk
+   * @param chunkSize the number of users per chunk
+   * @return the last user ID of the chunk, or null if fewer than chunkSize users remain
+   */
+  public Long findAudienceChunkEnd(
+      Audience audience, Long libraryId, long afterUserId, int chunkSize) {
+    Query query =
+        em.createQuery(
+                "SELECT u.id FROM User u WHERE u.id > :after"
+                    + audienceFilter(audience)
+                    + " ORDER BY u.id")
+            .setParameter("after", afterUserId)
+            .setFirstResult(chunkSize - 1)
+            .setMaxResults(1);
+    bindAudience(query, audience, libraryId);
+    List<?> ids = query.getResultList();
+    return ids.isEmpty() ? null : (Long) ids.get(0);
+  }
+
+  /**
+   * Inserts a copy of a notification for every user of an audience in a user ID range, in one
+   * INSERT ... SELECT statement without loading the users.
+   *
+   * @param template the notification to copy; its user is ignored
+   * @param audience the audience
+   * @param libraryId the library ID, for {@link Audience#LIBRARY_MEMBERS}
+   * @param afterUserId the user ID range start, exclusive
+   * @param upToUserId the user ID range end, inclusive
+   * @return the number of notifications inserted
+   */
+  public int insertForAudience(
+      Notification template,
+      Audience audience,
+      Long libraryId,
+      long afterUserId,
+      long upToUserId) {
+    Query query =
+        em.createQuery(
+                "INSERT INTO Notification (user, type, title, message, createdDate, isRead,"
+                    + " isSent, priority, emailSent, smsSent, pushSent, retryCount, maxRetries)"
+                    + " SELECT u, :type, :title, :message, :createdDate, :isRead, :isSent,"
+                    + " :priority, :emailSent, :smsSent, :pushSent, :retryCount, :maxRetries"
+                    + " FROM User u WHERE u.id > :after AND u.id <= :upTo"
+                    + audienceFilter(audience))
+            .setParameter("type", template.type)
+            .setParameter("title", template.title)
+            .setParameter("message", template.message)
+            .setParameter("createdDate", template.createdDate)
+            .setParameter("isRead", template.isRead)
+            .setParameter("isSent", template.isSent)
+            .setParameter("priority", template.priority)
+            .setParameter("emailSent", template.emailSent)
+            .setParameter("smsSent", template.smsSent)
+            .setParameter("pushSent", template.pushSent)
+            .setParameter("retryCount", template.retryCount)
+            .setParameter("maxRetries", template.maxRetries)
+            .setParameter("after", afterUserId)
+            .setParameter("upTo", upToUserId);
+    bindAudience(query, audience, libraryId);
+    return query.executeUpdate();
+  }
+
+  private static String audienceFilter(Audience audience) {
+    switch (audience) {
+      case LIBRARY_MEMBERS:
+        return " AND (u.library.id = :libraryId OR EXISTS (SELECT 1 FROM LibraryMembership m"
+            + " WHERE m.user = u AND m.library.id = :libraryId AND m.status = :activeMembership))";
+      case ACTIVE_BORROWERS:
+        return " AND EXISTS (SELECT 1 FROM Loan l WHERE l.user = u AND l.returnDate IS NULL)";
+      default:
+        return "";
+    }
+  }
+
+  private static void bindAudience(Query query, Audience audience, Long libraryId) {
+    if (audience == Audience.LIBRARY_MEMBERS) {
+      query.setParameter("libraryId", libraryId);
+      query.setParameter("activeMembership", MembershipStatus.ACTIVE);
+    }
+  }
 }
@@ -1,5 +1,6 @@
 package com.davonlibrary.repository;
 
+import com.davonlibrary.dto.ReportDTO;
 import com.davonlibrary.entity.Report;
 import com.davonlibrary.entity.Report.ReportStatus;
 import com.davonlibrary.entity.Report.ReportType;
@@ -7,6 +8,7 @@ import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -16,6 +18,51 @@ public class ReportRepository implements PanacheRepository<Report> {
 
   @Inject EntityManager em;
 
+  private static final String SUMMARY_SELECT =
+      "SELECT new com.davonlibrary.dto.ReportDTO(r.id, r.type, r.title, r.status,"
+          + " r.generatedDate, r.startDate, r.endDate, r.generatedBy, r.fileSize,"
+          + " r.totalRecords, r.errorMessage)"
+          + " FROM Report r";
+
+  /**
+   * Finds reports of a type as list views, without loading entities.
+   *
+   * @param type the report type
+   * @return list of reports of the type ordered by ID
+   */
+  public List<ReportDTO> findSummariesByType(ReportType type) {
+    return summaryQuery(" WHERE r.type = :type").setParameter("type", type).getResultList();
+  }
+
+  /**
+   * Finds reports with a status as list views, without loading entities.
+   *
+   * @param status the report status
+   * @return list of reports with the status ordered by ID
+   */
+  public List<ReportDTO> findSummariesByStatus(ReportStatus status) {
+    return summaryQuery(" WHERE r.status = :status").setParameter("status", status).getResultList();
+  }
+
+  /**
+   * Finds a page of reports as list views, in ID order.
+   *
+   * @param afterId the ID of the last row of the previous page, or null for the first page
+   * @param limit the page size
+   * @return the page
+   */
+  public KeysetPage<ReportDTO> findSummaryPage(Long afterId, int limit) {
+    TypedQuery<ReportDTO> query =
+        afterId != null
+            ? summaryQuery(" WHERE r.id > :afterId").setParameter("afterId", afterId)
+            : summaryQuery("");
+    return KeysetPage.of(query.setMaxResults(limit + 1).getResultList(), limit, row -> row.id);
+  }
+
+  private TypedQuery<ReportDTO> summaryQuery(String where) {
+    return em.createQuery(SUMMARY_SELECT + where + " ORDER BY r.id", ReportDTO.class);
+  }
+
   /**
    * Finds all completed reports.
    *
@@ -119,6 +166,37 @@ public class ReportRepository implements PanacheRepository<Report> {
     return list("isScheduled = ?1 AND nextScheduleDate <= ?2", true, now.plusMinutes(1));
   }
 
+  /**
+   * Finds the scheduled reports whose next run is due, earliest first.
+   *
+   * @param now the current time
+   * @param limit the maximum number of reports
+   * @return list of due scheduled reports
+   */
+  public List<Report> findScheduledDue(LocalDateTime now, int limit) {
+    return find(
+            "isScheduled = ?1 AND nextScheduleDate <= ?2 ORDER BY nextScheduleDate, id",
+            true,
+            now)
+        .page(0, limit)
+        .list();
+  }
+
+  /**
+   * Moves a scheduled report's next run from a due date to the next one, so that only one
+   * instance runs each scheduled date.
+   *
+   * @param reportId the report ID
+   * @param due the due date the caller read
+   * @param next the next date to run the report
+   * @return true if the report was still due at that date and has been moved on
+   */
+  public boolean advanceSchedule(Long reportId, LocalDateTime due, LocalDateTime next) {
+    return update(
+            "nextScheduleDate = ?1 WHERE id = ?2 AND nextScheduleDate = ?3", next, reportId, due)
+        == 1;
+  }
+
   /**
    * Finds reports by file size range.
    *
@@ -261,6 +339,56 @@ public class ReportRepository implements PanacheRepository<Report> {
     return list("status = ?1", ReportStatus.PENDING);
   }
 
+  /**
+   * Finds the oldest reports that need to be processed, leaving out failed reports still backing
+   * off before their next retry.
+   *
+   * @param now the current time
+   * @param limit the maximum number of reports
+   * @return list of pending reports in creation order
+   */
+  public List<Report> findToProcess(LocalDateTime now, int limit) {
+    return find(
+            "status = ?1 AND (retryNotBefore IS NULL OR retryNotBefore <= ?2) ORDER BY id",
+            ReportStatus.PENDING,
+            now)
+        .page(0, limit)
+        .list();
+  }
+
+  /**
+   * Claims a pending report for processing, so that only one worker generates it.
+   *
+   * @param reportId the report ID
+   * @param owner the node ID of the claiming instance
+   * @return true if the report was still pending and is now processing
+   */
+  public boolean claimForProcessing(Long reportId, String owner) {
+    return update(
+            "status = ?1, owner = ?2 WHERE id = ?3 AND status = ?4",
+            ReportStatus.PROCESSING,
+            owner,
+            reportId,
+            ReportStatus.PENDING)
+        == 1;
+  }
+
+  /**
+   * Finds the processing reports whose instance's liveness lease has expired.
+   *
+   * @param now the current time
+   * @return list of reports left processing by stopped instances
+   */
+  public List<Report> findProcessingOrphaned(LocalDateTime now) {
+    return list(
+        "status = ?1 AND (owner IS NULL OR owner NOT IN"
+            + " (SELECT l.owner FROM SchedulerLease l WHERE l.name LIKE ?2"
+            + " AND l.owner IS NOT NULL AND l.expiresAt >= ?3))",
+        ReportStatus.PROCESSING,
+        SchedulerLeaseRepository.NODE_PREFIX + "%",
+        now);
+  }
+
   /**
    * Finds reports by generated date.
    *
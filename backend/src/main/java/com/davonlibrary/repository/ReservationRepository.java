@@ -95,6 +95,24 @@ public class ReservationRepository implements PanacheRepository<Reservation> {
     return list("status = ?1 AND expiryDate < ?2", ReservationStatus.ACTIVE, LocalDate.now());
   }
 
+  /**
+   * Gets the active reservations past their expiry date as a source for chunked bulk jobs, with
+   * the book and user of each reservation, partitionable by book.
+   *
+   * @return the expired reservations source
+   */
+  public ChunkedScroll.Source<Reservation> expiredSource() {
+    return ChunkedScroll.Source.of(
+            Reservation.class,
+            "SELECT r FROM Reservation r JOIN FETCH r.book JOIN FETCH r.user"
+                + " WHERE r.status = :status AND r.expiryDate < :today",
+            "r.id",
+            (Reservation reservation) -> reservation.id)
+        .with("status", ReservationStatus.ACTIVE)
+        .with("today", LocalDate.now())
+        .partitionedBy("r.book.id");
+  }
+
   /**
    * Finds reservations by status.
    *
@@ -199,24 +217,43 @@ public class ReservationRepository implements PanacheRepository<Reservation> {
     return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
   }
 
+  /**
+   * Finds the highest reservation ID.
+   *
+   * @return the highest ID, or 0 if there are no reservations
+   */
+  public long findMaxId() {
+    Long maxId =
+        em.createQuery("SELECT MAX(r.id) FROM Reservation r", Long.class).getSingleResult();
+    return maxId != null ? maxId : 0;
+  }
+
   /**
    * Gets reservation statistics.
    *
    * @return reservation statistics
    */
   public ReservationStats getReservationStats() {
-    long totalReservations = count();
-    long activeReservations = count("status = ?1", ReservationStatus.ACTIVE);
-    long fulfilledReservations = count("status = ?1", ReservationStatus.FULFILLED);
-    long expiredReservations = count("status = ?1", ReservationStatus.EXPIRED);
-    long cancelledReservations = count("status = ?1", ReservationStatus.CANCELLED);
+    long[] byStatus = new long[ReservationStatus.values().length];
+    long totalReservations = 0;
+    List<Object[]> rows =
+        em.createQuery(
+                "SELECT r.status, COUNT(r) FROM Reservation r GROUP BY r.status", Object[].class)
+            .getResultList();
+    for (Object[] row : rows) {
+      long count = ((Number) row[1]).longValue();
+      totalReservations += count;
+      if (row[0] != null) {
+        byStatus[((ReservationStatus) row[0]).ordinal()] = count;
+      }
+    }
 
     return new ReservationStats(
         totalReservations,
-        activeReservations,
-        fulfilledReservations,
-        expiredReservations,
-        cancelledReservations);
+        byStatus[ReservationStatus.ACTIVE.ordinal()],
+        byStatus[ReservationStatus.FULFILLED.ordinal()],
+        byStatus[ReservationStatus.EXPIRED.ordinal()],
+        byStatus[ReservationStatus.CANCELLED.ordinal()]);
   }
 
   /** Reservation statistics DTO. */
@@ -0,0 +1,106 @@
+package com.davonlibrary.repository;
+
+import com.davonlibrary.entity.SchedulerLease;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.LocalDateTime;
+
+/** Repository for SchedulerLease entity operations and queries. */
+@ApplicationScoped
+public class SchedulerLeaseRepository implements PanacheRepositoryBase<SchedulerLease, String> {
+
+  /** Prefix of the liveness lease of each instance. */
+  public static final String NODE_PREFIX = "node:";
+
+  /**
+   * Extends a lease held by an owner.
+   *
+   * @param name the lease name
+   * @param owner the owner
+   * @param now the current time
+   * @param expiresAt the new expiry
+   * @return true if the owner still held the lease and it was extended
+   */
+  public boolean renew(String name, String owner, LocalDateTime now, LocalDateTime expiresAt) {
+    return update(
+            "expiresAt = ?1 WHERE name = ?2 AND owner = ?3 AND expiresAt >= ?4",
+            expiresAt,
+            name,
+            owner,
+            now)
+        == 1;
+  }
+
+  /**
+   * Takes over a lease that is free or has expired.
+   *
+   * @param name the lease name
+   * @param owner the new owner
+   * @param now the current time
+   * @param expiresAt the expiry of the new lease
+   * @return true if the lease was free and is now held by the owner
+   */
+  public boolean takeOver(String name, String owner, LocalDateTime now, LocalDateTime expiresAt) {
+    return update(
+            "owner = ?1, acquiredAt = ?2, expiresAt = ?3"
+                + " WHERE name = ?4 AND (owner IS NULL OR expiresAt IS NULL OR expiresAt < ?2)",
+            owner,
+            now,
+            expiresAt,
+            name)
+        == 1;
+  }
+
+  /**
+   * Gives up a lease so another instance can take it over at once.
+   *
+   * @param name the lease name
+   * @param owner the owner
+   * @return true if the owner held the lease
+   */
+  public boolean release(String name, String owner) {
+    return update("owner = null, expiresAt = null WHERE name = ?1 AND owner = ?2", name, owner)
+        == 1;
+  }
+
+  /**
+   * Deletes a lease held by an owner, for the liveness lease of an instance that is stopping.
+   *
+   * @param name the lease name
+   * @param owner the owner
+   * @return true if the owner held the lease
+   */
+  public boolean deleteOwned(String name, String owner) {
+    return delete("name = ?1 AND owner = ?2", name, owner) == 1;
+  }
+
+  /**
+   * Deletes the liveness leases that have expired or been released. Node IDs are new on every
+   * start, so without this each start would leave a row behind.
+   *
+   * @param now the current time
+   * @return the number of leases deleted
+   */
+  public long deleteExpiredNodes(LocalDateTime now) {
+    return delete(
+        "name LIKE ?1 AND (owner IS NULL OR expiresAt IS NULL OR expiresAt < ?2)",
+        NODE_PREFIX + "%",
+        now);
+  }
+
+  /**
+   * Claims a period of a recurring task, so that the task runs once per period across instances.
+   * Periods must sort in time order as strings.
+   *
+   * @param name the task lease name
+   * @param period the period
+   * @return true if the task had not yet run for the period or a later one
+   */
+  public boolean claimPeriod(String name, String period) {
+    return update(
+            "lastPeriod = ?1 WHERE name = ?2 AND (lastPeriod IS NULL OR lastPeriod < ?1)",
+            period,
+            name)
+        == 1;
+  }
+}
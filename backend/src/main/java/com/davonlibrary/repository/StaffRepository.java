@@ -1,9 +1,11 @@
 package com.davonlibrary.repository;
 
+import com.davonlibrary.dto.StaffDTO;
 import com.davonlibrary.entity.Staff;
 import com.davonlibrary.entity.Staff.EmploymentStatus;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.TypedQuery;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +13,12 @@ import java.util.Optional;
 @ApplicationScoped
 public class StaffRepository implements PanacheRepository<Staff> {
 
+  private static final String SUMMARY_SELECT =
+      "SELECT new com.davonlibrary.dto.StaffDTO(s.id, s.firstName, s.lastName, s.email,"
+          + " s.position, s.department, s.employeeId, s.hireDate, s.employmentStatus,"
+          + " l.id, l.name, sup.id)"
+          + " FROM Staff s LEFT JOIN s.library l LEFT JOIN s.supervisor sup";
+
   /**
    * Finds a staff member by email.
    *
@@ -160,6 +168,50 @@ public class StaffRepository implements PanacheRepository<Staff> {
     return count("employeeId", employeeId) > 0;
   }
 
+  /**
+   * Finds staff members with an employment status as list views, without loading entities.
+   *
+   * @param status the employment status
+   * @return list of staff members with the status ordered by ID
+   */
+  public List<StaffDTO> findSummariesByEmploymentStatus(EmploymentStatus status) {
+    return summaryQuery(" WHERE s.employmentStatus = :status")
+        .setParameter("status", status)
+        .getResultList();
+  }
+
+  /**
+   * Finds staff members of a library as list views, without loading entities.
+   *
+   * @param libraryId the library ID
+   * @return list of staff members in the library ordered by ID
+   */
+  public List<StaffDTO> findSummariesByLibrary(Long libraryId) {
+    return summaryQuery(" WHERE l.id = :libraryId")
+        .setParameter("libraryId", libraryId)
+        .getResultList();
+  }
+
+  /**
+   * Finds a page of staff members as list views, in ID order.
+   *
+   * @param afterId the ID of the last row of the previous page, or null for the first page
+   * @param limit the page size
+   * @return the page
+   */
+  public KeysetPage<StaffDTO> findSummaryPage(Long afterId, int limit) {
+    TypedQuery<StaffDTO> query =
+        afterId != null
+            ? summaryQuery(" WHERE s.id > :afterId").setParameter("afterId", afterId)
+            : summaryQuery("");
+    return KeysetPage.of(query.setMaxResults(limit + 1).getResultList(), limit, row -> row.id);
+  }
+
+  private TypedQuery<StaffDTO> summaryQuery(String where) {
+    return getEntityManager()
+        .createQuery(SUMMARY_SELECT + where + " ORDER BY s.id", StaffDTO.class);
+  }
+
   /**
    * Gets staff statistics for a library.
    *
@@ -167,15 +219,46 @@ public class StaffRepository implements PanacheRepository<Staff> {
    * @return staff statistics
    */
   public StaffStats getStaffStats(Long libraryId) {
-    long totalStaff = count("library.id", libraryId);
-    long activeStaff =
-        count("library.id = ?1 AND employmentStatus = ?2", libraryId, EmploymentStatus.ACTIVE);
-    long onLeaveStaff =
-        count("library.id = ?1 AND employmentStatus = ?2", libraryId, EmploymentStatus.ON_LEAVE);
-    long terminatedStaff =
-        count("library.id = ?1 AND employmentStatus = ?2", libraryId, EmploymentStatus.TERMINATED);
-
-    return new StaffStats(totalStaff, activeStaff, onLeaveStaff, terminatedStaff);
+    return staffStats(
+        getEntityManager()
+            .createQuery(
+                "SELECT s.employmentStatus, COUNT(s) FROM Staff s WHERE s.library.id = :libraryId"
+                    + " GROUP BY s.employmentStatus",
+                Object[].class)
+            .setParameter("libraryId", libraryId)
+            .getResultList());
+  }
+
+  /**
+   * Gets staff statistics across all libraries.
+   *
+   * @return staff statistics
+   */
+  public StaffStats getStaffStats() {
+    return staffStats(
+        getEntityManager()
+            .createQuery(
+                "SELECT s.employmentStatus, COUNT(s) FROM Staff s GROUP BY s.employmentStatus",
+                Object[].class)
+            .getResultList());
+  }
+
+  private static StaffStats staffStats(List<Object[]> rows) {
+    long[] byStatus = new long[EmploymentStatus.values().length];
+    long totalStaff = 0;
+    for (Object[] row : rows) {
+      long count = ((Number) row[1]).longValue();
+      totalStaff += count;
+      if (row[0] != null) {
+        byStatus[((EmploymentStatus) row[0]).ordinal()] = count;
+      }
+    }
+
+    return new StaffStats(
+        totalStaff,
+        byStatus[EmploymentStatus.ACTIVE.ordinal()],
+        byStatus[EmploymentStatus.ON_LEAVE.ordinal()],
+        byStatus[EmploymentStatus.TERMINATED.ordinal()]);
   }
 
   /** Staff statistics DTO. */
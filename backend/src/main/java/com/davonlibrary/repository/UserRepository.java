@@ -148,6 +148,21 @@ public class UserRepository implements PanacheRepository<User> {
     return find("", Sort.by("joinDate").descending()).page(0, limit).list();
   }
 
+  /**
+   * Finds a page of users in ID order.
+   *
+   * @param afterId the ID of the last user of the previous page, or null for the first page
+   * @param limit the page size
+   * @return the page of users
+   */
+  public KeysetPage<User> findPage(Long afterId, int limit) {
+    List<User> users =
+        afterId != null
+            ? find("id > ?1", Sort.by("id"), afterId).page(0, limit + 1).list()
+            : findAll(Sort.by("id")).page(0, limit + 1).list();
+    return KeysetPage.of(users, limit, user -> user.id);
+  }
+
   /** User statistics DTO. */
   public static class UserStats {
     public final long totalUsers;
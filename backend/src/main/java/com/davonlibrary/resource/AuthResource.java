@@ -1,7 +1,9 @@
 package com.davonlibrary.resource;
 
 import com.davonlibrary.entity.User;
+import com.davonlibrary.event.ActivityEvent;
 import com.davonlibrary.repository.UserRepository;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
@@ -18,6 +20,8 @@ public class AuthResource {
 
   @Inject UserRepository userRepository;
 
+  @Inject Event<ActivityEvent> activityEvents;
+
   public static class LoginRequest {
     public String email;
     public String password;
@@ -241,6 +245,7 @@ public class AuthResource {
       // Create new user with password hash
       User newUser = new User(request.firstName, request.lastName, request.email, passwordHash);
       userRepository.persist(newUser);
+      activityEvents.fire(ActivityEvent.registration(newUser));
 
       // Return success response
       Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,141 @@
+package com.davonlibrary.resource;
+
+import com.davonlibrary.entity.BatchJob.JobType;
+import com.davonlibrary.service.BatchJobService;
+import com.davonlibrary.service.BatchJobService.JobProgress;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.net.URI;
+import java.util.List;
+
+/** REST resource for submitting and following batch maintenance jobs. */
+@Path("/api/jobs")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class BatchJobResource {
+
+  private static final int DEFAULT_LIMIT = 20;
+  private static final int MAX_LIMIT = 100;
+
+  @Inject BatchJobService batchJobService;
+
+  /**
+   * Submits a batch job, or a task split into jobs over ranges of its partition key when more than
+   * one partition is requested.
+   *
+   * @param request the job request
+   * @return 202 with the job progress, or the list of the jobs' progress for a split task, 400 if
+   *     the request is invalid or 409 if a job of the type is already pending or running
+   */
+  @POST
+  public Response submitJob(JobRequest request) {
+    if (request == null || request.type == null) {
+      return Response.status(Response.Status.BAD_REQUEST).entity("Job type is required").build();
+    }
+    try {
+      JobType type = JobType.valueOf(request.type.toUpperCase());
+      if (request.partitions == null || request.partitions == 1) {
+        return accepted(batchJobService.submit(type, request.chunkSize, request.daysOld));
+      }
+      List<JobProgress> jobs =
+          batchJobService.submit(type, request.chunkSize, request.daysOld, request.partitions);
+      return jobs.size() == 1 ? accepted(jobs.get(0)) : Response.accepted(jobs).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
+  }
+
+  /**
+   * Gets the progress of the most recent jobs.
+   *
+   * @param limit the maximum number of jobs, {@value #DEFAULT_LIMIT} by default
+   * @return list of job progress, newest first
+   */
+  @GET
+  public Response getJobs(@QueryParam("limit") Integer limit) {
+    int size = limit != null ? limit : DEFAULT_LIMIT;
+    if (size < 1 || size > MAX_LIMIT) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Limit must be between 1 and " + MAX_LIMIT)
+          .build();
+    }
+    return Response.ok(batchJobService.getRecentJobs(size)).build();
+  }
+
+  /**
+   * Gets the status and progress of a job.
+   *
+   * @param jobId the job ID
+   * @return the job progress if found
+   */
+  @GET
+  @Path("/{jobId}")
+  public Response getJob(@PathParam("jobId") Long jobId) {
+    JobProgress progress = batchJobService.getJob(jobId);
+    if (progress == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+    return Response.ok(progress).build();
+  }
+
+  /**
+   * Cancels a pending or running job.
+   *
+   * @param jobId the job ID
+   * @return the job progress, 404 if not found or 409 if the job has already finished
+   */
+  @POST
+  @Path("/{jobId}/cancel")
+  public Response cancelJob(@PathParam("jobId") Long jobId) {
+    try {
+      JobProgress progress = batchJobService.cancel(jobId);
+      if (progress == null) {
+        return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      return Response.ok(progress).build();
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
+  }
+
+  /**
+   * Resumes a failed or cancelled job from its checkpoint.
+   *
+   * @param jobId the job ID
+   * @return 202 with the job progress, 404 if not found or 409 if the job cannot be resumed
+   */
+  @POST
+  @Path("/{jobId}/resume")
+  public Response resumeJob(@PathParam("jobId") Long jobId) {
+    try {
+      JobProgress progress = batchJobService.resume(jobId);
+      if (progress == null) {
+        return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      return accepted(progress);
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
+  }
+
+  /**
+   * Builds the 202 response for a job that has been queued, pointing at its progress.
+   *
+   * @param progress the job progress
+   * @return the response
+   */
+  static Response accepted(JobProgress progress) {
+    return Response.accepted(progress).location(URI.create("/api/jobs/" + progress.id)).build();
+  }
+
+  public static class JobRequest {
+    public String type;
+    public Integer chunkSize;
+    public Integer daysOld;
+    public Integer partitions;
+  }
+}
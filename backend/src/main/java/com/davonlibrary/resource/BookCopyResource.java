@@ -1,14 +1,17 @@
 package com.davonlibrary.resource;
 
+import com.davonlibrary.dto.BookCopyDTO;
 import com.davonlibrary.entity.Book;
 import com.davonlibrary.entity.BookCopy;
 import com.davonlibrary.entity.Library;
+import com.davonlibrary.repository.BookCopyRepository;
+import com.davonlibrary.repository.KeysetPage;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.util.List;
-import com.davonlibrary.repository.BookRepository;
+import com.davonlibrary.service.BookAvailabilityService;
 import jakarta.inject.Inject;
 
 /** REST resource for managing book copies in the library system. */
@@ -17,16 +20,28 @@ import jakarta.inject.Inject;
 @Consumes(MediaType.APPLICATION_JSON)
 public class BookCopyResource {
 
-  @Inject BookRepository bookRepository;
+  @Inject BookAvailabilityService bookAvailabilityService;
+
+  @Inject BookCopyRepository bookCopyRepository;
 
   /**
-   * Gets all book copies.
+   * Gets a page of book copies in ID order. The cursor of the next page, if there is one, is
+   * returned in the {@code X-Next-Cursor} header.
    *
-   * @return list of all book copies
+   * @param limit the page size, {@value KeysetPage#DEFAULT_LIMIT} by default
+   * @param cursor the cursor of the page to read, or null for the first page
+   * @return the page of book copies
    */
   @GET
-  public List<BookCopy> getAllBookCopies() {
-    return BookCopy.listAll();
+  public Response getAllBookCopies(
+      @QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor) {
+    try {
+      KeysetPage<BookCopyDTO> page =
+          bookCopyRepository.findSummaryPage(KeysetPage.after(cursor), KeysetPage.limit(limit));
+      return Response.ok(page.items).header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
   }
 
   /**
@@ -69,13 +84,8 @@ public class BookCopyResource {
     BookCopy bookCopy = new BookCopy(book, library, request.barcode, request.location);
     bookCopy.persist();
 
-    // Update book's total copies count
-    book.totalCopies = (book.totalCopies != null ? book.totalCopies : 0) + 1;
-    book.availableCopies = (book.availableCopies != null ? book.availableCopies : 0) + 1;
-    book.persist();
-
-    // Recompute aggregates (status)
-    bookRepository.updateAggregates(book.id);
+    // Count the new copy towards the book's totals
+    bookAvailabilityService.copyAdded(bookCopy);
 
     return Response.status(Response.Status.CREATED).entity(bookCopy).build();
   }
@@ -103,7 +113,7 @@ public class BookCopyResource {
       bookCopy.location = request.location;
     }
     if (request.status != null) {
-      bookCopy.status = request.status;
+      bookAvailabilityService.changeStatus(bookCopy, request.status);
     }
     if (request.notes != null) {
       bookCopy.notes = request.notes;
@@ -111,11 +121,6 @@ public class BookCopyResource {
 
     bookCopy.persist();
 
-    // Recompute aggregates (status)
-    if (bookCopy.book != null) {
-      bookRepository.updateAggregates(bookCopy.book.id);
-    }
-
     return Response.ok(bookCopy).build();
   }
 
@@ -134,19 +139,8 @@ public class BookCopyResource {
       return Response.status(Response.Status.NOT_FOUND).build();
     }
 
-    // Update book's total copies count
-    if (bookCopy.book != null) {
-      Book book = bookCopy.book;
-      book.totalCopies = Math.max(0, (book.totalCopies != null ? book.totalCopies : 1) - 1);
-      if (bookCopy.status == BookCopy.BookCopyStatus.AVAILABLE) {
-        book.availableCopies =
-            Math.max(0, (book.availableCopies != null ? book.availableCopies : 1) - 1);
-      }
-      book.persist();
-
-      // Recompute aggregates (status)
-      bookRepository.updateAggregates(book.id);
-    }
+    // Remove the copy from the book's totals
+    bookAvailabilityService.copyRemoved(bookCopy);
 
     bookCopy.delete();
     return Response.noContent().build();
@@ -159,8 +153,8 @@ public class BookCopyResource {
    */
   @GET
   @Path("/available")
-  public List<BookCopy> getAvailableBookCopies() {
-    return BookCopy.list("status = ?1", BookCopy.BookCopyStatus.AVAILABLE);
+  public List<BookCopyDTO> getAvailableBookCopies() {
+    return bookCopyRepository.findSummariesByStatus(BookCopy.BookCopyStatus.AVAILABLE);
   }
 
   /**
@@ -171,8 +165,8 @@ public class BookCopyResource {
    */
   @GET
   @Path("/by-library/{libraryId}")
-  public List<BookCopy> getBookCopiesByLibrary(@PathParam("libraryId") Long libraryId) {
-    return BookCopy.list("library.id = ?1", libraryId);
+  public List<BookCopyDTO> getBookCopiesByLibrary(@PathParam("libraryId") Long libraryId) {
+    return bookCopyRepository.findSummariesByLibrary(libraryId);
   }
 
   /**
@@ -183,8 +177,8 @@ public class BookCopyResource {
    */
   @GET
   @Path("/by-book/{bookId}")
-  public List<BookCopy> getBookCopiesByBook(@PathParam("bookId") Long bookId) {
-    return BookCopy.list("book.id = ?1", bookId);
+  public List<BookCopyDTO> getBookCopiesByBook(@PathParam("bookId") Long bookId) {
+    return bookCopyRepository.findSummariesByBook(bookId);
   }
 
   /**
@@ -203,13 +197,10 @@ public class BookCopyResource {
       return Response.status(Response.Status.NOT_FOUND).build();
     }
 
+    BookCopy.BookCopyStatus previous = bookCopy.status;
     bookCopy.sendToMaintenance(request.reason);
     bookCopy.persist();
-
-    // Recompute aggregates (status)
-    if (bookCopy.book != null) {
-      bookRepository.updateAggregates(bookCopy.book.id);
-    }
+    bookAvailabilityService.recordStatusChange(bookCopy, previous);
 
     return Response.ok(new MaintenanceResponse(true, "Book copy sent to maintenance")).build();
   }
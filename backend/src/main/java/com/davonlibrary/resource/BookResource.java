@@ -1,14 +1,33 @@
 package com.davonlibrary.resource;
 
+import com.davonlibrary.dto.BookDTO;
 import com.davonlibrary.entity.Book;
 import com.davonlibrary.entity.BookCopy;
+import com.davonlibrary.recommend.CooccurrenceModel;
+import com.davonlibrary.recommend.CooccurrenceModel.Recommendation;
+import com.davonlibrary.recommend.RelatedBooks;
+import com.davonlibrary.repository.AuthorRepository;
 import com.davonlibrary.repository.BookRepository;
+import com.davonlibrary.repository.KeysetPage;
+import com.davonlibrary.repository.LibraryRepository;
+import com.davonlibrary.search.CatalogFacets;
+import com.davonlibrary.search.CatalogSearchIndex;
+import com.davonlibrary.search.CatalogSuggester;
+import com.davonlibrary.search.FacetIndex;
+import com.davonlibrary.search.InvertedIndex;
+import com.davonlibrary.service.BookAvailabilityService;
 import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.LongStream;
 
 /** REST resource for managing books in the library system. */
 @Path("/api/books")
@@ -16,23 +35,52 @@ import java.util.stream.Collectors;
 @Consumes(MediaType.APPLICATION_JSON)
 public class BookResource {
 
+  private static final int MAX_SUGGESTIONS = 20;
+  private static final int MAX_FACET_VALUES = 100;
+
   @Inject BookRepository bookRepository;
 
+  @Inject CatalogSearchIndex searchIndex;
+
+  @Inject CatalogSuggester suggester;
+
+  @Inject CatalogFacets catalogFacets;
+
+  @Inject AuthorRepository authorRepository;
+
+  @Inject LibraryRepository libraryRepository;
+
+  @Inject BookAvailabilityService availabilityService;
+
+  @Inject RelatedBooks relatedBooks;
+
+  /**
+   * Lists the catalog. Without a limit the whole catalog is returned; with a limit the response
+   * carries a {@code nextCursor} to pass back for the following page. The catalog size is counted
+   * only for the first page, so following pages leave {@code total} out.
+   */
   @GET
-  public Response getAllBooks() {
+  public Response getAllBooks(
+      @QueryParam("limit") Integer limit,
+      @QueryParam("cursor") String cursor,
+      @QueryParam("sort") @DefaultValue("title") String sort,
+      @QueryParam("order") @DefaultValue("asc") String order) {
     try {
-      List<Book> books = bookRepository.listAll();
-      long total = bookRepository.count();
-
-      // Convert to DTO format for frontend with dynamic copy counts
-      List<BookDTO> bookDTOs = books.stream().map(this::convertToDTO).collect(Collectors.toList());
+      BookRepository.CatalogPage page =
+          bookRepository.findCatalogPage(sort, "desc".equalsIgnoreCase(order), cursor, limit);
 
-      // Create response object
       BookListResponse response = new BookListResponse();
-      response.books = bookDTOs;
-      response.total = total;
+      response.books = page.books;
+      if (limit == null) {
+        response.total = (long) page.books.size();
+      } else if (cursor == null || cursor.isBlank()) {
+        response.total = bookRepository.count();
+      }
+      response.nextCursor = page.nextCursor;
 
       return Response.ok(response).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
     } catch (Exception e) {
       return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
           .entity("Error retrieving books: " + e.getMessage())
@@ -40,13 +88,267 @@ public class BookResource {
     }
   }
 
+  /**
+   * Searches the catalog index. Every word of the query must match the start of a word in the
+   * title, an author name or the ISBN, or in the single field given.
+   */
+  @GET
+  @Path("/search")
+  public Response searchBooks(
+      @QueryParam("q") String query,
+      @QueryParam("field") String field,
+      @QueryParam("limit") @DefaultValue("50") int limit) {
+    if (query == null || query.trim().isEmpty()) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Query parameter q is required")
+          .build();
+    }
+    if (limit < 1 || limit > BookRepository.MAX_CATALOG_PAGE_SIZE) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Limit must be between 1 and " + BookRepository.MAX_CATALOG_PAGE_SIZE)
+          .build();
+    }
+    InvertedIndex.Field searchField = null;
+    if (field != null && !field.isBlank()) {
+      try {
+        searchField = InvertedIndex.Field.valueOf(field.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        return Response.status(Response.Status.BAD_REQUEST)
+            .entity("Unknown search field: " + field)
+            .build();
+      }
+    }
+    long[] ids =
+        searchField == null ? searchIndex.search(query) : searchIndex.search(query, searchField);
+
+    BookListResponse response = new BookListResponse();
+    response.books = bookRepository.findCatalogEntries(ids, limit);
+    response.total = (long) ids.length;
+    return Response.ok(response).build();
+  }
+
+  /**
+   * Suggests corrected queries for search text that may be misspelled, such as "harry poter" for
+   * "harry potter", best first. Only corrections that find books are returned.
+   */
+  @GET
+  @Path("/search/did-you-mean")
+  public Response didYouMean(
+      @QueryParam("q") String query,
+      @QueryParam("field") String field,
+      @QueryParam("limit") @DefaultValue("5") int limit) {
+    if (query == null || query.trim().isEmpty()) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Query parameter q is required")
+          .build();
+    }
+    if (limit < 1 || limit > MAX_SUGGESTIONS) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Limit must be between 1 and " + MAX_SUGGESTIONS)
+          .build();
+    }
+    try {
+      InvertedIndex.Field searchField =
+          field == null || field.isBlank()
+              ? null
+              : InvertedIndex.Field.valueOf(field.toUpperCase());
+      return Response.ok(searchIndex.didYouMean(query, searchField, limit)).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Unknown search field: " + field)
+          .build();
+    }
+  }
+
+  /**
+   * Suggests book titles and author names starting with the typed prefix, most borrowed first. A
+   * trailing space only matches whole words, so "the " does not suggest "Theory".
+   */
+  @GET
+  @Path("/suggest")
+  public Response suggest(
+      @QueryParam("prefix") String prefix, @QueryParam("limit") @DefaultValue("10") int limit) {
+    if (prefix == null || prefix.isBlank()) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Query parameter prefix is required")
+          .build();
+    }
+    if (limit < 1 || limit > MAX_SUGGESTIONS) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Limit must be between 1 and " + MAX_SUGGESTIONS)
+          .build();
+    }
+    return Response.ok(suggester.suggest(prefix, limit)).build();
+  }
+
+  /**
+   * Filters the catalog by author, library, copy availability and book status, returning the
+   * matching books with the number of books under each facet value. Availability is a copy
+   * status, checked at the given library if there is one, so {@code
+   * libraryId=3&availability=AVAILABLE} lists the books with a copy on the shelf at branch 3.
+   * Books are listed in ID order a page at a time, with the cursor of the next page returned in
+   * the {@code X-Next-Cursor} header.
+   */
+  @GET
+  @Path("/facets")
+  @Transactional
+  public Response getFacets(
+      @QueryParam("authorId") Long authorId,
+      @QueryParam("libraryId") Long libraryId,
+      @QueryParam("availability") String availability,
+      @QueryParam("status") String status,
+      @QueryParam("limit") @DefaultValue("50") int limit,
+      @QueryParam("cursor") String cursor,
+      @QueryParam("facetLimit") @DefaultValue("10") int facetLimit) {
+    if (limit < 0 || limit > BookRepository.MAX_CATALOG_PAGE_SIZE) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Limit must be between 0 and " + BookRepository.MAX_CATALOG_PAGE_SIZE)
+          .build();
+    }
+    if (facetLimit < 1 || facetLimit > MAX_FACET_VALUES) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Facet limit must be between 1 and " + MAX_FACET_VALUES)
+          .build();
+    }
+    Long after;
+    try {
+      after = KeysetPage.after(cursor);
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
+    FacetIndex.Filter filter;
+    try {
+      filter =
+          new FacetIndex.Filter(
+              authorId,
+              libraryId,
+              availability != null
+                  ? BookCopy.BookCopyStatus.valueOf(availability.toUpperCase())
+                  : null,
+              status != null ? Book.BookStatus.valueOf(status.toUpperCase()) : null);
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Unknown availability or status: " + e.getMessage())
+          .build();
+    }
+    // One book past the page tells whether another page follows
+    FacetIndex.Result result =
+        catalogFacets.query(
+            filter, after != null ? after : -1, limit > 0 ? limit + 1 : 0, facetLimit);
+    KeysetPage<Long> page =
+        KeysetPage.of(LongStream.of(result.bookIds).boxed().toList(), limit, id -> id);
+
+    FacetResponse response = new FacetResponse();
+    response.books =
+        bookRepository.findCatalogEntries(page.items.stream().mapToLong(Long::longValue).toArray());
+    response.books.sort(Comparator.comparing(book -> book.id));
+    response.total = result.total;
+    response.authors =
+        named(result.authors, authorRepository.findFullNames(result.authors.keySet()));
+    response.libraries =
+        named(result.libraries, libraryRepository.findNames(result.libraries.keySet()));
+    response.availability = result.availability;
+    response.statuses = result.statuses;
+    return Response.ok(response).header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor).build();
+  }
+
+  @GET
+  @Path("/search/stats")
+  public Response getSearchIndexStats() {
+    return Response.ok(searchIndex.getStats()).build();
+  }
+
+  @POST
+  @Path("/search/rebuild")
+  public Response rebuildSearchIndex() {
+    try {
+      return Response.ok(searchIndex.rebuild()).build();
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
+  }
+
+  @GET
+  @Path("/{id}/availability")
+  public Response getBookAvailability(@PathParam("id") Long id) {
+    if (bookRepository.findByIdOptional(id).isEmpty()) {
+      return Response.status(Response.Status.NOT_FOUND)
+          .entity("Book not found with id: " + id)
+          .build();
+    }
+    AvailabilityResponse response = new AvailabilityResponse();
+    response.bookId = id;
+    response.totalCopies = availabilityService.getTotalCopies(id);
+    response.availableCopies = availabilityService.getAvailableCopies(id);
+    return Response.ok(response).build();
+  }
+
+  @POST
+  @Path("/availability/reconcile")
+  public Response reconcileAvailability() {
+    return Response.ok(availabilityService.reconcile()).build();
+  }
+
+  /**
+   * Lists the books most often borrowed by the borrowers of a book, best first. Books are scored
+   * by how much their borrowers overlap, relative to how many borrowers each has.
+   */
+  @GET
+  @Path("/{id}/related")
+  public Response getRelatedBooks(
+      @PathParam("id") Long id, @QueryParam("limit") @DefaultValue("10") int limit) {
+    if (limit < 1 || limit > CooccurrenceModel.MAX_RELATED) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Limit must be between 1 and " + CooccurrenceModel.MAX_RELATED)
+          .build();
+    }
+    if (bookRepository.findByIdOptional(id).isEmpty()) {
+      return Response.status(Response.Status.NOT_FOUND)
+          .entity("Book not found with id: " + id)
+          .build();
+    }
+    List<Recommendation> recommendations = relatedBooks.related(id, limit);
+    long[] ids =
+        recommendations.stream().mapToLong(recommendation -> recommendation.bookId).toArray();
+    Map<Long, BookDTO> books = new HashMap<>();
+    for (BookDTO book : bookRepository.findCatalogEntries(ids)) {
+      books.put(book.id, book);
+    }
+    List<RelatedBook> related = new ArrayList<>(recommendations.size());
+    for (Recommendation recommendation : recommendations) {
+      BookDTO book = books.get(recommendation.bookId);
+      // Books deleted since they were borrowed are left out
+      if (book != null) {
+        related.add(
+            new RelatedBook(book, recommendation.score, recommendation.borrowedTogether));
+      }
+    }
+    return Response.ok(related).build();
+  }
+
+  @GET
+  @Path("/related/stats")
+  public Response getRelatedBooksStats() {
+    return Response.ok(relatedBooks.getStats()).build();
+  }
+
+  @POST
+  @Path("/related/rebuild")
+  public Response rebuildRelatedBooks() {
+    try {
+      return Response.ok(relatedBooks.rebuild()).build();
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
+  }
+
   @GET
   @Path("/{id}")
   public Response getBookById(@PathParam("id") Long id) {
     try {
-      Book book = bookRepository.findById(id);
-      if (book != null) {
-        return Response.ok(convertToDTO(book)).build();
+      Optional<BookDTO> book = bookRepository.findCatalogEntry(id);
+      if (book.isPresent()) {
+        return Response.ok(book.get()).build();
       } else {
         return Response.status(Response.Status.NOT_FOUND)
             .entity("Book not found with id: " + id)
@@ -59,49 +361,53 @@ public class BookResource {
     }
   }
 
-  private BookDTO convertToDTO(Book book) {
-    BookDTO dto = new BookDTO();
-    dto.id = book.id;
-    dto.title = book.title;
-    dto.isbn = book.isbn;
+  private static List<FacetValue> named(Map<Long, Long> counts, Map<Long, String> names) {
+    List<FacetValue> values = new ArrayList<>(counts.size());
+    counts.forEach((id, count) -> values.add(new FacetValue(id, names.get(id), count)));
+    return values;
+  }
 
-    // Compute dynamic counts from BookCopy
-    int totalCopies = (int) BookCopy.count("book.id", book.id);
-    int availableCopies =
-        (int)
-            BookCopy.count(
-                "book.id = ?1 and status = ?2", book.id, BookCopy.BookCopyStatus.AVAILABLE);
-    dto.totalCopies = totalCopies;
-    dto.availableCopies = availableCopies;
+  /** Response DTO for faceted catalog filtering. */
+  public static class FacetResponse {
+    public List<BookDTO> books;
+    public long total;
+    public List<FacetValue> authors;
+    public List<FacetValue> libraries;
+    public Map<BookCopy.BookCopyStatus, Long> availability;
+    public Map<Book.BookStatus, Long> statuses;
+  }
 
-    // Set status from persisted field, fallback to counts
-    dto.status = book.status != null ? book.status.name() : (availableCopies > 0 ? "AVAILABLE" : "UNAVAILABLE");
+  /** Book count of one author or library DTO. */
+  public static class FacetValue {
+    public final long id;
+    public final String name;
+    public final long count;
 
-    // Get author name
-    if (book.author != null) {
-      dto.author = book.author.firstName + " " + book.author.lastName;
-    } else {
-      dto.author = "Unknown Author";
+    public FacetValue(long id, String name, long count) {
+      this.id = id;
+      this.name = name;
+      this.count = count;
     }
-
-    return dto;
   }
 
-  /** Response DTO for books */
-  public static class BookDTO {
-    public Long id;
-    public String title;
-    public String isbn;
-    public String author;
-    public Integer availableCopies;
-    public Integer totalCopies;
-    public String status;
+  /** Related book DTO, with how many users borrowed it together with the requested book. */
+  public static class RelatedBook {
+    public final BookDTO book;
+    public final double score;
+    public final int borrowedTogether;
+
+    public RelatedBook(BookDTO book, double score, int borrowedTogether) {
+      this.book = book;
+      this.score = score;
+      this.borrowedTogether = borrowedTogether;
+    }
   }
 
   /** Response DTO for a list of books. */
   public static class BookListResponse {
     public List<BookDTO> books;
-    public long total;
+    public Long total;
+    public String nextCursor;
   }
 
   /** Request DTO for creating a book. */
@@ -118,4 +424,11 @@ public class BookResource {
     public String isbn;
     public Integer totalCopies;
   }
+
+  /** Response DTO for a book's copy counts. */
+  public static class AvailabilityResponse {
+    public Long bookId;
+    public int totalCopies;
+    public int availableCopies;
+  }
 }
@@ -0,0 +1,26 @@
+package com.davonlibrary.resource;
+
+import com.davonlibrary.service.DashboardStatsService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("/api/dashboard")
+@Produces(MediaType.APPLICATION_JSON)
+public class DashboardResource {
+
+  @Inject DashboardStatsService dashboardStatsService;
+
+  @GET
+  @Path("/stats")
+  public Response getStats() {
+    return Response.ok(dashboardStatsService.getStats()).build();
+  }
+
+  @POST
+  @Path("/stats/refresh")
+  public Response refreshStats() {
+    return Response.ok(dashboardStatsService.refresh()).build();
+  }
+}
@@ -2,8 +2,10 @@ package com.davonlibrary.resource;
 
 import com.davonlibrary.service.DatabaseConnectionService;
 import com.davonlibrary.service.DatabaseConnectionService.DatabaseMetadata;
+import com.davonlibrary.service.EntityCacheService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
@@ -26,6 +28,8 @@ public class DatabaseHealthResource {
 
   @Inject DatabaseConnectionService databaseConnectionService;
 
+  @Inject EntityCacheService entityCacheService;
+
   /**
    * Health check endpoint to verify database connection.
    *
@@ -130,4 +134,28 @@ public class DatabaseHealthResource {
       return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(response).build();
     }
   }
+
+  /**
+   * Get hit, miss and size statistics of the second-level cache.
+   *
+   * @return Response with statistics per cache region
+   */
+  @GET
+  @Path("/cache")
+  public Response getCacheStats() {
+    return Response.ok(entityCacheService.getStats()).build();
+  }
+
+  /**
+   * Evict everything from the second-level cache, for example after editing data directly in the
+   * database.
+   *
+   * @return Response with the statistics after eviction
+   */
+  @POST
+  @Path("/cache/evict")
+  public Response evictCache() {
+    entityCacheService.evictAll();
+    return Response.ok(entityCacheService.getStats()).build();
+  }
 }
@@ -219,13 +219,14 @@ public class EnhancedFineResource {
       return Response.status(Response.Status.NOT_FOUND).entity("Loan not found").build();
     }
 
+    EnhancedFineService.FineCalculations calculations =
+        enhancedFineService.calculateAll(loan, loan.user);
     EnhancedFineCalculationsResponse response = new EnhancedFineCalculationsResponse();
-    response.enhancedFine = enhancedFineService.calculateEnhancedFine(loan);
-    response.gracePeriodFine = enhancedFineService.calculateFineWithGracePeriod(loan);
-    response.loyaltyDiscountFine =
-        enhancedFineService.calculateFineWithLoyaltyDiscount(loan, loan.user);
-    response.seasonalFine = enhancedFineService.calculateFineWithSeasonalAdjustments(loan);
-    response.volumeDiscount = enhancedFineService.calculateVolumeDiscount(loan.user);
+    response.enhancedFine = calculations.enhancedFine;
+    response.gracePeriodFine = calculations.gracePeriodFine;
+    response.loyaltyDiscountFine = calculations.loyaltyDiscountFine;
+    response.seasonalFine = calculations.seasonalFine;
+    response.volumeDiscount = calculations.volumeDiscount;
 
     return Response.ok(response).build();
   }
@@ -244,14 +245,15 @@ public class EnhancedFineResource {
       return Response.status(Response.Status.NOT_FOUND).entity("Loan not found").build();
     }
 
+    EnhancedFineService.FineCalculations calculations =
+        enhancedFineService.calculateAll(loan, loan.user);
     FineComparisonResponse response = new FineComparisonResponse();
     response.standardFine =
         loan.getCurrentFine() != null ? loan.getCurrentFine().amount : BigDecimal.ZERO;
-    response.enhancedFine = enhancedFineService.calculateEnhancedFine(loan);
-    response.gracePeriodFine = enhancedFineService.calculateFineWithGracePeriod(loan);
-    response.loyaltyDiscountFine =
-        enhancedFineService.calculateFineWithLoyaltyDiscount(loan, loan.user);
-    response.seasonalFine = enhancedFineService.calculateFineWithSeasonalAdjustments(loan);
+    response.enhancedFine = calculations.enhancedFine;
+    response.gracePeriodFine = calculations.gracePeriodFine;
+    response.loyaltyDiscountFine = calculations.loyaltyDiscountFine;
+    response.seasonalFine = calculations.seasonalFine;
 
     return Response.ok(response).build();
   }
@@ -0,0 +1,47 @@
+package com.davonlibrary.resource;
+
+import com.davonlibrary.report.DataExporter;
+import com.davonlibrary.report.DataExporter.Dataset;
+import com.davonlibrary.report.DataExporter.Format;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+/** REST resource for streaming full exports of library data. */
+@Path("/api/export")
+public class ExportResource {
+
+  @Inject DataExporter dataExporter;
+
+  /**
+   * Streams a whole dataset as NDJSON (one JSON object per line) or CSV with a header line. Rows
+   * are written as they are read from the database, so the response starts at once and an export
+   * of any size uses the same memory.
+   *
+   * @param dataset the dataset: catalog, loans or fines
+   * @param format the output format: ndjson or csv
+   * @return the streamed export
+   */
+  @GET
+  @Path("/{dataset}")
+  @Produces({"application/x-ndjson", "text/csv", "text/plain"})
+  public Response export(
+      @PathParam("dataset") String dataset,
+      @QueryParam("format") @DefaultValue("ndjson") String format) {
+    Dataset exported;
+    Format exportFormat;
+    try {
+      exported = Dataset.parse(dataset);
+      exportFormat = Format.parse(format);
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
+
+    StreamingOutput body = out -> dataExporter.export(exported, exportFormat, out);
+    String fileName = exported.name().toLowerCase() + "." + exportFormat.extension;
+    return Response.ok(body, exportFormat.mediaType)
+        .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+        .build();
+  }
+}
@@ -1,6 +1,9 @@
 package com.davonlibrary.resource;
 
+import com.davonlibrary.entity.BatchJob.JobType;
 import com.davonlibrary.entity.Fine;
+import com.davonlibrary.repository.KeysetPage;
+import com.davonlibrary.service.BatchJobService;
 import com.davonlibrary.service.FineService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
@@ -18,16 +21,27 @@ public class FineResource {
 
   @Inject FineService fineService;
 
+  @Inject BatchJobService batchJobService;
+
   /**
-   * Gets all active fines.
+   * Gets a page of active fines in ID order. The cursor of the next page, if there is one, is
+   * returned in the {@code X-Next-Cursor} header.
    *
-   * @return list of active fines
+   * @param limit the page size, {@value KeysetPage#DEFAULT_LIMIT} by default
+   * @param cursor the cursor of the page to read, or null for the first page
+   * @return the page of active fines
    */
   @GET
   @Path("/active")
-  public Response getActiveFines() {
-    List<Fine> fines = fineService.getActiveFinesForUser(null);
-    return Response.ok(fines).build();
+  public Response getActiveFines(
+      @QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor) {
+    try {
+      KeysetPage<Fine> page =
+          fineService.getActiveFines(KeysetPage.after(cursor), KeysetPage.limit(limit));
+      return Response.ok(page.items).header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
   }
 
   /**
@@ -184,27 +198,38 @@ public class FineResource {
   }
 
   /**
-   * Recalculates all fines.
+   * Starts a batch job recalculating all fines; its progress is at {@code /api/jobs/{id}}.
    *
-   * @return recalculation result
+   * @param chunkSize the fines per chunk and transaction, or null for the configured size
+   * @return 202 with the job progress
    */
   @POST
   @Path("/recalculate")
-  public Response recalculateFines() {
-    int recalculatedCount = fineService.recalculateAllFines();
-    return Response.ok().entity(new RecalculationResponse(recalculatedCount)).build();
+  public Response recalculateFines(@QueryParam("chunkSize") Integer chunkSize) {
+    return submitJob(JobType.FINE_RECALCULATION, chunkSize);
   }
 
   /**
-   * Creates fines for overdue loans.
+   * Starts a batch job creating fines for overdue loans; its progress is at {@code
+   * /api/jobs/{id}}.
    *
-   * @return creation result
+   * @param chunkSize the loans per chunk and transaction, or null for the configured size
+   * @return 202 with the job progress
    */
   @POST
   @Path("/create-for-overdue")
-  public Response createFinesForOverdueLoans() {
-    int createdCount = fineService.createFinesForOverdueLoans();
-    return Response.ok().entity(new FineCreationResponse(createdCount)).build();
+  public Response createFinesForOverdueLoans(@QueryParam("chunkSize") Integer chunkSize) {
+    return submitJob(JobType.OVERDUE_FINES, chunkSize);
+  }
+
+  private Response submitJob(JobType type, Integer chunkSize) {
+    try {
+      return BatchJobResource.accepted(batchJobService.submit(type, chunkSize, null));
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
   }
 
   /**
@@ -288,22 +313,6 @@ public class FineResource {
     }
   }
 
-  public static class RecalculationResponse {
-    public int recalculatedCount;
-
-    public RecalculationResponse(int recalculatedCount) {
-      this.recalculatedCount = recalculatedCount;
-    }
-  }
-
-  public static class FineCreationResponse {
-    public int createdCount;
-
-    public FineCreationResponse(int createdCount) {
-      this.createdCount = createdCount;
-    }
-  }
-
   public static class CollectionReportResponse {
     public LocalDateTime startDate;
     public LocalDateTime endDate;
@@ -1,13 +1,22 @@
 package com.davonlibrary.resource;
 
+import com.davonlibrary.service.CirculationService;
 import com.davonlibrary.service.LibraryService;
+import com.davonlibrary.service.LibraryStatsService;
+import com.davonlibrary.service.LibraryStatsService.BranchStats;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.util.List;
+import java.util.Locale;
 
 @Path("/api/library")
 @Produces(MediaType.APPLICATION_JSON)
@@ -16,6 +25,10 @@ public class LibraryResource {
 
   @Inject private LibraryService libraryService;
 
+  @Inject private CirculationService circulationService;
+
+  @Inject private LibraryStatsService libraryStatsService;
+
   @POST
   @Path("/borrow")
   public Response borrowBook(BorrowRequest request) {
@@ -45,6 +58,76 @@ public class LibraryResource {
     }
   }
 
+  /**
+   * Checks out a stack of copies to one user in a single transaction. Returns 200 with an outcome
+   * per barcode even when some items could not be checked out.
+   */
+  @POST
+  @Path("/checkout")
+  public Response checkout(CheckoutRequest request) {
+    try {
+      return Response.ok(circulationService.checkout(request.getUserId(), request.getBarcodes()))
+          .build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
+  }
+
+  /**
+   * Checks in a stack of copies in a single transaction. Returns 200 with an outcome per barcode
+   * even when some items were not on loan.
+   */
+  @POST
+  @Path("/checkin")
+  public Response checkin(CheckinRequest request) {
+    try {
+      return Response.ok(circulationService.checkin(request.getBarcodes())).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
+  }
+
+  /**
+   * Ranks library branches by member, active-borrower or book copy count, highest first. Served
+   * from in-memory counts.
+   */
+  @GET
+  @Path("/branches/ranked")
+  public Response getRankedBranches(
+      @QueryParam("by") @DefaultValue("ACTIVE_BORROWERS") String by,
+      @QueryParam("limit") @DefaultValue("10") int limit) {
+    LibraryStatsService.Ranking ranking;
+    try {
+      ranking = LibraryStatsService.Ranking.valueOf(by.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity("Unknown ranking: " + by).build();
+    }
+    if (limit <= 0) {
+      return Response.status(Response.Status.BAD_REQUEST).entity("Limit must be positive").build();
+    }
+    return Response.ok(libraryStatsService.rank(ranking, limit)).build();
+  }
+
+  @GET
+  @Path("/branches/{id}/stats")
+  public Response getBranchStats(@PathParam("id") Long id) {
+    BranchStats stats = libraryStatsService.getBranchStats(id);
+    if (stats == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+    return Response.ok(stats).build();
+  }
+
+  @POST
+  @Path("/branches/stats/rebuild")
+  public Response rebuildBranchStats() {
+    try {
+      return Response.ok(libraryStatsService.rebuild()).build();
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
+  }
+
   public static class BorrowRequest {
     private Long userId;
     private Long bookId;
@@ -66,6 +149,39 @@ public class LibraryResource {
     }
   }
 
+  public static class CheckoutRequest {
+    private Long userId;
+    private List<String> barcodes;
+
+    public Long getUserId() {
+      return userId;
+    }
+
+    public void setUserId(Long userId) {
+      this.userId = userId;
+    }
+
+    public List<String> getBarcodes() {
+      return barcodes;
+    }
+
+    public void setBarcodes(List<String> barcodes) {
+      this.barcodes = barcodes;
+    }
+  }
+
+  public static class CheckinRequest {
+    private List<String> barcodes;
+
+    public List<String> getBarcodes() {
+      return barcodes;
+    }
+
+    public void setBarcodes(List<String> barcodes) {
+      this.barcodes = barcodes;
+    }
+  }
+
   public static class SuccessResponse {
     public boolean success;
     public String message;
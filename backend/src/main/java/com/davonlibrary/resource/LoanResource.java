@@ -2,6 +2,8 @@ package com.davonlibrary.resource;
 
 import com.davonlibrary.dto.LoanDTO;
 import com.davonlibrary.entity.Loan;
+import com.davonlibrary.repository.KeysetPage;
+import com.davonlibrary.service.DueDateScheduler;
 import com.davonlibrary.service.LoanService;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
@@ -20,6 +22,8 @@ public class LoanResource {
 
   @Inject private LoanService loanService;
 
+  @Inject private DueDateScheduler dueDateScheduler;
+
   @GET
   @Path("/recent")
   public Response getRecentLoans() {
@@ -41,12 +45,32 @@ public class LoanResource {
     return Response.ok(count).build();
   }
 
+  @GET
+  @Path("/due-dates/stats")
+  public Response getDueDateStats() {
+    return Response.ok(dueDateScheduler.getStats()).build();
+  }
+
+  @POST
+  @Path("/due-dates/resync")
+  public Response resyncDueDates() {
+    try {
+      return Response.ok(dueDateScheduler.resync()).build();
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
+  }
+
   @GET
   @Path("/user/{userId}")
-  public Response getLoansByUserId(@PathParam("userId") Long userId) {
+  public Response getLoansByUserId(
+      @PathParam("userId") Long userId,
+      @QueryParam("limit") Integer limit,
+      @QueryParam("cursor") String cursor) {
     try {
-      List<Loan> loans = loanService.getLoansByUserId(userId);
-      List<LoanDTO> dtos = loans.stream()
+      KeysetPage<Loan> page =
+          loanService.getLoansByUserId(userId, KeysetPage.after(cursor), KeysetPage.limit(limit));
+      List<LoanDTO> dtos = page.items.stream()
           .map(l -> new LoanDTO(
               l.id,
               l.bookCopy != null && l.bookCopy.book != null ? l.bookCopy.book.title : "Unknown",
@@ -55,7 +79,9 @@ public class LoanResource {
               l.returnDate == null ? (int) ChronoUnit.DAYS.between(LocalDate.now(), l.dueDate) : null
           ))
           .collect(Collectors.toList());
-      return Response.ok(dtos).build();
+      return Response.ok(dtos).header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
     } catch (Exception e) {
       return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
           .entity("Failed to retrieve loans: " + e.getMessage())
@@ -1,9 +1,14 @@
 package com.davonlibrary.resource;
 
+import com.davonlibrary.entity.BatchJob.JobType;
 import com.davonlibrary.entity.Notification;
 import com.davonlibrary.entity.Notification.NotificationPriority;
 import com.davonlibrary.entity.Notification.NotificationType;
+import com.davonlibrary.repository.KeysetPage;
+import com.davonlibrary.repository.NotificationRepository.Audience;
+import com.davonlibrary.service.BatchJobService;
 import com.davonlibrary.service.NotificationService;
+import com.davonlibrary.service.NotificationService.BroadcastProgress;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -19,17 +24,31 @@ public class NotificationResource {
 
   @Inject NotificationService notificationService;
 
+  @Inject BatchJobService batchJobService;
+
   /**
-   * Gets all notifications for a user.
+   * Gets a page of a user's unread notifications, newest first. The cursor of the next page, if
+   * there is one, is returned in the {@code X-Next-Cursor} header.
    *
    * @param userId the user ID
-   * @return list of notifications
+   * @param limit the page size, {@value KeysetPage#DEFAULT_LIMIT} by default
+   * @param cursor the cursor of the page to read, or null for the first page
+   * @return the page of notifications
    */
   @GET
   @Path("/user/{userId}")
-  public Response getUserNotifications(@PathParam("userId") Long userId) {
-    List<Notification> notifications = notificationService.getUnreadNotifications(userId);
-    return Response.ok(notifications).build();
+  public Response getUserNotifications(
+      @PathParam("userId") Long userId,
+      @QueryParam("limit") Integer limit,
+      @QueryParam("cursor") String cursor) {
+    try {
+      KeysetPage<Notification> page =
+          notificationService.getUnreadNotifications(
+              userId, KeysetPage.after(cursor), KeysetPage.limit(limit));
+      return Response.ok(page.items).header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
   }
 
   /**
@@ -139,40 +158,115 @@ public class NotificationResource {
   }
 
   /**
-   * Sends bulk overdue notifications.
+   * Starts broadcasting a notification to all users, one library's members or active borrowers.
    *
-   * @return response with count of notifications sent
+   * @param request the broadcast request
+   * @return 202 with the broadcast progress, or 400 if the request is invalid
+   */
+  @POST
+  @Path("/broadcasts")
+  public Response startBroadcast(BroadcastRequest request) {
+    if (request == null) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Request body is required")
+          .build();
+    }
+    try {
+      BroadcastProgress progress =
+          notificationService.startBroadcast(
+              request.audience != null ? Audience.valueOf(request.audience.toUpperCase()) : null,
+              request.libraryId,
+              request.type != null ? NotificationType.valueOf(request.type.toUpperCase()) : null,
+              request.title,
+              request.message,
+              request.priority != null
+                  ? NotificationPriority.valueOf(request.priority.toUpperCase())
+                  : null);
+      return Response.accepted(progress).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
+  }
+
+  /**
+   * Gets the progress of the most recent broadcasts.
+   *
+   * @return list of broadcast progress, newest first
+   */
+  @GET
+  @Path("/broadcasts")
+  public Response getBroadcasts() {
+    return Response.ok(notificationService.getBroadcasts()).build();
+  }
+
+  /**
+   * Gets the progress of a broadcast.
+   *
+   * @param broadcastId the broadcast ID
+   * @return the broadcast progress if found
+   */
+  @GET
+  @Path("/broadcasts/{broadcastId}")
+  public Response getBroadcast(@PathParam("broadcastId") Long broadcastId) {
+    BroadcastProgress progress = notificationService.getBroadcast(broadcastId);
+    if (progress == null) {
+      return Response.status(Response.Status.NOT_FOUND).build();
+    }
+    return Response.ok(progress).build();
+  }
+
+  /**
+   * Starts a batch job sending overdue notifications; its progress is at {@code /api/jobs/{id}}.
+   *
+   * @param chunkSize the loans per chunk and transaction, or null for the configured size
+   * @return 202 with the job progress
    */
   @POST
   @Path("/bulk/overdue")
-  public Response sendBulkOverdueNotifications() {
-    int count = notificationService.sendBulkOverdueNotifications();
-    return Response.ok().entity(new NotificationCountResponse(count)).build();
+  public Response sendBulkOverdueNotifications(@QueryParam("chunkSize") Integer chunkSize) {
+    return submitJob(JobType.OVERDUE_REMINDERS, chunkSize, null);
   }
 
   /**
-   * Sends bulk due soon notifications.
+   * Starts a batch job sending due soon notifications; its progress is at {@code
+   * /api/jobs/{id}}.
    *
-   * @return response with count of notifications sent
+   * @param chunkSize the loans per chunk and transaction, or null for the configured size
+   * @return 202 with the job progress
    */
   @POST
   @Path("/bulk/due-soon")
-  public Response sendBulkDueSoonNotifications() {
-    int count = notificationService.sendBulkDueSoonNotifications();
-    return Response.ok().entity(new NotificationCountResponse(count)).build();
+  public Response sendBulkDueSoonNotifications(@QueryParam("chunkSize") Integer chunkSize) {
+    return submitJob(JobType.DUE_SOON_REMINDERS, chunkSize, null);
   }
 
   /**
-   * Cleans up old notifications.
+   * Starts a batch job cleaning up old notifications; its progress is at {@code /api/jobs/{id}}.
    *
    * @param request the cleanup request
-   * @return response with count of notifications deleted
+   * @param chunkSize the notifications per chunk and transaction, or null for the configured size
+   * @return 202 with the job progress
    */
   @DELETE
   @Path("/cleanup")
-  public Response cleanupOldNotifications(CleanupRequest request) {
-    int count = notificationService.cleanupOldNotifications(request.daysOld);
-    return Response.ok().entity(new NotificationCountResponse(count)).build();
+  public Response cleanupOldNotifications(
+      CleanupRequest request, @QueryParam("chunkSize") Integer chunkSize) {
+    if (request == null) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity("Request body is required")
+          .build();
+    }
+    return submitJob(JobType.NOTIFICATION_CLEANUP, chunkSize, request.daysOld);
+  }
+
+  private Response submitJob(JobType type, Integer chunkSize, Integer daysOld) {
+    try {
+      return BatchJobResource.accepted(batchJobService.submit(type, chunkSize, daysOld));
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
   }
 
   /**
@@ -239,6 +333,15 @@ public class NotificationResource {
     public String message;
   }
 
+  public static class BroadcastRequest {
+    public String audience;
+    public Long libraryId;
+    public String type;
+    public String title;
+    public String message;
+    public String priority;
+  }
+
   public static class CleanupRequest {
     public int daysOld;
   }
@@ -0,0 +1,164 @@
+package com.davonlibrary.resource;
+
+import com.davonlibrary.entity.Author;
+import com.davonlibrary.entity.Book;
+import com.davonlibrary.entity.User;
+import com.davonlibrary.repository.AuthorRepository;
+import com.davonlibrary.repository.BookRepository;
+import com.davonlibrary.repository.UserRepository;
+import com.davonlibrary.service.PopularityService;
+import com.davonlibrary.service.PopularityService.RankedCount;
+import com.davonlibrary.service.PopularityService.Subject;
+import com.davonlibrary.service.PopularityService.Window;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * REST resource for the borrowing leaderboards. Counts are served from memory; the names of the
+ * listed books and authors come from the second-level cache.
+ */
+@Path("/api/popularity")
+@Produces(MediaType.APPLICATION_JSON)
+public class PopularityResource {
+
+  private static final int MAX_LIMIT = 100;
+
+  @Inject PopularityService popularityService;
+
+  @Inject BookRepository bookRepository;
+
+  @Inject AuthorRepository authorRepository;
+
+  @Inject UserRepository userRepository;
+
+  /** Gets the most borrowed books over a window: all, 7d or 30d. */
+  @GET
+  @Path("/books")
+  @Transactional
+  public Response getPopularBooks(
+      @QueryParam("window") @DefaultValue("all") String window,
+      @QueryParam("limit") @DefaultValue("10") int limit) {
+    return leaderboard(
+        Subject.BOOK,
+        window,
+        limit,
+        id -> {
+          Book book = bookRepository.findById(id);
+          return book != null ? book.title : null;
+        });
+  }
+
+  /** Gets the most borrowed authors over a window: all, 7d or 30d. */
+  @GET
+  @Path("/authors")
+  @Transactional
+  public Response getPopularAuthors(
+      @QueryParam("window") @DefaultValue("all") String window,
+      @QueryParam("limit") @DefaultValue("10") int limit) {
+    return leaderboard(
+        Subject.AUTHOR,
+        window,
+        limit,
+        id -> {
+          Author author = authorRepository.findById(id);
+          return author != null ? author.getFullName() : null;
+        });
+  }
+
+  /**
+   * Gets the users who borrow the most over a window (all, 7d or 30d), or who have the most loans
+   * not yet returned with {@code window=active}.
+   */
+  @GET
+  @Path("/users")
+  @Transactional
+  public Response getTopBorrowers(
+      @QueryParam("window") @DefaultValue("all") String window,
+      @QueryParam("limit") @DefaultValue("10") int limit) {
+    LongFunction<String> name =
+        id -> {
+          User user = userRepository.findById(id);
+          return user != null ? user.getFullName() : null;
+        };
+    if ("active".equalsIgnoreCase(window)) {
+      if (limit <= 0 || limit > MAX_LIMIT) {
+        return badLimit();
+      }
+      return Response.ok(named(popularityService.topActiveBorrowers(limit), name)).build();
+    }
+    return leaderboard(Subject.USER, window, limit, name);
+  }
+
+  /** Reloads the borrow counts from the loan history. */
+  @POST
+  @Path("/rebuild")
+  public Response rebuild() {
+    try {
+      return Response.ok(new RebuildResponse(popularityService.rebuild())).build();
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+    }
+  }
+
+  private Response leaderboard(
+      Subject subject, String windowKey, int limit, LongFunction<String> name) {
+    Window window;
+    try {
+      window = Window.of(windowKey);
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
+    if (limit <= 0 || limit > MAX_LIMIT) {
+      return badLimit();
+    }
+    return Response.ok(named(popularityService.top(subject, window, limit), name)).build();
+  }
+
+  private static List<LeaderboardEntry> named(
+      List<RankedCount> counts, LongFunction<String> name) {
+    List<LeaderboardEntry> entries = new ArrayList<>(counts.size());
+    for (RankedCount count : counts) {
+      entries.add(new LeaderboardEntry(count.id, name.apply(count.id), count.count));
+    }
+    return entries;
+  }
+
+  private static Response badLimit() {
+    return Response.status(Response.Status.BAD_REQUEST)
+        .entity("Limit must be between 1 and " + MAX_LIMIT)
+        .build();
+  }
+
+  /** Leaderboard entry DTO. */
+  public static class LeaderboardEntry {
+    public final long id;
+    public final String name;
+    public final long count;
+
+    public LeaderboardEntry(long id, String name, long count) {
+      this.id = id;
+      this.name = name;
+      this.count = count;
+    }
+  }
+
+  /** Rebuild result DTO. */
+  public static class RebuildResponse {
+    public final long loans;
+
+    public RebuildResponse(long loans) {
+      this.loans = loans;
+    }
+  }
+}
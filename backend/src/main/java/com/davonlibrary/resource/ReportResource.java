@@ -1,8 +1,13 @@
 package com.davonlibrary.resource;
 
+import com.davonlibrary.dto.ReportDTO;
 import com.davonlibrary.entity.Report;
 import com.davonlibrary.entity.Report.ReportStatus;
 import com.davonlibrary.entity.Report.ReportType;
+import com.davonlibrary.repository.KeysetPage;
+import com.davonlibrary.repository.ReportRepository;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -15,14 +20,26 @@ import java.util.List;
 @Consumes(MediaType.APPLICATION_JSON)
 public class ReportResource {
 
+  @Inject ReportRepository reportRepository;
+
   /**
-   * Gets all reports.
+   * Gets a page of reports in ID order. The cursor of the next page, if there is one, is returned
+   * in the {@code X-Next-Cursor} header.
    *
-   * @return list of all reports
+   * @param limit the page size, {@value KeysetPage#DEFAULT_LIMIT} by default
+   * @param cursor the cursor of the page to read, or null for the first page
+   * @return the page of reports
    */
   @GET
-  public List<Report> getAllReports() {
-    return Report.listAll();
+  public Response getAllReports(
+      @QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor) {
+    try {
+      KeysetPage<ReportDTO> page =
+          reportRepository.findSummaryPage(KeysetPage.after(cursor), KeysetPage.limit(limit));
+      return Response.ok(page.items).header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
   }
 
   /**
@@ -47,6 +64,7 @@ public class ReportResource {
    * @param request the report creation request
    * @return the created report
    */
+  @Transactional
   @POST
   public Response createReport(CreateReportRequest request) {
     Report report = new Report(request.type, request.title, request.description);
@@ -73,7 +91,7 @@ public class ReportResource {
   public Response getReportsByType(@PathParam("type") String type) {
     try {
       ReportType reportType = ReportType.valueOf(type.toUpperCase());
-      List<Report> reports = Report.list("type", reportType);
+      List<ReportDTO> reports = reportRepository.findSummariesByType(reportType);
       return Response.ok(reports).build();
     } catch (IllegalArgumentException e) {
       return Response.status(Response.Status.BAD_REQUEST).entity("Invalid report type").build();
@@ -91,7 +109,7 @@ public class ReportResource {
   public Response getReportsByStatus(@PathParam("status") String status) {
     try {
       ReportStatus reportStatus = ReportStatus.valueOf(status.toUpperCase());
-      List<Report> reports = Report.list("status", reportStatus);
+      List<ReportDTO> reports = reportRepository.findSummariesByStatus(reportStatus);
       return Response.ok(reports).build();
     } catch (IllegalArgumentException e) {
       return Response.status(Response.Status.BAD_REQUEST).entity("Invalid report status").build();
@@ -106,7 +124,7 @@ public class ReportResource {
   @GET
   @Path("/completed")
   public Response getCompletedReports() {
-    List<Report> reports = Report.list("status", ReportStatus.COMPLETED);
+    List<ReportDTO> reports = reportRepository.findSummariesByStatus(ReportStatus.COMPLETED);
     return Response.ok(reports).build();
   }
 
@@ -118,7 +136,7 @@ public class ReportResource {
   @GET
   @Path("/failed")
   public Response getFailedReports() {
-    List<Report> reports = Report.list("status", ReportStatus.FAILED);
+    List<ReportDTO> reports = reportRepository.findSummariesByStatus(ReportStatus.FAILED);
     return Response.ok(reports).build();
   }
 
@@ -207,6 +225,7 @@ public class ReportResource {
    * @param request the status update request
    * @return the updated report
    */
+  @Transactional
   @PUT
   @Path("/{reportId}/status")
   public Response updateReportStatus(
@@ -249,6 +268,7 @@ public class ReportResource {
    * @param reportId the report ID
    * @return response indicating success or failure
    */
+  @Transactional
   @DELETE
   @Path("/{reportId}")
   public Response deleteReport(@PathParam("reportId") Long reportId) {
@@ -2,6 +2,7 @@ package com.davonlibrary.resource;
 
 import com.davonlibrary.dto.ReservationDTO;
 import com.davonlibrary.entity.Reservation;
+import com.davonlibrary.service.ReservationQueueService;
 import com.davonlibrary.service.ReservationService;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
@@ -17,6 +18,8 @@ public class ReservationResource {
 
   @Inject private ReservationService reservationService;
 
+  @Inject private ReservationQueueService reservationQueueService;
+
   @GET
   @Path("/user/{userId}/with-queue-position")
   public Response getReservationsWithQueuePosition(@PathParam("userId") Long userId) {
@@ -36,6 +39,8 @@ public class ReservationResource {
       return Response.status(Response.Status.CREATED).entity(createdReservation).build();
     } catch (IllegalArgumentException e) {
       return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    } catch (IllegalStateException e) {
+      return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
     }
   }
 
@@ -77,4 +82,29 @@ public class ReservationResource {
       return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
     }
   }
+
+  @GET
+  @Path("/book/{bookId}/queue")
+  public Response getQueueForBook(@PathParam("bookId") Long bookId) {
+    if (!reservationService.isValidBookId(bookId)) {
+      return Response.status(Response.Status.BAD_REQUEST).entity("Invalid book ID.").build();
+    }
+    long[] reservationIds = reservationQueueService.getQueue(bookId);
+    return Response.ok(new QueueResponse(bookId, reservationIds)).build();
+  }
+
+  /** Reservation queue of one book DTO. */
+  public static class QueueResponse {
+    public final Long bookId;
+    public final int length;
+    public final Long nextReservationId;
+    public final long[] reservationIds;
+
+    public QueueResponse(Long bookId, long[] reservationIds) {
+      this.bookId = bookId;
+      this.length = reservationIds.length;
+      this.nextReservationId = reservationIds.length > 0 ? reservationIds[0] : null;
+      this.reservationIds = reservationIds;
+    }
+  }
 }
@@ -1,13 +1,21 @@
 package com.davonlibrary.resource;
 
+import com.davonlibrary.dto.StaffDTO;
 import com.davonlibrary.entity.Library;
 import com.davonlibrary.entity.Staff;
 import com.davonlibrary.entity.User;
+import com.davonlibrary.repository.KeysetPage;
+import com.davonlibrary.repository.StaffRepository;
+import com.davonlibrary.search.CatalogSearchIndex;
+import com.davonlibrary.search.CatalogSearchIndex.Correction;
+import com.davonlibrary.search.InvertedIndex;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /** REST resource for managing staff in the library system. */
 @Path("/staff")
@@ -15,14 +23,31 @@ import java.util.List;
 @Consumes(MediaType.APPLICATION_JSON)
 public class StaffResource {
 
+  static final String DID_YOU_MEAN_HEADER = "X-Did-You-Mean";
+  private static final int MAX_CORRECTIONS = 3;
+
+  @Inject StaffRepository staffRepository;
+
+  @Inject CatalogSearchIndex searchIndex;
+
   /**
-   * Gets all staff members.
+   * Gets a page of staff members in ID order. The cursor of the next page, if there is one, is
+   * returned in the {@code X-Next-Cursor} header.
    *
-   * @return list of all staff members
+   * @param limit the page size, {@value KeysetPage#DEFAULT_LIMIT} by default
+   * @param cursor the cursor of the page to read, or null for the first page
+   * @return the page of staff members
    */
   @GET
-  public List<Staff> getAllStaff() {
-    return Staff.listAll();
+  public Response getAllStaff(
+      @QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor) {
+    try {
+      KeysetPage<StaffDTO> page =
+          staffRepository.findSummaryPage(KeysetPage.after(cursor), KeysetPage.limit(limit));
+      return Response.ok(page.items).header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+    }
   }
 
   /**
@@ -151,8 +176,8 @@ public class StaffResource {
    */
   @GET
   @Path("/active")
-  public List<Staff> getActiveStaff() {
-    return Staff.list("employmentStatus = ?1", Staff.EmploymentStatus.ACTIVE);
+  public List<StaffDTO> getActiveStaff() {
+    return staffRepository.findSummariesByEmploymentStatus(Staff.EmploymentStatus.ACTIVE);
   }
 
   /**
@@ -163,12 +188,14 @@ public class StaffResource {
    */
   @GET
   @Path("/by-library/{libraryId}")
-  public List<Staff> getStaffByLibrary(@PathParam("libraryId") Long libraryId) {
-    return Staff.list("library.id = ?1", libraryId);
+  public List<StaffDTO> getStaffByLibrary(@PathParam("libraryId") Long libraryId) {
+    return staffRepository.findSummariesByLibrary(libraryId);
   }
 
   /**
-   * Staff member searches for books.
+   * Staff member searches for books. If the title matches nothing, it is taken as misspelled and
+   * the books of its best correction are returned instead, with the corrections tried listed in
+   * the {@code X-Did-You-Mean} header, best first.
    *
    * @param id the staff ID
    * @param title the book title to search for
@@ -189,6 +216,17 @@ public class StaffResource {
     }
 
     List<com.davonlibrary.entity.Book> books = staff.searchBooks(title);
+    if (books.isEmpty()) {
+      List<Correction> corrections =
+          searchIndex.didYouMean(title, InvertedIndex.Field.TITLE, MAX_CORRECTIONS);
+      if (!corrections.isEmpty()) {
+        return Response.ok(staff.searchBooks(corrections.get(0).query))
+            .header(
+                DID_YOU_MEAN_HEADER,
+                corrections.stream().map(c -> c.query).collect(Collectors.joining(", ")))
+            .build();
+      }
+    }
     return Response.ok(books).build();
   }
 
@@ -1,6 +1,7 @@
 package com.davonlibrary.resource;
 
 import com.davonlibrary.entity.User;
+import com.davonlibrary.repository.KeysetPage;
 import com.davonlibrary.repository.UserRepository;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
@@ -28,21 +29,35 @@ public class UserResource {
     return Response.ok(convertToDTO(mockUser)).build();
   }
 
+  /**
+   * Lists users a page at a time in ID order; the response carries a {@code nextCursor} to pass
+   * back for the following page.
+   *
+   * @param limit the page size, {@value KeysetPage#DEFAULT_LIMIT} by default
+   * @param cursor the cursor of the page to read, or null for the first page
+   * @return the page of users with the total user count
+   */
   @GET
-  public Response getAllUsers() {
+  public Response getAllUsers(
+      @QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor) {
     try {
-      List<User> users = userRepository.listAll();
+      KeysetPage<User> page =
+          userRepository.findPage(KeysetPage.after(cursor), KeysetPage.limit(limit));
       long total = userRepository.count();
 
       // Convert to DTO format for frontend
-      List<UserDTO> userDTOs = users.stream().map(this::convertToDTO).collect(Collectors.toList());
+      List<UserDTO> userDTOs =
+          page.items.stream().map(this::convertToDTO).collect(Collectors.toList());
 
       // Create response object
       UserListResponse response = new UserListResponse();
       response.users = userDTOs;
       response.total = total;
+      response.nextCursor = page.nextCursor;
 
       return Response.ok(response).build();
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
     } catch (Exception e) {
       return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
           .entity("Error retrieving users: " + e.getMessage())
@@ -94,6 +109,7 @@ public class UserResource {
   public static class UserListResponse {
     public List<UserDTO> users;
     public long total;
+    public String nextCursor;
   }
 
   /** Request DTO for creating users */
@@ -0,0 +1,208 @@
+package com.davonlibrary.search;
+
+import com.davonlibrary.entity.BookCopy.BookCopyStatus;
+import com.davonlibrary.event.BookCopyStatusChangedEvent;
+import com.davonlibrary.event.CatalogChangedEvent;
+import com.davonlibrary.search.FacetIndex.Filter;
+import com.davonlibrary.search.FacetIndex.Result;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the in-memory {@link FacetIndex} of the catalog. The index is loaded at startup from the
+ * books and their copies and kept current from {@link CatalogChangedEvent}s and {@link
+ * BookCopyStatusChangedEvent}s, so a borrow or return moves its book between facet values as soon
+ * as it commits. Both are applied by book or copy ID, so a rebuild can replay the changes
+ * committed while it was loading. A periodic rebuild picks up changes made outside the
+ * application.
+ */
+@ApplicationScoped
+public class CatalogFacets {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CatalogFacets.class);
+
+  private static final int FETCH_SIZE = 1000;
+
+  @Inject EntityManager entityManager;
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  private final Object swapLock = new Object();
+  private volatile FacetIndex index = new FacetIndex();
+  private volatile boolean loaded;
+  // Changes committed while a rebuild is loading; null when no rebuild is running
+  private List<Object> pendingChanges;
+
+  void onStart(@Observes StartupEvent event) {
+    try {
+      rebuild();
+    } catch (Exception e) {
+      LOGGER.warn("Catalog facets could not be loaded at startup", e);
+    }
+  }
+
+  @Scheduled(
+      every = "${library.facets.rebuild-interval:24h}",
+      delayed = "${library.facets.rebuild-interval:24h}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void scheduledRebuild() {
+    try {
+      rebuild();
+    } catch (Exception e) {
+      LOGGER.error("Catalog facets rebuild failed", e);
+    }
+  }
+
+  /**
+   * Reloads the facets from the books and their copies.
+   *
+   * @return the number of copies loaded
+   * @throws IllegalStateException if a rebuild is already running
+   */
+  public int rebuild() {
+    if (!rebuildLock.tryLock()) {
+      throw new IllegalStateException("Catalog facets rebuild already in progress");
+    }
+    try {
+      long start = System.nanoTime();
+      synchronized (swapLock) {
+        pendingChanges = new ArrayList<>();
+      }
+      FacetIndex fresh;
+      try {
+        fresh = QuarkusTransaction.requiringNew().timeout(600).call(this::load);
+      } catch (RuntimeException e) {
+        synchronized (swapLock) {
+          pendingChanges = null;
+        }
+        throw e;
+      }
+      synchronized (swapLock) {
+        for (Object change : pendingChanges) {
+          apply(fresh, change);
+        }
+        index = fresh;
+        pendingChanges = null;
+      }
+      loaded = true;
+      LOGGER.info(
+          "Catalog facets loaded: {} books, {} copies, ~{} KB in {} ms",
+          fresh.bookCount(),
+          fresh.copyCount(),
+          fresh.estimatedBytes() / 1024,
+          (System.nanoTime() - start) / 1_000_000);
+      return fresh.copyCount();
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /** Returns true once the facets have been loaded from the database. */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Finds a page of the books matching a filter, with the counts of every facet value under it.
+   *
+   * @param filter the facet values to filter by
+   * @param after the book ID to list the matching books after, or -1 for the first page
+   * @param limit the maximum number of book IDs to return
+   * @param facetLimit the maximum number of authors and libraries to count
+   * @return the matching book IDs after the given one in ascending order, and the facet counts
+   */
+  public Result query(Filter filter, long after, int limit, int facetLimit) {
+    return index.query(filter, after, limit, facetLimit);
+  }
+
+  /**
+   * Finds the books matching a filter.
+   *
+   * @param filter the facet values to filter by
+   * @return the matching book IDs in ascending order
+   */
+  public long[] filter(Filter filter) {
+    return index.filter(filter);
+  }
+
+  void onCatalogChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) CatalogChangedEvent event) {
+    if (event.kind == CatalogChangedEvent.Kind.BOOK_SAVED
+        || event.kind == CatalogChangedEvent.Kind.BOOK_DELETED) {
+      record(event);
+    }
+  }
+
+  void onCopyStatusChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) BookCopyStatusChangedEvent event) {
+    if (event.copyId != null) {
+      record(event);
+    }
+  }
+
+  private void record(Object change) {
+    synchronized (swapLock) {
+      apply(index, change);
+      if (pendingChanges != null) {
+        pendingChanges.add(change);
+      }
+    }
+  }
+
+  private FacetIndex load() {
+    FacetIndex fresh = new FacetIndex();
+    try (Stream<Object[]> rows =
+        entityManager
+            .createQuery(
+                "SELECT b.id, a.id FROM Book b LEFT JOIN b.author a ORDER BY b.id", Object[].class)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream()) {
+      rows.forEach(row -> fresh.putBook((Long) row[0], (Long) row[1]));
+    }
+    try (Stream<Object[]> rows =
+        entityManager
+            .createQuery(
+                "SELECT c.id, c.book.id, l.id, c.status FROM BookCopy c LEFT JOIN c.library l",
+                Object[].class)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream()) {
+      rows.forEach(
+          row ->
+              fresh.putCopy(
+                  (Long) row[0], (Long) row[1], (Long) row[2], (BookCopyStatus) row[3]));
+    }
+    return fresh;
+  }
+
+  private static void apply(FacetIndex target, Object change) {
+    if (change instanceof CatalogChangedEvent) {
+      CatalogChangedEvent event = (CatalogChangedEvent) change;
+      if (event.kind == CatalogChangedEvent.Kind.BOOK_SAVED) {
+        target.putBook(event.bookId, event.authorId);
+      } else {
+        target.removeBook(event.bookId);
+      }
+    } else {
+      BookCopyStatusChangedEvent event = (BookCopyStatusChangedEvent) change;
+      if (event.to != null) {
+        target.putCopy(event.copyId, event.bookId, event.libraryId, event.to);
+      } else {
+        target.removeCopy(event.copyId);
+      }
+    }
+  }
+}
@@ -0,0 +1,340 @@
+package com.davonlibrary.search;
+
+import com.davonlibrary.event.CatalogChangedEvent;
+import com.davonlibrary.search.InvertedIndex.Clause;
+import com.davonlibrary.search.InvertedIndex.Field;
+import io.quarkus.narayana.jta.runtime.TransactionConfiguration;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the in-memory catalog search index. The index is built from the database at startup and
+ * kept current from {@link CatalogChangedEvent}s fired when books and authors are saved or deleted.
+ * A rebuild loads a fresh index in the background of normal traffic and swaps it in, replaying any
+ * changes that were committed while it was loading.
+ */
+@ApplicationScoped
+public class CatalogSearchIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CatalogSearchIndex.class);
+
+  private static final int FETCH_SIZE = 1000;
+  private static final int WORD_CANDIDATES = 5;
+  private static final int MAX_COMBINATIONS = 20;
+  private static final Comparator<Correction> BEST_FIRST =
+      Comparator.comparingInt((Correction correction) -> correction.edits)
+          .thenComparingLong(correction -> -correction.books)
+          .thenComparing(correction -> correction.query);
+
+  @Inject EntityManager entityManager;
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  private final Object swapLock = new Object();
+  private volatile InvertedIndex index = new InvertedIndex();
+  // Changes committed while a rebuild is loading; null when no rebuild is running
+  private List<CatalogChangedEvent> pendingChanges;
+  private volatile long lastRebuildMillis = -1;
+  private volatile LocalDateTime lastRebuiltAt;
+
+  @Transactional
+  @TransactionConfiguration(timeout = 600)
+  void onStart(@Observes StartupEvent event) {
+    try {
+      load();
+    } catch (Exception e) {
+      LOGGER.warn("Catalog search index could not be built at startup", e);
+    }
+  }
+
+  /**
+   * Rebuilds the index from the database.
+   *
+   * @return statistics of the rebuilt index
+   * @throws IllegalStateException if a rebuild is already running
+   */
+  @Transactional
+  @TransactionConfiguration(timeout = 600)
+  public IndexStats rebuild() {
+    return load();
+  }
+
+  /**
+   * Searches all fields for books matching every word of the text.
+   *
+   * @param text the search text
+   * @return matching book IDs in ascending order
+   */
+  public long[] search(String text) {
+    return index.search(InvertedIndex.parse(text, null));
+  }
+
+  /**
+   * Searches one field for books matching every word of the text.
+   *
+   * @param text the search text
+   * @param field the field to search
+   * @return matching book IDs in ascending order
+   */
+  public long[] search(String text, Field field) {
+    return index.search(InvertedIndex.parse(text, field));
+  }
+
+  /**
+   * Searches for books matching all of the given field criteria. Blank criteria are ignored.
+   *
+   * @param title title words
+   * @param authorName author name words
+   * @param isbn ISBN or ISBN prefix
+   * @return matching book IDs in ascending order
+   */
+  public long[] search(String title, String authorName, String isbn) {
+    List<Clause> clauses = new ArrayList<>();
+    clauses.addAll(InvertedIndex.parse(title, Field.TITLE));
+    clauses.addAll(InvertedIndex.parse(authorName, Field.AUTHOR));
+    clauses.addAll(InvertedIndex.parse(isbn, Field.ISBN));
+    return index.search(clauses);
+  }
+
+  /**
+   * Suggests corrections for search text that may be misspelled. Words that match the index as
+   * typed are kept; every other word is replaced by indexed words within one or two edits of it,
+   * depending on its length, keeping the first letter when two are allowed. The combinations are
+   * ranked by their total edits and then by the number of books they find, and only those that
+   * find books are returned. ISBNs are never corrected.
+   *
+   * @param text the search text
+   * @param field the field to search, or null for titles and author names
+   * @param limit the maximum number of corrections
+   * @return the corrected queries, best first; empty if the text needs no correction or none
+   *     was found
+   */
+  public List<Correction> didYouMean(String text, Field field, int limit) {
+    List<Correction> corrections = new ArrayList<>();
+    if (field == Field.ISBN || limit <= 0) {
+      return corrections;
+    }
+    InvertedIndex current = index;
+    List<Clause> clauses = InvertedIndex.parse(text, field);
+    List<List<FuzzyMatcher.Match>> options = new ArrayList<>(clauses.size());
+    boolean misspelled = false;
+    for (Clause clause : clauses) {
+      if (current.matchesAny(clause)) {
+        options.add(List.of(new FuzzyMatcher.Match(clause.token, 0, 0)));
+        continue;
+      }
+      List<FuzzyMatcher.Match> similar =
+          current.similarTerms(
+              field,
+              clause.token,
+              FuzzyMatcher.prefixLengthFor(clause.token),
+              FuzzyMatcher.maxEditsFor(clause.token),
+              WORD_CANDIDATES);
+      if (similar.isEmpty()) {
+        return corrections;
+      }
+      options.add(similar);
+      misspelled = true;
+    }
+    if (!misspelled) {
+      return corrections;
+    }
+
+    // Keep only the most promising combinations of word candidates as each word is added
+    List<Correction> beam = List.of(new Correction("", 0, 0));
+    for (List<FuzzyMatcher.Match> wordOptions : options) {
+      List<Correction> extended = new ArrayList<>();
+      for (Correction partial : beam) {
+        for (FuzzyMatcher.Match option : wordOptions) {
+          extended.add(
+              new Correction(
+                  partial.query.isEmpty() ? option.term : partial.query + " " + option.term,
+                  partial.edits + option.distance,
+                  partial.books + option.frequency));
+        }
+      }
+      extended.sort(BEST_FIRST);
+      beam = extended.size() > MAX_COMBINATIONS ? extended.subList(0, MAX_COMBINATIONS) : extended;
+    }
+    for (Correction candidate : beam) {
+      int books = current.search(InvertedIndex.parse(candidate.query, field)).length;
+      if (books > 0) {
+        corrections.add(new Correction(candidate.query, candidate.edits, books));
+      }
+    }
+    corrections.sort(BEST_FIRST);
+    return corrections.size() > limit ? corrections.subList(0, limit) : corrections;
+  }
+
+  /** Returns true once the index has been built from the database. */
+  public boolean isLoaded() {
+    return lastRebuiltAt != null;
+  }
+
+  /**
+   * Counts the books in the index.
+   *
+   * @return the number of indexed books
+   */
+  public int countBooks() {
+    return index.documentCount();
+  }
+
+  /**
+   * Gets statistics of the current index.
+   *
+   * @return index statistics
+   */
+  public IndexStats getStats() {
+    InvertedIndex current = index;
+    return new IndexStats(
+        current.documentCount(),
+        current.termCount(),
+        current.postingCount(),
+        current.estimatedBytes(),
+        lastRebuildMillis,
+        lastRebuiltAt);
+  }
+
+  void onCatalogChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) CatalogChangedEvent event) {
+    synchronized (swapLock) {
+      apply(index, event);
+      if (pendingChanges != null) {
+        pendingChanges.add(event);
+      }
+    }
+  }
+
+  private IndexStats load() {
+    if (!rebuildLock.tryLock()) {
+      throw new IllegalStateException("Catalog search index rebuild already in progress");
+    }
+    try {
+      long start = System.nanoTime();
+      synchronized (swapLock) {
+        pendingChanges = new ArrayList<>();
+      }
+      InvertedIndex fresh = new InvertedIndex();
+      try (Stream<Object[]> rows =
+          entityManager
+              .createQuery(
+                  "SELECT b.id, a.id, b.title, b.isbn, a.firstName, a.lastName"
+                      + " FROM Book b LEFT JOIN b.author a ORDER BY b.id",
+                  Object[].class)
+              .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+              .setHint(HibernateHints.HINT_READ_ONLY, true)
+              .getResultStream()) {
+        rows.forEach(
+            row ->
+                fresh.put(
+                    (Long) row[0],
+                    (Long) row[1],
+                    (String) row[2],
+                    (String) row[3],
+                    (String) row[4],
+                    (String) row[5]));
+      } catch (RuntimeException e) {
+        synchronized (swapLock) {
+          pendingChanges = null;
+        }
+        throw e;
+      }
+      synchronized (swapLock) {
+        for (CatalogChangedEvent change : pendingChanges) {
+          apply(fresh, change);
+        }
+        index = fresh;
+        pendingChanges = null;
+      }
+      lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+      lastRebuiltAt = LocalDateTime.now();
+      IndexStats stats = getStats();
+      LOGGER.info(
+          "Catalog search index built: {} books, {} terms, ~{} KB in {} ms",
+          stats.documents,
+          stats.terms,
+          stats.estimatedBytes / 1024,
+          stats.lastRebuildMillis);
+      return stats;
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  private static void apply(InvertedIndex target, CatalogChangedEvent event) {
+    switch (event.kind) {
+      case BOOK_SAVED:
+        target.put(
+            event.bookId,
+            event.authorId,
+            event.title,
+            event.isbn,
+            event.authorFirstName,
+            event.authorLastName);
+        break;
+      case BOOK_DELETED:
+        target.remove(event.bookId);
+        break;
+      case AUTHOR_SAVED:
+        target.updateAuthor(event.authorId, event.authorFirstName, event.authorLastName);
+        break;
+      case AUTHOR_DELETED:
+        target.removeAuthor(event.authorId);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /** Search correction DTO. */
+  public static class Correction {
+    public final String query;
+    public final int edits;
+    public final long books;
+
+    public Correction(String query, int edits, long books) {
+      this.query = query;
+      this.edits = edits;
+      this.books = books;
+    }
+  }
+
+  /** Catalog search index statistics DTO. */
+  public static class IndexStats {
+    public final int documents;
+    public final int terms;
+    public final long postings;
+    public final long estimatedBytes;
+    public final long lastRebuildMillis;
+    public final LocalDateTime lastRebuiltAt;
+
+    public IndexStats(
+        int documents,
+        int terms,
+        long postings,
+        long estimatedBytes,
+        long lastRebuildMillis,
+        LocalDateTime lastRebuiltAt) {
+      this.documents = documents;
+      this.terms = terms;
+      this.postings = postings;
+      this.estimatedBytes = estimatedBytes;
+      this.lastRebuildMillis = lastRebuildMillis;
+      this.lastRebuiltAt = lastRebuiltAt;
+    }
+  }
+}
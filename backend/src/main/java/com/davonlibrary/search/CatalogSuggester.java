@@ -0,0 +1,219 @@
+package com.davonlibrary.search;
+
+import com.davonlibrary.event.CatalogChangedEvent;
+import com.davonlibrary.event.LoanEvent;
+import com.davonlibrary.search.SuggestIndex.Kind;
+import com.davonlibrary.search.SuggestIndex.Suggestion;
+import com.davonlibrary.service.PopularityService;
+import com.davonlibrary.service.PopularityService.Subject;
+import com.davonlibrary.service.PopularityService.Window;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves typeahead suggestions of book titles and author names, most borrowed first.
+ *
+ * <p>The {@link SuggestIndex} is built at startup from the catalog, scored with the all-time
+ * borrow counts, and kept current from {@link CatalogChangedEvent}s and borrowed {@link
+ * LoanEvent}s. Saved books and authors go to the index's delta; once the delta grows past {@code
+ * library.suggest.max-delta} entries the index is rebuilt, replaying the catalog changes committed
+ * while it was loading. Borrows committed during a rebuild may be missed by the scores until the
+ * next one.
+ */
+@ApplicationScoped
+public class CatalogSuggester {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CatalogSuggester.class);
+
+  private static final int FETCH_SIZE = 1000;
+
+  @Inject EntityManager entityManager;
+
+  @Inject PopularityService popularityService;
+
+  @ConfigProperty(name = "library.suggest.max-delta", defaultValue = "10000")
+  int maxDelta;
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  private final Object swapLock = new Object();
+  private volatile SuggestIndex index = new SuggestIndex();
+  // Changes committed while a rebuild is loading; null when no rebuild is running
+  private List<CatalogChangedEvent> pendingChanges;
+
+  // Runs after the default-priority startup observers, so the borrow counts are loaded first
+  void onStart(@Observes @Priority(Interceptor.Priority.APPLICATION + 600) StartupEvent event) {
+    try {
+      rebuild();
+    } catch (Exception e) {
+      LOGGER.warn("Catalog suggestions could not be built at startup", e);
+    }
+  }
+
+  @Scheduled(
+      every = "${library.suggest.compact-check-interval:1m}",
+      delayed = "${library.suggest.compact-check-interval:1m}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void compactIfNeeded() {
+    if (index.deltaSize() <= maxDelta) {
+      return;
+    }
+    try {
+      rebuild();
+    } catch (IllegalStateException e) {
+      LOGGER.debug("Catalog suggestions rebuild already in progress");
+    } catch (Exception e) {
+      LOGGER.error("Catalog suggestions rebuild failed", e);
+    }
+  }
+
+  /**
+   * Rebuilds the suggestions from the catalog and the current borrow counts.
+   *
+   * @return the number of entries loaded
+   * @throws IllegalStateException if a rebuild is already running
+   */
+  public int rebuild() {
+    if (!rebuildLock.tryLock()) {
+      throw new IllegalStateException("Catalog suggestions rebuild already in progress");
+    }
+    try {
+      long start = System.nanoTime();
+      synchronized (swapLock) {
+        pendingChanges = new ArrayList<>();
+      }
+      SuggestIndex fresh;
+      try {
+        fresh = QuarkusTransaction.requiringNew().timeout(600).call(this::load);
+      } catch (RuntimeException e) {
+        synchronized (swapLock) {
+          pendingChanges = null;
+        }
+        throw e;
+      }
+      synchronized (swapLock) {
+        for (CatalogChangedEvent change : pendingChanges) {
+          apply(fresh, change);
+        }
+        index = fresh;
+        pendingChanges = null;
+      }
+      LOGGER.info(
+          "Catalog suggestions built: {} entries, ~{} KB in {} ms",
+          fresh.size(),
+          fresh.estimatedBytes() / 1024,
+          (System.nanoTime() - start) / 1_000_000);
+      return fresh.size();
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * Suggests book titles and author names starting with a prefix.
+   *
+   * @param prefix the typed prefix
+   * @param limit the maximum number of suggestions
+   * @return the suggestions, most borrowed first
+   */
+  public List<Suggestion> suggest(String prefix, int limit) {
+    return index.suggest(prefix, limit);
+  }
+
+  void onCatalogChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) CatalogChangedEvent event) {
+    synchronized (swapLock) {
+      apply(index, event);
+      if (pendingChanges != null) {
+        pendingChanges.add(event);
+      }
+    }
+  }
+
+  void onLoanChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) LoanEvent event) {
+    if (event.kind != LoanEvent.Kind.BORROWED) {
+      return;
+    }
+    SuggestIndex current = index;
+    if (event.bookId != null) {
+      current.addScore(Kind.BOOK, event.bookId, 1);
+    }
+    if (event.authorId != null) {
+      current.addScore(Kind.AUTHOR, event.authorId, 1);
+    }
+  }
+
+  private SuggestIndex load() {
+    SuggestIndex.Builder builder = new SuggestIndex.Builder(1024);
+    try (Stream<Object[]> rows =
+        entityManager
+            .createQuery("SELECT b.id, b.title FROM Book b", Object[].class)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream()) {
+      rows.forEach(row -> add(builder, Kind.BOOK, (Long) row[0], (String) row[1]));
+    }
+    try (Stream<Object[]> rows =
+        entityManager
+            .createQuery("SELECT a.id, a.firstName, a.lastName FROM Author a", Object[].class)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream()) {
+      rows.forEach(
+          row ->
+              add(builder, Kind.AUTHOR, (Long) row[0], fullName((String) row[1], (String) row[2])));
+    }
+    return builder.build();
+  }
+
+  private void add(SuggestIndex.Builder builder, Kind kind, long id, String text) {
+    builder.add(kind, id, text, score(kind, id));
+  }
+
+  private void apply(SuggestIndex target, CatalogChangedEvent event) {
+    switch (event.kind) {
+      case BOOK_SAVED:
+        target.put(Kind.BOOK, event.bookId, event.title, score(Kind.BOOK, event.bookId));
+        break;
+      case BOOK_DELETED:
+        target.remove(Kind.BOOK, event.bookId);
+        break;
+      case AUTHOR_SAVED:
+        target.put(
+            Kind.AUTHOR,
+            event.authorId,
+            fullName(event.authorFirstName, event.authorLastName),
+            score(Kind.AUTHOR, event.authorId));
+        break;
+      case AUTHOR_DELETED:
+        target.remove(Kind.AUTHOR, event.authorId);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private long score(Kind kind, long id) {
+    Subject subject = kind == Kind.BOOK ? Subject.BOOK : Subject.AUTHOR;
+    return popularityService.count(subject, Window.ALL_TIME, id);
+  }
+
+  private static String fullName(String firstName, String lastName) {
+    return (firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "");
+  }
+}
@@ -0,0 +1,456 @@
+package com.davonlibrary.search;
+
+import com.davonlibrary.entity.Book.BookStatus;
+import com.davonlibrary.entity.BookCopy.BookCopyStatus;
+import com.davonlibrary.util.CompressedBitmap;
+import com.davonlibrary.util.LongLongHashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap indexes of book IDs per facet value, for filtering the catalog by author, library, copy
+ * availability and book status and counting the books under each value.
+ *
+ * <p>Every facet value maps to a {@link CompressedBitmap} of the books it covers: the books of an
+ * author, the books with a copy at a library, the books with a copy in a given status anywhere or
+ * at a given library. A filter is the intersection of the bitmaps of its values, so "available at
+ * branch X by author Y" is one AND of two bitmaps. Facet counts are taken the usual way for
+ * drill-down, each facet counted under the filters on the other facets, so picking a value does
+ * not hide its alternatives. Libraries and statuses are few and take one intersection count each;
+ * authors are counted by tallying the authors of the matching books, so their cost follows the
+ * number of matches.
+ *
+ * <p>Copies are tracked by ID with their book, library and status, and each bitmap keeps the
+ * number of copies behind its books (the first copy is the bit itself; only further copies are
+ * counted in a map), so a bit is cleared when the last such copy goes and applying the same copy
+ * change twice has no further effect. A book's status is AVAILABLE when it has an available copy,
+ * as {@code books.status} is maintained. Reads and writes are guarded by a read/write lock.
+ */
+public class FacetIndex {
+
+  private static final BookCopyStatus[] COPY_STATUSES = BookCopyStatus.values();
+  // Slot of the per-library bitmaps holding books with a copy in any status
+  private static final int ANY = COPY_STATUSES.length;
+  // Packing of a copy: book ID, then library ordinal + 1 (0 for none), then status ordinal
+  private static final int STATUS_BITS = 3;
+  private static final int LIBRARY_BITS = 21;
+  private static final long MAX_BOOK_ID = (1L << (63 - LIBRARY_BITS - STATUS_BITS)) - 1;
+
+  private enum Facet {
+    AUTHOR,
+    LIBRARY,
+    AVAILABILITY,
+    STATUS
+  }
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final CompressedBitmap books = new CompressedBitmap();
+  // bookId -> authorId, for books with an author
+  private final LongLongHashMap bookAuthors = new LongLongHashMap(1024);
+  private final Map<Long, CompressedBitmap> byAuthor = new HashMap<>();
+
+  // copyId -> packed book, library and status
+  private final LongLongHashMap copies = new LongLongHashMap(1024);
+  // Indexed by copy status: the books with a copy in that status
+  private final CountedBitmap[] byCopyStatus = new CountedBitmap[COPY_STATUSES.length];
+  // libraryId -> ordinal, and by ordinal the same per copy status plus any status at ANY
+  private final LongLongHashMap libraryOrdinals = new LongLongHashMap();
+  private final List<Long> libraryIds = new ArrayList<>();
+  private final List<CountedBitmap[]> byLibrary = new ArrayList<>();
+
+  /** Creates an empty index. */
+  public FacetIndex() {
+    for (int i = 0; i < COPY_STATUSES.length; i++) {
+      byCopyStatus[i] = new CountedBitmap();
+    }
+  }
+
+  /**
+   * Adds or updates a book.
+   *
+   * @param bookId the book ID
+   * @param authorId the author ID, may be null
+   */
+  public void putBook(long bookId, Long authorId) {
+    lock.writeLock().lock();
+    try {
+      books.add(bookId);
+      unlinkAuthor(bookId);
+      if (authorId != null) {
+        bookAuthors.put(bookId, authorId);
+        byAuthor.computeIfAbsent(authorId, id -> new CompressedBitmap()).add(bookId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a book. Copies still recorded for it are ignored until they are removed.
+   *
+   * @param bookId the book ID
+   */
+  public void removeBook(long bookId) {
+    lock.writeLock().lock();
+    try {
+      books.remove(bookId);
+      unlinkAuthor(bookId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds, moves or changes the status of a copy.
+   *
+   * @param copyId the copy ID
+   * @param bookId the copy's book ID
+   * @param libraryId the copy's library ID, may be null
+   * @param status the copy's status
+   * @throws IllegalArgumentException if the book ID is too large to pack
+   */
+  public void putCopy(long copyId, long bookId, Long libraryId, BookCopyStatus status) {
+    if (bookId < 0 || bookId > MAX_BOOK_ID) {
+      throw new IllegalArgumentException("Book ID out of range: " + bookId);
+    }
+    lock.writeLock().lock();
+    try {
+      unlinkCopy(copyId);
+      long library = libraryId != null ? libraryOrdinal(libraryId) + 1 : 0;
+      long packed = (bookId << (LIBRARY_BITS + STATUS_BITS)) | (library << STATUS_BITS);
+      copies.put(copyId, packed | status.ordinal());
+      count(copies.get(copyId, 0), true);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a copy.
+   *
+   * @param copyId the copy ID
+   */
+  public void removeCopy(long copyId) {
+    lock.writeLock().lock();
+    try {
+      unlinkCopy(copyId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds a page of the books matching a filter, with the counts of every facet value under it.
+   *
+   * @param filter the facet values to filter by
+   * @param after the book ID to list the matching books after, or -1 for the first page
+   * @param limit the maximum number of book IDs to return
+   * @param facetLimit the maximum number of authors and libraries to count
+   * @return the matching book IDs after the given one in ascending order, and the facet counts
+   */
+  public Result query(Filter filter, long after, int limit, int facetLimit) {
+    lock.readLock().lock();
+    try {
+      CompressedBitmap matching = filtered(filter, null);
+      Result result = new Result(matching.cardinality(), matching.toArray(after, limit));
+
+      CompressedBitmap withoutAuthor =
+          filter.authorId != null ? filtered(filter, Facet.AUTHOR) : matching;
+      countAuthors(withoutAuthor, facetLimit, result.authors);
+
+      CompressedBitmap withoutLibrary = filtered(filter, Facet.LIBRARY);
+      int slot = filter.availability != null ? filter.availability.ordinal() : ANY;
+      List<long[]> libraries = new ArrayList<>();
+      for (int ordinal = 0; ordinal < libraryIds.size(); ordinal++) {
+        long count =
+            CompressedBitmap.andCardinality(withoutLibrary, byLibrary.get(ordinal)[slot].bitmap);
+        if (count > 0) {
+          libraries.add(new long[] {libraryIds.get(ordinal), count});
+        }
+      }
+      top(libraries, facetLimit, result.libraries);
+
+      CompressedBitmap withoutAvailability = filtered(filter, Facet.AVAILABILITY);
+      for (BookCopyStatus status : COPY_STATUSES) {
+        result.availability.put(
+            status,
+            CompressedBitmap.andCardinality(withoutAvailability, copyStatusBitmap(filter, status)));
+      }
+
+      CompressedBitmap withoutStatus = filtered(filter, Facet.STATUS);
+      long available =
+          CompressedBitmap.andCardinality(
+              withoutStatus, byCopyStatus[BookCopyStatus.AVAILABLE.ordinal()].bitmap);
+      result.statuses.put(BookStatus.AVAILABLE, available);
+      result.statuses.put(BookStatus.UNAVAILABLE, withoutStatus.cardinality() - available);
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the books matching a filter.
+   *
+   * @param filter the facet values to filter by
+   * @return the matching book IDs in ascending order
+   */
+  public long[] filter(Filter filter) {
+    lock.readLock().lock();
+    try {
+      return filtered(filter, null).toArray(Integer.MAX_VALUE);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of indexed books. */
+  public long bookCount() {
+    lock.readLock().lock();
+    try {
+      return books.cardinality();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of indexed copies. */
+  public int copyCount() {
+    lock.readLock().lock();
+    try {
+      return copies.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Estimates the heap used by the bitmaps and the copy and author maps.
+   *
+   * @return estimated footprint in bytes
+   */
+  public long estimatedBytes() {
+    lock.readLock().lock();
+    try {
+      long bytes = books.estimatedBytes() + bookAuthors.estimatedBytes() + copies.estimatedBytes();
+      for (CompressedBitmap bitmap : byAuthor.values()) {
+        bytes += bitmap.estimatedBytes();
+      }
+      for (CountedBitmap counted : byCopyStatus) {
+        bytes += counted.estimatedBytes();
+      }
+      for (CountedBitmap[] library : byLibrary) {
+        for (CountedBitmap counted : library) {
+          bytes += counted.estimatedBytes();
+        }
+      }
+      return bytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Intersects the bitmaps of the filter's values, leaving out one facet if given. */
+  private CompressedBitmap filtered(Filter filter, Facet without) {
+    CompressedBitmap result = books;
+    if (filter.authorId != null && without != Facet.AUTHOR) {
+      result = CompressedBitmap.and(result, authorBitmap(filter.authorId));
+    }
+    boolean byLibraryValue = filter.libraryId != null && without != Facet.LIBRARY;
+    if (filter.availability != null && without != Facet.AVAILABILITY) {
+      // Availability at the filtered library when there is one, otherwise anywhere
+      result =
+          CompressedBitmap.and(
+              result,
+              byLibraryValue
+                  ? libraryBitmap(filter.libraryId, filter.availability.ordinal())
+                  : byCopyStatus[filter.availability.ordinal()].bitmap);
+    } else if (byLibraryValue) {
+      result = CompressedBitmap.and(result, libraryBitmap(filter.libraryId, ANY));
+    }
+    if (filter.status != null && without != Facet.STATUS) {
+      CompressedBitmap available = byCopyStatus[BookCopyStatus.AVAILABLE.ordinal()].bitmap;
+      result =
+          filter.status == BookStatus.AVAILABLE
+              ? CompressedBitmap.and(result, available)
+              : CompressedBitmap.andNot(result, available);
+    }
+    return result;
+  }
+
+  private CompressedBitmap copyStatusBitmap(Filter filter, BookCopyStatus status) {
+    return filter.libraryId != null
+        ? libraryBitmap(filter.libraryId, status.ordinal())
+        : byCopyStatus[status.ordinal()].bitmap;
+  }
+
+  private CompressedBitmap authorBitmap(long authorId) {
+    CompressedBitmap bitmap = byAuthor.get(authorId);
+    return bitmap != null ? bitmap : new CompressedBitmap();
+  }
+
+  private CompressedBitmap libraryBitmap(long libraryId, int slot) {
+    int ordinal = (int) libraryOrdinals.get(libraryId, -1);
+    return ordinal >= 0 ? byLibrary.get(ordinal)[slot].bitmap : new CompressedBitmap();
+  }
+
+  private int libraryOrdinal(long libraryId) {
+    int ordinal = (int) libraryOrdinals.get(libraryId, -1);
+    if (ordinal < 0) {
+      ordinal = libraryIds.size();
+      if (ordinal + 1 >= 1 << LIBRARY_BITS) {
+        throw new IllegalStateException("Too many libraries to index: " + ordinal);
+      }
+      CountedBitmap[] bitmaps = new CountedBitmap[ANY + 1];
+      for (int i = 0; i <= ANY; i++) {
+        bitmaps[i] = new CountedBitmap();
+      }
+      libraryOrdinals.put(libraryId, ordinal);
+      libraryIds.add(libraryId);
+      byLibrary.add(bitmaps);
+    }
+    return ordinal;
+  }
+
+  private void countAuthors(CompressedBitmap within, int limit, Map<Long, Long> into) {
+    List<long[]> authors = new ArrayList<>();
+    if (within == books) {
+      // Unfiltered: every author's count is the size of its bitmap
+      byAuthor.forEach(
+          (authorId, bitmap) -> authors.add(new long[] {authorId, bitmap.cardinality()}));
+    } else {
+      // Tally the authors of the matching books
+      LongLongHashMap counts = new LongLongHashMap();
+      within.forEach(
+          bookId -> {
+            long authorId = bookAuthors.get(bookId, -1);
+            if (authorId >= 0) {
+              counts.addTo(authorId, 1);
+            }
+          });
+      counts.forEach((authorId, count) -> authors.add(new long[] {authorId, count}));
+    }
+    top(authors, limit, into);
+  }
+
+  private static void top(List<long[]> counts, int limit, Map<Long, Long> into) {
+    Comparator<long[]> ranking =
+        (a, b) -> a[1] != b[1] ? Long.compare(b[1], a[1]) : Long.compare(a[0], b[0]);
+    // Keep the best in a heap with the weakest on top
+    PriorityQueue<long[]> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+    for (long[] count : counts) {
+      best.add(count);
+      if (best.size() > limit) {
+        best.poll();
+      }
+    }
+    List<long[]> sorted = new ArrayList<>(best);
+    sorted.sort(ranking);
+    sorted.forEach(count -> into.put(count[0], count[1]));
+  }
+
+  private void unlinkAuthor(long bookId) {
+    long authorId = bookAuthors.get(bookId, -1);
+    if (authorId < 0) {
+      return;
+    }
+    bookAuthors.remove(bookId);
+    CompressedBitmap bitmap = byAuthor.get(authorId);
+    bitmap.remove(bookId);
+    if (bitmap.isEmpty()) {
+      byAuthor.remove(authorId);
+    }
+  }
+
+  private void unlinkCopy(long copyId) {
+    long packed = copies.get(copyId, -1);
+    if (packed >= 0) {
+      count(packed, false);
+      copies.remove(copyId);
+    }
+  }
+
+  /** Adds a copy's book to, or takes it from, the bitmaps of its status and library. */
+  private void count(long packed, boolean add) {
+    long bookId = packed >>> (LIBRARY_BITS + STATUS_BITS);
+    int library = (int) (packed >>> STATUS_BITS) & ((1 << LIBRARY_BITS) - 1);
+    int status = (int) packed & ((1 << STATUS_BITS) - 1);
+    byCopyStatus[status].count(bookId, add);
+    if (library > 0) {
+      CountedBitmap[] bitmaps = byLibrary.get(library - 1);
+      bitmaps[status].count(bookId, add);
+      bitmaps[ANY].count(bookId, add);
+    }
+  }
+
+  /** Books with at least one copy of some kind, and how many copies beyond the first. */
+  private static final class CountedBitmap {
+    final CompressedBitmap bitmap = new CompressedBitmap();
+    final LongLongHashMap extraCopies = new LongLongHashMap();
+
+    void count(long bookId, boolean add) {
+      if (add) {
+        if (!bitmap.add(bookId)) {
+          extraCopies.addTo(bookId, 1);
+        }
+      } else if (extraCopies.containsKey(bookId)) {
+        if (extraCopies.addTo(bookId, -1) == 0) {
+          extraCopies.remove(bookId);
+        }
+      } else {
+        bitmap.remove(bookId);
+      }
+    }
+
+    long estimatedBytes() {
+      return bitmap.estimatedBytes() + extraCopies.estimatedBytes();
+    }
+  }
+
+  /** Facet values to filter by; null values do not filter. */
+  public static class Filter {
+    public final Long authorId;
+    public final Long libraryId;
+    public final BookCopyStatus availability;
+    public final BookStatus status;
+
+    /**
+     * Creates a filter.
+     *
+     * @param authorId books by this author
+     * @param libraryId books with a copy at this library
+     * @param availability books with a copy in this status, at the library if one is given
+     * @param status books in this status
+     */
+    public Filter(Long authorId, Long libraryId, BookCopyStatus availability, BookStatus status) {
+      this.authorId = authorId;
+      this.libraryId = libraryId;
+      this.availability = availability;
+      this.status = status;
+    }
+  }
+
+  /** Matching books and facet counts DTO. */
+  public static class Result {
+    public final long total;
+    public final long[] bookIds;
+    // Most books first
+    public final Map<Long, Long> authors = new LinkedHashMap<>();
+    public final Map<Long, Long> libraries = new LinkedHashMap<>();
+    public final Map<BookCopyStatus, Long> availability = new EnumMap<>(BookCopyStatus.class);
+    public final Map<BookStatus, Long> statuses = new EnumMap<>(BookStatus.class);
+
+    public Result(long total, long[] bookIds) {
+      this.total = total;
+      this.bookIds = bookIds;
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package com.davonlibrary.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Finds the terms of a sorted dictionary within a bounded edit distance of a word, counting an
+ * insertion, deletion, substitution or swap of two adjacent letters as one edit.
+ *
+ * <p>The dictionary is walked in key order with one row of the edit-distance table per letter of
+ * the current term. Consecutive terms share prefixes, so only the rows past the shared prefix are
+ * computed. Once every cell of a row exceeds the bound, no term starting with that prefix can
+ * match, and the walk jumps past all of them with a single seek. This is the pruning a Levenshtein
+ * automaton gives, run directly over the dictionary, so a lookup touches a small fraction of the
+ * terms rather than all of them.
+ */
+public final class FuzzyMatcher {
+
+  /** Orders matches closest first, then most frequent first, then alphabetically. */
+  public static final Comparator<Match> RANKING =
+      Comparator.comparingInt((Match match) -> match.distance)
+          .thenComparingLong(match -> -match.frequency)
+          .thenComparing(match -> match.term);
+
+  private FuzzyMatcher() {}
+
+  /** A term within the edit bound. */
+  public static class Match {
+    public final String term;
+    public final int distance;
+    public final long frequency;
+
+    public Match(String term, int distance, long frequency) {
+      this.term = term;
+      this.distance = distance;
+      this.frequency = frequency;
+    }
+  }
+
+  /**
+   * Finds the closest terms to a word.
+   *
+   * @param dictionary the sorted dictionary
+   * @param keyPrefix prefix every searched key starts with, not part of the term (may be empty)
+   * @param word the word to match
+   * @param prefixLength number of leading letters of the word a term must match exactly
+   * @param maxEdits the largest edit distance to accept
+   * @param frequency weight of a dictionary value, used to rank terms at the same distance
+   * @param limit the maximum number of terms
+   * @param <V> the dictionary's value type
+   * @return the terms, closest first, then most frequent first
+   */
+  public static <V> List<Match> find(
+      NavigableMap<String, V> dictionary,
+      String keyPrefix,
+      String word,
+      int prefixLength,
+      int maxEdits,
+      ToLongFunction<V> frequency,
+      int limit) {
+    List<Match> matches = new ArrayList<>();
+    if (word.isEmpty() || limit <= 0) {
+      return matches;
+    }
+    // Only the letters past the fixed prefix are aligned; the edit distance is unchanged by it
+    String start = keyPrefix + word.substring(0, Math.min(prefixLength, word.length()));
+    String rest = word.substring(start.length() - keyPrefix.length());
+    int m = rest.length();
+    int p = start.length();
+    String end = start + Character.MAX_VALUE;
+    // rows[d] holds the distances between the first d letters of the term and each word prefix
+    int[][] rows = new int[m + maxEdits + 2][];
+    rows[0] = new int[m + 1];
+    for (int j = 0; j <= m; j++) {
+      rows[0][j] = j;
+    }
+    String previous = "";
+    int computed = 0;
+
+    Map.Entry<String, V> entry = dictionary.ceilingEntry(start);
+    while (entry != null && entry.getKey().compareTo(end) < 0) {
+      String key = entry.getKey();
+      int length = key.length() - p;
+      int depth = Math.min(computed, commonPrefix(previous, key, p));
+      int pruned = -1;
+      while (depth < length) {
+        if (depth + 1 >= rows.length) {
+          // Longer than the word plus the bound: too far whatever follows
+          pruned = depth;
+          break;
+        }
+        if (rows[depth + 1] == null) {
+          rows[depth + 1] = new int[m + 1];
+        }
+        int min = fill(rows, depth + 1, key, p, rest);
+        depth++;
+        if (min > maxEdits) {
+          pruned = depth;
+          break;
+        }
+      }
+      previous = key;
+      computed = depth;
+      if (pruned >= 0) {
+        // Skip every term sharing the failed prefix
+        entry = dictionary.ceilingEntry(key.substring(0, p + pruned) + Character.MAX_VALUE);
+        continue;
+      }
+      int distance = rows[length][m];
+      if (distance <= maxEdits) {
+        String term = key.substring(keyPrefix.length());
+        matches.add(new Match(term, distance, frequency.applyAsLong(entry.getValue())));
+      }
+      entry = dictionary.higherEntry(key);
+    }
+
+    matches.sort(RANKING);
+    return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+  }
+
+  /**
+   * Chooses the edit bound for a word by its length: none for up to two letters, one for up to
+   * five and two beyond that, so short words do not match half the dictionary.
+   *
+   * @param word the word
+   * @return the largest edit distance to accept
+   */
+  public static int maxEditsFor(String word) {
+    int length = word.length();
+    return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+  }
+
+  /**
+   * Chooses how many leading letters of a word must match: the first one when two edits are
+   * allowed, as typos are rarest there. This keeps a two-edit lookup to the terms under one letter
+   * instead of walking nearly every short prefix of the dictionary.
+   *
+   * @param word the word
+   * @return the number of leading letters a term must share with the word
+   */
+  public static int prefixLengthFor(String word) {
+    return maxEditsFor(word) > 1 ? 1 : 0;
+  }
+
+  /** Computes the row for the i-th letter of the term and returns its smallest cell. */
+  private static int fill(int[][] rows, int i, String key, int p, String word) {
+    int[] row = rows[i];
+    int[] above = rows[i - 1];
+    int[] twoAbove = i >= 2 ? rows[i - 2] : null;
+    char letter = key.charAt(p + i - 1);
+    row[0] = i;
+    int min = i;
+    for (int j = 1; j < row.length; j++) {
+      int cost = letter == word.charAt(j - 1) ? 0 : 1;
+      int value = Math.min(Math.min(row[j - 1] + 1, above[j] + 1), above[j - 1] + cost);
+      if (twoAbove != null
+          && j >= 2
+          && letter == word.charAt(j - 2)
+          && key.charAt(p + i - 2) == word.charAt(j - 1)) {
+        value = Math.min(value, twoAbove[j - 2] + 1);
+      }
+      row[j] = value;
+      min = Math.min(min, value);
+    }
+    return min;
+  }
+
+  private static int commonPrefix(String previous, String key, int p) {
+    int limit = Math.min(previous.length(), key.length());
+    int i = p;
+    while (i < limit && previous.charAt(i) == key.charAt(i)) {
+      i++;
+    }
+    return Math.max(0, i - p);
+  }
+}
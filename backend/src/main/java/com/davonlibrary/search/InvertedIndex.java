@@ -0,0 +1,606 @@
+package com.davonlibrary.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tokenized inverted index over book titles, ISBNs and author names.
+ *
+ * <p>Terms are kept in a sorted dictionary keyed by field and token (for example {@code
+ * "t:potter"}), each pointing to a sorted array of book IDs. A query token matches every indexed
+ * token it is a prefix of, so "pot" finds "Potter". Queries with several tokens expand the most
+ * selective token first, then intersect its candidates with the postings of the other tokens, or
+ * check them against a forward index of each book's terms when a token is too broad to expand.
+ * Reads and writes are guarded by a read/write lock, so searches run concurrently with each other
+ * and never observe a half-applied update.
+ */
+public class InvertedIndex {
+
+  /** Searchable fields of a book. */
+  public enum Field {
+    TITLE('t'),
+    AUTHOR('a'),
+    ISBN('i');
+
+    final char code;
+
+    Field(char code) {
+      this.code = code;
+    }
+
+    String key(String token) {
+      return code + ":" + token;
+    }
+  }
+
+  /** A single query token, optionally restricted to one field. */
+  public static class Clause {
+    public final Field field;
+    public final String token;
+
+    /**
+     * Creates a clause.
+     *
+     * @param field the field to match, or null to match any field
+     * @param token the normalized token prefix
+     */
+    public Clause(Field field, String token) {
+      this.field = field;
+      this.token = token;
+    }
+  }
+
+  private static final int BITMAP_UNION_THRESHOLD = 256;
+  private static final long MAX_BITMAP_BOOK_ID = 1L << 27;
+
+  private final NavigableMap<String, Postings> terms = new TreeMap<>();
+  private final Map<Long, Document> documents = new HashMap<>();
+  private final Map<Long, Postings> booksByAuthor = new HashMap<>();
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private long postingCount;
+  private long maxBookId;
+
+  /**
+   * Turns free text into clauses for a field. ISBN text becomes a single compact token; other
+   * text is split into words.
+   *
+   * @param text the query text
+   * @param field the field to search, or null for all fields
+   * @return the clauses, empty if the text has no searchable tokens
+   */
+  public static List<Clause> parse(String text, Field field) {
+    List<Clause> clauses = new ArrayList<>();
+    if (field == Field.ISBN) {
+      String isbn = TextNormalizer.normalizeIsbn(text);
+      if (!isbn.isEmpty()) {
+        clauses.add(new Clause(Field.ISBN, isbn));
+      }
+      return clauses;
+    }
+    for (String token : new LinkedHashSet<>(TextNormalizer.tokenize(text))) {
+      clauses.add(new Clause(field, token));
+    }
+    return clauses;
+  }
+
+  /**
+   * Adds a book to the index, replacing any previous entry for the same ID.
+   *
+   * @param bookId the book ID
+   * @param authorId the author ID, may be null
+   * @param title the book title
+   * @param isbn the book ISBN
+   * @param authorFirstName the author's first name
+   * @param authorLastName the author's last name
+   */
+  public void put(
+      long bookId,
+      Long authorId,
+      String title,
+      String isbn,
+      String authorFirstName,
+      String authorLastName) {
+    Set<String> keys = new LinkedHashSet<>();
+    for (String token : TextNormalizer.tokenize(title)) {
+      keys.add(Field.TITLE.key(token));
+    }
+    addAuthorKeys(keys, authorFirstName, authorLastName);
+    String compactIsbn = TextNormalizer.normalizeIsbn(isbn);
+    if (!compactIsbn.isEmpty()) {
+      keys.add(Field.ISBN.key(compactIsbn));
+    }
+
+    lock.writeLock().lock();
+    try {
+      removeLocked(bookId);
+      Document document = new Document(authorId, internKeys(keys));
+      documents.put(bookId, document);
+      for (String key : document.keys) {
+        postingsFor(key).add(bookId);
+        postingCount++;
+      }
+      maxBookId = Math.max(maxBookId, bookId);
+      if (authorId != null) {
+        booksByAuthor.computeIfAbsent(authorId, id -> new Postings()).add(bookId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a book from the index.
+   *
+   * @param bookId the book ID
+   */
+  public void remove(long bookId) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(bookId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Re-indexes the author name terms of every book by an author.
+   *
+   * @param authorId the author ID
+   * @param firstName the author's new first name
+   * @param lastName the author's new last name
+   */
+  public void updateAuthor(long authorId, String firstName, String lastName) {
+    Set<String> authorKeys = new LinkedHashSet<>();
+    addAuthorKeys(authorKeys, firstName, lastName);
+
+    lock.writeLock().lock();
+    try {
+      Postings books = booksByAuthor.get(authorId);
+      if (books == null) {
+        return;
+      }
+      for (long bookId : books.toArray()) {
+        Document old = documents.get(bookId);
+        Set<String> keys = new LinkedHashSet<>();
+        for (String key : old.keys) {
+          if (key.charAt(0) != Field.AUTHOR.code) {
+            keys.add(key);
+          }
+        }
+        keys.addAll(authorKeys);
+        removeLocked(bookId);
+        Document document = new Document(authorId, internKeys(keys));
+        documents.put(bookId, document);
+        for (String key : document.keys) {
+          postingsFor(key).add(bookId);
+          postingCount++;
+        }
+        booksByAuthor.computeIfAbsent(authorId, id -> new Postings()).add(bookId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes every book by an author, matching the cascade when an author is deleted.
+   *
+   * @param authorId the author ID
+   */
+  public void removeAuthor(long authorId) {
+    lock.writeLock().lock();
+    try {
+      Postings books = booksByAuthor.get(authorId);
+      if (books != null) {
+        for (long bookId : books.toArray()) {
+          removeLocked(bookId);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the books matching every clause.
+   *
+   * @param clauses the clauses to match
+   * @return matching book IDs in ascending order
+   */
+  public long[] search(List<Clause> clauses) {
+    if (clauses.isEmpty()) {
+      return new long[0];
+    }
+    lock.readLock().lock();
+    try {
+      Clause driver = null;
+      long best = Long.MAX_VALUE;
+      for (Clause clause : clauses) {
+        long estimate = estimate(clause, best);
+        if (estimate < best) {
+          best = estimate;
+          driver = clause;
+        }
+      }
+      if (best == 0) {
+        return new long[0];
+      }
+
+      long[] candidates = expand(driver);
+      List<Clause> filters = new ArrayList<>();
+      for (Clause clause : clauses) {
+        if (clause == driver) {
+          continue;
+        }
+        // Intersect with small postings directly; check broad prefixes against the forward index
+        long limit = (long) candidates.length * 8;
+        if (estimate(clause, limit) < limit) {
+          candidates = intersect(candidates, expand(clause));
+        } else {
+          filters.add(clause);
+        }
+      }
+      if (filters.isEmpty()) {
+        return candidates;
+      }
+
+      int matched = 0;
+      for (long bookId : candidates) {
+        Document document = documents.get(bookId);
+        boolean all = true;
+        for (Clause clause : filters) {
+          if (!document.matches(clause)) {
+            all = false;
+            break;
+          }
+        }
+        if (all) {
+          candidates[matched++] = bookId;
+        }
+      }
+      return matched == candidates.length ? candidates : Arrays.copyOf(candidates, matched);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Checks whether a clause matches any book, without collecting the matches.
+   *
+   * @param clause the clause
+   * @return true if some term starts with the clause token
+   */
+  public boolean matchesAny(Clause clause) {
+    lock.readLock().lock();
+    try {
+      return estimate(clause, 1) > 0;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the indexed words within a few edits of a token, for correcting misspelled queries. A
+   * word found in both titles and author names is returned once, counting the books of both.
+   *
+   * @param field the field whose words to match, or null for titles and author names
+   * @param token the normalized token
+   * @param prefixLength number of leading letters of the token a word must share
+   * @param maxEdits the largest edit distance to accept
+   * @param limit the maximum number of words
+   * @return the words, closest first, then those in the most books first
+   */
+  public List<FuzzyMatcher.Match> similarTerms(
+      Field field, String token, int prefixLength, int maxEdits, int limit) {
+    Field[] fields = field != null ? new Field[] {field} : new Field[] {Field.TITLE, Field.AUTHOR};
+    lock.readLock().lock();
+    try {
+      if (fields.length == 1) {
+        return FuzzyMatcher.find(
+            terms, fields[0].key(""), token, prefixLength, maxEdits, Postings::size, limit);
+      }
+      Map<String, FuzzyMatcher.Match> merged = new HashMap<>();
+      for (Field each : fields) {
+        for (FuzzyMatcher.Match match :
+            FuzzyMatcher.find(
+                terms, each.key(""), token, prefixLength, maxEdits, Postings::size, limit)) {
+          merged.merge(
+              match.term,
+              match,
+              (a, b) -> new FuzzyMatcher.Match(a.term, a.distance, a.frequency + b.frequency));
+        }
+      }
+      List<FuzzyMatcher.Match> matches = new ArrayList<>(merged.values());
+      matches.sort(FuzzyMatcher.RANKING);
+      return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of indexed books. */
+  public int documentCount() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of distinct terms. */
+  public int termCount() {
+    lock.readLock().lock();
+    try {
+      return terms.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the total number of postings across all terms. */
+  public long postingCount() {
+    lock.readLock().lock();
+    try {
+      return postingCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Estimates the heap used by the index, assuming a 64-bit JVM with compressed references.
+   *
+   * @return estimated footprint in bytes
+   */
+  public long estimatedBytes() {
+    lock.readLock().lock();
+    try {
+      long bytes = 0;
+      for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+        // TreeMap entry + String + its Latin-1 byte array + Postings + its long array
+        bytes += 40 + 24 + 16 + entry.getKey().length() + 24 + 16 + 8L * entry.getValue().capacity();
+      }
+      for (Document document : documents.values()) {
+        // HashMap node + boxed key + Document + keys array (terms are shared with the dictionary)
+        bytes += 32 + 16 + 24 + 16 + 4L * document.keys.length;
+      }
+      for (Postings books : booksByAuthor.values()) {
+        bytes += 32 + 16 + 24 + 16 + 8L * books.capacity();
+      }
+      return bytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removeLocked(long bookId) {
+    Document document = documents.remove(bookId);
+    if (document == null) {
+      return;
+    }
+    for (String key : document.keys) {
+      Postings postings = terms.get(key);
+      if (postings != null && postings.remove(bookId)) {
+        postingCount--;
+        if (postings.size() == 0) {
+          terms.remove(key);
+        }
+      }
+    }
+    if (document.authorId != null) {
+      Postings books = booksByAuthor.get(document.authorId);
+      if (books != null) {
+        books.remove(bookId);
+        if (books.size() == 0) {
+          booksByAuthor.remove(document.authorId);
+        }
+      }
+    }
+  }
+
+  private Postings postingsFor(String key) {
+    return terms.computeIfAbsent(key, k -> new Postings());
+  }
+
+  /** Reuses the dictionary's key instances so each term string is held only once. */
+  private String[] internKeys(Set<String> keys) {
+    String[] interned = new String[keys.size()];
+    int i = 0;
+    for (String key : keys) {
+      String existing = terms.ceilingKey(key);
+      interned[i++] = key.equals(existing) ? existing : key;
+    }
+    return interned;
+  }
+
+  private static void addAuthorKeys(Set<String> keys, String firstName, String lastName) {
+    for (String token : TextNormalizer.tokenize(firstName)) {
+      keys.add(Field.AUTHOR.key(token));
+    }
+    for (String token : TextNormalizer.tokenize(lastName)) {
+      keys.add(Field.AUTHOR.key(token));
+    }
+  }
+
+  private List<NavigableMap<String, Postings>> ranges(Clause clause) {
+    List<NavigableMap<String, Postings>> ranges = new ArrayList<>(3);
+    for (Field field : clause.field != null ? new Field[] {clause.field} : Field.values()) {
+      String from = field.key(clause.token);
+      ranges.add(terms.subMap(from, true, from + Character.MAX_VALUE, false));
+    }
+    return ranges;
+  }
+
+  /** Sums the postings under a clause, giving up once it exceeds {@code cutoff}. */
+  private long estimate(Clause clause, long cutoff) {
+    long total = 0;
+    for (NavigableMap<String, Postings> range : ranges(clause)) {
+      for (Postings postings : range.values()) {
+        total += postings.size();
+        if (total >= cutoff) {
+          return total;
+        }
+      }
+    }
+    return total;
+  }
+
+  private long[] expand(Clause clause) {
+    List<Postings> matching = new ArrayList<>();
+    int total = 0;
+    for (NavigableMap<String, Postings> range : ranges(clause)) {
+      for (Postings postings : range.values()) {
+        matching.add(postings);
+        total += postings.size();
+      }
+    }
+    if (matching.size() == 1) {
+      return matching.get(0).toArray();
+    }
+    if (total >= BITMAP_UNION_THRESHOLD && maxBookId < MAX_BITMAP_BOOK_ID) {
+      // Union many postings through a bitmap instead of sorting their concatenation
+      long[] words = new long[(int) (maxBookId >>> 6) + 1];
+      for (Postings postings : matching) {
+        postings.setBits(words);
+      }
+      long[] ids = new long[total];
+      int size = 0;
+      for (int w = 0; w < words.length; w++) {
+        long word = words[w];
+        while (word != 0) {
+          ids[size++] = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+        }
+      }
+      return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+    long[] ids = new long[total];
+    int offset = 0;
+    for (Postings postings : matching) {
+      offset = postings.copyTo(ids, offset);
+    }
+    Arrays.sort(ids);
+    int unique = 0;
+    for (int i = 0; i < ids.length; i++) {
+      if (i == 0 || ids[i] != ids[i - 1]) {
+        ids[unique++] = ids[i];
+      }
+    }
+    return unique == ids.length ? ids : Arrays.copyOf(ids, unique);
+  }
+
+  private static long[] intersect(long[] left, long[] right) {
+    long[] result = new long[Math.min(left.length, right.length)];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < left.length && j < right.length) {
+      if (left[i] < right[j]) {
+        i++;
+      } else if (left[i] > right[j]) {
+        j++;
+      } else {
+        result[size++] = left[i];
+        i++;
+        j++;
+      }
+    }
+    return size == result.length ? result : Arrays.copyOf(result, size);
+  }
+
+  /** Terms of one indexed book, used for filtering and removal. */
+  private static final class Document {
+    final Long authorId;
+    final String[] keys;
+
+    Document(Long authorId, String[] keys) {
+      this.authorId = authorId;
+      this.keys = keys;
+    }
+
+    boolean matches(Clause clause) {
+      for (String key : keys) {
+        if ((clause.field == null || key.charAt(0) == clause.field.code)
+            && key.startsWith(clause.token, 2)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /** Sorted, duplicate-free array of book IDs. */
+  private static final class Postings {
+    private long[] ids = new long[2];
+    private int size;
+
+    void add(long id) {
+      if (size > 0 && ids[size - 1] < id) {
+        // Common case while bulk loading in ID order
+        grow();
+        ids[size++] = id;
+        return;
+      }
+      int pos = Arrays.binarySearch(ids, 0, size, id);
+      if (pos >= 0) {
+        return;
+      }
+      int insertAt = -pos - 1;
+      grow();
+      System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+      ids[insertAt] = id;
+      size++;
+    }
+
+    boolean remove(long id) {
+      int pos = Arrays.binarySearch(ids, 0, size, id);
+      if (pos < 0) {
+        return false;
+      }
+      System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+      size--;
+      if (size > 8 && size < ids.length / 4) {
+        ids = Arrays.copyOf(ids, ids.length / 2);
+      }
+      return true;
+    }
+
+    int size() {
+      return size;
+    }
+
+    int capacity() {
+      return ids.length;
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(ids, size);
+    }
+
+    void setBits(long[] words) {
+      for (int i = 0; i < size; i++) {
+        words[(int) (ids[i] >>> 6)] |= 1L << ids[i];
+      }
+    }
+
+    int copyTo(long[] target, int offset) {
+      System.arraycopy(ids, 0, target, offset, size);
+      return offset + size;
+    }
+
+    private void grow() {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1) + 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,506 @@
+package com.davonlibrary.search;
+
+import com.davonlibrary.util.LongLongHashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix index for typeahead over book titles and author names, ranked by a popularity score.
+ *
+ * <p>The bulk of the entries live in a sorted segment: their normalized texts are packed as UTF-8
+ * in one byte array in sorted order, so the entries starting with a prefix are a contiguous range
+ * found by two binary searches. A segment tree over the entries' scores holds the best entry of
+ * every power-of-two block, so the top K entries of a range are taken in O(K log n) with a small
+ * heap of sub-ranges, however many entries share the prefix. Entries saved after the segment was
+ * built go to a small sorted delta that is scanned per query; replaced and removed segment entries
+ * are tombstoned in the tree. {@link #deltaSize()} tells the owner when to build a fresh segment.
+ *
+ * <p>Reads and writes are guarded by a read/write lock, so suggestions run concurrently with each
+ * other and never observe a half-applied update.
+ */
+public class SuggestIndex {
+
+  /** What a suggestion refers to. */
+  public enum Kind {
+    BOOK,
+    AUTHOR
+  }
+
+  private static final int REMOVED = -1;
+  private static final int NONE = -1;
+  private static final Comparator<Suggestion> RANKING =
+      Comparator.comparingLong((Suggestion suggestion) -> -suggestion.score)
+          .thenComparing(suggestion -> suggestion.text);
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Segment segment;
+  // Normalized text + '\0' + entry key -> entry, for entries saved after the segment was built
+  private final TreeMap<String, DeltaEntry> delta = new TreeMap<>();
+  // Entry key -> delta key
+  private final Map<Long, String> deltaKeys = new HashMap<>();
+
+  /** Creates an empty index. */
+  public SuggestIndex() {
+    this(new Segment(new ArrayList<>()));
+  }
+
+  private SuggestIndex(Segment segment) {
+    this.segment = segment;
+  }
+
+  /**
+   * Normalizes text for prefix matching: accent-free lowercase words separated by single spaces.
+   * A trailing separator is kept as a space, so "harry " only matches whole words "harry".
+   *
+   * @param text the text, may be null
+   * @return the normalized text, empty if it has no words
+   */
+  public static String normalize(String text) {
+    List<String> tokens = TextNormalizer.tokenize(text);
+    if (tokens.isEmpty()) {
+      return "";
+    }
+    String joined = String.join(" ", tokens);
+    char last = text.charAt(text.length() - 1);
+    return Character.isLetterOrDigit(last) ? joined : joined + " ";
+  }
+
+  /**
+   * Adds or replaces an entry.
+   *
+   * @param kind what the entry refers to
+   * @param id the book or author ID
+   * @param text the displayed text
+   * @param score the popularity score
+   */
+  public void put(Kind kind, long id, String text, long score) {
+    String normalized = normalize(text).strip();
+    lock.writeLock().lock();
+    try {
+      removeLocked(kind, id);
+      if (normalized.isEmpty()) {
+        return;
+      }
+      long key = entryKey(kind, id);
+      String deltaKey = normalized + '\0' + key;
+      delta.put(deltaKey, new DeltaEntry(kind, id, text, clamp(score)));
+      deltaKeys.put(key, deltaKey);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes an entry.
+   *
+   * @param kind what the entry refers to
+   * @param id the book or author ID
+   */
+  public void remove(Kind kind, long id) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(kind, id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds to the popularity score of an entry, if it is indexed.
+   *
+   * @param kind what the entry refers to
+   * @param id the book or author ID
+   * @param delta the amount to add
+   */
+  public void addScore(Kind kind, long id, long delta) {
+    long key = entryKey(kind, id);
+    lock.writeLock().lock();
+    try {
+      String deltaKey = deltaKeys.get(key);
+      if (deltaKey != null) {
+        DeltaEntry entry = this.delta.get(deltaKey);
+        entry.score = clamp(entry.score + delta);
+        return;
+      }
+      int position = segment.position(key);
+      if (position >= 0) {
+        segment.setScore(position, clamp(segment.scores[position] + delta));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Suggests the most popular entries whose normalized text starts with a prefix.
+   *
+   * @param prefix the typed prefix
+   * @param limit the maximum number of suggestions
+   * @return the suggestions, most popular first
+   */
+  public List<Suggestion> suggest(String prefix, int limit) {
+    String normalized = normalize(prefix);
+    if (normalized.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+    lock.readLock().lock();
+    try {
+      List<Suggestion> found = segment.top(normalized.getBytes(StandardCharsets.UTF_8), limit);
+      NavigableMap<String, DeltaEntry> matching =
+          delta.subMap(normalized, true, normalized + Character.MAX_VALUE, false);
+      if (matching.isEmpty()) {
+        return found;
+      }
+      // Keep the best of both in a heap with the weakest on top
+      PriorityQueue<Suggestion> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+      best.addAll(found);
+      for (DeltaEntry entry : matching.values()) {
+        if (best.size() < limit || entry.score > best.peek().score) {
+          best.add(new Suggestion(entry.kind, entry.id, entry.text, entry.score));
+          if (best.size() > limit) {
+            best.poll();
+          }
+        }
+      }
+      found = new ArrayList<>(best);
+      found.sort(RANKING);
+      return found;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of live entries. */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return segment.live + delta.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Returns the number of entries saved since the segment was built. */
+  public int deltaSize() {
+    lock.readLock().lock();
+    try {
+      return delta.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Estimates the heap used by the index, excluding the delta's entries.
+   *
+   * @return estimated footprint in bytes
+   */
+  public long estimatedBytes() {
+    return segment.estimatedBytes();
+  }
+
+  private void removeLocked(Kind kind, long id) {
+    long key = entryKey(kind, id);
+    String deltaKey = deltaKeys.remove(key);
+    if (deltaKey != null) {
+      delta.remove(deltaKey);
+    }
+    segment.remove(key);
+  }
+
+  private static long entryKey(Kind kind, long id) {
+    return (id << 1) | kind.ordinal();
+  }
+
+  private static int clamp(long score) {
+    return (int) Math.max(0, Math.min(Integer.MAX_VALUE, score));
+  }
+
+  /** Collects entries and sorts them once into the segment of a new index. */
+  public static class Builder {
+    private final List<SegmentEntry> entries;
+
+    /**
+     * Creates a builder.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public Builder(int expectedSize) {
+      entries = new ArrayList<>(expectedSize);
+    }
+
+    /**
+     * Adds an entry. Adding the same kind and ID twice keeps only one of them.
+     *
+     * @param kind what the entry refers to
+     * @param id the book or author ID
+     * @param text the displayed text
+     * @param score the popularity score
+     * @return this builder
+     */
+    public Builder add(Kind kind, long id, String text, long score) {
+      String normalized = normalize(text).strip();
+      if (!normalized.isEmpty()) {
+        entries.add(
+            new SegmentEntry(
+                normalized.getBytes(StandardCharsets.UTF_8),
+                text,
+                entryKey(kind, id),
+                clamp(score)));
+      }
+      return this;
+    }
+
+    /** Builds the index. */
+    public SuggestIndex build() {
+      return new SuggestIndex(new Segment(entries));
+    }
+  }
+
+  /** A suggested book or author DTO. */
+  public static class Suggestion {
+    public final Kind kind;
+    public final long id;
+    public final String text;
+    public final long score;
+
+    public Suggestion(Kind kind, long id, String text, long score) {
+      this.kind = kind;
+      this.id = id;
+      this.text = text;
+      this.score = score;
+    }
+  }
+
+  private static final class DeltaEntry {
+    final Kind kind;
+    final long id;
+    final String text;
+    int score;
+
+    DeltaEntry(Kind kind, long id, String text, int score) {
+      this.kind = kind;
+      this.id = id;
+      this.text = text;
+      this.score = score;
+    }
+  }
+
+  private static final class SegmentEntry {
+    final byte[] normalized;
+    final String text;
+    final long key;
+    final int score;
+
+    SegmentEntry(byte[] normalized, String text, long key, int score) {
+      this.normalized = normalized;
+      this.text = text;
+      this.key = key;
+      this.score = score;
+    }
+  }
+
+  /** Sorted, packed entries with a max-score segment tree; guarded by the index lock. */
+  private static final class Segment {
+    final byte[] keyBytes;
+    final int[] keyOffsets;
+    final byte[] textBytes;
+    final int[] textOffsets;
+    final long[] keys;
+    final int[] scores;
+    // Segment tree over positions, tree[1] the root; each node holds the best position below it
+    final int[] tree;
+    final int leaves;
+    // Entry key -> position
+    final LongLongHashMap positions;
+    int live;
+
+    Segment(List<SegmentEntry> entries) {
+      entries.sort(
+          (a, b) -> {
+            int cmp = Arrays.compareUnsigned(a.normalized, b.normalized);
+            return cmp != 0 ? cmp : Long.compare(a.key, b.key);
+          });
+      int n = entries.size();
+      keyOffsets = new int[n + 1];
+      textOffsets = new int[n + 1];
+      keys = new long[n];
+      scores = new int[n];
+      positions = new LongLongHashMap(Math.max(16, n));
+      byte[][] texts = new byte[n][];
+      int keyLength = 0;
+      int textLength = 0;
+      for (int i = 0; i < n; i++) {
+        texts[i] = entries.get(i).text.getBytes(StandardCharsets.UTF_8);
+        keyLength += entries.get(i).normalized.length;
+        textLength += texts[i].length;
+      }
+      keyBytes = new byte[keyLength];
+      textBytes = new byte[textLength];
+      for (int i = 0; i < n; i++) {
+        SegmentEntry entry = entries.get(i);
+        System.arraycopy(
+            entry.normalized, 0, keyBytes, keyOffsets[i], entry.normalized.length);
+        keyOffsets[i + 1] = keyOffsets[i] + entry.normalized.length;
+        System.arraycopy(texts[i], 0, textBytes, textOffsets[i], texts[i].length);
+        textOffsets[i + 1] = textOffsets[i] + texts[i].length;
+        keys[i] = entry.key;
+        scores[i] = entry.score;
+        if (positions.containsKey(entry.key)) {
+          // Duplicate kind and ID: keep the later entry
+          scores[(int) positions.get(entry.key, 0)] = REMOVED;
+        } else {
+          live++;
+        }
+        positions.put(entry.key, i);
+      }
+      leaves = Integer.highestOneBit(Math.max(1, n) * 2 - 1);
+      tree = new int[leaves * 2];
+      Arrays.fill(tree, NONE);
+      for (int i = 0; i < n; i++) {
+        tree[leaves + i] = i;
+      }
+      for (int node = leaves - 1; node >= 1; node--) {
+        tree[node] = better(tree[node * 2], tree[node * 2 + 1]);
+      }
+    }
+
+    int position(long key) {
+      return (int) positions.get(key, -1);
+    }
+
+    void remove(long key) {
+      int position = position(key);
+      if (position >= 0) {
+        positions.remove(key);
+        setScore(position, REMOVED);
+        live--;
+      }
+    }
+
+    void setScore(int position, int score) {
+      scores[position] = score;
+      for (int node = (leaves + position) / 2; node >= 1; node /= 2) {
+        tree[node] = better(tree[node * 2], tree[node * 2 + 1]);
+      }
+    }
+
+    List<Suggestion> top(byte[] prefix, int limit) {
+      List<Suggestion> found = new ArrayList<>(limit);
+      int from = bound(prefix, false);
+      int to = bound(prefix, true) - 1;
+      if (from > to) {
+        return found;
+      }
+      // Heap of sub-ranges, each ordered by its best position
+      PriorityQueue<int[]> ranges =
+          new PriorityQueue<>((a, b) -> a[2] == b[2] ? 0 : better(a[2], b[2]) == a[2] ? -1 : 1);
+      ranges.add(new int[] {from, to, best(from, to)});
+      while (found.size() < limit && !ranges.isEmpty()) {
+        int[] range = ranges.poll();
+        int position = range[2];
+        if (position == NONE || scores[position] == REMOVED) {
+          break;
+        }
+        found.add(suggestion(position));
+        if (range[0] < position) {
+          ranges.add(new int[] {range[0], position - 1, best(range[0], position - 1)});
+        }
+        if (position < range[1]) {
+          ranges.add(new int[] {position + 1, range[1], best(position + 1, range[1])});
+        }
+      }
+      return found;
+    }
+
+    /** Finds the best position in [from, to]. */
+    int best(int from, int to) {
+      int result = NONE;
+      for (int low = from + leaves, high = to + leaves + 1; low < high; low /= 2, high /= 2) {
+        if ((low & 1) == 1) {
+          result = better(result, tree[low++]);
+        }
+        if ((high & 1) == 1) {
+          result = better(result, tree[--high]);
+        }
+      }
+      return result;
+    }
+
+    /** Higher score wins, then the earlier (alphabetically smaller) position. */
+    int better(int a, int b) {
+      if (a == NONE) {
+        return b;
+      }
+      if (b == NONE) {
+        return a;
+      }
+      if (scores[a] != scores[b]) {
+        return scores[a] > scores[b] ? a : b;
+      }
+      return Math.min(a, b);
+    }
+
+    /**
+     * Finds the first position whose key is not before the prefix range, or with {@code after},
+     * the first position past it.
+     */
+    int bound(byte[] prefix, boolean after) {
+      int low = 0;
+      int high = keys.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        int cmp = compareToPrefix(mid, prefix);
+        if (cmp < 0 || (after && cmp == 0)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /** Compares a key with a prefix: 0 if the key starts with it. */
+    int compareToPrefix(int position, byte[] prefix) {
+      int start = keyOffsets[position];
+      int length = keyOffsets[position + 1] - start;
+      int common = Math.min(length, prefix.length);
+      for (int i = 0; i < common; i++) {
+        int cmp = Integer.compare(keyBytes[start + i] & 0xff, prefix[i] & 0xff);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return length >= prefix.length ? 0 : -1;
+    }
+
+    Suggestion suggestion(int position) {
+      long key = keys[position];
+      String text =
+          new String(
+              textBytes,
+              textOffsets[position],
+              textOffsets[position + 1] - textOffsets[position],
+              StandardCharsets.UTF_8);
+      return new Suggestion(
+          Kind.values()[(int) (key & 1)], key >>> 1, text, scores[position]);
+    }
+
+    long estimatedBytes() {
+      return keyBytes.length
+          + textBytes.length
+          + 4L * (keyOffsets.length + textOffsets.length + scores.length + tree.length)
+          + 8L * keys.length
+          + positions.estimatedBytes();
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.davonlibrary.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/** Normalizes catalog text into the lowercase, accent-free tokens used by the search indexes. */
+public final class TextNormalizer {
+
+  private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+  private TextNormalizer() {}
+
+  /**
+   * Normalizes text by stripping accents and lowercasing it.
+   *
+   * @param text the text to normalize, may be null
+   * @return the normalized text, empty for null input
+   */
+  public static String normalize(String text) {
+    if (text == null || text.isEmpty()) {
+      return "";
+    }
+    String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+    return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Splits text into normalized alphanumeric tokens.
+   *
+   * @param text the text to tokenize, may be null
+   * @return the tokens in order of appearance
+   */
+  public static List<String> tokenize(String text) {
+    String normalized = normalize(text);
+    List<String> tokens = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i < normalized.length(); i++) {
+      if (Character.isLetterOrDigit(normalized.charAt(i))) {
+        if (start < 0) {
+          start = i;
+        }
+      } else if (start >= 0) {
+        tokens.add(normalized.substring(start, i));
+        start = -1;
+      }
+    }
+    if (start >= 0) {
+      tokens.add(normalized.substring(start));
+    }
+    return tokens;
+  }
+
+  /**
+   * Normalizes an ISBN to its digits (and check character), dropping hyphens and spaces.
+   *
+   * @param isbn the ISBN, may be null
+   * @return the compact ISBN, empty for null input
+   */
+  public static String normalizeIsbn(String isbn) {
+    String normalized = normalize(isbn);
+    StringBuilder compact = new StringBuilder(normalized.length());
+    for (int i = 0; i < normalized.length(); i++) {
+      char c = normalized.charAt(i);
+      if (Character.isLetterOrDigit(c)) {
+        compact.append(c);
+      }
+    }
+    return compact.toString();
+  }
+}
@@ -1,54 +1,100 @@
 package com.davonlibrary.service;
 
 import com.davonlibrary.dto.ActivityDTO;
-import com.davonlibrary.entity.Loan;
-import com.davonlibrary.entity.User;
+import com.davonlibrary.event.ActivityEvent;
+import com.davonlibrary.util.RingBuffer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
 import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Serves the recent-activity feed from memory. Loans and registrations are added to a bounded ring
+ * buffer as their events commit, and the buffer is warmed with the latest of both from the
+ * database at startup, so reading the feed never touches the database.
+ */
 @ApplicationScoped
 public class ActivityService {
 
-  @Inject LoanService loanService;
+  private static final Logger LOGGER = LoggerFactory.getLogger(ActivityService.class);
 
-  @Inject UserService userService;
+  @Inject EntityManager entityManager;
 
+  @ConfigProperty(name = "library.activities.buffer-size", defaultValue = "500")
+  int bufferSize;
+
+  private RingBuffer<ActivityDTO> recent;
+
+  @PostConstruct
+  void init() {
+    recent = new RingBuffer<>(bufferSize);
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    try {
+      List<ActivityDTO> latest = QuarkusTransaction.requiringNew().call(this::loadLatest);
+      // Oldest first, so the newest end up at the head of the buffer
+      for (int i = latest.size() - 1; i >= 0; i--) {
+        recent.add(latest.get(i));
+      }
+      LOGGER.info("Recent activity loaded: {} activities", latest.size());
+    } catch (Exception e) {
+      LOGGER.warn("Recent activity could not be loaded at startup", e);
+    }
+  }
+
+  void onActivity(@Observes(during = TransactionPhase.AFTER_SUCCESS) ActivityEvent event) {
+    recent.add(event.activity);
+  }
+
+  /**
+   * Gets the latest activities, newest first.
+   *
+   * @param limit the maximum number of activities, at most the buffer size
+   * @return the activities
+   */
   public List<ActivityDTO> getRecentActivities(int limit) {
-    List<Loan> recentLoans = loanService.getRecentLoans(limit);
-    List<User> recentUsers = userService.getRecentUsers(limit);
-
-    Stream<ActivityDTO> loanActivities =
-        recentLoans.stream()
-            .map(
-                loan ->
-                    new ActivityDTO(
-                        "Loan",
-                        "Book loaned to " + loan.user.getFullName(),
-                        loan.loanDate,
-                        loan.user.getFullName(),
-                        loan.bookCopy.book.title));
-
-    Stream<ActivityDTO> userActivities =
-        recentUsers.stream()
-            .map(
-                user -> {
-                  LocalDate effectiveJoinDate = user.joinDate != null ? user.joinDate : LocalDate.now();
-                  return new ActivityDTO(
-                      "New User",
-                      "New user registered: " + user.getFullName(),
-                      effectiveJoinDate.atStartOfDay(),
-                      user.getFullName(),
-                      null);
-                });
-
-    return Stream.concat(loanActivities, userActivities)
-        .sorted(Comparator.comparing(ActivityDTO::getTimestamp).reversed())
-        .limit(limit)
-        .collect(Collectors.toList());
+    return recent.latest(limit);
+  }
+
+  /** Reads the latest loans and registrations, each with one query, merged newest first. */
+  private List<ActivityDTO> loadLatest() {
+    List<ActivityDTO> latest = new ArrayList<>(bufferSize * 2);
+    List<Object[]> loans =
+        entityManager
+            .createQuery(
+                "SELECT u.firstName, u.lastName, b.title, l.loanDate"
+                    + " FROM Loan l JOIN l.user u JOIN l.bookCopy c JOIN c.book b"
+                    + " ORDER BY l.loanDate DESC",
+                Object[].class)
+            .setMaxResults(bufferSize)
+            .getResultList();
+    for (Object[] row : loans) {
+      latest.add(ActivityDTO.loan(row[0] + " " + row[1], (String) row[2], (LocalDateTime) row[3]));
+    }
+    List<Object[]> users =
+        entityManager
+            .createQuery(
+                "SELECT u.firstName, u.lastName, u.joinDate FROM User u ORDER BY u.joinDate DESC",
+                Object[].class)
+            .setMaxResults(bufferSize)
+            .getResultList();
+    for (Object[] row : users) {
+      latest.add(ActivityDTO.newUser(row[0] + " " + row[1], (LocalDate) row[2]));
+    }
+    latest.sort(Comparator.comparing(ActivityDTO::getTimestamp).reversed());
+    return latest.size() > bufferSize ? latest.subList(0, bufferSize) : latest;
   }
 }
@@ -0,0 +1,576 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.entity.BatchJob;
+import com.davonlibrary.entity.BatchJob.JobStatus;
+import com.davonlibrary.entity.BatchJob.JobType;
+import com.davonlibrary.repository.BatchJobRepository;
+import com.davonlibrary.repository.ChunkedScroll;
+import com.davonlibrary.repository.ChunkedScroll.Checkpoint;
+import com.davonlibrary.repository.ChunkedScroll.ChunkRun;
+import com.davonlibrary.repository.SchedulerLeaseRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the bulk maintenance tasks (overdue fines, fine recalculation, reminders, notification
+ * cleanup, reservation expiry) as persisted batch jobs on a bounded pool of workers.
+ *
+ * <p>Submitting a job only records it; workers claim pending jobs and run them through {@link
+ * ChunkedScroll}, one transaction per chunk, and each chunk advances the job's checkpoint in its
+ * own transaction. A job left running by a crash or redeploy is requeued on startup and resumes
+ * after its last committed chunk, and a failed or cancelled job can be resumed the same way. Only
+ * one job of each type covers a row at a time.
+ *
+ * <p>A task may be split into jobs over ranges of its partition key, which the workers of every
+ * instance sharing the database claim independently. A claimed job records its instance as owner,
+ * and its chunks only commit while that is still so; the jobs of an instance whose liveness lease
+ * has expired are requeued by the scheduler leader, and those of the instance itself on restart.
+ */
+@ApplicationScoped
+public class BatchJobService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchJobService.class);
+
+  /** Largest chunk a job may be submitted with. */
+  public static final int MAX_CHUNK_SIZE = 10000;
+
+  /** Most jobs a task may be split into. */
+  public static final int MAX_PARTITIONS = 64;
+
+  private static final int MAX_ERROR_LENGTH = 1000;
+
+  @Inject BatchJobRepository batchJobRepository;
+
+  @Inject ChunkedScroll chunkedScroll;
+
+  @Inject FineService fineService;
+
+  @Inject NotificationService notificationService;
+
+  @Inject ReservationService reservationService;
+
+  @Inject ClusterLeaseService clusterLeases;
+
+  @Inject SchedulerLeaseRepository leaseRepository;
+
+  @ConfigProperty(name = "library.jobs.workers", defaultValue = "2")
+  int workers;
+
+  @ConfigProperty(name = "library.bulk.chunk-size", defaultValue = "500")
+  int defaultChunkSize;
+
+  private ExecutorService executor;
+  private Semaphore idleWorkers;
+
+  @PostConstruct
+  void init() {
+    AtomicInteger threads = new AtomicInteger();
+    executor =
+        Executors.newFixedThreadPool(
+            workers,
+            runnable -> {
+              Thread thread = new Thread(runnable, "batch-job-worker-" + threads.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    idleWorkers = new Semaphore(workers);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    if (clusterLeases.isEnabled()) {
+      // Running jobs may belong to live instances; the leader requeues those of stopped ones
+      return;
+    }
+    try {
+      // Jobs left running by a run that stopped before finishing them
+      int requeued = QuarkusTransaction.requiringNew().call(batchJobRepository::requeueRunning);
+      if (requeued > 0) {
+        LOGGER.info("Requeued {} batch jobs left running", requeued);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Interrupted batch jobs could not be requeued", e);
+    }
+  }
+
+  @Scheduled(
+      every = "${library.jobs.poll-interval:5s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void tick() {
+    poll();
+  }
+
+  /**
+   * Submits a job to run in the background.
+   *
+   * @param type the job type
+   * @param chunkSize the rows per chunk and transaction, or null for the configured size
+   * @param daysOld the age in days of the notifications to delete, for notification cleanup
+   * @return the progress of the submitted job
+   * @throws IllegalArgumentException if the chunk size or age is invalid
+   * @throws IllegalStateException if a job of the type is already pending or running
+   */
+  public JobProgress submit(JobType type, Integer chunkSize, Integer daysOld) {
+    return submit(type, chunkSize, daysOld, null).get(0);
+  }
+
+  /**
+   * Submits a task to run in the background, split into jobs over equal ranges of its partition
+   * key so that the instances of a cluster can run them in parallel.
+   *
+   * @param type the job type
+   * @param chunkSize the rows per chunk and transaction, or null for the configured size
+   * @param daysOld the age in days of the notifications to delete, for notification cleanup
+   * @param partitions the number of jobs to split the task into, or null for one job
+   * @return the progress of the submitted jobs, one job if the task has no rows to split
+   * @throws IllegalArgumentException if the chunk size, age or partitions are invalid
+   * @throws IllegalStateException if a job of the type is already pending or running
+   */
+  public List<JobProgress> submit(
+      JobType type, Integer chunkSize, Integer daysOld, Integer partitions) {
+    int size = validate(type, chunkSize, daysOld, partitions);
+    List<JobProgress> progress =
+        QuarkusTransaction.requiringNew()
+            .call(
+                () -> {
+                  Optional<BatchJob> existing =
+                      batchJobRepository.findUnfinishedOverlapping(type, null, null);
+                  if (existing.isPresent()) {
+                    throw new IllegalStateException(
+                        "A " + type + " job is already pending or running: " + existing.get().id);
+                  }
+                  return createJobs(type, size, daysOld, partitions);
+                });
+    poll();
+    return progress;
+  }
+
+  /**
+   * Submits the run of a recurring task for a period, unless it has already been submitted for
+   * the period by any instance. Claiming the period and creating the jobs commit together, and a
+   * task whose previous run is still pending or running is not submitted, so it is retried on the
+   * next check.
+   *
+   * @param type the job type
+   * @param daysOld the age in days of the notifications to delete, for notification cleanup
+   * @param partitions the number of jobs to split the task into
+   * @param task the name of the task's lease row, which records its last submitted period
+   * @param period the period key; keys must sort in time order, such as ISO dates
+   * @return the progress of the submitted jobs, or an empty list if the task was not submitted
+   * @throws IllegalArgumentException if the age or partitions are invalid
+   */
+  public List<JobProgress> submitForPeriod(
+      JobType type, Integer daysOld, int partitions, String task, String period) {
+    int size = validate(type, null, daysOld, partitions);
+    clusterLeases.ensureExists(task);
+    List<JobProgress> progress =
+        QuarkusTransaction.requiringNew()
+            .call(
+                () -> {
+                  if (batchJobRepository.findUnfinishedOverlapping(type, null, null).isPresent()
+                      || !leaseRepository.claimPeriod(task, period)) {
+                    return List.<JobProgress>of();
+                  }
+                  return createJobs(type, size, daysOld, partitions);
+                });
+    if (!progress.isEmpty()) {
+      LOGGER.info("Submitted {} {} jobs for {}", progress.size(), type, period);
+      poll();
+    }
+    return progress;
+  }
+
+  private int validate(JobType type, Integer chunkSize, Integer daysOld, Integer partitions) {
+    if (type == null) {
+      throw new IllegalArgumentException("Job type is required");
+    }
+    int size = chunkSize != null ? chunkSize : defaultChunkSize;
+    if (size < 1 || size > MAX_CHUNK_SIZE) {
+      throw new IllegalArgumentException("Chunk size must be between 1 and " + MAX_CHUNK_SIZE);
+    }
+    if (type == JobType.NOTIFICATION_CLEANUP && (daysOld == null || daysOld < 0)) {
+      throw new IllegalArgumentException("Notification cleanup requires a non-negative daysOld");
+    }
+    if (partitions != null && (partitions < 1 || partitions > MAX_PARTITIONS)) {
+      throw new IllegalArgumentException("Partitions must be between 1 and " + MAX_PARTITIONS);
+    }
+    return size;
+  }
+
+  private List<JobProgress> createJobs(
+      JobType type, int chunkSize, Integer daysOld, Integer partitions) {
+    LocalDateTime createdDate = LocalDateTime.now();
+    // Fixed at submission so that a resumed job deletes the same notifications
+    LocalDateTime cutoffDate =
+        type == JobType.NOTIFICATION_CLEANUP ? createdDate.minusDays(daysOld) : null;
+    List<long[]> ranges =
+        partitions != null && partitions > 1
+            ? chunkedScroll.partitions(workOf(type, cutoffDate), partitions)
+            : List.of();
+    List<JobProgress> jobs = new ArrayList<>();
+    if (ranges.size() < 2) {
+      jobs.add(new JobProgress(createJob(type, chunkSize, createdDate, cutoffDate)));
+      return jobs;
+    }
+    for (int i = 0; i < ranges.size(); i++) {
+      BatchJob job = createJob(type, chunkSize, createdDate, cutoffDate);
+      // The outer ranges are open-ended, so rows added since the bounds were read are covered
+      job.rangeStart = i == 0 ? Long.MIN_VALUE : ranges.get(i)[0];
+      job.rangeEnd = i == ranges.size() - 1 ? Long.MAX_VALUE : ranges.get(i)[1];
+      jobs.add(new JobProgress(job));
+    }
+    return jobs;
+  }
+
+  private BatchJob createJob(
+      JobType type, int chunkSize, LocalDateTime createdDate, LocalDateTime cutoffDate) {
+    BatchJob job = new BatchJob(type, chunkSize);
+    job.createdDate = createdDate;
+    job.cutoffDate = cutoffDate;
+    batchJobRepository.persist(job);
+    return job;
+  }
+
+  /**
+   * Gets the progress of a job.
+   *
+   * @param jobId the job ID
+   * @return the job progress, or null if there is no such job
+   */
+  public JobProgress getJob(Long jobId) {
+    return QuarkusTransaction.requiringNew()
+        .call(
+            () -> {
+              BatchJob job = batchJobRepository.findById(jobId);
+              return job != null ? new JobProgress(job) : null;
+            });
+  }
+
+  /**
+   * Gets the progress of the most recent jobs.
+   *
+   * @param limit the maximum number of jobs
+   * @return list of job progress, newest first
+   */
+  public List<JobProgress> getRecentJobs(int limit) {
+    return QuarkusTransaction.requiringNew()
+        .call(
+            () -> {
+              List<JobProgress> jobs = new ArrayList<>();
+              for (BatchJob job : batchJobRepository.findRecent(limit)) {
+                jobs.add(new JobProgress(job));
+              }
+              return jobs;
+            });
+  }
+
+  /**
+   * Cancels a pending or running job. A running job stops at its next chunk, which is rolled
+   * back; the chunks before it stay committed.
+   *
+   * @param jobId the job ID
+   * @return the job progress, or null if there is no such job
+   * @throws IllegalStateException if the job has already finished
+   */
+  public JobProgress cancel(Long jobId) {
+    return QuarkusTransaction.requiringNew()
+        .call(
+            () -> {
+              BatchJob job = batchJobRepository.findById(jobId);
+              if (job == null) {
+                return null;
+              }
+              if (job.isFinished()) {
+                throw new IllegalStateException("Job " + jobId + " is already " + job.status);
+              }
+              job.status = JobStatus.CANCELLED;
+              job.owner = null;
+              job.completedDate = LocalDateTime.now();
+              return new JobProgress(job);
+            });
+  }
+
+  /**
+   * Resumes a failed or cancelled job from its checkpoint.
+   *
+   * @param jobId the job ID
+   * @return the job progress, or null if there is no such job
+   * @throws IllegalStateException if the job is not failed or cancelled, or another job of its
+   *     type is pending or running
+   */
+  public JobProgress resume(Long jobId) {
+    JobProgress progress =
+        QuarkusTransaction.requiringNew()
+            .call(
+                () -> {
+                  BatchJob job = batchJobRepository.findById(jobId);
+                  if (job == null) {
+                    return null;
+                  }
+                  if (job.status != JobStatus.FAILED && job.status != JobStatus.CANCELLED) {
+                    throw new IllegalStateException(
+                        "Job " + jobId + " is " + job.status + "; only failed or cancelled jobs"
+                            + " can be resumed");
+                  }
+                  if (batchJobRepository
+                      .findUnfinishedOverlapping(job.type, job.rangeStart, job.rangeEnd)
+                      .isPresent()) {
+                    throw new IllegalStateException(
+                        "A " + job.type + " job over the same rows is already pending or running");
+                  }
+                  job.status = JobStatus.PENDING;
+                  job.completedDate = null;
+                  return new JobProgress(job);
+                });
+    if (progress != null) {
+      poll();
+    }
+    return progress;
+  }
+
+  /**
+   * Claims pending jobs for the idle workers and starts running them.
+   *
+   * @return the number of jobs started
+   */
+  public synchronized int poll() {
+    int idle = idleWorkers.availablePermits();
+    if (idle == 0) {
+      return 0;
+    }
+    List<Long> claimed;
+    try {
+      claimed = QuarkusTransaction.requiringNew().call(() -> claim(idle));
+    } catch (Exception e) {
+      LOGGER.error("Failed to claim pending batch jobs", e);
+      return 0;
+    }
+    for (Long jobId : claimed) {
+      idleWorkers.acquireUninterruptibly();
+      executor.execute(
+          () -> {
+            try {
+              run(jobId);
+            } finally {
+              idleWorkers.release();
+            }
+          });
+    }
+    return claimed.size();
+  }
+
+  /**
+   * Requeues the running jobs of instances whose liveness leases have expired. Called by the
+   * scheduler leader.
+   *
+   * @return the number of jobs requeued
+   */
+  public int requeueOrphaned() {
+    int requeued =
+        QuarkusTransaction.requiringNew()
+            .call(() -> batchJobRepository.requeueOrphaned(LocalDateTime.now()));
+    if (requeued > 0) {
+      LOGGER.info("Requeued {} batch jobs of stopped instances", requeued);
+      poll();
+    }
+    return requeued;
+  }
+
+  private List<Long> claim(int limit) {
+    List<Long> claimed = new ArrayList<>(limit);
+    String nodeId = clusterLeases.getNodeId();
+    for (BatchJob job : batchJobRepository.findToRun(limit)) {
+      if (batchJobRepository.claimForRunning(job.id, nodeId)) {
+        claimed.add(job.id);
+      }
+    }
+    return claimed;
+  }
+
+  private void run(Long jobId) {
+    String nodeId = clusterLeases.getNodeId();
+    try {
+      BatchJob job =
+          QuarkusTransaction.requiringNew().call(() -> batchJobRepository.findById(jobId));
+      if (job == null || job.status != JobStatus.RUNNING || !nodeId.equals(job.owner)) {
+        return;
+      }
+      ChunkedScroll.Job<?> work = workOf(job.type, job.cutoffDate);
+      if (job.rangeStart != null && job.rangeEnd != null) {
+        work = work.range(job.rangeStart, job.rangeEnd);
+      }
+      ChunkedScroll.Job<?> rangeWork = work;
+      long lastId = job.lastId != null ? job.lastId : Long.MIN_VALUE;
+      QuarkusTransaction.requiringNew()
+          .run(
+              () -> {
+                long remaining = chunkedScroll.count(rangeWork, lastId);
+                batchJobRepository.update(
+                    "totalRows = processedRows + ?1 WHERE id = ?2", remaining, jobId);
+              });
+      ChunkRun run =
+          chunkedScroll.run(work, new JobCheckpoint(jobId, nodeId, lastId, job.chunkSize));
+      QuarkusTransaction.requiringNew()
+          .run(() -> batchJobRepository.finish(jobId, nodeId, JobStatus.COMPLETED, null));
+      LOGGER.info(
+          "Batch job {} ({}) completed: {} rows, {} affected in {} chunks",
+          jobId,
+          job.type,
+          run.rows,
+          run.counted,
+          run.chunks);
+    } catch (JobCancelledException e) {
+      LOGGER.info("Batch job {} stopped after being cancelled or requeued", jobId);
+    } catch (Exception e) {
+      LOGGER.error("Batch job {} failed", jobId, e);
+      try {
+        QuarkusTransaction.requiringNew().run(() -> recordFailure(jobId, nodeId, e));
+      } catch (Exception recordError) {
+        LOGGER.error("Failed to record the failure of batch job {}", jobId, recordError);
+      }
+    }
+  }
+
+  private ChunkedScroll.Job<?> workOf(JobType type, LocalDateTime cutoffDate) {
+    switch (type) {
+      case OVERDUE_FINES:
+        return fineService.overdueFinesJob();
+      case FINE_RECALCULATION:
+        return fineService.fineRecalculationJob();
+      case OVERDUE_REMINDERS:
+        return notificationService.overdueRemindersJob();
+      case DUE_SOON_REMINDERS:
+        return notificationService.dueSoonRemindersJob();
+      case NOTIFICATION_CLEANUP:
+        return notificationService.cleanupJob(cutoffDate);
+      case RESERVATION_EXPIRY:
+        return reservationService.reservationExpiryJob();
+      default:
+        throw new IllegalStateException("Unknown job type: " + type);
+    }
+  }
+
+  private void recordFailure(Long jobId, String owner, Exception error) {
+    String message = error.getMessage() != null ? error.getMessage() : error.toString();
+    if (message.length() > MAX_ERROR_LENGTH) {
+      message = message.substring(0, MAX_ERROR_LENGTH);
+    }
+    batchJobRepository.finish(jobId, owner, JobStatus.FAILED, message);
+  }
+
+  /** Records each chunk of a job on the job's row, in the chunk's transaction. */
+  private class JobCheckpoint implements Checkpoint {
+    private final Long jobId;
+    private final String owner;
+    private final long lastId;
+    private final int chunkSize;
+
+    JobCheckpoint(Long jobId, String owner, long lastId, int chunkSize) {
+      this.jobId = jobId;
+      this.owner = owner;
+      this.lastId = lastId;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public long lastId() {
+      return lastId;
+    }
+
+    @Override
+    public int chunkSize() {
+      return chunkSize;
+    }
+
+    @Override
+    public void chunkProcessed(long chunkLastId, int rows, long counted) {
+      if (!batchJobRepository.recordChunk(jobId, owner, chunkLastId, rows, counted)) {
+        // Cancelled or requeued since the chunk started: roll the chunk back and stop
+        throw new JobCancelledException();
+      }
+    }
+  }
+
+  private static class JobCancelledException extends RuntimeException {
+    JobCancelledException() {
+      super("Job cancelled");
+    }
+  }
+
+  /**
+   * Progress of a batch job; lastId is the checkpoint a resumed job continues after, and the range
+   * is the partition keys the job covers, null for every row.
+   */
+  public static class JobProgress {
+    public final Long id;
+    public final JobType type;
+    public final JobStatus status;
+    public final int chunkSize;
+    public final LocalDateTime cutoffDate;
+    public final Long rangeStart;
+    public final Long rangeEnd;
+    public final String owner;
+    public final Long lastId;
+    public final Long totalRows;
+    public final long processedRows;
+    public final long affectedRows;
+    public final int chunks;
+    public final int attempts;
+    public final double percentComplete;
+    public final LocalDateTime createdDate;
+    public final LocalDateTime startedDate;
+    public final LocalDateTime checkpointDate;
+    public final LocalDateTime completedDate;
+    public final String errorMessage;
+
+    JobProgress(BatchJob job) {
+      this.id = job.id;
+      this.type = job.type;
+      this.status = job.status;
+      this.chunkSize = job.chunkSize;
+      this.cutoffDate = job.cutoffDate;
+      this.rangeStart = job.rangeStart;
+      this.rangeEnd = job.rangeEnd;
+      this.owner = job.owner;
+      this.lastId = job.lastId;
+      this.totalRows = job.totalRows;
+      this.processedRows = job.processedRows;
+      this.affectedRows = job.affectedRows;
+      this.chunks = job.chunks;
+      this.attempts = job.attempts;
+      if (job.status == JobStatus.COMPLETED) {
+        this.percentComplete = 100;
+      } else if (job.totalRows != null && job.totalRows > 0) {
+        this.percentComplete = Math.min(100.0, job.processedRows * 100.0 / job.totalRows);
+      } else {
+        this.percentComplete = 0;
+      }
+      this.createdDate = job.createdDate;
+      this.startedDate = job.startedDate;
+      this.checkpointDate = job.checkpointDate;
+      this.completedDate = job.completedDate;
+      this.errorMessage = job.errorMessage;
+    }
+  }
+}
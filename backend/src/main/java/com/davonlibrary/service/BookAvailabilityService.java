@@ -0,0 +1,421 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.entity.Book;
+import com.davonlibrary.entity.BookCopy;
+import com.davonlibrary.entity.BookCopy.BookCopyStatus;
+import com.davonlibrary.event.BookCopyStatusChangedEvent;
+import com.davonlibrary.util.LongLongHashMap;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maintains {@code books.total_copies}, {@code books.available_copies} and {@code books.status}.
+ *
+ * <p>Every copy status transition applies a single +1/-1 delta update to the book row instead of
+ * recounting its copies, so the cost of a borrow or return does not depend on how many copies a
+ * title has. Committed counts are mirrored in an in-memory map for cheap availability checks, and
+ * a scheduled reconciler recounts copies in ID batches to correct any drift caused by writes that
+ * bypass this service.
+ */
+@ApplicationScoped
+public class BookAvailabilityService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BookAvailabilityService.class);
+
+  // Native so that only the changed book is evicted from the second-level cache, by
+  // EntityCacheService; a bulk HQL update would evict every cached book on each borrow and return
+  private static final String APPLY_DELTA =
+      "UPDATE books SET total_copies = COALESCE(total_copies, 0) + :totalDelta,"
+          + " available_copies = COALESCE(available_copies, 0) + :availableDelta,"
+          + " status = CASE WHEN COALESCE(available_copies, 0) + :availableDelta > 0"
+          + " THEN :inStock ELSE :outOfStock END"
+          + " WHERE id = :bookId";
+
+  // Query space declared by the delta update; no entity maps to it, so no cache region is cleared
+  private static final String AVAILABILITY_SPACE = "book_availability";
+
+  private static final String RECOUNT =
+      "SELECT b.id, b.totalCopies, b.availableCopies, b.status, COUNT(bc.id),"
+          + " SUM(CASE WHEN bc.status = :available THEN 1 ELSE 0 END)"
+          + " FROM Book b LEFT JOIN b.bookCopies bc WHERE b.id > :after"
+          + " GROUP BY b.id, b.totalCopies, b.availableCopies, b.status ORDER BY b.id";
+
+  // Only overwrites counts that still hold the drifted values read by the recount
+  private static final String CORRECT =
+      "UPDATE Book b SET b.totalCopies = :total, b.availableCopies = :available, b.status = :status"
+          + " WHERE b.id = :bookId AND COALESCE(b.totalCopies, -1) = :seenTotal"
+          + " AND COALESCE(b.availableCopies, -1) = :seenAvailable";
+
+  @Inject EntityManager entityManager;
+
+  @Inject Event<BookCopyStatusChangedEvent> copyEvents;
+
+  @Inject EntityCacheService entityCache;
+
+  @ConfigProperty(name = "library.availability.reconcile-batch-size", defaultValue = "5000")
+  int reconcileBatchSize;
+
+  // bookId -> (totalCopies << 32) | availableCopies, as of the last commit
+  private final LongLongHashMap counters = new LongLongHashMap(1024);
+  private volatile boolean countersLoaded;
+  // Books with at least one available copy, kept with the counters
+  private long availableBooks;
+  private volatile ReconcileResult lastReconcile;
+
+  @Transactional
+  void onStart(@Observes StartupEvent event) {
+    try (Stream<Object[]> rows =
+        entityManager
+            .createQuery("SELECT b.id, b.totalCopies, b.availableCopies FROM Book b", Object[].class)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream()) {
+      synchronized (counters) {
+        rows.forEach(row -> store((Long) row[0], pack(toInt(row[1]), toInt(row[2]))));
+        countersLoaded = true;
+      }
+      LOGGER.info("Loaded availability counters for {} books", counters.size());
+    } catch (Exception e) {
+      LOGGER.warn("Availability counters could not be loaded; reads will go to the database", e);
+    }
+  }
+
+  /**
+   * Changes the status of a copy and applies the resulting delta to its book.
+   *
+   * @param copy the managed book copy
+   * @param status the new status
+   */
+  @Transactional
+  public void changeStatus(BookCopy copy, BookCopyStatus status) {
+    BookCopyStatus previous = copy.status;
+    copy.status = status;
+    recordStatusChange(copy, previous);
+  }
+
+  /**
+   * Applies the delta for a status change that has already been made on the copy, for example by
+   * one of its domain methods.
+   *
+   * @param copy the managed book copy, holding its new status
+   * @param previous the status before the change
+   */
+  @Transactional
+  public void recordStatusChange(BookCopy copy, BookCopyStatus previous) {
+    if (previous != copy.status) {
+      publish(copy, previous, copy.status);
+    }
+  }
+
+  /**
+   * Applies the deltas for several status changes already made on copies, with one update per
+   * affected book. Books are updated in ID order so concurrent batches lock them consistently.
+   *
+   * @param previousStatuses each changed copy, holding its new status, mapped to its old status
+   */
+  @Transactional
+  public void recordStatusChanges(Map<BookCopy, BookCopyStatus> previousStatuses) {
+    // bookId -> {totalDelta, availableDelta}
+    Map<Long, int[]> deltas = new TreeMap<>();
+    for (Map.Entry<BookCopy, BookCopyStatus> change : previousStatuses.entrySet()) {
+      BookCopy copy = change.getKey();
+      if (copy.book == null || change.getValue() == copy.status) {
+        continue;
+      }
+      BookCopyStatusChangedEvent event =
+          new BookCopyStatusChangedEvent(
+              copy.book.id,
+              copy.id,
+              copy.library != null ? copy.library.id : null,
+              change.getValue(),
+              copy.status);
+      int[] delta = deltas.computeIfAbsent(event.bookId, id -> new int[2]);
+      delta[0] += event.totalDelta();
+      delta[1] += event.availableDelta();
+      copyEvents.fire(event);
+    }
+    deltas.forEach((bookId, delta) -> applyDelta(bookId, delta[0], delta[1]));
+  }
+
+  /**
+   * Counts a newly persisted copy towards its book.
+   *
+   * @param copy the persisted book copy
+   */
+  @Transactional
+  public void copyAdded(BookCopy copy) {
+    publish(copy, null, copy.status);
+  }
+
+  /**
+   * Removes a copy that is about to be deleted from its book's counts.
+   *
+   * @param copy the book copy being deleted
+   */
+  @Transactional
+  public void copyRemoved(BookCopy copy) {
+    publish(copy, copy.status, null);
+  }
+
+  /**
+   * Gets the number of available copies of a book as of the last commit.
+   *
+   * @param bookId the book ID
+   * @return the number of available copies, 0 if the book does not exist
+   */
+  public int getAvailableCopies(long bookId) {
+    return (int) read(bookId);
+  }
+
+  /**
+   * Gets the total number of copies of a book as of the last commit.
+   *
+   * @param bookId the book ID
+   * @return the number of copies, 0 if the book does not exist
+   */
+  public int getTotalCopies(long bookId) {
+    return (int) (read(bookId) >>> 32);
+  }
+
+  /** Returns true once the counters have been loaded from the database. */
+  public boolean isLoaded() {
+    return countersLoaded;
+  }
+
+  /**
+   * Counts the books with at least one available copy, as of the last commit. Only meaningful
+   * once the counters are loaded.
+   *
+   * @return the number of books with an available copy
+   */
+  public long countAvailableBooks() {
+    synchronized (counters) {
+      return availableBooks;
+    }
+  }
+
+  /**
+   * Checks whether a book is known to have no available copies as of the last commit, without
+   * touching the database. Unknown books are not reported as unavailable.
+   *
+   * @param bookId the book ID
+   * @return true if the book is known and has no available copies
+   */
+  public boolean isKnownUnavailable(long bookId) {
+    if (!countersLoaded) {
+      return false;
+    }
+    synchronized (counters) {
+      return counters.containsKey(bookId) && (int) counters.get(bookId, 0L) <= 0;
+    }
+  }
+
+  /** Gets the result of the most recent reconciliation, or null if none has run yet. */
+  public ReconcileResult getLastReconcile() {
+    return lastReconcile;
+  }
+
+  @Scheduled(
+      every = "${library.availability.reconcile-interval:5m}",
+      delayed = "1m",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void scheduledReconcile() {
+    try {
+      ReconcileResult result = reconcile();
+      if (result.booksCorrected > 0) {
+        LOGGER.warn(
+            "Availability reconciler corrected {} of {} books in {} ms",
+            result.booksCorrected,
+            result.booksScanned,
+            result.durationMillis);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Availability reconciliation failed", e);
+    }
+  }
+
+  /**
+   * Recounts copies for every book and corrects books whose stored counts or status drifted. Each
+   * batch of books is checked and corrected in its own short transaction.
+   *
+   * @return the reconciliation result
+   */
+  public ReconcileResult reconcile() {
+    long start = System.nanoTime();
+    long after = Long.MIN_VALUE;
+    int scanned = 0;
+    int corrected = 0;
+    while (true) {
+      long from = after;
+      long[] batch = QuarkusTransaction.requiringNew().call(() -> reconcileBatch(from));
+      if (batch[0] == 0) {
+        break;
+      }
+      scanned += (int) batch[0];
+      corrected += (int) batch[1];
+      after = batch[2];
+    }
+    ReconcileResult result =
+        new ReconcileResult(scanned, corrected, (System.nanoTime() - start) / 1_000_000);
+    lastReconcile = result;
+    return result;
+  }
+
+  /** Returns {scanned, corrected, last book ID} for the batch after {@code after}. */
+  private long[] reconcileBatch(long after) {
+    List<Object[]> rows =
+        entityManager
+            .createQuery(RECOUNT, Object[].class)
+            .setParameter("available", BookCopyStatus.AVAILABLE)
+            .setParameter("after", after)
+            .setMaxResults(reconcileBatchSize)
+            .getResultList();
+    int corrected = 0;
+    for (Object[] row : rows) {
+      long bookId = (Long) row[0];
+      int total = toInt(row[4]);
+      int available = toInt(row[5]);
+      Book.BookStatus status =
+          available > 0 ? Book.BookStatus.AVAILABLE : Book.BookStatus.UNAVAILABLE;
+      boolean drifted =
+          row[1] == null
+              || row[2] == null
+              || toInt(row[1]) != total
+              || toInt(row[2]) != available
+              || row[3] != status;
+      if (!drifted) {
+        continue;
+      }
+      int updated =
+          entityManager
+              .createQuery(CORRECT)
+              .setParameter("total", total)
+              .setParameter("available", available)
+              .setParameter("status", status)
+              .setParameter("bookId", bookId)
+              .setParameter("seenTotal", row[1] != null ? toInt(row[1]) : -1)
+              .setParameter("seenAvailable", row[2] != null ? toInt(row[2]) : -1)
+              .executeUpdate();
+      if (updated > 0) {
+        corrected++;
+        synchronized (counters) {
+          store(bookId, pack(total, available));
+        }
+      }
+    }
+    long last = rows.isEmpty() ? after : (Long) rows.get(rows.size() - 1)[0];
+    return new long[] {rows.size(), corrected, last};
+  }
+
+  void onCopyStatusChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) BookCopyStatusChangedEvent event) {
+    if (!countersLoaded) {
+      return;
+    }
+    synchronized (counters) {
+      long packed = counters.get(event.bookId, 0L);
+      int total = (int) (packed >>> 32) + event.totalDelta();
+      int available = (int) packed + event.availableDelta();
+      store(event.bookId, pack(total, available));
+    }
+  }
+
+  private void publish(BookCopy copy, BookCopyStatus from, BookCopyStatus to) {
+    if (copy.book == null) {
+      return;
+    }
+    BookCopyStatusChangedEvent event =
+        new BookCopyStatusChangedEvent(
+            copy.book.id, copy.id, copy.library != null ? copy.library.id : null, from, to);
+    applyDelta(event.bookId, event.totalDelta(), event.availableDelta());
+    copyEvents.fire(event);
+  }
+
+  private void applyDelta(long bookId, int totalDelta, int availableDelta) {
+    if (totalDelta == 0 && availableDelta == 0) {
+      return;
+    }
+    entityCache.evictBook(bookId);
+    entityManager
+        .createNativeQuery(APPLY_DELTA)
+        .unwrap(NativeQuery.class)
+        .addSynchronizedQuerySpace(AVAILABILITY_SPACE)
+        .setParameter("totalDelta", totalDelta)
+        .setParameter("availableDelta", availableDelta)
+        .setParameter("inStock", Book.BookStatus.AVAILABLE.name())
+        .setParameter("outOfStock", Book.BookStatus.UNAVAILABLE.name())
+        .setParameter("bookId", bookId)
+        .executeUpdate();
+  }
+
+  private long read(long bookId) {
+    if (countersLoaded) {
+      synchronized (counters) {
+        if (counters.containsKey(bookId)) {
+          return counters.get(bookId, 0L);
+        }
+      }
+    }
+    return QuarkusTransaction.joiningExisting()
+        .call(
+            () ->
+                entityManager
+                    .createQuery(
+                        "SELECT b.totalCopies, b.availableCopies FROM Book b WHERE b.id = :id",
+                        Object[].class)
+                    .setParameter("id", bookId)
+                    .getResultStream()
+                    .findFirst()
+                    .map(row -> pack(toInt(row[0]), toInt(row[1])))
+                    .orElse(0L));
+  }
+
+  /** Stores the counts of a book; the caller holds the counters lock. */
+  private void store(long bookId, long packed) {
+    if ((int) counters.get(bookId, 0L) > 0) {
+      availableBooks--;
+    }
+    counters.put(bookId, packed);
+    if ((int) packed > 0) {
+      availableBooks++;
+    }
+  }
+
+  private static long pack(int total, int available) {
+    return ((long) total << 32) | (available & 0xFFFFFFFFL);
+  }
+
+  private static int toInt(Object value) {
+    return value != null ? ((Number) value).intValue() : 0;
+  }
+
+  /** Availability reconciliation result DTO. */
+  public static class ReconcileResult {
+    public final int booksScanned;
+    public final int booksCorrected;
+    public final long durationMillis;
+
+    public ReconcileResult(int booksScanned, int booksCorrected, long durationMillis) {
+      this.booksScanned = booksScanned;
+      this.booksCorrected = booksCorrected;
+      this.durationMillis = durationMillis;
+    }
+  }
+}
@@ -0,0 +1,343 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.entity.BookCopy;
+import com.davonlibrary.entity.BookCopy.BookCopyStatus;
+import com.davonlibrary.entity.Fine;
+import com.davonlibrary.entity.Loan;
+import com.davonlibrary.entity.User;
+import com.davonlibrary.event.ActivityEvent;
+import com.davonlibrary.event.LoanEvent;
+import com.davonlibrary.repository.FineRepository;
+import com.davonlibrary.repository.UserRepository;
+import com.davonlibrary.util.SessionStatements;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+/**
+ * Checks out and checks in stacks of book copies by barcode, as scanned at a circulation desk or
+ * self-checkout kiosk. Each batch runs in one transaction with a fixed number of statements: the
+ * scanned copies are locked with one query, loan rows are written with one JDBC batch, and each
+ * affected book gets a single availability update. Items that cannot be processed are reported
+ * individually and do not fail the rest of the batch.
+ */
+@ApplicationScoped
+public class CirculationService {
+
+  private static final String INSERT_LOAN =
+      "INSERT INTO loans (user_id, book_copy_id, loan_date, due_date, extensions_count,"
+          + " max_extensions_allowed, status_id) VALUES (?, ?, ?, ?, 0, ?, ?)";
+
+  @Inject EntityManager entityManager;
+
+  @Inject UserRepository userRepository;
+
+  @Inject FineRepository fineRepository;
+
+  @Inject LoanService loanService;
+
+  @Inject BookAvailabilityService bookAvailabilityService;
+
+  @Inject Event<LoanEvent> loanEvents;
+
+  @Inject Event<ActivityEvent> activityEvents;
+
+  @ConfigProperty(name = "library.circulation.max-batch-size", defaultValue = "100")
+  int maxBatchSize;
+
+  /**
+   * Checks out every available copy in the list to one user.
+   *
+   * @param userId the borrowing user's ID
+   * @param barcodes barcodes of the copies to check out
+   * @return the outcome for each barcode, in request order
+   * @throws IllegalArgumentException if the user does not exist or the batch is empty or too large
+   */
+  @Transactional
+  public BatchResult checkout(Long userId, List<String> barcodes) {
+    validateBatch(barcodes);
+    SessionStatements.execute(entityManager, "SET QUOTED_IDENTIFIER ON");
+
+    User user = userId != null ? userRepository.findById(userId) : null;
+    if (user == null) {
+      throw new IllegalArgumentException("User not found with ID: " + userId);
+    }
+
+    Map<String, BookCopy> copies = lockCopies(barcodes);
+    Map<Long, String> titles = titles(copies.values());
+    List<ItemResult> results = new ArrayList<>(barcodes.size());
+    Map<BookCopy, BookCopyStatus> claimed = new LinkedHashMap<>();
+    Set<String> seen = new LinkedHashSet<>();
+
+    for (String barcode : barcodes) {
+      BookCopy copy = copies.get(barcode);
+      ItemResult result = new ItemResult(barcode);
+      results.add(result);
+      if (!seen.add(barcode)) {
+        result.outcome = Outcome.DUPLICATE;
+        continue;
+      }
+      if (copy == null) {
+        result.outcome = Outcome.NOT_FOUND;
+        continue;
+      }
+      result.bookId = copy.book.id;
+      result.title = titles.get(copy.book.id);
+      if (copy.status != BookCopyStatus.AVAILABLE) {
+        result.outcome = Outcome.UNAVAILABLE;
+        result.message = "Copy is " + copy.status;
+        continue;
+      }
+      copy.status = BookCopyStatus.CHECKED_OUT;
+      claimed.put(copy, BookCopyStatus.AVAILABLE);
+    }
+
+    if (!claimed.isEmpty()) {
+      LocalDateTime loanDate = LocalDateTime.now();
+      LocalDate dueDate = loanDate.toLocalDate().plusDays(LibraryService.LOAN_PERIOD_DAYS);
+      insertLoans(user.id, claimed.keySet(), loanDate, dueDate);
+      Map<Long, Long> loanIds = activeLoanIds(claimed.keySet());
+      bookAvailabilityService.recordStatusChanges(claimed);
+      for (ItemResult result : results) {
+        BookCopy copy = result.outcome == null ? copies.get(result.barcode) : null;
+        if (copy != null) {
+          result.outcome = Outcome.CHECKED_OUT;
+          result.loanId = loanIds.get(copy.id);
+          result.dueDate = dueDate;
+          // Observers key their state by loan, so a loan that could not be read back is skipped
+          if (result.loanId != null) {
+            loanEvents.fire(
+                new LoanEvent(
+                    LoanEvent.Kind.BORROWED,
+                    result.loanId,
+                    user.id,
+                    copy.id,
+                    copy.book.id,
+                    copy.book.author != null ? copy.book.author.id : null,
+                    dueDate));
+          }
+          activityEvents.fire(ActivityEvent.loan(user, result.title, loanDate));
+        }
+      }
+    }
+    return new BatchResult(results);
+  }
+
+  /**
+   * Checks in every copy in the list that is on an active loan, charging overdue fines as a
+   * single return would.
+   *
+   * @param barcodes barcodes of the copies being returned
+   * @return the outcome for each barcode, in request order
+   * @throws IllegalArgumentException if the batch is empty or too large
+   */
+  @Transactional
+  public BatchResult checkin(List<String> barcodes) {
+    validateBatch(barcodes);
+    SessionStatements.execute(entityManager, "SET QUOTED_IDENTIFIER ON");
+
+    Map<String, BookCopy> copies = lockCopies(barcodes);
+    Map<Long, String> titles = titles(copies.values());
+    Map<Long, Loan> loans = activeLoans(copies.values());
+    List<ItemResult> results = new ArrayList<>(barcodes.size());
+    Map<BookCopy, BookCopyStatus> returned = new LinkedHashMap<>();
+    Set<String> seen = new LinkedHashSet<>();
+    LocalDateTime now = LocalDateTime.now();
+
+    for (String barcode : barcodes) {
+      BookCopy copy = copies.get(barcode);
+      ItemResult result = new ItemResult(barcode);
+      results.add(result);
+      if (!seen.add(barcode)) {
+        result.outcome = Outcome.DUPLICATE;
+        continue;
+      }
+      if (copy == null) {
+        result.outcome = Outcome.NOT_FOUND;
+        continue;
+      }
+      result.bookId = copy.book.id;
+      result.title = titles.get(copy.book.id);
+      Loan loan = loans.get(copy.id);
+      if (loan == null) {
+        result.outcome = Outcome.NOT_ON_LOAN;
+        continue;
+      }
+
+      loan.returnDate = now;
+      loan.status = Loan.LoanStatus.RETURNED;
+      returned.put(copy, copy.status);
+      copy.status = BookCopyStatus.AVAILABLE;
+
+      result.outcome = Outcome.CHECKED_IN;
+      result.loanId = loan.id;
+      result.dueDate = loan.dueDate;
+      loanEvents.fire(LoanEvent.of(LoanEvent.Kind.RETURNED, loan));
+      Fine fine = loanService.overdueFine(loan);
+      if (fine != null) {
+        fineRepository.persist(fine);
+        result.fineAmount = fine.amount;
+      }
+    }
+
+    // Loan and copy updates are flushed as JDBC batches at commit
+    bookAvailabilityService.recordStatusChanges(returned);
+    return new BatchResult(results);
+  }
+
+  private void validateBatch(List<String> barcodes) {
+    if (barcodes == null || barcodes.isEmpty()) {
+      throw new IllegalArgumentException("At least one barcode is required");
+    }
+    if (barcodes.size() > maxBatchSize) {
+      throw new IllegalArgumentException(
+          "A batch may contain at most " + maxBatchSize + " barcodes");
+    }
+  }
+
+  /** Loads and row-locks the copies with the given barcodes, keyed by barcode. */
+  private Map<String, BookCopy> lockCopies(List<String> barcodes) {
+    Set<String> distinct = new LinkedHashSet<>(barcodes);
+    distinct.remove(null);
+    if (distinct.isEmpty()) {
+      return Map.of();
+    }
+    return entityManager
+        .createQuery("SELECT c FROM BookCopy c WHERE c.barcode IN :barcodes", BookCopy.class)
+        .setParameter("barcodes", distinct)
+        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+        .getResultList()
+        .stream()
+        .collect(Collectors.toMap(copy -> copy.barcode, copy -> copy));
+  }
+
+  private Map<Long, String> titles(Collection<BookCopy> copies) {
+    Set<Long> bookIds = copies.stream().map(copy -> copy.book.id).collect(Collectors.toSet());
+    Map<Long, String> titles = new HashMap<>();
+    if (!bookIds.isEmpty()) {
+      entityManager
+          .createQuery("SELECT b.id, b.title FROM Book b WHERE b.id IN :ids", Object[].class)
+          .setParameter("ids", bookIds)
+          .getResultList()
+          .forEach(row -> titles.put((Long) row[0], (String) row[1]));
+    }
+    return titles;
+  }
+
+  /** Loads the active loans of the copies, keyed by copy ID. */
+  private Map<Long, Loan> activeLoans(Collection<BookCopy> copies) {
+    if (copies.isEmpty()) {
+      return Map.of();
+    }
+    Map<Long, Loan> loans = new HashMap<>();
+    entityManager
+        .createQuery(
+            "SELECT l FROM Loan l WHERE l.bookCopy IN :copies AND l.returnDate IS NULL"
+                + " ORDER BY l.id",
+            Loan.class)
+        .setParameter("copies", copies)
+        .getResultList()
+        .forEach(loan -> loans.putIfAbsent(loan.bookCopy.id, loan));
+    return loans;
+  }
+
+  private void insertLoans(
+      Long userId, Collection<BookCopy> copies, LocalDateTime loanDate, LocalDate dueDate) {
+    entityManager
+        .unwrap(Session.class)
+        .doWork(
+            connection -> {
+              try (PreparedStatement statement = connection.prepareStatement(INSERT_LOAN)) {
+                for (BookCopy copy : copies) {
+                  statement.setLong(1, userId);
+                  statement.setLong(2, copy.id);
+                  statement.setTimestamp(3, Timestamp.valueOf(loanDate));
+                  statement.setDate(4, Date.valueOf(dueDate));
+                  statement.setInt(5, LibraryService.MAX_LOAN_EXTENSIONS);
+                  statement.setString(6, Loan.LoanStatus.ACTIVE.name());
+                  statement.addBatch();
+                }
+                statement.executeBatch();
+              }
+            });
+  }
+
+  private Map<Long, Long> activeLoanIds(Collection<BookCopy> copies) {
+    Map<Long, Long> loanIds = new HashMap<>();
+    entityManager
+        .createQuery(
+            "SELECT l.bookCopy.id, l.id FROM Loan l"
+                + " WHERE l.bookCopy IN :copies AND l.returnDate IS NULL",
+            Object[].class)
+        .setParameter("copies", copies)
+        .getResultList()
+        .forEach(row -> loanIds.put((Long) row[0], (Long) row[1]));
+    return loanIds;
+  }
+
+  /** Outcome of one scanned item. */
+  public enum Outcome {
+    CHECKED_OUT,
+    CHECKED_IN,
+    NOT_FOUND,
+    UNAVAILABLE,
+    NOT_ON_LOAN,
+    DUPLICATE
+  }
+
+  /** Result DTO for one scanned item. */
+  public static class ItemResult {
+    public final String barcode;
+    public Outcome outcome;
+    public Long bookId;
+    public String title;
+    public Long loanId;
+    public LocalDate dueDate;
+    public BigDecimal fineAmount;
+    public String message;
+
+    public ItemResult(String barcode) {
+      this.barcode = barcode;
+    }
+
+    /** Returns true if the item was checked out or checked in. */
+    public boolean isSucceeded() {
+      return outcome == Outcome.CHECKED_OUT || outcome == Outcome.CHECKED_IN;
+    }
+  }
+
+  /** Result DTO for a checkout or check-in batch. */
+  public static class BatchResult {
+    public final int processed;
+    public final int succeeded;
+    public final int failed;
+    public final List<ItemResult> items;
+
+    public BatchResult(List<ItemResult> items) {
+      this.items = items;
+      this.processed = items.size();
+      this.succeeded = (int) items.stream().filter(ItemResult::isSucceeded).count();
+      this.failed = processed - succeeded;
+    }
+  }
+}
@@ -0,0 +1,224 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.entity.SchedulerLease;
+import com.davonlibrary.repository.SchedulerLeaseRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Elects one scheduler leader among the backend instances sharing the database, through leases in
+ * the {@code scheduler_leases} table.
+ *
+ * <p>Every heartbeat an instance renews its own liveness lease and renews or tries to take over
+ * the leader lease, each with a conditional update, so at most one instance holds a lease at a
+ * time. An instance treats itself as leader only until a safety margin before its lease expires,
+ * so a leader that stops heartbeating stops acting before another instance can take over; the
+ * takeover happens one lease duration after the last renewal at most, and at once after a graceful
+ * shutdown, which releases the leader lease and deletes the liveness lease. Lease times come from
+ * the instances' clocks, which are assumed to be synchronized well within the safety margin.
+ *
+ * <p>Unless {@code library.cluster.node-id} is set, an instance gets a new node ID on every start,
+ * so work owned by an earlier run is recovered like that of any stopped instance: by the leader,
+ * once the old liveness lease has expired. The leader also deletes expired liveness leases, so the
+ * leases of past runs do not accumulate.
+ *
+ * <p>With clustering disabled the instance is always leader and writes no leader or liveness
+ * leases. The once-per-period task rows of {@link #ensureExists} are written either way, so the
+ * {@code scheduler_leases} table is needed by single instances too.
+ */
+@ApplicationScoped
+public class ClusterLeaseService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClusterLeaseService.class);
+
+  /** Name of the scheduler leader lease. */
+  public static final String LEADER_LEASE = "scheduler-leader";
+
+  @Inject SchedulerLeaseRepository leaseRepository;
+
+  @ConfigProperty(name = "library.cluster.enabled", defaultValue = "false")
+  boolean enabled;
+
+  @ConfigProperty(name = "library.cluster.node-id")
+  Optional<String> configuredNodeId;
+
+  @ConfigProperty(name = "library.cluster.lease-duration", defaultValue = "15s")
+  Duration leaseDuration;
+
+  @ConfigProperty(name = "library.cluster.safety-margin", defaultValue = "3s")
+  Duration safetyMargin;
+
+  private String nodeId;
+  // Local time until which this instance may act as leader; null when not leader
+  private volatile LocalDateTime leaderUntil;
+
+  @PostConstruct
+  void init() {
+    nodeId = configuredNodeId.filter(id -> !id.isBlank()).orElseGet(ClusterLeaseService::newNodeId);
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    if (enabled) {
+      LOGGER.info("Cluster scheduling enabled as node {}", nodeId);
+      heartbeat();
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (!enabled) {
+      return;
+    }
+    leaderUntil = null;
+    try {
+      QuarkusTransaction.requiringNew()
+          .run(
+              () -> {
+                leaseRepository.release(LEADER_LEASE, nodeId);
+                leaseRepository.deleteOwned(SchedulerLeaseRepository.NODE_PREFIX + nodeId, nodeId);
+              });
+    } catch (Exception e) {
+      LOGGER.warn("Leases of node {} could not be released", nodeId, e);
+    }
+  }
+
+  @Scheduled(
+      every = "${library.cluster.heartbeat:5s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void tick() {
+    if (enabled) {
+      heartbeat();
+    }
+  }
+
+  /**
+   * Renews this instance's liveness lease and renews or tries to take over the leader lease.
+   *
+   * @return true if this instance is leader after the heartbeat
+   */
+  public boolean heartbeat() {
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime expiresAt = now.plus(leaseDuration);
+    try {
+      acquire(SchedulerLeaseRepository.NODE_PREFIX + nodeId, now, expiresAt);
+      boolean leader = acquire(LEADER_LEASE, now, expiresAt);
+      boolean wasLeader = leaderUntil != null;
+      leaderUntil = leader ? expiresAt.minus(safetyMargin) : null;
+      if (leader != wasLeader) {
+        LOGGER.info(leader ? "Node {} became scheduler leader" : "Node {} lost leadership", nodeId);
+      }
+      return leader;
+    } catch (Exception e) {
+      // Keep acting as leader only while the lease already held is known to be valid
+      LOGGER.warn("Lease heartbeat of node {} failed", nodeId, e);
+      return isLeader();
+    }
+  }
+
+  private boolean acquire(String name, LocalDateTime now, LocalDateTime expiresAt) {
+    Boolean held =
+        QuarkusTransaction.requiringNew()
+            .call(
+                () ->
+                    leaseRepository.renew(name, nodeId, now, expiresAt)
+                        || leaseRepository.takeOver(name, nodeId, now, expiresAt));
+    if (held) {
+      return true;
+    }
+    ensureExists(name);
+    return QuarkusTransaction.requiringNew()
+        .call(() -> leaseRepository.takeOver(name, nodeId, now, expiresAt));
+  }
+
+  /**
+   * Creates a lease row if there is none yet. Instances racing to create the same row are fine:
+   * the losers' inserts fail on the primary key and the row exists either way.
+   *
+   * @param name the lease name
+   */
+  public void ensureExists(String name) {
+    try {
+      QuarkusTransaction.requiringNew()
+          .run(
+              () -> {
+                if (leaseRepository.findById(name) == null) {
+                  leaseRepository.persistAndFlush(new SchedulerLease(name));
+                }
+              });
+    } catch (Exception e) {
+      LOGGER.debug("Lease {} was created concurrently", name, e);
+    }
+  }
+
+  /**
+   * Deletes the liveness leases of instances that have stopped. Called by the scheduler leader
+   * after it has requeued their work, as an instance counts as stopped with or without its row.
+   *
+   * @return the number of leases deleted
+   */
+  public long pruneExpiredNodes() {
+    LocalDateTime now = LocalDateTime.now();
+    long pruned =
+        QuarkusTransaction.requiringNew().call(() -> leaseRepository.deleteExpiredNodes(now));
+    if (pruned > 0) {
+      LOGGER.debug("Deleted {} expired node leases", pruned);
+    }
+    return pruned;
+  }
+
+  /**
+   * Checks if this instance is the scheduler leader. Always true with clustering disabled.
+   *
+   * @return true if this instance holds a valid leader lease
+   */
+  public boolean isLeader() {
+    if (!enabled) {
+      return true;
+    }
+    LocalDateTime until = leaderUntil;
+    return until != null && LocalDateTime.now().isBefore(until);
+  }
+
+  /**
+   * Checks if clustering is enabled.
+   *
+   * @return true if instances coordinate through leases
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Gets the ID of this instance, recorded as the owner of its leases and of the batch jobs it
+   * runs.
+   *
+   * @return the node ID
+   */
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  private static String newNodeId() {
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (Exception e) {
+      host = "node";
+    }
+    return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+  }
+}
@@ -0,0 +1,213 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.event.LoanEvent;
+import com.davonlibrary.event.ReservationEvent;
+import com.davonlibrary.repository.BookRepository;
+import com.davonlibrary.repository.BookRepository.BookStats;
+import com.davonlibrary.repository.LoanRepository;
+import com.davonlibrary.repository.LoanRepository.LoanStats;
+import com.davonlibrary.repository.ReservationRepository;
+import com.davonlibrary.repository.ReservationRepository.ReservationStats;
+import com.davonlibrary.repository.StaffRepository;
+import com.davonlibrary.repository.StaffRepository.StaffStats;
+import com.davonlibrary.search.CatalogSearchIndex;
+import com.davonlibrary.util.LongLongHashMap;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the admin dashboard statistics without touching the database on each refresh.
+ *
+ * <p>A snapshot is taken with one grouped query per table at startup and on a schedule. Between
+ * snapshots the counts move with the domain: book totals and availability, active and overdue
+ * loans and active reservations are read from the in-memory structures that already track them,
+ * and loans and reservations created since the snapshot are counted from their events. Counts
+ * without such a source (finished reservations by status, staff) are as of the snapshot.
+ */
+@ApplicationScoped
+public class DashboardStatsService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DashboardStatsService.class);
+
+  @Inject BookRepository bookRepository;
+
+  @Inject LoanRepository loanRepository;
+
+  @Inject ReservationRepository reservationRepository;
+
+  @Inject StaffRepository staffRepository;
+
+  @Inject CatalogSearchIndex catalogSearchIndex;
+
+  @Inject BookAvailabilityService bookAvailabilityService;
+
+  @Inject DueDateScheduler dueDateScheduler;
+
+  @Inject ReservationQueueService reservationQueueService;
+
+  private volatile Snapshot snapshot;
+  // Created since the snapshot was taken
+  private final AtomicLong loansBorrowed = new AtomicLong();
+  private final LongLongHashMap reservationsCreated = new LongLongHashMap();
+
+  void onStart(@Observes StartupEvent event) {
+    try {
+      refresh();
+    } catch (Exception e) {
+      LOGGER.warn("Dashboard snapshot could not be taken at startup", e);
+    }
+  }
+
+  @Scheduled(
+      every = "${library.dashboard.snapshot-interval:5m}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void scheduledRefresh() {
+    refresh();
+  }
+
+  /**
+   * Takes a new snapshot from the database.
+   *
+   * @return the statistics as of the new snapshot
+   */
+  @Transactional
+  public synchronized DashboardStats refresh() {
+    // Reset before reading, so a change is at worst counted twice until the next snapshot
+    loansBorrowed.set(0);
+    synchronized (reservationsCreated) {
+      reservationsCreated.clear();
+    }
+    ReservationStats reservations = reservationRepository.getReservationStats();
+    snapshot =
+        new Snapshot(
+            bookRepository.getBookStats(),
+            loanRepository.getLoanStats(),
+            reservations,
+            reservationRepository.findMaxId(),
+            staffRepository.getStaffStats(),
+            LocalDateTime.now());
+    return getStats();
+  }
+
+  /**
+   * Gets the dashboard statistics.
+   *
+   * @return the current statistics
+   */
+  public DashboardStats getStats() {
+    Snapshot current = snapshot;
+    if (current == null) {
+      return refresh();
+    }
+
+    long totalBooks =
+        catalogSearchIndex.isLoaded() ? catalogSearchIndex.countBooks() : current.books.totalBooks;
+    long availableBooks =
+        bookAvailabilityService.isLoaded()
+            ? bookAvailabilityService.countAvailableBooks()
+            : current.books.availableBooks;
+    BookStats books =
+        new BookStats(totalBooks, availableBooks, Math.max(0, totalBooks - availableBooks));
+
+    long totalLoans = current.loans.totalLoans + loansBorrowed.get();
+    long activeLoans = current.loans.activeLoans;
+    long overdueLoans = current.loans.overdueLoans;
+    if (dueDateScheduler.isLoaded()) {
+      activeLoans = dueDateScheduler.countActive();
+      overdueLoans = dueDateScheduler.countOverdue();
+    }
+    LoanStats loans =
+        new LoanStats(totalLoans, activeLoans, overdueLoans, totalLoans - activeLoans);
+
+    long reservationsCreatedSince;
+    synchronized (reservationsCreated) {
+      reservationsCreatedSince = reservationsCreated.size();
+    }
+    ReservationStats reservations =
+        new ReservationStats(
+            current.reservations.totalReservations + reservationsCreatedSince,
+            reservationQueueService.isLoaded()
+                ? reservationQueueService.countQueued()
+                : current.reservations.activeReservations,
+            current.reservations.fulfilledReservations,
+            current.reservations.expiredReservations,
+            current.reservations.cancelledReservations);
+
+    return new DashboardStats(books, loans, reservations, current.staff, current.takenAt);
+  }
+
+  void onLoanChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) LoanEvent event) {
+    if (event.kind == LoanEvent.Kind.BORROWED) {
+      loansBorrowed.incrementAndGet();
+    }
+  }
+
+  void onReservationChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) ReservationEvent event) {
+    Snapshot current = snapshot;
+    // Reservation IDs only grow, so one above the snapshot's highest was created since
+    if (event.kind == ReservationEvent.Kind.QUEUED
+        && current != null
+        && event.reservationId > current.maxReservationId) {
+      synchronized (reservationsCreated) {
+        reservationsCreated.put(event.reservationId, 1);
+      }
+    }
+  }
+
+  /** Counts read from the database at one point in time. */
+  private static class Snapshot {
+    final BookStats books;
+    final LoanStats loans;
+    final ReservationStats reservations;
+    final long maxReservationId;
+    final StaffStats staff;
+    final LocalDateTime takenAt;
+
+    Snapshot(
+        BookStats books,
+        LoanStats loans,
+        ReservationStats reservations,
+        long maxReservationId,
+        StaffStats staff,
+        LocalDateTime takenAt) {
+      this.books = books;
+      this.loans = loans;
+      this.reservations = reservations;
+      this.maxReservationId = maxReservationId;
+      this.staff = staff;
+      this.takenAt = takenAt;
+    }
+  }
+
+  /** Dashboard statistics DTO. */
+  public static class DashboardStats {
+    public final BookStats books;
+    public final LoanStats loans;
+    public final ReservationStats reservations;
+    public final StaffStats staff;
+    public final LocalDateTime snapshotTakenAt;
+
+    public DashboardStats(
+        BookStats books,
+        LoanStats loans,
+        ReservationStats reservations,
+        StaffStats staff,
+        LocalDateTime snapshotTakenAt) {
+      this.books = books;
+      this.loans = loans;
+      this.reservations = reservations;
+      this.staff = staff;
+      this.snapshotTakenAt = snapshotTakenAt;
+    }
+  }
+}
@@ -0,0 +1,389 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.entity.Loan;
+import com.davonlibrary.event.LoanDueEvent;
+import com.davonlibrary.event.LoanEvent;
+import com.davonlibrary.repository.ChunkedScroll;
+import com.davonlibrary.repository.LoanRepository;
+import com.davonlibrary.util.LongLongHashMap;
+import com.davonlibrary.util.TimingWheel;
+import io.quarkus.narayana.jta.runtime.TransactionConfiguration;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the due dates of all active loans in a timing wheel, so overdue and due-soon loans are
+ * known without scanning the loans table.
+ *
+ * <p>The wheel is seeded from the database at startup and kept current from {@link LoanEvent}s
+ * fired on borrow, return and extension. Each loan has two timers, one for the day it becomes due
+ * soon and one for the day after its due date. A periodic tick advances the wheel to today and
+ * fires a {@link LoanDueEvent} for each threshold crossed, so work per day is proportional to the
+ * loans that changed state rather than to all loans. A periodic resync reloads the wheel to pick up
+ * loans changed outside the application.
+ */
+@ApplicationScoped
+public class DueDateScheduler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DueDateScheduler.class);
+
+  private static final int FETCH_SIZE = 1000;
+
+  @Inject EntityManager entityManager;
+
+  @Inject LoanRepository loanRepository;
+
+  @Inject Event<LoanDueEvent> dueEvents;
+
+  @ConfigProperty(name = "library.due-dates.due-soon-days", defaultValue = "3")
+  int dueSoonDays;
+
+  private final ReentrantLock resyncLock = new ReentrantLock();
+  private final Object stateLock = new Object();
+  private State state;
+  // Loan changes committed while a resync is loading; null when no resync is running
+  private List<LoanEvent> pendingChanges;
+  private volatile boolean loaded;
+  private volatile long lastResyncMillis = -1;
+  private volatile LocalDateTime lastResyncAt;
+
+  @Transactional
+  @TransactionConfiguration(timeout = 600)
+  void onStart(@Observes StartupEvent event) {
+    try {
+      load();
+    } catch (Exception e) {
+      LOGGER.warn("Loan due dates could not be loaded; overdue queries will scan loans", e);
+    }
+  }
+
+  /**
+   * Reloads all active loans from the database.
+   *
+   * @return statistics after the reload
+   * @throws IllegalStateException if a resync is already running
+   */
+  @Transactional
+  @TransactionConfiguration(timeout = 600)
+  public DueDateStats resync() {
+    return load();
+  }
+
+  @Scheduled(
+      every = "${library.due-dates.tick-interval:1m}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void tick() {
+    advance(LocalDate.now());
+  }
+
+  @Scheduled(
+      every = "${library.due-dates.resync-interval:6h}",
+      delayed = "${library.due-dates.resync-interval:6h}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void scheduledResync() {
+    try {
+      resync();
+    } catch (Exception e) {
+      LOGGER.error("Loan due-date resync failed", e);
+    }
+  }
+
+  /**
+   * Advances the wheel to a day and notifies subscribers of the loans that became due soon or
+   * overdue on the way.
+   *
+   * @param today the current day
+   */
+  public void advance(LocalDate today) {
+    List<LoanDueEvent> events;
+    synchronized (stateLock) {
+      if (state == null) {
+        return;
+      }
+      events = state.advance(today);
+    }
+    for (LoanDueEvent event : events) {
+      LOGGER.info("{} loans became {} on {}", event.loanIds.length, event.kind, event.date);
+      dueEvents.fire(event);
+    }
+  }
+
+  /** Returns true once the wheel has been seeded from the database. */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Counts active loans.
+   *
+   * @return the number of loans not yet returned
+   */
+  public long countActive() {
+    if (!loaded) {
+      return loanRepository.count("returnDate IS NULL");
+    }
+    synchronized (stateLock) {
+      return state.dueDays.size();
+    }
+  }
+
+  /**
+   * Counts active loans past their due date.
+   *
+   * @return the number of overdue loans
+   */
+  public long countOverdue() {
+    if (!loaded) {
+      return loanRepository.count("returnDate IS NULL AND dueDate < ?1", LocalDate.now());
+    }
+    synchronized (stateLock) {
+      return state.overdue.size();
+    }
+  }
+
+  /**
+   * Gets the active loans past their due date as a source for chunked bulk jobs. Once the wheel is
+   * loaded the source reads the tracked overdue loans by ID instead of scanning the loans table.
+   *
+   * @return the overdue loans source, partitionable by loan ID
+   */
+  public ChunkedScroll.Source<Loan> overdueSource() {
+    ChunkedScroll.Source<Loan> source = loanRepository.overdueSource();
+    return loaded ? source.among(ids(true)) : source;
+  }
+
+  /**
+   * Gets the active loans due within the due-soon window, today included, as a source for chunked
+   * bulk jobs. Once the wheel is loaded the source reads the tracked loans by ID instead of
+   * scanning the loans table.
+   *
+   * @return the due-soon loans source, partitionable by loan ID
+   */
+  public ChunkedScroll.Source<Loan> dueSoonSource() {
+    ChunkedScroll.Source<Loan> source = loanRepository.dueSoonSource(dueSoonDays);
+    return loaded ? source.among(ids(false)) : source;
+  }
+
+  /**
+   * Gets statistics of the tracked loans.
+   *
+   * @return due-date statistics
+   */
+  public DueDateStats getStats() {
+    synchronized (stateLock) {
+      State current = state;
+      return new DueDateStats(
+          current != null ? current.dueDays.size() : 0,
+          current != null ? current.dueSoon.size() : 0,
+          current != null ? current.overdue.size() : 0,
+          current != null ? current.wheel.size() : 0,
+          current != null ? LocalDate.ofEpochDay(current.today) : null,
+          lastResyncMillis,
+          lastResyncAt);
+    }
+  }
+
+  void onLoanChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) LoanEvent event) {
+    synchronized (stateLock) {
+      if (state != null) {
+        state.apply(event);
+      }
+      if (pendingChanges != null) {
+        pendingChanges.add(event);
+      }
+    }
+  }
+
+  private long[] ids(boolean overdue) {
+    synchronized (stateLock) {
+      LongStream.Builder ids = LongStream.builder();
+      (overdue ? state.overdue : state.dueSoon).forEach((loanId, dueDay) -> ids.add(loanId));
+      long[] sorted = ids.build().toArray();
+      Arrays.sort(sorted);
+      return sorted;
+    }
+  }
+
+  private DueDateStats load() {
+    if (!resyncLock.tryLock()) {
+      throw new IllegalStateException("Loan due-date resync already in progress");
+    }
+    try {
+      long start = System.nanoTime();
+      synchronized (stateLock) {
+        pendingChanges = new ArrayList<>();
+      }
+      State fresh = new State(LocalDate.now(), dueSoonDays);
+      try (Stream<Object[]> rows =
+          entityManager
+              .createQuery(
+                  "SELECT l.id, l.dueDate FROM Loan l WHERE l.returnDate IS NULL", Object[].class)
+              .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+              .setHint(HibernateHints.HINT_READ_ONLY, true)
+              .getResultStream()) {
+        rows.forEach(row -> fresh.track((Long) row[0], (LocalDate) row[1]));
+      } catch (RuntimeException e) {
+        synchronized (stateLock) {
+          pendingChanges = null;
+        }
+        throw e;
+      }
+      synchronized (stateLock) {
+        for (LoanEvent change : pendingChanges) {
+          fresh.apply(change);
+        }
+        state = fresh;
+        pendingChanges = null;
+        loaded = true;
+      }
+      lastResyncMillis = (System.nanoTime() - start) / 1_000_000;
+      lastResyncAt = LocalDateTime.now();
+      DueDateStats stats = getStats();
+      LOGGER.info(
+          "Loan due dates loaded: {} active, {} due soon, {} overdue in {} ms",
+          stats.activeLoans,
+          stats.dueSoon,
+          stats.overdue,
+          stats.lastResyncMillis);
+      return stats;
+    } finally {
+      resyncLock.unlock();
+    }
+  }
+
+  /** Due-date state of the active loans; guarded by {@code stateLock}. */
+  private static class State {
+    private static final long DUE_SOON = 0;
+    private static final long OVERDUE = 1;
+
+    final int dueSoonDays;
+    final TimingWheel wheel;
+    // loanId -> due date as epoch day, for every tracked loan and for each state set
+    final LongLongHashMap dueDays = new LongLongHashMap(1024);
+    final LongLongHashMap dueSoon = new LongLongHashMap();
+    final LongLongHashMap overdue = new LongLongHashMap();
+    long today;
+
+    State(LocalDate today, int dueSoonDays) {
+      this.today = today.toEpochDay();
+      this.dueSoonDays = dueSoonDays;
+      this.wheel = new TimingWheel(this.today);
+    }
+
+    void apply(LoanEvent event) {
+      if (event.kind == LoanEvent.Kind.RETURNED || event.dueDate == null) {
+        untrack(event.loanId);
+      } else {
+        track(event.loanId, event.dueDate);
+      }
+    }
+
+    void track(long loanId, LocalDate dueDate) {
+      untrack(loanId);
+      long dueDay = dueDate.toEpochDay();
+      dueDays.put(loanId, dueDay);
+      if (dueDay < today) {
+        overdue.put(loanId, dueDay);
+        return;
+      }
+      if (!wheel.schedule(timer(loanId, DUE_SOON), dueDay - dueSoonDays)) {
+        dueSoon.put(loanId, dueDay);
+      }
+      wheel.schedule(timer(loanId, OVERDUE), dueDay + 1);
+    }
+
+    void untrack(long loanId) {
+      if (dueDays.remove(loanId)) {
+        dueSoon.remove(loanId);
+        overdue.remove(loanId);
+        wheel.cancel(timer(loanId, DUE_SOON));
+        wheel.cancel(timer(loanId, OVERDUE));
+      }
+    }
+
+    List<LoanDueEvent> advance(LocalDate date) {
+      long day = date.toEpochDay();
+      if (day <= today) {
+        return List.of();
+      }
+      LongStream.Builder becameDueSoon = LongStream.builder();
+      LongStream.Builder becameOverdue = LongStream.builder();
+      wheel.advanceTo(
+          day,
+          timer -> {
+            long loanId = timer >>> 1;
+            long dueDay = dueDays.get(loanId, day);
+            if ((timer & 1) == DUE_SOON) {
+              dueSoon.put(loanId, dueDay);
+              becameDueSoon.add(loanId);
+            } else {
+              dueSoon.remove(loanId);
+              overdue.put(loanId, dueDay);
+              becameOverdue.add(loanId);
+            }
+          });
+      today = day;
+      List<LoanDueEvent> events = new ArrayList<>(2);
+      long[] soon = becameDueSoon.build().toArray();
+      long[] late = becameOverdue.build().toArray();
+      if (soon.length > 0) {
+        events.add(new LoanDueEvent(LoanDueEvent.Kind.DUE_SOON, date, soon));
+      }
+      if (late.length > 0) {
+        events.add(new LoanDueEvent(LoanDueEvent.Kind.OVERDUE, date, late));
+      }
+      return events;
+    }
+
+    private static long timer(long loanId, long kind) {
+      return loanId << 1 | kind;
+    }
+  }
+
+  /** Loan due-date statistics DTO. */
+  public static class DueDateStats {
+    public final int activeLoans;
+    public final int dueSoon;
+    public final int overdue;
+    public final int scheduledTimers;
+    public final LocalDate currentDate;
+    public final long lastResyncMillis;
+    public final LocalDateTime lastResyncAt;
+
+    public DueDateStats(
+        int activeLoans,
+        int dueSoon,
+        int overdue,
+        int scheduledTimers,
+        LocalDate currentDate,
+        long lastResyncMillis,
+        LocalDateTime lastResyncAt) {
+      this.activeLoans = activeLoans;
+      this.dueSoon = dueSoon;
+      this.overdue = overdue;
+      this.scheduledTimers = scheduledTimers;
+      this.currentDate = currentDate;
+      this.lastResyncMillis = lastResyncMillis;
+      this.lastResyncAt = lastResyncAt;
+    }
+  }
+}
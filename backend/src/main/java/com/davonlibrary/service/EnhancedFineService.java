@@ -6,14 +6,22 @@ import com.davonlibrary.entity.User;
 import com.davonlibrary.repository.FineRepository;
 import com.davonlibrary.repository.LoanRepository;
 import com.davonlibrary.repository.UserRepository;
+import com.davonlibrary.util.LibraryCalendar;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /** Enhanced fine service with advanced calculation features. */
 @ApplicationScoped
@@ -31,6 +39,27 @@ public class EnhancedFineService {
   private static final BigDecimal HOLIDAY_MULTIPLIER = new BigDecimal("2.0");
   private static final BigDecimal GRACE_PERIOD_DAYS = new BigDecimal("3");
 
+  // Daily rates in cents for each kind of day; multipliers compound on a weekend holiday
+  private static final long WEEKDAY_CENTS = cents(BASE_DAILY_RATE);
+  private static final long WEEKEND_CENTS = cents(BASE_DAILY_RATE.multiply(WEEKEND_MULTIPLIER));
+  private static final long HOLIDAY_CENTS = cents(BASE_DAILY_RATE.multiply(HOLIDAY_MULTIPLIER));
+  private static final long WEEKEND_HOLIDAY_CENTS =
+      cents(BASE_DAILY_RATE.multiply(WEEKEND_MULTIPLIER).multiply(HOLIDAY_MULTIPLIER));
+
+  // Years covered by the holiday calendar
+  private static final int CALENDAR_FIRST_YEAR = 1970;
+  private static final int CALENDAR_LAST_YEAR = 2199;
+
+  @ConfigProperty(name = "library.fines.holidays", defaultValue = "01-01,12-25")
+  List<String> holidays;
+
+  private LibraryCalendar calendar;
+
+  @PostConstruct
+  void init() {
+    calendar = buildCalendar(holidays);
+  }
+
   /**
    * Calculates fine with weekend and holiday multipliers.
    *
@@ -41,39 +70,67 @@ public class EnhancedFineService {
     if (!loan.isOverdue()) {
       return BigDecimal.ZERO;
     }
+    return BigDecimal.valueOf(enhancedFineCents(calendar, loan.dueDate, LocalDate.now()), 2);
+  }
 
-    long daysOverdue = loan.getDaysOverdue();
-    BigDecimal totalFine = BigDecimal.ZERO;
-
-    // BUG: Incorrect weekend calculation
-    for (int day = 1; day <= daysOverdue; day++) {
-      BigDecimal dailyRate = BASE_DAILY_RATE;
-
-      // Check if it's a weekend (Saturday = 6, Sunday = 7)
-      if (day % 7 == 6 || day % 7 == 0) { // BUG: Incorrect weekend check
-        dailyRate = dailyRate.multiply(WEEKEND_MULTIPLIER);
-      }
-
-      // Check if it's a holiday (simplified check)
-      if (isHoliday(day)) {
-        dailyRate = dailyRate.multiply(HOLIDAY_MULTIPLIER);
-      }
-
-      totalFine = totalFine.add(dailyRate);
+  /**
+   * Calculates the enhanced fine for every day after a due date up to and including a given day.
+   * Runs in constant time however long the loan is overdue: rather than visiting each day, it
+   * counts the weekend days, holidays and weekend holidays in the range and charges each kind of
+   * day its rate.
+   *
+   * @param calendar the holiday calendar
+   * @param dueDate the loan's due date
+   * @param asOf the last day charged
+   * @return the fine in cents, or 0 if the loan is not overdue on that day
+   */
+  public static long enhancedFineCents(
+      LibraryCalendar calendar, LocalDate dueDate, LocalDate asOf) {
+    long days = ChronoUnit.DAYS.between(dueDate, asOf);
+    if (days <= 0) {
+      return 0;
     }
-
-    return totalFine.setScale(2, RoundingMode.HALF_UP);
+    LocalDate from = dueDate.plusDays(1);
+    long weekendDays = LibraryCalendar.countWeekendDays(from, asOf);
+    long holidayDays = calendar.countHolidays(from, asOf);
+    long weekendHolidays = calendar.countWeekendHolidays(from, asOf);
+    long weekdays = days - weekendDays - holidayDays + weekendHolidays;
+    return weekdays * WEEKDAY_CENTS
+        + (weekendDays - weekendHolidays) * WEEKEND_CENTS
+        + (holidayDays - weekendHolidays) * HOLIDAY_CENTS
+        + weekendHolidays * WEEKEND_HOLIDAY_CENTS;
   }
 
   /**
-   * Checks if a day is a holiday (simplified implementation).
+   * Builds the holiday calendar used for fines.
    *
-   * @param day the day number
-   * @return true if it's a holiday
+   * @param holidays annual holidays as {@code MM-dd} and one-off holidays as {@code yyyy-MM-dd}
+   * @return the calendar
+   * @throws IllegalArgumentException if an entry is not a valid date
    */
-  private boolean isHoliday(int day) {
-    // BUG: Incorrect holiday check
-    return day % 30 == 0; // BUG: Should check actual holiday dates
+  public static LibraryCalendar buildCalendar(List<String> holidays) {
+    List<MonthDay> annual = new ArrayList<>();
+    List<LocalDate> oneOff = new ArrayList<>();
+    for (String entry : holidays) {
+      String holiday = entry.trim();
+      if (holiday.isEmpty()) {
+        continue;
+      }
+      try {
+        if (holiday.length() == 5) {
+          annual.add(MonthDay.parse("--" + holiday));
+        } else {
+          oneOff.add(LocalDate.parse(holiday));
+        }
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException("Invalid holiday: " + holiday, e);
+      }
+    }
+    return new LibraryCalendar(annual, oneOff, CALENDAR_FIRST_YEAR, CALENDAR_LAST_YEAR);
+  }
+
+  private static long cents(BigDecimal amount) {
+    return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
   }
 
   /**
@@ -107,8 +164,10 @@ public class EnhancedFineService {
    * @return the calculated fine amount
    */
   public BigDecimal calculateFineWithLoyaltyDiscount(Loan loan, User user) {
-    BigDecimal baseFine = calculateEnhancedFine(loan);
+    return applyLoyaltyDiscount(calculateEnhancedFine(loan), user);
+  }
 
+  private BigDecimal applyLoyaltyDiscount(BigDecimal baseFine, User user) {
     // Calculate loyalty discount based on user history
     int loyaltyYears = calculateLoyaltyYears(user);
     BigDecimal discountPercentage = calculateLoyaltyDiscount(loyaltyYears);
@@ -181,8 +240,10 @@ public class EnhancedFineService {
    * @return the calculated fine amount
    */
   public BigDecimal calculateFineWithSeasonalAdjustments(Loan loan) {
-    BigDecimal baseFine = calculateEnhancedFine(loan);
+    return applySeasonalAdjustment(calculateEnhancedFine(loan));
+  }
 
+  private BigDecimal applySeasonalAdjustment(BigDecimal baseFine) {
     // BUG: Incorrect seasonal adjustment
     int month = LocalDateTime.now().getMonthValue();
 
@@ -199,6 +260,23 @@ public class EnhancedFineService {
     return baseFine;
   }
 
+  /**
+   * Calculates every fine variant of a loan from a single enhanced fine calculation.
+   *
+   * @param loan the loan to calculate fines for
+   * @param user the borrowing user
+   * @return all fine calculations
+   */
+  public FineCalculations calculateAll(Loan loan, User user) {
+    BigDecimal enhancedFine = calculateEnhancedFine(loan);
+    return new FineCalculations(
+        enhancedFine,
+        calculateFineWithGracePeriod(loan),
+        applyLoyaltyDiscount(enhancedFine, user),
+        applySeasonalAdjustment(enhancedFine),
+        calculateVolumeDiscount(user));
+  }
+
   /**
    * Calculates fine with payment plan.
    *
@@ -319,4 +397,26 @@ public class EnhancedFineService {
 
     return baseAmount;
   }
+
+  /** All fine calculations of one loan DTO. */
+  public static class FineCalculations {
+    public final BigDecimal enhancedFine;
+    public final BigDecimal gracePeriodFine;
+    public final BigDecimal loyaltyDiscountFine;
+    public final BigDecimal seasonalFine;
+    public final BigDecimal volumeDiscount;
+
+    public FineCalculations(
+        BigDecimal enhancedFine,
+        BigDecimal gracePeriodFine,
+        BigDecimal loyaltyDiscountFine,
+        BigDecimal seasonalFine,
+        BigDecimal volumeDiscount) {
+      this.enhancedFine = enhancedFine;
+      this.gracePeriodFine = gracePeriodFine;
+      this.loyaltyDiscountFine = loyaltyDiscountFine;
+      this.seasonalFine = seasonalFine;
+      this.volumeDiscount = volumeDiscount;
+    }
+  }
 }
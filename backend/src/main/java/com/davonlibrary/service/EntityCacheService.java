@@ -0,0 +1,157 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.entity.Book;
+import com.davonlibrary.event.BookCopyStatusChangedEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Reports on and maintains the second-level cache of the read-mostly entities ({@code Author},
+ * {@code Library} and {@code Book}).
+ *
+ * <p>Hibernate keeps cached entities current on persist, merge and remove through both the Panache
+ * repositories and the DAOs, and clears a whole region on a bulk HQL update or delete of its
+ * entity. Copy counts are the exception: they are applied to books with a native update that
+ * declares no entity's table, so that a borrow does not clear every cached book. Hibernate does
+ * not see that update, so a reader that loaded the row before the commit can put the old counts
+ * back after an eviction. The changed book is therefore evicted three times: in the transaction
+ * before the update, once the change has committed, and again one to two eviction intervals later
+ * for such late puts. This narrows the window for stale counts to a load that takes longer than
+ * the delay, not to zero; availability checks read {@link BookAvailabilityService}'s counters,
+ * never the cached entity.
+ */
+@ApplicationScoped
+public class EntityCacheService {
+
+  @Inject SessionFactory sessionFactory;
+
+  private final Object changesLock = new Object();
+  // Books changed in the current and in the previous eviction interval
+  private Set<Long> newerChanges = new HashSet<>();
+  private Set<Long> olderChanges = new HashSet<>();
+
+  /**
+   * Evicts a book from the second-level cache, for a change Hibernate does not track.
+   *
+   * @param bookId the book ID
+   */
+  public void evictBook(long bookId) {
+    sessionFactory.getCache().evictEntityData(Book.class, bookId);
+  }
+
+  void onCopyStatusChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) BookCopyStatusChangedEvent event) {
+    if (event.totalDelta() != 0 || event.availableDelta() != 0) {
+      evictBook(event.bookId);
+      synchronized (changesLock) {
+        newerChanges.add(event.bookId);
+      }
+    }
+  }
+
+  @Scheduled(
+      every = "${library.cache.book-eviction-delay:1s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void evictChangedBooks() {
+    Set<Long> due;
+    synchronized (changesLock) {
+      due = olderChanges;
+      olderChanges = newerChanges;
+      newerChanges = new HashSet<>();
+    }
+    for (Long bookId : due) {
+      evictBook(bookId);
+    }
+  }
+
+  /**
+   * Gets hit, miss and size statistics for every second-level cache region.
+   *
+   * @return the statistics of each region, by region name
+   */
+  public CacheStats getStats() {
+    Statistics statistics = sessionFactory.getStatistics();
+    String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+    Arrays.sort(regionNames);
+    List<RegionStats> regions = new ArrayList<>(regionNames.length);
+    for (String regionName : regionNames) {
+      CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+      if (region != null) {
+        regions.add(
+            new RegionStats(
+                regionName,
+                region.getHitCount(),
+                region.getMissCount(),
+                region.getPutCount(),
+                region.getElementCountInMemory()));
+      }
+    }
+    return new CacheStats(
+        statistics.isStatisticsEnabled(),
+        statistics.getSecondLevelCacheHitCount(),
+        statistics.getSecondLevelCacheMissCount(),
+        statistics.getQueryCacheHitCount(),
+        statistics.getQueryCacheMissCount(),
+        regions);
+  }
+
+  /** Evicts every entity and query result from the second-level cache. */
+  public void evictAll() {
+    sessionFactory.getCache().evictAllRegions();
+  }
+
+  /** Second-level cache statistics DTO. */
+  public static class CacheStats {
+    public final boolean statisticsEnabled;
+    public final long hits;
+    public final long misses;
+    public final long queryHits;
+    public final long queryMisses;
+    public final List<RegionStats> regions;
+
+    public CacheStats(
+        boolean statisticsEnabled,
+        long hits,
+        long misses,
+        long queryHits,
+        long queryMisses,
+        List<RegionStats> regions) {
+      this.statisticsEnabled = statisticsEnabled;
+      this.hits = hits;
+      this.misses = misses;
+      this.queryHits = queryHits;
+      this.queryMisses = queryMisses;
+      this.regions = regions;
+    }
+  }
+
+  /** Statistics of one cache region DTO. */
+  public static class RegionStats {
+    public final String region;
+    public final long hits;
+    public final long misses;
+    public final long puts;
+    public final long elements;
+    public final double hitRatio;
+
+    public RegionStats(String region, long hits, long misses, long puts, long elements) {
+      this.region = region;
+      this.hits = hits;
+      this.misses = misses;
+      this.puts = puts;
+      this.elements = elements;
+      this.hitRatio = hits + misses > 0 ? (double) hits / (hits + misses) : 0;
+    }
+  }
+}
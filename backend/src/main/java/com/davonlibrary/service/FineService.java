@@ -2,7 +2,9 @@ package com.davonlibrary.service;
 
 import com.davonlibrary.entity.Fine;
 import com.davonlibrary.entity.Loan;
+import com.davonlibrary.repository.ChunkedScroll;
 import com.davonlibrary.repository.FineRepository;
+import com.davonlibrary.repository.KeysetPage;
 import com.davonlibrary.repository.LoanRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -11,15 +13,23 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /** Service for managing fine operations and business logic. */
 @ApplicationScoped
 public class FineService {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(FineService.class);
+
   @Inject FineRepository fineRepository;
 
   @Inject LoanRepository loanRepository;
 
+  @Inject ChunkedScroll chunkedScroll;
+
+  @Inject DueDateScheduler dueDateScheduler;
+
   /**
    * Creates a fine for an overdue loan.
    *
@@ -133,23 +143,25 @@ public class FineService {
   }
 
   /**
-   * Recalculates all fines that need updating.
+   * Recalculates all fines that need updating, a chunk of fines per transaction.
    *
    * @return number of fines recalculated
    */
-  @Transactional
   public int recalculateAllFines() {
-    List<Fine> finesToRecalculate = fineRepository.findNeedingRecalculation();
-    int recalculatedCount = 0;
-
-    for (Fine fine : finesToRecalculate) {
-      BigDecimal newAmount = fine.recalculateAmount();
-      if (newAmount.compareTo(fine.amount) != 0) {
-        recalculatedCount++;
-      }
-    }
+    return (int) chunkedScroll.run(fineRecalculationJob()).counted;
+  }
 
-    return recalculatedCount;
+  /**
+   * Gets the job that recalculates the fines needing updating, counting the fines whose amount
+   * changes.
+   *
+   * @return the fine recalculation job
+   */
+  public ChunkedScroll.Job<Fine> fineRecalculationJob() {
+    return ChunkedScroll.Job.of(
+        "Fine recalculation",
+        fineRepository.needingRecalculationSource(),
+        fine -> fine.recalculateAmount().compareTo(fine.amount) != 0);
   }
 
   /**
@@ -162,6 +174,17 @@ public class FineService {
     return fineRepository.findActiveByUser(userId);
   }
 
+  /**
+   * Gets a page of active fines across all users.
+   *
+   * @param afterId the ID of the last fine of the previous page, or null for the first page
+   * @param limit the page size
+   * @return the page of active fines
+   */
+  public KeysetPage<Fine> getActiveFines(Long afterId, int limit) {
+    return fineRepository.findActivePage(afterId, limit);
+  }
+
   /**
    * Gets the total outstanding fine amount for a user.
    *
@@ -224,26 +247,33 @@ public class FineService {
   }
 
   /**
-   * Creates fines for all overdue loans.
+   * Creates fines for all overdue loans, a chunk of loans per transaction.
    *
    * @return number of fines created
    */
-  @Transactional
   public int createFinesForOverdueLoans() {
-    List<Loan> overdueLoans = loanRepository.findOverdue();
-    int finesCreated = 0;
-
-    for (Loan loan : overdueLoans) {
-      try {
-        createFineForLoan(loan);
-        finesCreated++;
-      } catch (Exception e) {
-        // Log error but continue processing other loans
-        System.err.println("Error creating fine for loan " + loan.id + ": " + e.getMessage());
-      }
-    }
+    return (int) chunkedScroll.run(overdueFinesJob()).counted;
+  }
 
-    return finesCreated;
+  /**
+   * Gets the job that creates fines for overdue loans, counting the loans fined.
+   *
+   * @return the overdue fines job
+   */
+  public ChunkedScroll.Job<Loan> overdueFinesJob() {
+    return ChunkedScroll.Job.of(
+        "Overdue fines",
+        dueDateScheduler.overdueSource(),
+        loan -> {
+          try {
+            createFineForLoan(loan);
+            return true;
+          } catch (Exception e) {
+            // Log error but continue processing other loans
+            LOGGER.error("Error creating fine for loan {}", loan.id, e);
+            return false;
+          }
+        });
   }
 
   /**
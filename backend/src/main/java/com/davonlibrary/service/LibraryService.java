@@ -5,34 +5,106 @@ import com.davonlibrary.entity.BookCopy;
 import com.davonlibrary.entity.Loan;
 import com.davonlibrary.entity.Reservation;
 import com.davonlibrary.entity.User;
+import com.davonlibrary.event.ActivityEvent;
+import com.davonlibrary.event.LoanEvent;
+import com.davonlibrary.repository.BookCopyRepository;
 import com.davonlibrary.repository.BookRepository;
 import com.davonlibrary.repository.UserRepository;
+import com.davonlibrary.util.SessionStatements;
+import com.davonlibrary.util.StripedLock;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.transaction.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 @ApplicationScoped
 public class LibraryService {
 
+  /** Days a new loan runs before it is due. */
+  public static final int LOAN_PERIOD_DAYS = 14;
+
+  /** Extensions allowed on a new loan. */
+  public static final int MAX_LOAN_EXTENSIONS = 3;
+
   @PersistenceContext EntityManager entityManager;
 
   @Inject private BookRepository bookRepository;
   @Inject private LoanService loanService;
   @Inject private ReservationService reservationService;
+  @Inject private ReservationQueueService reservationQueueService;
   @Inject private UserRepository userRepository;
+  @Inject private BookAvailabilityService bookAvailabilityService;
+  @Inject private BookCopyRepository bookCopyRepository;
+  @Inject private Event<LoanEvent> loanEvents;
+  @Inject private Event<ActivityEvent> activityEvents;
+
+  @ConfigProperty(name = "library.borrow.lock-stripes", defaultValue = "64")
+  int borrowLockStripes;
+
+  @ConfigProperty(name = "library.borrow.lock-timeout-ms", defaultValue = "5000")
+  long borrowLockTimeoutMs;
+
+  // Serializes borrowers of the same title within this instance, so they queue here rather than
+  // on the database rows of the book and its copies
+  private StripedLock borrowLocks;
+
+  @PostConstruct
+  void init() {
+    borrowLocks = new StripedLock(borrowLockStripes);
+  }
 
-  @Transactional
+  /**
+   * Borrows an available copy of a book for a user. The copy is claimed atomically in the
+   * database, so concurrent borrowers on any instance never receive the same copy. The borrow runs
+   * and commits in its own transaction, even when the caller has one.
+   *
+   * @param userId the user ID
+   * @param bookId the book ID
+   * @return the created loan
+   * @throws IllegalArgumentException if the book or user does not exist
+   * @throws IllegalStateException if no copy is available or the book is too busy to wait for
+   */
   public Loan borrowBook(Long userId, Long bookId) {
+    if (bookId == null) {
+      throw new IllegalArgumentException("Book not found with ID: " + bookId);
+    }
+    // Turn away a rush on a title that has run out without queueing on its lock
+    if (bookAvailabilityService.isKnownUnavailable(bookId)) {
+      throw new IllegalStateException("No available copies of the book");
+    }
+
+    Lock lock = borrowLocks.get(bookId);
+    try {
+      if (!lock.tryLock(borrowLockTimeoutMs, TimeUnit.MILLISECONDS)) {
+        throw new IllegalStateException("The book is in high demand; please try again");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting to borrow the book", e);
+    }
+    try {
+      // Commit before releasing the lock so the next borrower sees this claim; joining a caller's
+      // transaction would commit only after the lock is released
+      return QuarkusTransaction.requiringNew().call(() -> allocateCopy(userId, bookId));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Loan allocateCopy(Long userId, Long bookId) {
     // Set QUOTED_IDENTIFIER to ON for this connection
-    entityManager.createNativeQuery("SET QUOTED_IDENTIFIER ON").executeUpdate();
+    SessionStatements.execute(entityManager, "SET QUOTED_IDENTIFIER ON");
 
     try {
-      // Use the new method to fetch the book and its copies together
-      Book book = bookRepository.findByIdWithCopies(bookId);
+      Book book = bookRepository.findById(bookId);
       if (book == null) {
         throw new IllegalArgumentException("Book not found with ID: " + bookId);
       }
@@ -42,11 +114,10 @@ public class LibraryService {
         throw new IllegalArgumentException("User not found with ID: " + userId);
       }
 
-      // Find the first available copy
+      // Claim a copy; it is already CHECKED_OUT and no other borrower can take it
       BookCopy availableCopy =
-          book.bookCopies.stream()
-              .filter(copy -> BookCopy.BookCopyStatus.AVAILABLE.equals(copy.status))
-              .findFirst()
+          bookCopyRepository
+              .claimAvailableCopy(bookId)
               .orElseThrow(() -> new IllegalStateException("No available copies of the book"));
 
       // Create a new loan
@@ -54,26 +125,19 @@ public class LibraryService {
       loan.user = user;
       loan.bookCopy = availableCopy;
       loan.loanDate = LocalDateTime.now();
-      loan.dueDate = LocalDate.now().plusDays(14); // 2 weeks loan period
+      loan.dueDate = LocalDate.now().plusDays(LOAN_PERIOD_DAYS);
       loan.status = Loan.LoanStatus.ACTIVE;
-      loan.maxExtensionsAllowed = 3;
+      loan.maxExtensionsAllowed = MAX_LOAN_EXTENSIONS;
       loan.extensionsCount = 0;
 
       // Save the loan
       loanService.createLoan(loan);
 
-      // Update book copy status
-      availableCopy.status = BookCopy.BookCopyStatus.CHECKED_OUT;
-      availableCopy.persist();
-
-      // Keep Book.availableCopies and status in sync with actual copy status
-      if (book.availableCopies == null) {
-        book.availableCopies = 0;
-      } else if (book.availableCopies > 0) {
-        book.availableCopies--;
-      }
-      // Recompute aggregates (including status) to be safe
-      bookRepository.updateAggregates(book.id);
+      // Apply the -1 available delta to the book
+      bookAvailabilityService.recordStatusChange(
+          availableCopy, BookCopy.BookCopyStatus.AVAILABLE);
+      loanEvents.fire(LoanEvent.of(LoanEvent.Kind.BORROWED, loan));
+      activityEvents.fire(ActivityEvent.loan(user, book.title, loan.loanDate));
 
       return loan;
     } catch (Exception e) {
@@ -83,14 +147,32 @@ public class LibraryService {
     }
   }
 
-  @Transactional
+  /**
+   * Reserves a book for a user at the back of its reservation queue. Reservations of the same
+   * title are serialized and each commits in its own transaction before the next starts, so queue
+   * positions are assigned in commit order.
+   *
+   * @param userId the user ID
+   * @param bookId the book ID
+   * @return the created reservation
+   * @throws IllegalArgumentException if the book or user does not exist
+   * @throws IllegalStateException if the book is available or already reserved by the user
+   */
   public Reservation reserveBook(Long userId, Long bookId) {
+    if (bookId == null) {
+      throw new IllegalArgumentException("Book not found with ID: " + bookId);
+    }
+    return reservationQueueService.callWithBookLock(
+        bookId,
+        () -> QuarkusTransaction.requiringNew().call(() -> placeReservation(userId, bookId)));
+  }
+
+  private Reservation placeReservation(Long userId, Long bookId) {
     // Set QUOTED_IDENTIFIER to ON for this connection
-    entityManager.createNativeQuery("SET QUOTED_IDENTIFIER ON").executeUpdate();
+    SessionStatements.execute(entityManager, "SET QUOTED_IDENTIFIER ON");
 
     try {
-      // Use the new method to fetch the book and its copies together
-      Book book = bookRepository.findByIdWithCopies(bookId);
+      Book book = bookRepository.findById(bookId);
       if (book == null) {
         throw new IllegalArgumentException("Book not found with ID: " + bookId);
       }
@@ -101,7 +183,7 @@ public class LibraryService {
       }
 
       // Do not allow reservations when the book is currently available
-      if (book.availableCopies != null && book.availableCopies > 0) {
+      if (bookAvailabilityService.getAvailableCopies(book.id) > 0) {
         throw new IllegalStateException("Book has available copies; borrowing is possible.");
       }
 
@@ -110,17 +192,15 @@ public class LibraryService {
         throw new IllegalStateException("You already have an active reservation for this book.");
       }
 
-      long queuePosition = reservationService.countActiveReservationsByBook(book.id) + 1;
-
       Reservation reservation = new Reservation();
       reservation.user = user;
       reservation.book = book;
       reservation.reservationDate = LocalDateTime.now();
       reservation.status = Reservation.ReservationStatus.ACTIVE;
       reservation.expiryDate = LocalDate.now().plusDays(7); // 7 days to pick up
-      reservation.queuePosition = (int) queuePosition;
 
-      reservationService.createReservation(reservation);
+      // Already under the title's lock and in this reservation's transaction
+      reservationService.insertReservation(reservation);
 
       return reservation;
     } catch (Exception e) {
@@ -0,0 +1,481 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.entity.LibraryMembership.MembershipStatus;
+import com.davonlibrary.event.BookCopyStatusChangedEvent;
+import com.davonlibrary.event.LibraryChangedEvent;
+import com.davonlibrary.event.LoanEvent;
+import com.davonlibrary.event.MembershipEvent;
+import com.davonlibrary.util.LongLongHashMap;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the member, active-borrower and book copy counts of every library in memory, so branches
+ * can be ranked in O(#libraries) without loading memberships and loans.
+ *
+ * <p>A member is an active membership of the library, and an active borrower is such a membership
+ * whose user has at least one loan not yet returned. The counts are loaded at startup and kept
+ * current from membership, loan, copy and library events. Each event is applied by ID (the
+ * membership, loan or copy it concerns), so applying it twice has no further effect; this lets a
+ * rebuild replay the changes committed while it was loading. Memberships and copies of a library
+ * that is not known, such as one just deleted, are ignored. A periodic rebuild picks up changes
+ * made outside the application.
+ */
+@ApplicationScoped
+public class LibraryStatsService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LibraryStatsService.class);
+
+  private static final int FETCH_SIZE = 1000;
+
+  /** Count libraries can be ranked by. */
+  public enum Ranking {
+    MEMBERS,
+    ACTIVE_BORROWERS,
+    BOOK_COPIES
+  }
+
+  @Inject EntityManager entityManager;
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  private final Object stateLock = new Object();
+  private State state;
+  // Changes committed while a rebuild is loading; null when no rebuild is running
+  private List<Object> pendingChanges;
+
+  void onStart(@Observes StartupEvent event) {
+    try {
+      rebuild();
+    } catch (Exception e) {
+      LOGGER.warn("Library counts could not be loaded; rankings will be empty", e);
+    }
+  }
+
+  @Scheduled(
+      every = "${library.libraries.stats-rebuild-interval:6h}",
+      delayed = "${library.libraries.stats-rebuild-interval:6h}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void scheduledRebuild() {
+    try {
+      rebuild();
+    } catch (Exception e) {
+      LOGGER.error("Library counts rebuild failed", e);
+    }
+  }
+
+  /**
+   * Reloads the counts of every library from the database.
+   *
+   * @return the number of libraries loaded
+   * @throws IllegalStateException if a rebuild is already running
+   */
+  public int rebuild() {
+    if (!rebuildLock.tryLock()) {
+      throw new IllegalStateException("Library counts rebuild already in progress");
+    }
+    try {
+      long start = System.nanoTime();
+      synchronized (stateLock) {
+        pendingChanges = new ArrayList<>();
+      }
+      State fresh;
+      try {
+        fresh = QuarkusTransaction.requiringNew().timeout(600).call(this::load);
+      } catch (RuntimeException e) {
+        synchronized (stateLock) {
+          pendingChanges = null;
+        }
+        throw e;
+      }
+      int libraries;
+      synchronized (stateLock) {
+        for (Object change : pendingChanges) {
+          fresh.apply(change);
+        }
+        state = fresh;
+        pendingChanges = null;
+        libraries = fresh.branches.size();
+      }
+      LOGGER.info(
+          "Library counts loaded: {} libraries in {} ms",
+          libraries,
+          (System.nanoTime() - start) / 1_000_000);
+      return libraries;
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * Ranks libraries by one of their counts, highest first. Ties are broken by library ID.
+   *
+   * @param ranking the count to rank by
+   * @param limit the maximum number of libraries
+   * @return the counts of the top libraries
+   */
+  public List<BranchStats> rank(Ranking ranking, int limit) {
+    BranchStats[] all;
+    synchronized (stateLock) {
+      if (state == null) {
+        return List.of();
+      }
+      all = new BranchStats[state.branches.size()];
+      int i = 0;
+      for (Branch branch : state.branches.values()) {
+        all[i++] = branch.toStats();
+      }
+    }
+    Comparator<BranchStats> order;
+    switch (ranking) {
+      case MEMBERS:
+        order = Comparator.comparingLong((BranchStats stats) -> stats.members);
+        break;
+      case BOOK_COPIES:
+        order = Comparator.comparingLong((BranchStats stats) -> stats.bookCopies);
+        break;
+      default:
+        order = Comparator.comparingLong((BranchStats stats) -> stats.activeBorrowers);
+    }
+    Arrays.sort(all, order.reversed().thenComparingLong((BranchStats stats) -> stats.libraryId));
+    return Arrays.asList(all).subList(0, Math.max(0, Math.min(limit, all.length)));
+  }
+
+  /**
+   * Ranks every library by one of its counts, highest first, and returns their IDs.
+   *
+   * @param ranking the count to rank by
+   * @return the library IDs in rank order
+   */
+  public long[] rankedIds(Ranking ranking) {
+    return rank(ranking, Integer.MAX_VALUE).stream().mapToLong(stats -> stats.libraryId).toArray();
+  }
+
+  /**
+   * Gets the counts of one library.
+   *
+   * @param libraryId the library ID
+   * @return the counts, or null if the library is not known
+   */
+  public BranchStats getBranchStats(long libraryId) {
+    synchronized (stateLock) {
+      Branch branch = state != null ? state.branches.get(libraryId) : null;
+      return branch != null ? branch.toStats() : null;
+    }
+  }
+
+  void onMembershipChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) MembershipEvent event) {
+    record(event);
+  }
+
+  void onLoanChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) LoanEvent event) {
+    if (event.kind != LoanEvent.Kind.EXTENDED) {
+      record(event);
+    }
+  }
+
+  void onCopyStatusChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) BookCopyStatusChangedEvent event) {
+    if (event.copyId != null && event.totalDelta() != 0) {
+      record(event);
+    }
+  }
+
+  void onLibraryChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) LibraryChangedEvent event) {
+    record(event);
+  }
+
+  private void record(Object change) {
+    synchronized (stateLock) {
+      if (state != null) {
+        state.apply(change);
+      }
+      if (pendingChanges != null) {
+        pendingChanges.add(change);
+      }
+    }
+  }
+
+  private State load() {
+    State fresh = new State();
+    for (Object[] row :
+        entityManager
+            .createQuery("SELECT l.id, l.name, l.city FROM Library l", Object[].class)
+            .getResultList()) {
+      fresh.library((Long) row[0], (String) row[1], (String) row[2]);
+    }
+    try (Stream<Object[]> rows =
+        stream("SELECT l.id, l.user.id FROM Loan l WHERE l.returnDate IS NULL")) {
+      rows.forEach(row -> fresh.borrow((Long) row[0], (Long) row[1]));
+    }
+    try (Stream<Object[]> rows =
+        stream(
+                "SELECT m.id, m.user.id, m.library.id FROM LibraryMembership m"
+                    + " WHERE m.status = :active")) {
+      rows.forEach(row -> fresh.join((Long) row[0], (Long) row[1], (Long) row[2]));
+    }
+    try (Stream<Object[]> rows =
+        stream("SELECT c.id, c.library.id FROM BookCopy c")) {
+      rows.forEach(row -> fresh.addCopy((Long) row[0], (Long) row[1]));
+    }
+    return fresh;
+  }
+
+  private Stream<Object[]> stream(String hql) {
+    TypedQuery<Object[]> query =
+        entityManager
+            .createQuery(hql, Object[].class)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true);
+    if (hql.contains(":active")) {
+      query.setParameter("active", MembershipStatus.ACTIVE);
+    }
+    return query.getResultStream();
+  }
+
+  /** Counts of one library; guarded by {@code stateLock}. */
+  private static class Branch {
+    final long libraryId;
+    String name;
+    String city;
+    long members;
+    long activeBorrowers;
+    long bookCopies;
+
+    Branch(long libraryId) {
+      this.libraryId = libraryId;
+    }
+
+    BranchStats toStats() {
+      return new BranchStats(libraryId, name, city, members, activeBorrowers, bookCopies);
+    }
+  }
+
+  /** Library counts and what they are derived from; guarded by {@code stateLock}. */
+  private static class State {
+    final Map<Long, Branch> branches = new HashMap<>();
+    // loanId -> userId, for every loan not yet returned
+    final LongLongHashMap loanUsers = new LongLongHashMap(1024);
+    // userId -> number of loans not yet returned
+    final LongLongHashMap userLoans = new LongLongHashMap(1024);
+    // membershipId -> libraryId / userId, for every active membership
+    final LongLongHashMap membershipLibraries = new LongLongHashMap(1024);
+    final LongLongHashMap membershipUsers = new LongLongHashMap(1024);
+    // userId -> IDs of the user's active memberships
+    final Map<Long, long[]> userMemberships = new HashMap<>();
+    // copyId -> libraryId
+    final LongLongHashMap copyLibraries = new LongLongHashMap(1024);
+
+    void apply(Object change) {
+      if (change instanceof MembershipEvent) {
+        MembershipEvent event = (MembershipEvent) change;
+        leave(event.membershipId);
+        if (event.active) {
+          join(event.membershipId, event.userId, event.libraryId);
+        }
+      } else if (change instanceof LoanEvent) {
+        LoanEvent event = (LoanEvent) change;
+        if (event.kind == LoanEvent.Kind.RETURNED) {
+          giveBack(event.loanId);
+        } else if (event.userId != null) {
+          borrow(event.loanId, event.userId);
+        }
+      } else if (change instanceof BookCopyStatusChangedEvent) {
+        BookCopyStatusChangedEvent event = (BookCopyStatusChangedEvent) change;
+        removeCopy(event.copyId);
+        if (event.to != null && event.libraryId != null) {
+          addCopy(event.copyId, event.libraryId);
+        }
+      } else if (change instanceof LibraryChangedEvent) {
+        LibraryChangedEvent event = (LibraryChangedEvent) change;
+        if (event.deleted) {
+          removeLibrary(event.libraryId);
+        } else {
+          library(event.libraryId, event.name, event.city);
+        }
+      }
+    }
+
+    void library(long libraryId, String name, String city) {
+      Branch branch = branches.computeIfAbsent(libraryId, Branch::new);
+      branch.name = name;
+      branch.city = city;
+    }
+
+    /**
+     * Forgets a library with its memberships and copies. Deleting a library cascades to them
+     * without firing their own events.
+     */
+    void removeLibrary(long libraryId) {
+      List<Long> memberships = new ArrayList<>();
+      membershipLibraries.forEach(
+          (membershipId, library) -> {
+            if (library == libraryId) {
+              memberships.add(membershipId);
+            }
+          });
+      memberships.forEach(this::leave);
+      List<Long> copies = new ArrayList<>();
+      copyLibraries.forEach(
+          (copyId, library) -> {
+            if (library == libraryId) {
+              copies.add(copyId);
+            }
+          });
+      copies.forEach(copyLibraries::remove);
+      branches.remove(libraryId);
+    }
+
+    void borrow(long loanId, long userId) {
+      if (loanUsers.containsKey(loanId)) {
+        return;
+      }
+      loanUsers.put(loanId, userId);
+      if (userLoans.addTo(userId, 1) == 1) {
+        borrowerChanged(userId, 1);
+      }
+    }
+
+    void giveBack(long loanId) {
+      if (!loanUsers.containsKey(loanId)) {
+        return;
+      }
+      long userId = loanUsers.get(loanId, 0);
+      loanUsers.remove(loanId);
+      if (userLoans.addTo(userId, -1) <= 0) {
+        userLoans.remove(userId);
+        borrowerChanged(userId, -1);
+      }
+    }
+
+    void join(long membershipId, long userId, long libraryId) {
+      Branch branch = branches.get(libraryId);
+      if (branch == null || membershipLibraries.containsKey(membershipId)) {
+        return;
+      }
+      membershipLibraries.put(membershipId, libraryId);
+      membershipUsers.put(membershipId, userId);
+      long[] memberships = userMemberships.get(userId);
+      if (memberships == null) {
+        memberships = new long[] {membershipId};
+      } else {
+        memberships = Arrays.copyOf(memberships, memberships.length + 1);
+        memberships[memberships.length - 1] = membershipId;
+      }
+      userMemberships.put(userId, memberships);
+      branch.members++;
+      if (userLoans.containsKey(userId)) {
+        branch.activeBorrowers++;
+      }
+    }
+
+    void leave(long membershipId) {
+      if (!membershipLibraries.containsKey(membershipId)) {
+        return;
+      }
+      long libraryId = membershipLibraries.get(membershipId, 0);
+      long userId = membershipUsers.get(membershipId, 0);
+      membershipLibraries.remove(membershipId);
+      membershipUsers.remove(membershipId);
+      long[] memberships = userMemberships.get(userId);
+      if (memberships.length == 1) {
+        userMemberships.remove(userId);
+      } else {
+        long[] rest = new long[memberships.length - 1];
+        int i = 0;
+        for (long id : memberships) {
+          if (id != membershipId) {
+            rest[i++] = id;
+          }
+        }
+        userMemberships.put(userId, rest);
+      }
+      Branch branch = branches.get(libraryId);
+      if (branch == null) {
+        return;
+      }
+      branch.members--;
+      if (userLoans.containsKey(userId)) {
+        branch.activeBorrowers--;
+      }
+    }
+
+    void addCopy(long copyId, long libraryId) {
+      Branch branch = branches.get(libraryId);
+      if (branch == null || copyLibraries.containsKey(copyId)) {
+        return;
+      }
+      copyLibraries.put(copyId, libraryId);
+      branch.bookCopies++;
+    }
+
+    void removeCopy(long copyId) {
+      if (!copyLibraries.containsKey(copyId)) {
+        return;
+      }
+      Branch branch = branches.get(copyLibraries.get(copyId, 0));
+      copyLibraries.remove(copyId);
+      if (branch != null) {
+        branch.bookCopies--;
+      }
+    }
+
+    /** Counts a user in or out as a borrower of every library the user is a member of. */
+    private void borrowerChanged(long userId, int delta) {
+      long[] memberships = userMemberships.get(userId);
+      if (memberships == null) {
+        return;
+      }
+      for (long membershipId : memberships) {
+        Branch branch = branches.get(membershipLibraries.get(membershipId, 0));
+        if (branch != null) {
+          branch.activeBorrowers += delta;
+        }
+      }
+    }
+  }
+
+  /** Counts of one library DTO. */
+  public static class BranchStats {
+    public final long libraryId;
+    public final String name;
+    public final String city;
+    public final long members;
+    public final long activeBorrowers;
+    public final long bookCopies;
+
+    public BranchStats(
+        long libraryId,
+        String name,
+        String city,
+        long members,
+        long activeBorrowers,
+        long bookCopies) {
+      this.libraryId = libraryId;
+      this.name = name;
+      this.city = city;
+      this.members = members;
+      this.activeBorrowers = activeBorrowers;
+      this.bookCopies = bookCopies;
+    }
+  }
+}
@@ -3,26 +3,28 @@ package com.davonlibrary.service;
 import com.davonlibrary.entity.BookCopy;
 import com.davonlibrary.entity.Fine;
 import com.davonlibrary.entity.Loan;
+import com.davonlibrary.event.LoanEvent;
 import com.davonlibrary.repository.BookCopyRepository;
 import com.davonlibrary.repository.FineRepository;
+import com.davonlibrary.repository.KeysetPage;
 import com.davonlibrary.repository.LoanRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
-import com.davonlibrary.entity.Book;
-import com.davonlibrary.repository.BookRepository;
 
 @ApplicationScoped
 public class LoanService {
   @Inject LoanRepository loanRepository;
   @Inject BookCopyRepository bookCopyRepository;
   @Inject FineRepository fineRepository;
-  @Inject BookRepository bookRepository;
+  @Inject BookAvailabilityService bookAvailabilityService;
+  @Inject DueDateScheduler dueDateScheduler;
+  @Inject Event<LoanEvent> loanEvents;
 
   public List<Loan> getRecentLoans(int limit) {
     return loanRepository.findRecent(limit);
@@ -32,12 +34,16 @@ public class LoanService {
     return loanRepository.findByUser(userId);
   }
 
+  public KeysetPage<Loan> getLoansByUserId(Long userId, Long beforeId, int limit) {
+    return loanRepository.findPageByUser(userId, beforeId, limit);
+  }
+
   public long countLoanedOut() {
-    return loanRepository.count("returnDate is null");
+    return dueDateScheduler.countActive();
   }
 
   public long countOverdue() {
-    return loanRepository.count("returnDate is null and dueDate < ?1", LocalDate.now());
+    return dueDateScheduler.countOverdue();
   }
 
   @Transactional
@@ -61,31 +67,37 @@ public class LoanService {
 
     BookCopy bookCopy = loan.bookCopy;
     if (bookCopy != null) {
-      bookCopy.status = BookCopy.BookCopyStatus.AVAILABLE; // managed entity; no explicit persist needed
-
-      Book book = bookCopy.book;
-      if (book != null) {
-        if (book.availableCopies == null) {
-          book.availableCopies = 1;
-        } else {
-          book.availableCopies++;
-        }
-        // Recompute aggregates (including status)
-        bookRepository.updateAggregates(book.id);
-      }
+      // managed entity; applies a +1 available delta to the book
+      bookAvailabilityService.changeStatus(bookCopy, BookCopy.BookCopyStatus.AVAILABLE);
     }
 
-    if (loan.dueDate != null && loan.returnDate.isAfter(loan.dueDate.atStartOfDay())) {
-      long daysOverdue = ChronoUnit.DAYS.between(loan.dueDate, loan.returnDate.toLocalDate());
-      BigDecimal fineAmount = new BigDecimal("0.50").multiply(new BigDecimal(daysOverdue));
-      Fine fine = new Fine(loan, fineAmount, "Overdue return");
+    Fine fine = overdueFine(loan);
+    if (fine != null) {
       fineRepository.persist(fine);
     }
+    loanEvents.fire(LoanEvent.of(LoanEvent.Kind.RETURNED, loan));
 
     // loan is managed; changes will be flushed by transaction
     return loan;
   }
 
+  /**
+   * Builds the fine owed for a loan returned after its due date.
+   *
+   * @param loan a returned loan
+   * @return the unsaved fine, or null if the loan was returned on time
+   */
+  public Fine overdueFine(Loan loan) {
+    if (loan.dueDate == null
+        || loan.returnDate == null
+        || !loan.returnDate.isAfter(loan.dueDate.atStartOfDay())) {
+      return null;
+    }
+    long daysOverdue = ChronoUnit.DAYS.between(loan.dueDate, loan.returnDate.toLocalDate());
+    BigDecimal fineAmount = new BigDecimal("0.50").multiply(new BigDecimal(daysOverdue));
+    return new Fine(loan, fineAmount, "Overdue return");
+  }
+
   @Transactional
   public Loan extendLoan(Long loanId) {
     Loan loan = loanRepository.findById(loanId);
@@ -95,6 +107,7 @@ public class LoanService {
       loan.dueDate = loan.dueDate.plusWeeks(2);
       loan.extensionsCount++;
       loanRepository.persist(loan);
+      loanEvents.fire(LoanEvent.of(LoanEvent.Kind.EXTENDED, loan));
     }
     return loan;
   }
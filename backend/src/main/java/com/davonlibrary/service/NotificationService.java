@@ -5,23 +5,45 @@ import com.davonlibrary.entity.Loan;
 import com.davonlibrary.entity.Notification;
 import com.davonlibrary.entity.Reservation;
 import com.davonlibrary.entity.User;
+import com.davonlibrary.event.LoanDueEvent;
+import com.davonlibrary.repository.ChunkedScroll;
 import com.davonlibrary.repository.FineRepository;
+import com.davonlibrary.repository.KeysetPage;
 import com.davonlibrary.repository.LoanRepository;
 import com.davonlibrary.repository.NotificationRepository;
+import com.davonlibrary.repository.NotificationRepository.Audience;
 import com.davonlibrary.repository.ReservationRepository;
 import com.davonlibrary.repository.UserRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /** Service for managing user notifications. */
 @ApplicationScoped
 public class NotificationService {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(NotificationService.class);
+
+  private static final int REMINDER_CHUNK_SIZE = 1000;
+
+  private static final int MAX_KEPT_BROADCASTS = 50;
+
   @Inject NotificationRepository notificationRepository;
 
   @Inject UserRepository userRepository;
@@ -32,6 +54,107 @@ public class NotificationService {
 
   @Inject ReservationRepository reservationRepository;
 
+  @Inject ChunkedScroll chunkedScroll;
+
+  @Inject DueDateScheduler dueDateScheduler;
+
+  @Inject ClusterLeaseService clusterLeases;
+
+  @ConfigProperty(name = "library.notifications.due-date-reminders", defaultValue = "true")
+  boolean dueDateReminders;
+
+  @ConfigProperty(name = "library.notifications.broadcast-chunk-size", defaultValue = "1000")
+  int broadcastChunkSize;
+
+  // Broadcasts run one at a time so their chunks never compete for the notifications table
+  private final ExecutorService broadcastExecutor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "notification-broadcast");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  // Most recent broadcasts by ID, oldest first
+  private final Map<Long, Broadcast> broadcasts =
+      new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Broadcast> eldest) {
+          return size() > MAX_KEPT_BROADCASTS;
+        }
+      };
+
+  private final AtomicLong nextBroadcastId = new AtomicLong();
+
+  /** Lifecycle of a broadcast. */
+  public enum BroadcastState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+
+  /** Progress of a broadcast; once finished, lastUserId tells how far a failed one got. */
+  public static class BroadcastProgress {
+    public final long id;
+    public final Audience audience;
+    public final Long libraryId;
+    public final BroadcastState status;
+    public final long total;
+    public final long inserted;
+    public final long chunks;
+    public final long lastUserId;
+    public final LocalDateTime startedAt;
+    public final LocalDateTime finishedAt;
+    public final String error;
+
+    BroadcastProgress(Broadcast broadcast) {
+      this.id = broadcast.id;
+      this.audience = broadcast.audience;
+      this.libraryId = broadcast.libraryId;
+      this.status = broadcast.status;
+      this.total = broadcast.total;
+      this.inserted = broadcast.inserted;
+      this.chunks = broadcast.chunks;
+      this.lastUserId = broadcast.lastUserId;
+      this.startedAt = broadcast.startedAt;
+      this.finishedAt = broadcast.finishedAt;
+      this.error = broadcast.error;
+    }
+  }
+
+  /** A broadcast and its progress; written only by the thread running it. */
+  private static class Broadcast {
+    final long id;
+    final Audience audience;
+    final Long libraryId;
+    final Notification template;
+    volatile BroadcastState status = BroadcastState.QUEUED;
+    volatile long total;
+    volatile long inserted;
+    volatile long chunks;
+    volatile long lastUserId;
+    volatile LocalDateTime startedAt;
+    volatile LocalDateTime finishedAt;
+    volatile String error;
+
+    Broadcast(long id, Audience audience, Long libraryId, Notification template) {
+      this.id = id;
+      this.audience = audience;
+      this.libraryId = libraryId;
+      this.template = template;
+    }
+
+    BroadcastProgress progress() {
+      return new BroadcastProgress(this);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    broadcastExecutor.shutdownNow();
+  }
+
   /**
    * Sends overdue reminder notification.
    *
@@ -227,30 +350,178 @@ public class NotificationService {
   }
 
   /**
-   * Sends system maintenance notification.
+   * Sends system maintenance notification to every user, one chunk per transaction.
    *
    * @param message the maintenance message
    * @return the number of notifications sent
    */
-  @Transactional
   public int sendSystemMaintenanceNotification(String message) {
-    List<User> allUsers = userRepository.listAll();
-    int notificationCount = 0;
-
-    for (User user : allUsers) {
-      Notification notification =
-          new Notification(
-              user,
-              Notification.NotificationType.SYSTEM_MAINTENANCE,
-              "System Maintenance",
-              message,
-              Notification.NotificationPriority.NORMAL);
+    Broadcast broadcast =
+        newBroadcast(
+            Audience.ALL_USERS,
+            null,
+            new Notification(
+                null,
+                Notification.NotificationType.SYSTEM_MAINTENANCE,
+                "System Maintenance",
+                message,
+                Notification.NotificationPriority.NORMAL));
+    runBroadcast(broadcast);
+    if (broadcast.status == BroadcastState.FAILED) {
+      throw new RuntimeException(
+          "Failed to send system maintenance notification: " + broadcast.error);
+    }
+    return (int) broadcast.inserted;
+  }
 
-      notification.persist();
-      notificationCount++;
+  /**
+   * Starts broadcasting a notification to an audience in the background. Notifications are
+   * inserted set-based, a chunk of users per statement and transaction, so users are never loaded
+   * and a failure keeps the chunks already committed.
+   *
+   * @param audience the audience
+   * @param libraryId the library ID, required for {@link Audience#LIBRARY_MEMBERS}
+   * @param type the notification type
+   * @param title the notification title
+   * @param message the notification message
+   * @param priority the notification priority
+   * @return the progress of the broadcast
+   * @throws IllegalArgumentException if the request is incomplete
+   */
+  public BroadcastProgress startBroadcast(
+      Audience audience,
+      Long libraryId,
+      Notification.NotificationType type,
+      String title,
+      String message,
+      Notification.NotificationPriority priority) {
+    if (audience == null) {
+      throw new IllegalArgumentException("Audience is required");
+    }
+    if (audience == Audience.LIBRARY_MEMBERS && libraryId == null) {
+      throw new IllegalArgumentException("Library ID is required for library members");
+    }
+    if (title == null || title.isBlank() || title.length() > 255) {
+      throw new IllegalArgumentException("Title is required and must not exceed 255 characters");
+    }
+    if (message != null && message.length() > 1000) {
+      throw new IllegalArgumentException("Message must not exceed 1000 characters");
+    }
+    Broadcast broadcast =
+        newBroadcast(
+            audience,
+            libraryId,
+            new Notification(
+                null,
+                type != null ? type : Notification.NotificationType.GENERAL,
+                title,
+                message,
+                priority != null ? priority : Notification.NotificationPriority.NORMAL));
+    broadcastExecutor.execute(() -> runBroadcast(broadcast));
+    return broadcast.progress();
+  }
+
+  /**
+   * Gets the progress of a broadcast.
+   *
+   * @param broadcastId the broadcast ID
+   * @return the progress, or null if the broadcast is unknown or no longer kept
+   */
+  public BroadcastProgress getBroadcast(long broadcastId) {
+    synchronized (broadcasts) {
+      Broadcast broadcast = broadcasts.get(broadcastId);
+      return broadcast != null ? broadcast.progress() : null;
+    }
+  }
+
+  /**
+   * Gets the progress of the most recent broadcasts, newest first.
+   *
+   * @return the broadcasts
+   */
+  public List<BroadcastProgress> getBroadcasts() {
+    List<BroadcastProgress> progress = new ArrayList<>();
+    synchronized (broadcasts) {
+      for (Broadcast broadcast : broadcasts.values()) {
+        progress.add(0, broadcast.progress());
+      }
+    }
+    return progress;
+  }
+
+  private Broadcast newBroadcast(Audience audience, Long libraryId, Notification template) {
+    Broadcast broadcast =
+        new Broadcast(nextBroadcastId.incrementAndGet(), audience, libraryId, template);
+    synchronized (broadcasts) {
+      broadcasts.put(broadcast.id, broadcast);
     }
+    return broadcast;
+  }
 
-    return notificationCount;
+  private void runBroadcast(Broadcast broadcast) {
+    broadcast.startedAt = LocalDateTime.now();
+    broadcast.status = BroadcastState.RUNNING;
+    try {
+      broadcast.total =
+          QuarkusTransaction.requiringNew()
+              .call(
+                  () ->
+                      notificationRepository.countAudience(
+                          broadcast.audience, broadcast.libraryId));
+      // Every notification of one broadcast carries the same creation time
+      broadcast.template.createdDate = broadcast.startedAt;
+      boolean more = true;
+      while (more) {
+        long after = broadcast.lastUserId;
+        int[] inserted = new int[1];
+        Long chunkEnd =
+            QuarkusTransaction.requiringNew()
+                .call(
+                    () -> {
+                      Long end =
+                          notificationRepository.findAudienceChunkEnd(
+                              broadcast.audience, broadcast.libraryId, after, broadcastChunkSize);
+                      inserted[0] =
+                          notificationRepository.insertForAudience(
+                              broadcast.template,
+                              broadcast.audience,
+                              broadcast.libraryId,
+                              after,
+                              end != null ? end : Long.MAX_VALUE);
+                      return end;
+                    });
+        // Counted only once the chunk has committed
+        broadcast.inserted += inserted[0];
+        broadcast.chunks++;
+        more = chunkEnd != null;
+        if (more) {
+          broadcast.lastUserId = chunkEnd;
+          LOGGER.debug(
+              "Broadcast {}: {} of {} notifications inserted",
+              broadcast.id,
+              broadcast.inserted,
+              broadcast.total);
+        }
+      }
+      broadcast.status = BroadcastState.COMPLETED;
+      LOGGER.info(
+          "Broadcast {} to {} inserted {} notifications in {} chunks",
+          broadcast.id,
+          broadcast.audience,
+          broadcast.inserted,
+          broadcast.chunks);
+    } catch (Exception e) {
+      broadcast.status = BroadcastState.FAILED;
+      broadcast.error = e.getMessage();
+      LOGGER.error(
+          "Broadcast {} failed after {} notifications, past user {}",
+          broadcast.id,
+          broadcast.inserted,
+          broadcast.lastUserId,
+          e);
+    } finally {
+      broadcast.finishedAt = LocalDateTime.now();
+    }
   }
 
   /**
@@ -299,6 +570,19 @@ public class NotificationService {
     return notificationRepository.findUnreadByUser(userId);
   }
 
+  /**
+   * Gets a page of unread notifications for a user, newest first.
+   *
+   * @param userId the user ID
+   * @param beforeId the ID of the last notification of the previous page, or null for the first
+   *     page
+   * @param limit the page size
+   * @return the page of unread notifications
+   */
+  public KeysetPage<Notification> getUnreadNotifications(Long userId, Long beforeId, int limit) {
+    return notificationRepository.findUnreadPageByUser(userId, beforeId, limit);
+  }
+
   /**
    * Gets notification statistics for a user.
    *
@@ -325,63 +609,113 @@ public class NotificationService {
   }
 
   /**
-   * Sends bulk notifications for overdue books.
+   * Sends bulk notifications for overdue books, a chunk of loans per transaction.
    *
    * @return the number of notifications sent
    */
-  @Transactional
   public int sendBulkOverdueNotifications() {
-    List<Loan> overdueLoans = loanRepository.findOverdue();
-    int notificationCount = 0;
-
-    for (Loan loan : overdueLoans) {
-      Notification notification = sendOverdueReminder(loan);
-      if (notification != null) {
-        notificationCount++;
-      }
-    }
+    return (int) chunkedScroll.run(overdueRemindersJob()).counted;
+  }
 
-    return notificationCount;
+  /**
+   * Gets the job that sends reminders for overdue books, counting the notifications sent.
+   *
+   * @return the overdue reminders job
+   */
+  public ChunkedScroll.Job<Loan> overdueRemindersJob() {
+    return ChunkedScroll.Job.of(
+        "Overdue reminders",
+        dueDateScheduler.overdueSource(),
+        loan -> sendOverdueReminder(loan) != null);
   }
 
   /**
-   * Sends bulk notifications for books due soon.
+   * Sends bulk notifications for books due soon, a chunk of loans per transaction.
    *
    * @return the number of notifications sent
    */
-  @Transactional
   public int sendBulkDueSoonNotifications() {
-    List<Loan> loansDueSoon = loanRepository.findDueSoon(3);
-    int notificationCount = 0;
+    return (int) chunkedScroll.run(dueSoonRemindersJob()).counted;
+  }
+
+  /**
+   * Gets the job that sends reminders for books due soon, counting the notifications sent.
+   *
+   * @return the due-soon reminders job
+   */
+  public ChunkedScroll.Job<Loan> dueSoonRemindersJob() {
+    return ChunkedScroll.Job.of(
+        "Due-soon reminders",
+        dueDateScheduler.dueSoonSource(),
+        loan -> sendDueSoonReminder(loan) != null);
+  }
 
-    for (Loan loan : loansDueSoon) {
-      Notification notification = sendDueSoonReminder(loan);
-      if (notification != null) {
-        notificationCount++;
+  /**
+   * Sends reminders for the loans that just became due soon or overdue, one transaction per chunk
+   * so a large batch neither holds one long transaction nor is lost entirely on failure. Every
+   * instance tracks due dates, but only the scheduler leader sends these reminders; loans another
+   * instance's crossings were missed for are reminded by the daily reminder job.
+   *
+   * @param event the loans that crossed a due-date threshold
+   */
+  void onLoansDue(@Observes LoanDueEvent event) {
+    if (!dueDateReminders || !clusterLeases.isLeader()) {
+      return;
+    }
+    int sent = 0;
+    for (int from = 0; from < event.loanIds.length; from += REMINDER_CHUNK_SIZE) {
+      long[] chunk =
+          Arrays.copyOfRange(
+              event.loanIds, from, Math.min(event.loanIds.length, from + REMINDER_CHUNK_SIZE));
+      try {
+        sent +=
+            QuarkusTransaction.requiringNew()
+                .call(
+                    () -> {
+                      int count = 0;
+                      for (Loan loan : loanRepository.findByIds(chunk)) {
+                        Notification notification =
+                            event.kind == LoanDueEvent.Kind.OVERDUE
+                                ? sendOverdueReminder(loan)
+                                : sendDueSoonReminder(loan);
+                        if (notification != null) {
+                          count++;
+                        }
+                      }
+                      return count;
+                    });
+      } catch (Exception e) {
+        LOGGER.error("Failed to send {} reminders for {} loans", event.kind, chunk.length, e);
       }
     }
-
-    return notificationCount;
+    LOGGER.info("Sent {} {} reminders", sent, event.kind);
   }
 
   /**
-   * Cleans up old notifications.
+   * Cleans up old notifications, a chunk of notifications per transaction.
    *
    * @param daysOld the age in days
    * @return the number of notifications deleted
    */
-  @Transactional
   public int cleanupOldNotifications(int daysOld) {
-    LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysOld);
-
-    // BUG: Incorrect cleanup logic
-    List<Notification> oldNotifications = notificationRepository.findOlderThan(cutoffDate);
-
-    for (Notification notification : oldNotifications) {
-      notification.delete();
-    }
+    return (int) chunkedScroll.run(cleanupJob(LocalDateTime.now().minusDays(daysOld))).counted;
+  }
 
-    return oldNotifications.size();
+  /**
+   * Gets the job that deletes the notifications created before a cutoff, counting the
+   * notifications deleted.
+   *
+   * @param cutoffDate the cutoff date
+   * @return the notification cleanup job
+   */
+  public ChunkedScroll.Job<Notification> cleanupJob(LocalDateTime cutoffDate) {
+    return ChunkedScroll.Job.of(
+        "Notification cleanup",
+        notificationRepository.olderThanSource(cutoffDate),
+        notification -> {
+          notificationRepository.delete(notification);
+          return true;
+        });
   }
 
   @Transactional
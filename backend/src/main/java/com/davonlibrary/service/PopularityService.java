@@ -0,0 +1,486 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.event.LoanEvent;
+import com.davonlibrary.util.LongLongHashMap;
+import com.davonlibrary.util.RankedCounter;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps borrow counts per book, author and user in memory, all-time and over the last 7 and 30
+ * days, plus the active loan count of each user, so leaderboards are read in O(limit) without
+ * grouping the loan history.
+ *
+ * <p>Each count is a {@link RankedCounter}, which keeps its keys sorted by count as loans are
+ * borrowed and returned. The windowed counts also keep one bucket of borrow counts per day; when
+ * the day changes, the bucket of the day leaving a window is subtracted from it. The counts are
+ * loaded at startup and kept current from {@link LoanEvent}s. Borrows are applied by loan ID, so a
+ * rebuild can replay the changes committed while it was loading without counting a loan twice. A
+ * periodic rebuild picks up changes made outside the application.
+ */
+@ApplicationScoped
+public class PopularityService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PopularityService.class);
+
+  private static final int FETCH_SIZE = 1000;
+  private static final int DAY_BUCKETS = 30;
+  // Loans borrowed this long before a rebuild started may commit while it loads
+  private static final int REPLAY_MARGIN_MINUTES = 5;
+
+  /** What is counted. */
+  public enum Subject {
+    BOOK,
+    AUTHOR,
+    USER
+  }
+
+  /** Period borrows are counted over. */
+  public enum Window {
+    ALL_TIME("all", 0),
+    LAST_7_DAYS("7d", 7),
+    LAST_30_DAYS("30d", 30);
+
+    public final String key;
+    public final int days;
+
+    Window(String key, int days) {
+      this.key = key;
+      this.days = days;
+    }
+
+    /**
+     * Finds a window by key (all, 7d or 30d) or name.
+     *
+     * @param value the key or name
+     * @return the window
+     * @throws IllegalArgumentException if there is no such window
+     */
+    public static Window of(String value) {
+      for (Window window : values()) {
+        if (window.key.equalsIgnoreCase(value) || window.name().equalsIgnoreCase(value)) {
+          return window;
+        }
+      }
+      throw new IllegalArgumentException("Unknown window: " + value);
+    }
+  }
+
+  @Inject EntityManager entityManager;
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  private final Object stateLock = new Object();
+  private State state;
+  // Changes committed while a rebuild is loading; null when no rebuild is running
+  private List<LoanEvent> pendingChanges;
+
+  void onStart(@Observes StartupEvent event) {
+    try {
+      rebuild();
+    } catch (Exception e) {
+      LOGGER.warn("Borrow counts could not be loaded; leaderboards will be empty", e);
+    }
+  }
+
+  @Scheduled(
+      every = "${library.popularity.rebuild-interval:24h}",
+      delayed = "${library.popularity.rebuild-interval:24h}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void scheduledRebuild() {
+    try {
+      rebuild();
+    } catch (Exception e) {
+      LOGGER.error("Borrow counts rebuild failed", e);
+    }
+  }
+
+  /**
+   * Reloads the counts from the loan history.
+   *
+   * @return the number of loans loaded
+   * @throws IllegalStateException if a rebuild is already running
+   */
+  public long rebuild() {
+    if (!rebuildLock.tryLock()) {
+      throw new IllegalStateException("Borrow counts rebuild already in progress");
+    }
+    try {
+      long start = System.nanoTime();
+      synchronized (stateLock) {
+        pendingChanges = new ArrayList<>();
+      }
+      State fresh;
+      try {
+        LocalDateTime loadStart = LocalDateTime.now();
+        fresh = QuarkusTransaction.requiringNew().timeout(600).call(() -> load(loadStart));
+      } catch (RuntimeException e) {
+        synchronized (stateLock) {
+          pendingChanges = null;
+        }
+        throw e;
+      }
+      synchronized (stateLock) {
+        LocalDate today = LocalDate.now();
+        for (LoanEvent change : pendingChanges) {
+          fresh.apply(change, today);
+        }
+        fresh.loadedRecently = null;
+        state = fresh;
+        pendingChanges = null;
+      }
+      LOGGER.info(
+          "Borrow counts loaded: {} loans, {} books, {} authors, {} users in {} ms",
+          fresh.loans,
+          fresh.books.allTime.size(),
+          fresh.authors.allTime.size(),
+          fresh.users.allTime.size(),
+          (System.nanoTime() - start) / 1_000_000);
+      return fresh.loans;
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * Gets the most borrowed books, authors or users over a window, highest count first. Equal
+   * counts are in no particular order.
+   *
+   * @param subject what to rank
+   * @param window the period borrows are counted over
+   * @param limit the maximum number of entries
+   * @return the top entries
+   */
+  public List<RankedCount> top(Subject subject, Window window, int limit) {
+    synchronized (stateLock) {
+      if (state == null) {
+        return List.of();
+      }
+      state.advanceTo(LocalDate.now());
+      return entries(state.tally(subject).counter(window), limit);
+    }
+  }
+
+  /**
+   * Gets the users with the most loans not yet returned, highest count first.
+   *
+   * @param limit the maximum number of entries
+   * @return the top entries
+   */
+  public List<RankedCount> topActiveBorrowers(int limit) {
+    synchronized (stateLock) {
+      return state != null ? entries(state.activeByUser, limit) : List.of();
+    }
+  }
+
+  /**
+   * Gets the borrow count of one book, author or user over a window.
+   *
+   * @param subject what is counted
+   * @param window the period borrows are counted over
+   * @param id the book, author or user ID
+   * @return the number of borrows
+   */
+  public long count(Subject subject, Window window, long id) {
+    synchronized (stateLock) {
+      if (state == null) {
+        return 0;
+      }
+      state.advanceTo(LocalDate.now());
+      return state.tally(subject).counter(window).get(id);
+    }
+  }
+
+  void onLoanChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) LoanEvent event) {
+    if (event.kind == LoanEvent.Kind.EXTENDED) {
+      return;
+    }
+    synchronized (stateLock) {
+      if (state != null) {
+        state.apply(event, LocalDate.now());
+      }
+      if (pendingChanges != null) {
+        pendingChanges.add(event);
+      }
+    }
+  }
+
+  private static List<RankedCount> entries(RankedCounter counter, int limit) {
+    long[] ids = counter.topKeys(limit);
+    long[] counts = counter.topCounts(limit);
+    List<RankedCount> entries = new ArrayList<>(ids.length);
+    for (int i = 0; i < ids.length; i++) {
+      entries.add(new RankedCount(ids[i], counts[i]));
+    }
+    return entries;
+  }
+
+  private State load(LocalDateTime loadStart) {
+    LocalDate today = loadStart.toLocalDate();
+    State.Loader loader = new State.Loader(today, loadStart.minusMinutes(REPLAY_MARGIN_MINUTES));
+    try (Stream<Object[]> rows =
+        entityManager
+            .createQuery(
+                "SELECT l.id, l.loanDate, l.returnDate, l.user.id, b.id, b.author.id"
+                    + " FROM Loan l JOIN l.bookCopy c JOIN c.book b",
+                Object[].class)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream()) {
+      rows.forEach(
+          row ->
+              loader.loan(
+                  (Long) row[0],
+                  (LocalDateTime) row[1],
+                  row[2] == null,
+                  (Long) row[3],
+                  (Long) row[4],
+                  (Long) row[5]));
+    }
+    return loader.finish();
+  }
+
+  private static int bucket(long epochDay) {
+    return (int) Math.floorMod(epochDay, (long) DAY_BUCKETS);
+  }
+
+  /** Borrow counts of one subject; guarded by {@code stateLock}. */
+  private static class Tally {
+    final RankedCounter allTime;
+    final RankedCounter lastWeek;
+    final RankedCounter lastMonth;
+    // Day bucket (epoch day mod DAY_BUCKETS) -> id -> borrows on that day, for the last 30 days
+    final LongLongHashMap[] days;
+
+    Tally(LongLongHashMap allTimeCounts, LongLongHashMap[] days, long today) {
+      this.days = days;
+      LongLongHashMap week = new LongLongHashMap();
+      LongLongHashMap month = new LongLongHashMap();
+      for (long day = today - DAY_BUCKETS + 1; day <= today; day++) {
+        boolean inWeek = today - day < 7;
+        days[bucket(day)].forEach(
+            (id, borrows) -> {
+              month.addTo(id, borrows);
+              if (inWeek) {
+                week.addTo(id, borrows);
+              }
+            });
+      }
+      allTime = RankedCounter.of(allTimeCounts);
+      lastWeek = RankedCounter.of(week);
+      lastMonth = RankedCounter.of(month);
+    }
+
+    RankedCounter counter(Window window) {
+      switch (window) {
+        case LAST_7_DAYS:
+          return lastWeek;
+        case LAST_30_DAYS:
+          return lastMonth;
+        default:
+          return allTime;
+      }
+    }
+
+    void borrow(long id, long day, long today) {
+      allTime.add(id, 1);
+      long age = today - day;
+      if (age < 0 || age >= DAY_BUCKETS) {
+        return;
+      }
+      days[bucket(day)].addTo(id, 1);
+      lastMonth.add(id, 1);
+      if (age < 7) {
+        lastWeek.add(id, 1);
+      }
+    }
+
+    /** Moves the windows on a day at a time, dropping the days that leave them. */
+    void advance(long from, long to) {
+      for (long day = from + 1; day <= to; day++) {
+        days[bucket(day - 7)].forEach((id, borrows) -> lastWeek.add(id, -borrows));
+        // The day leaving the month shares its bucket with the day entering it
+        LongLongHashMap leaving = days[bucket(day)];
+        leaving.forEach((id, borrows) -> lastMonth.add(id, -borrows));
+        leaving.clear();
+      }
+    }
+
+    static LongLongHashMap[] emptyDays() {
+      LongLongHashMap[] days = new LongLongHashMap[DAY_BUCKETS];
+      for (int i = 0; i < DAY_BUCKETS; i++) {
+        days[i] = new LongLongHashMap();
+      }
+      return days;
+    }
+  }
+
+  /** Borrow counts and what they are derived from; guarded by {@code stateLock}. */
+  private static class State {
+    final Tally books;
+    final Tally authors;
+    final Tally users;
+    // loanId -> userId, for every loan not yet returned
+    final LongLongHashMap activeLoans;
+    final RankedCounter activeByUser;
+    // IDs of the loaded loans borrowed shortly before the load, so replayed borrows of them are
+    // not counted again; null once the rebuild has been swapped in
+    LongLongHashMap loadedRecently;
+    long today;
+    long loans;
+
+    State(Loader loader) {
+      long day = loader.today;
+      books = new Tally(loader.books, loader.bookDays, day);
+      authors = new Tally(loader.authors, loader.authorDays, day);
+      users = new Tally(loader.users, loader.userDays, day);
+      activeLoans = loader.activeLoans;
+      activeByUser = RankedCounter.of(loader.activeByUser);
+      loadedRecently = loader.loadedRecently;
+      today = day;
+      loans = loader.loans;
+    }
+
+    Tally tally(Subject subject) {
+      switch (subject) {
+        case AUTHOR:
+          return authors;
+        case USER:
+          return users;
+        default:
+          return books;
+      }
+    }
+
+    void advanceTo(LocalDate date) {
+      long day = date.toEpochDay();
+      if (day > today) {
+        books.advance(today, day);
+        authors.advance(today, day);
+        users.advance(today, day);
+        today = day;
+      }
+    }
+
+    void apply(LoanEvent event, LocalDate date) {
+      advanceTo(date);
+      if (event.kind == LoanEvent.Kind.RETURNED) {
+        giveBack(event.loanId);
+      } else if (event.kind == LoanEvent.Kind.BORROWED && event.userId != null) {
+        borrow(event.loanId, event.userId, event.bookId, event.authorId);
+      }
+    }
+
+    void borrow(long loanId, long userId, Long bookId, Long authorId) {
+      if (activeLoans.containsKey(loanId)
+          || (loadedRecently != null && loadedRecently.containsKey(loanId))) {
+        return;
+      }
+      activeLoans.put(loanId, userId);
+      activeByUser.add(userId, 1);
+      loans++;
+      users.borrow(userId, today, today);
+      if (bookId != null) {
+        books.borrow(bookId, today, today);
+      }
+      if (authorId != null) {
+        authors.borrow(authorId, today, today);
+      }
+    }
+
+    void giveBack(long loanId) {
+      if (!activeLoans.containsKey(loanId)) {
+        return;
+      }
+      long userId = activeLoans.get(loanId, 0);
+      activeLoans.remove(loanId);
+      activeByUser.add(userId, -1);
+    }
+
+    /** Accumulates the loan history before the counters are sorted once. */
+    static class Loader {
+      final long today;
+      final LocalDateTime recentFrom;
+      final LongLongHashMap books = new LongLongHashMap(1024);
+      final LongLongHashMap authors = new LongLongHashMap(1024);
+      final LongLongHashMap users = new LongLongHashMap(1024);
+      final LongLongHashMap[] bookDays = Tally.emptyDays();
+      final LongLongHashMap[] authorDays = Tally.emptyDays();
+      final LongLongHashMap[] userDays = Tally.emptyDays();
+      final LongLongHashMap activeLoans = new LongLongHashMap(1024);
+      final LongLongHashMap activeByUser = new LongLongHashMap(1024);
+      final LongLongHashMap loadedRecently = new LongLongHashMap();
+      long loans;
+
+      Loader(LocalDate today, LocalDateTime recentFrom) {
+        this.today = today.toEpochDay();
+        this.recentFrom = recentFrom;
+      }
+
+      void loan(
+          long loanId,
+          LocalDateTime loanDate,
+          boolean active,
+          Long userId,
+          Long bookId,
+          Long authorId) {
+        loans++;
+        long day = loanDate != null ? loanDate.toLocalDate().toEpochDay() : Long.MIN_VALUE;
+        boolean inWindow = day != Long.MIN_VALUE && day <= today && today - day < DAY_BUCKETS;
+        if (userId != null) {
+          count(users, userDays, userId, day, inWindow);
+          if (active) {
+            activeLoans.put(loanId, userId);
+            activeByUser.addTo(userId, 1);
+          }
+        }
+        if (bookId != null) {
+          count(books, bookDays, bookId, day, inWindow);
+        }
+        if (authorId != null) {
+          count(authors, authorDays, authorId, day, inWindow);
+        }
+        if (loanDate != null && !loanDate.isBefore(recentFrom)) {
+          loadedRecently.put(loanId, 1);
+        }
+      }
+
+      private static void count(
+          LongLongHashMap allTime, LongLongHashMap[] days, long id, long day, boolean inWindow) {
+        allTime.addTo(id, 1);
+        if (inWindow) {
+          days[bucket(day)].addTo(id, 1);
+        }
+      }
+
+      State finish() {
+        return new State(this);
+      }
+    }
+  }
+
+  /** Count of one book, author or user in a leaderboard DTO. */
+  public static class RankedCount {
+    public final long id;
+    public final long count;
+
+    public RankedCount(long id, long count) {
+      this.id = id;
+      this.count = count;
+    }
+  }
+}
@@ -0,0 +1,220 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.entity.BatchJob.JobType;
+import com.davonlibrary.entity.Report;
+import com.davonlibrary.report.ReportWorkerPool;
+import com.davonlibrary.repository.ReportRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts the recurring work of the library: the daily maintenance jobs (overdue reminders, fine
+ * accrual, reservation expiry) and the scheduled reports. Only the scheduler leader elected by
+ * {@link ClusterLeaseService} checks for due work, but each run is also claimed with a conditional
+ * update, a task's period on its lease row and a report's next schedule date, so a run is started
+ * exactly once per period even if two instances briefly both consider themselves leader.
+ *
+ * <p>The work itself is not tied to the leader: daily tasks become batch jobs, optionally split
+ * over ranges of users or books, that the workers of every instance claim, and scheduled reports
+ * become pending reports for the report workers. The leader also requeues the batch jobs and
+ * reports of instances that have stopped heartbeating; the jobs resume from their checkpoints
+ * elsewhere.
+ */
+@ApplicationScoped
+public class RecurringJobScheduler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RecurringJobScheduler.class);
+
+  /** Prefix of the lease rows recording the last period a daily task was submitted for. */
+  public static final String TASK_PREFIX = "task:";
+
+  private static final int REPORT_BATCH_SIZE = 100;
+
+  @Inject ClusterLeaseService clusterLeases;
+
+  @Inject BatchJobService batchJobService;
+
+  @Inject ReportRepository reportRepository;
+
+  @Inject ReportWorkerPool reportWorkerPool;
+
+  @ConfigProperty(
+      name = "library.recurring.daily-jobs",
+      defaultValue = "OVERDUE_REMINDERS,FINE_RECALCULATION,RESERVATION_EXPIRY")
+  List<String> dailyJobs;
+
+  @ConfigProperty(name = "library.recurring.run-after", defaultValue = "02:00")
+  String runAfter;
+
+  @ConfigProperty(name = "library.recurring.partitions", defaultValue = "1")
+  int partitions;
+
+  @ConfigProperty(name = "library.recurring.notification-retention-days", defaultValue = "90")
+  int notificationRetentionDays;
+
+  @Scheduled(
+      every = "${library.recurring.check-interval:30s}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void tick() {
+    if (!clusterLeases.isLeader()) {
+      return;
+    }
+    try {
+      check(LocalDateTime.now());
+    } catch (Exception e) {
+      LOGGER.error("Recurring job check failed", e);
+    }
+  }
+
+  /**
+   * Starts the recurring work due at a time that has not been started yet.
+   *
+   * @param now the current time
+   */
+  public void check(LocalDateTime now) {
+    if (clusterLeases.isEnabled()) {
+      batchJobService.requeueOrphaned();
+      reportWorkerPool.requeueOrphaned();
+      clusterLeases.pruneExpiredNodes();
+    }
+    if (!now.toLocalTime().isBefore(LocalTime.parse(runAfter))) {
+      submitDailyJobs(now.toLocalDate());
+    }
+    runScheduledReports(now);
+  }
+
+  /**
+   * Submits the daily jobs for a day, each unless it has already been submitted for the day.
+   *
+   * @param day the day
+   * @return the number of jobs submitted
+   */
+  public int submitDailyJobs(LocalDate day) {
+    int submitted = 0;
+    for (String name : dailyJobs) {
+      JobType type;
+      try {
+        type = JobType.valueOf(name.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        LOGGER.warn("Unknown daily job type {}", name);
+        continue;
+      }
+      Integer daysOld = type == JobType.NOTIFICATION_CLEANUP ? notificationRetentionDays : null;
+      try {
+        submitted +=
+            batchJobService
+                .submitForPeriod(type, daysOld, partitions, TASK_PREFIX + type, day.toString())
+                .size();
+      } catch (Exception e) {
+        LOGGER.error("Failed to submit the daily {} job for {}", type, day, e);
+      }
+    }
+    return submitted;
+  }
+
+  /**
+   * Queues a report for each scheduled report that is due, covering the period up to its due
+   * date, and moves its schedule on. Dates missed while no instance was running are skipped
+   * rather than caught up.
+   *
+   * @param now the current time
+   * @return the number of reports queued
+   */
+  public int runScheduledReports(LocalDateTime now) {
+    List<Report> due =
+        QuarkusTransaction.requiringNew()
+            .call(() -> reportRepository.findScheduledDue(now, REPORT_BATCH_SIZE));
+    int queued = 0;
+    for (Report report : due) {
+      try {
+        if (QuarkusTransaction.requiringNew().call(() -> queueScheduledRun(report, now))) {
+          queued++;
+        }
+      } catch (Exception e) {
+        LOGGER.error("Failed to queue scheduled report {}", report.id, e);
+      }
+    }
+    return queued;
+  }
+
+  private boolean queueScheduledRun(Report schedule, LocalDateTime now) {
+    LocalDateTime due = schedule.nextScheduleDate;
+    Frequency frequency = Frequency.of(schedule.scheduleFrequency);
+    if (frequency == null) {
+      LOGGER.warn(
+          "Report {} has unknown schedule frequency {}; unscheduling it",
+          schedule.id,
+          schedule.scheduleFrequency);
+      reportRepository.update("isScheduled = false WHERE id = ?1", schedule.id);
+      return false;
+    }
+    LocalDateTime next = frequency.after(due);
+    while (!next.isAfter(now)) {
+      next = frequency.after(next);
+    }
+    if (!reportRepository.advanceSchedule(schedule.id, due, next)) {
+      return false;
+    }
+    Report run =
+        new Report(
+            schedule.type,
+            schedule.title,
+            schedule.description,
+            frequency.before(due),
+            due);
+    run.generatedBy = schedule.generatedBy;
+    reportRepository.persist(run);
+    LOGGER.info("Queued report {} for scheduled report {} due {}", run.id, schedule.id, due);
+    return true;
+  }
+
+  /** Schedule frequency of a report. */
+  private enum Frequency {
+    DAILY,
+    WEEKLY,
+    MONTHLY;
+
+    static Frequency of(String value) {
+      if (value == null) {
+        return null;
+      }
+      try {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+
+    LocalDateTime after(LocalDateTime date) {
+      switch (this) {
+        case DAILY:
+          return date.plusDays(1);
+        case WEEKLY:
+          return date.plusWeeks(1);
+        default:
+          return date.plusMonths(1);
+      }
+    }
+
+    LocalDateTime before(LocalDateTime date) {
+      switch (this) {
+        case DAILY:
+          return date.minusDays(1);
+        case WEEKLY:
+          return date.minusWeeks(1);
+        default:
+          return date.minusMonths(1);
+      }
+    }
+  }
+}
@@ -0,0 +1,406 @@
+package com.davonlibrary.service;
+
+import com.davonlibrary.entity.Reservation;
+import com.davonlibrary.entity.Reservation.ReservationStatus;
+import com.davonlibrary.event.ReservationEvent;
+import com.davonlibrary.repository.ReservationRepository;
+import com.davonlibrary.util.LongLongHashMap;
+import com.davonlibrary.util.RankedQueue;
+import com.davonlibrary.util.StripedLock;
+import io.quarkus.narayana.jta.runtime.TransactionConfiguration;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the queue of active reservations of every book in memory, in the order they were made.
+ *
+ * <p>Each book's queue is a {@link RankedQueue} of reservation IDs, so joining, leaving, finding
+ * a reservation's position and finding the next in line are O(log n) and positions stay dense as
+ * reservations leave from anywhere in the queue. The queues are loaded at startup and kept current
+ * from {@link ReservationEvent}s after commit. Reservations for one title are made under a striped
+ * per-title lock that is held until commit, so the queue order matches the order reservations were
+ * committed in. Until the queues are loaded, positions are counted in the database instead.
+ */
+@ApplicationScoped
+public class ReservationQueueService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReservationQueueService.class);
+
+  @Inject EntityManager entityManager;
+
+  @Inject ReservationRepository reservationRepository;
+
+  @Inject Event<ReservationEvent> reservationEvents;
+
+  @ConfigProperty(name = "library.reservations.lock-stripes", defaultValue = "64")
+  int lockStripes;
+
+  @ConfigProperty(name = "library.reservations.lock-timeout-ms", defaultValue = "5000")
+  long lockTimeoutMs;
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  private final Object changeLock = new Object();
+  private volatile Map<Long, BookQueue> queues = new ConcurrentHashMap<>();
+  // Queue changes committed while a rebuild is loading; null when no rebuild is running
+  private List<ReservationEvent> pendingChanges;
+  private volatile boolean loaded;
+  private StripedLock locks;
+
+  @PostConstruct
+  void init() {
+    locks = new StripedLock(lockStripes);
+  }
+
+  void onStart(@Observes StartupEvent event) {
+    try {
+      rebuild();
+    } catch (Exception e) {
+      LOGGER.warn("Reservation queues could not be loaded; positions will be counted", e);
+    }
+  }
+
+  /**
+   * Runs work while holding the reservation lock of a title. Callers that change the title's
+   * queue commit before the work returns, so the next reservation sees the change.
+   *
+   * @param bookId the book ID
+   * @param work the work to run
+   * @return the work's result
+   * @throws IllegalStateException if the lock could not be acquired in time
+   */
+  public <T> T callWithBookLock(Long bookId, Supplier<T> work) {
+    Lock lock = locks.get(bookId);
+    try {
+      if (!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+        throw new IllegalStateException("The book's reservation queue is busy; please try again");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the reservation queue", e);
+    }
+    try {
+      return work.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Records that a reservation was created or changed status; applied to its queue on commit.
+   *
+   * @param reservation the reservation after the change
+   */
+  public void recordChange(Reservation reservation) {
+    reservationEvents.fire(ReservationEvent.of(reservation));
+  }
+
+  /**
+   * Records that a reservation was deleted; removed from its queue on commit.
+   *
+   * @param reservation the deleted reservation
+   */
+  public void recordRemoved(Reservation reservation) {
+    reservationEvents.fire(
+        new ReservationEvent(
+            ReservationEvent.Kind.DEQUEUED,
+            reservation.id,
+            reservation.book.id,
+            reservation.user.id));
+  }
+
+  /**
+   * Gets the position of a reservation in its book's queue.
+   *
+   * @param bookId the book ID
+   * @param reservationId the reservation ID
+   * @return the 1-based position, or 0 if the reservation is not active
+   */
+  public int getPosition(Long bookId, Long reservationId) {
+    if (!loaded) {
+      return (int) countPosition(bookId, reservationId);
+    }
+    BookQueue queue = queues.get(bookId);
+    return queue != null ? queue.position(reservationId) : 0;
+  }
+
+  /**
+   * Gets the position of a user's active reservation of a book.
+   *
+   * @param userId the user ID
+   * @param bookId the book ID
+   * @return the 1-based position if the user has an active reservation of the book
+   */
+  public Optional<Integer> getQueuePosition(Long userId, Long bookId) {
+    if (!loaded) {
+      return reservationRepository
+          .find(
+              "user.id = ?1 AND book.id = ?2 AND status = ?3",
+              userId,
+              bookId,
+              ReservationStatus.ACTIVE)
+          .firstResultOptional()
+          .map(reservation -> (int) countPosition(bookId, reservation.id));
+    }
+    BookQueue queue = queues.get(bookId);
+    int position = queue != null ? queue.positionOfUser(userId) : 0;
+    return position > 0 ? Optional.of(position) : Optional.empty();
+  }
+
+  /**
+   * Gets the positions of reservations in their books' queues in one pass.
+   *
+   * @param reservations the reservations, typically all of one user's
+   * @return the 1-based position of each active reservation, keyed by reservation ID
+   */
+  public Map<Long, Integer> getPositions(List<Reservation> reservations) {
+    Map<Long, Integer> positions = new HashMap<>();
+    for (Reservation reservation : reservations) {
+      if (reservation.status != ReservationStatus.ACTIVE) {
+        continue;
+      }
+      int position = getPosition(reservation.book.id, reservation.id);
+      if (position > 0) {
+        positions.put(reservation.id, position);
+      }
+    }
+    return positions;
+  }
+
+  /**
+   * Gets the reservation first in line for a book.
+   *
+   * @param bookId the book ID
+   * @return the ID of the oldest active reservation, if any
+   */
+  public Optional<Long> getNextInLine(Long bookId) {
+    if (!loaded) {
+      return reservationRepository
+          .find("book.id = ?1 AND status = ?2 ORDER BY id", bookId, ReservationStatus.ACTIVE)
+          .firstResultOptional()
+          .map(reservation -> reservation.id);
+    }
+    BookQueue queue = queues.get(bookId);
+    return queue != null ? queue.first() : Optional.empty();
+  }
+
+  /** Returns true once the queues have been loaded from the database. */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Counts the active reservations across all books.
+   *
+   * @return the number of queued reservations
+   */
+  public long countQueued() {
+    if (!loaded) {
+      return reservationRepository.count("status", ReservationStatus.ACTIVE);
+    }
+    long count = 0;
+    for (BookQueue queue : queues.values()) {
+      count += queue.size();
+    }
+    return count;
+  }
+
+  /**
+   * Counts the active reservations of a book.
+   *
+   * @param bookId the book ID
+   * @return the queue length
+   */
+  public int getQueueLength(Long bookId) {
+    if (!loaded) {
+      return (int) reservationRepository.countActiveByBook(bookId);
+    }
+    BookQueue queue = queues.get(bookId);
+    return queue != null ? queue.size() : 0;
+  }
+
+  /**
+   * Gets a book's active reservations in queue order.
+   *
+   * @param bookId the book ID
+   * @return the reservation IDs, first in line first
+   */
+  public long[] getQueue(Long bookId) {
+    if (!loaded) {
+      return entityManager
+          .createQuery(
+              "SELECT r.id FROM Reservation r WHERE r.book.id = ?1 AND r.status = ?2"
+                  + " ORDER BY r.id",
+              Long.class)
+          .setParameter(1, bookId)
+          .setParameter(2, ReservationStatus.ACTIVE)
+          .getResultStream()
+          .mapToLong(Long::longValue)
+          .toArray();
+    }
+    BookQueue queue = queues.get(bookId);
+    return queue != null ? queue.toArray() : new long[0];
+  }
+
+  /**
+   * Reloads all queues from the active reservations in the database.
+   *
+   * @return the number of queued reservations
+   * @throws IllegalStateException if a rebuild is already running
+   */
+  @Transactional
+  @TransactionConfiguration(timeout = 600)
+  public int rebuild() {
+    if (!rebuildLock.tryLock()) {
+      throw new IllegalStateException("Reservation queue rebuild already in progress");
+    }
+    try {
+      long start = System.nanoTime();
+      synchronized (changeLock) {
+        pendingChanges = new ArrayList<>();
+      }
+      Map<Long, BookQueue> fresh = new ConcurrentHashMap<>();
+      int[] count = new int[1];
+      try (Stream<Object[]> rows =
+          entityManager
+              .createQuery(
+                  "SELECT r.id, r.book.id, r.user.id FROM Reservation r WHERE r.status = ?1"
+                      + " ORDER BY r.id",
+                  Object[].class)
+              .setParameter(1, ReservationStatus.ACTIVE)
+              .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+              .setHint(HibernateHints.HINT_READ_ONLY, true)
+              .getResultStream()) {
+        rows.forEach(
+            row -> {
+              fresh
+                  .computeIfAbsent((Long) row[1], bookId -> new BookQueue())
+                  .add((Long) row[0], (Long) row[2]);
+              count[0]++;
+            });
+      } catch (RuntimeException e) {
+        synchronized (changeLock) {
+          pendingChanges = null;
+        }
+        throw e;
+      }
+      synchronized (changeLock) {
+        for (ReservationEvent change : pendingChanges) {
+          apply(fresh, change);
+        }
+        queues = fresh;
+        pendingChanges = null;
+        loaded = true;
+      }
+      LOGGER.info(
+          "Reservation queues loaded: {} reservations across {} books in {} ms",
+          count[0],
+          fresh.size(),
+          (System.nanoTime() - start) / 1_000_000);
+      return count[0];
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  void onReservationChanged(
+      @Observes(during = TransactionPhase.AFTER_SUCCESS) ReservationEvent event) {
+    synchronized (changeLock) {
+      apply(queues, event);
+      if (pendingChanges != null) {
+        pendingChanges.add(event);
+      }
+    }
+  }
+
+  private static void apply(Map<Long, BookQueue> queues, ReservationEvent event) {
+    if (event.kind == ReservationEvent.Kind.QUEUED) {
+      queues
+          .computeIfAbsent(event.bookId, bookId -> new BookQueue())
+          .add(event.reservationId, event.userId);
+    } else {
+      BookQueue queue = queues.get(event.bookId);
+      if (queue != null && queue.remove(event.reservationId, event.userId)) {
+        queues.remove(event.bookId, queue);
+      }
+    }
+  }
+
+  /** Dense position counted in the database: active reservations of the book up to this one. */
+  private long countPosition(Long bookId, Long reservationId) {
+    long active =
+        reservationRepository.count(
+            "id = ?1 AND status = ?2", reservationId, ReservationStatus.ACTIVE);
+    if (active == 0) {
+      return 0;
+    }
+    return reservationRepository.count(
+        "book.id = ?1 AND status = ?2 AND id <= ?3",
+        bookId,
+        ReservationStatus.ACTIVE,
+        reservationId);
+  }
+
+  /** Active reservations of one book in arrival order. */
+  private static class BookQueue {
+    private final RankedQueue reservations = new RankedQueue();
+    // userId -> reservationId; a user holds at most one active reservation per book
+    private final LongLongHashMap byUser = new LongLongHashMap();
+
+    synchronized void add(long reservationId, long userId) {
+      if (reservations.add(reservationId)) {
+        byUser.put(userId, reservationId);
+      }
+    }
+
+    /** Removes a reservation; returns true if the queue is now empty. */
+    synchronized boolean remove(long reservationId, long userId) {
+      if (reservations.remove(reservationId) && byUser.get(userId, -1) == reservationId) {
+        byUser.remove(userId);
+      }
+      return reservations.isEmpty();
+    }
+
+    synchronized int position(long reservationId) {
+      return reservations.position(reservationId);
+    }
+
+    synchronized int positionOfUser(long userId) {
+      long reservationId = byUser.get(userId, -1);
+      return reservationId < 0 ? 0 : reservations.position(reservationId);
+    }
+
+    synchronized Optional<Long> first() {
+      return reservations.isEmpty() ? Optional.empty() : Optional.of(reservations.get(1));
+    }
+
+    synchronized int size() {
+      return reservations.size();
+    }
+
+    synchronized long[] toArray() {
+      return reservations.toArray();
+    }
+  }
+}
@@ -2,13 +2,16 @@ package com.davonlibrary.service;
 
 import com.davonlibrary.dto.ReservationDTO;
 import com.davonlibrary.entity.Reservation;
+import com.davonlibrary.repository.ChunkedScroll;
 import com.davonlibrary.repository.ReservationRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -17,11 +20,33 @@ public class ReservationService {
 
   @Inject ReservationRepository reservationRepository;
 
-  @Transactional
+  @Inject ReservationQueueService reservationQueueService;
+
+  /**
+   * Creates a reservation at the back of its book's queue. Reservations of the same title are
+   * serialized and each commits in its own transaction, even when the caller has one, so they
+   * commit in queue order.
+   *
+   * @param reservation the reservation to create
+   * @return the created reservation
+   */
   public Reservation createReservation(Reservation reservation) {
-    if (!isValidReservation(reservation)) {
+    if (!isValidReservation(reservation) || reservation.book.id == null) {
       throw new IllegalArgumentException("Invalid reservation details provided.");
     }
+    return reservationQueueService.callWithBookLock(
+        reservation.book.id,
+        () -> QuarkusTransaction.requiringNew().call(() -> insertReservation(reservation)));
+  }
+
+  /**
+   * Inserts a reservation at the back of its book's queue. The caller must hold the book's queue
+   * lock and commit the current transaction before releasing it.
+   *
+   * @param reservation the reservation to insert
+   * @return the inserted reservation
+   */
+  Reservation insertReservation(Reservation reservation) {
     // Prevent duplicate active reservations for the same user and book
     if (reservation.user != null
         && reservation.book != null
@@ -29,8 +54,13 @@ public class ReservationService {
       throw new WebApplicationException(
           "You already have an active reservation for this book.", Response.Status.CONFLICT);
     }
+    if (reservation.status == Reservation.ReservationStatus.ACTIVE) {
+      // Exact while the title's lock is held: earlier reservations have committed
+      reservation.queuePosition = reservationQueueService.getQueueLength(reservation.book.id) + 1;
+    }
     try {
       reservationRepository.persist(reservation);
+      reservationQueueService.recordChange(reservation);
       return reservation;
     } catch (Exception e) {
       // Log the exception for debugging purposes
@@ -107,15 +137,14 @@ public class ReservationService {
     if (!isValidBookId(bookId)) {
       throw new IllegalArgumentException("Invalid book ID provided.");
     }
-    return reservationRepository.count(
-        "book.id = ?1 and status = ?2", bookId, Reservation.ReservationStatus.ACTIVE);
+    return reservationQueueService.getQueueLength(bookId);
   }
 
   public Optional<Integer> getQueuePosition(Long userId, Long bookId) {
     if (!isValidUserId(userId) || !isValidBookId(bookId)) {
       throw new IllegalArgumentException("Invalid user or book ID provided.");
     }
-    return reservationRepository.getQueuePosition(userId, bookId);
+    return reservationQueueService.getQueuePosition(userId, bookId);
   }
 
   @Transactional
@@ -125,20 +154,18 @@ public class ReservationService {
     }
 
     List<Reservation> reservations = reservationRepository.findByUser(userId);
+    Map<Long, Integer> positions = reservationQueueService.getPositions(reservations);
 
     return reservations.stream()
         .map(
-            reservation -> {
-              Integer queuePosition =
-                  reservationRepository.getQueuePosition(userId, reservation.book.id).orElse(null);
-              return new ReservationDTO(
-                  reservation.id,
-                  reservation.book.id,
-                  reservation.book.title,
-                  reservation.reservationDate.toLocalDate(),
-                  reservation.status.name(),
-                  queuePosition);
-            })
+            reservation ->
+                new ReservationDTO(
+                    reservation.id,
+                    reservation.book.id,
+                    reservation.book.title,
+                    reservation.reservationDate.toLocalDate(),
+                    reservation.status.name(),
+                    positions.get(reservation.id)))
         .collect(Collectors.toList());
   }
 
@@ -153,6 +180,25 @@ public class ReservationService {
     }
     reservation.status = Reservation.ReservationStatus.CANCELLED;
     reservationRepository.persist(reservation);
+    // Later reservations move up one place once this commits
+    reservationQueueService.recordChange(reservation);
     return reservation;
   }
+
+  /**
+   * Gets the job that expires the active reservations past their expiry date, moving the
+   * reservations behind each one up its queue, counting the reservations expired.
+   *
+   * @return the reservation expiry job
+   */
+  public ChunkedScroll.Job<Reservation> reservationExpiryJob() {
+    return ChunkedScroll.Job.of(
+        "Reservation expiry",
+        reservationRepository.expiredSource(),
+        reservation -> {
+          reservation.expire();
+          reservationQueueService.recordChange(reservation);
+          return true;
+        });
+  }
 }
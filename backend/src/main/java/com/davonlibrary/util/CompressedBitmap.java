@@ -0,0 +1,511 @@
+package com.davonlibrary.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Compressed set of non-negative {@code long} values, laid out like a Roaring bitmap.
+ *
+ * <p>Values are split into blocks of 65,536 by their high bits, and each non-empty block is a
+ * container of the low 16 bits: a sorted {@code char} array while it holds at most 4,096 values,
+ * and an 8 KB bitset above that. Sparse blocks therefore cost two bytes a value and dense blocks
+ * at most one bit a value, and intersections work block by block, merging arrays, probing bitsets
+ * or AND-ing words, so their cost follows the compressed size rather than the value range. Not
+ * thread-safe; callers guard access themselves.
+ */
+public class CompressedBitmap {
+
+  private static final int ARRAY_MAX = 4096;
+  private static final int WORDS = 1024;
+
+  // Sorted block keys (value >>> 16) and their containers
+  private long[] keys = new long[4];
+  private Container[] containers = new Container[4];
+  private int blocks;
+
+  /**
+   * Creates a bitmap holding the given values.
+   *
+   * @param values the values, in any order
+   * @return the bitmap
+   */
+  public static CompressedBitmap of(long... values) {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    for (long value : values) {
+      bitmap.add(value);
+    }
+    return bitmap;
+  }
+
+  /**
+   * Adds a value.
+   *
+   * @param value the value, not negative
+   * @return true if the value was not already present
+   */
+  public boolean add(long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative value: " + value);
+    }
+    long key = value >>> 16;
+    int index = find(key);
+    if (index < 0) {
+      index = -index - 1;
+      insertBlock(index, key, new Container());
+    }
+    return containers[index].add((char) value);
+  }
+
+  /**
+   * Removes a value.
+   *
+   * @param value the value
+   * @return true if the value was present
+   */
+  public boolean remove(long value) {
+    int index = value < 0 ? -1 : find(value >>> 16);
+    if (index < 0 || !containers[index].remove((char) value)) {
+      return false;
+    }
+    if (containers[index].cardinality == 0) {
+      System.arraycopy(keys, index + 1, keys, index, blocks - index - 1);
+      System.arraycopy(containers, index + 1, containers, index, blocks - index - 1);
+      containers[--blocks] = null;
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether a value is present.
+   *
+   * @param value the value
+   * @return true if present
+   */
+  public boolean contains(long value) {
+    int index = value < 0 ? -1 : find(value >>> 16);
+    return index >= 0 && containers[index].contains((char) value);
+  }
+
+  /** Returns the number of values. */
+  public long cardinality() {
+    long cardinality = 0;
+    for (int i = 0; i < blocks; i++) {
+      cardinality += containers[i].cardinality;
+    }
+    return cardinality;
+  }
+
+  /** Returns true if there are no values. */
+  public boolean isEmpty() {
+    return blocks == 0;
+  }
+
+  /**
+   * Intersects two bitmaps.
+   *
+   * @param a a bitmap
+   * @param b another bitmap
+   * @return a new bitmap holding the values present in both
+   */
+  public static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b) {
+    CompressedBitmap result = new CompressedBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < a.blocks && j < b.blocks) {
+      if (a.keys[i] < b.keys[j]) {
+        i++;
+      } else if (a.keys[i] > b.keys[j]) {
+        j++;
+      } else {
+        Container container = a.containers[i++].and(b.containers[j++]);
+        if (container.cardinality > 0) {
+          result.appendBlock(a.keys[i - 1], container);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Subtracts one bitmap from another.
+   *
+   * @param a a bitmap
+   * @param b the bitmap to subtract
+   * @return a new bitmap holding the values of {@code a} not present in {@code b}
+   */
+  public static CompressedBitmap andNot(CompressedBitmap a, CompressedBitmap b) {
+    CompressedBitmap result = new CompressedBitmap();
+    int j = 0;
+    for (int i = 0; i < a.blocks; i++) {
+      while (j < b.blocks && b.keys[j] < a.keys[i]) {
+        j++;
+      }
+      Container container =
+          j < b.blocks && b.keys[j] == a.keys[i]
+              ? a.containers[i].andNot(b.containers[j])
+              : a.containers[i].copy();
+      if (container.cardinality > 0) {
+        result.appendBlock(a.keys[i], container);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Counts the values present in both bitmaps without building their intersection.
+   *
+   * @param a a bitmap
+   * @param b another bitmap
+   * @return the size of the intersection
+   */
+  public static long andCardinality(CompressedBitmap a, CompressedBitmap b) {
+    long cardinality = 0;
+    int i = 0;
+    int j = 0;
+    while (i < a.blocks && j < b.blocks) {
+      if (a.keys[i] < b.keys[j]) {
+        i++;
+      } else if (a.keys[i] > b.keys[j]) {
+        j++;
+      } else {
+        cardinality += a.containers[i++].andCardinality(b.containers[j++]);
+      }
+    }
+    return cardinality;
+  }
+
+  /** Returns a copy of this bitmap. */
+  public CompressedBitmap copy() {
+    CompressedBitmap copy = new CompressedBitmap();
+    copy.keys = Arrays.copyOf(keys, Math.max(4, blocks));
+    copy.containers = new Container[copy.keys.length];
+    for (int i = 0; i < blocks; i++) {
+      copy.containers[i] = containers[i].copy();
+    }
+    copy.blocks = blocks;
+    return copy;
+  }
+
+  /**
+   * Calls the consumer with every value in ascending order.
+   *
+   * @param consumer the consumer
+   */
+  public void forEach(LongConsumer consumer) {
+    for (int i = 0; i < blocks; i++) {
+      containers[i].forEach(keys[i] << 16, consumer);
+    }
+  }
+
+  /**
+   * Gets the smallest values in ascending order.
+   *
+   * @param limit the maximum number of values
+   * @return the values
+   */
+  public long[] toArray(int limit) {
+    return toArray(-1, limit);
+  }
+
+  /**
+   * Gets the smallest values greater than a given value in ascending order, for reading the set a
+   * page at a time.
+   *
+   * @param after the value to start after, or -1 to start from the smallest
+   * @param limit the maximum number of values
+   * @return the values
+   */
+  public long[] toArray(long after, int limit) {
+    if (after == Long.MAX_VALUE) {
+      return new long[0];
+    }
+    long start = Math.max(0, after + 1);
+    long[] values = new long[(int) Math.min(limit, cardinality())];
+    int filled = 0;
+    int first = Arrays.binarySearch(keys, 0, blocks, start >>> 16);
+    for (int i = first >= 0 ? first : -first - 1; i < blocks && filled < values.length; i++) {
+      long base = keys[i] << 16;
+      int from = base < start ? (int) (start - base) : 0;
+      filled = containers[i].fill(base, from, values, filled);
+    }
+    return filled < values.length ? Arrays.copyOf(values, filled) : values;
+  }
+
+  /**
+   * Estimates the heap used by the bitmap.
+   *
+   * @return estimated footprint in bytes
+   */
+  public long estimatedBytes() {
+    long bytes = 8L * keys.length + 4L * containers.length;
+    for (int i = 0; i < blocks; i++) {
+      Container container = containers[i];
+      bytes += 16 + (container.bits != null ? 8L * WORDS : 2L * container.array.length);
+    }
+    return bytes;
+  }
+
+  private int find(long key) {
+    // Values are usually added in ascending order, so check the last block first
+    if (blocks > 0 && keys[blocks - 1] == key) {
+      return blocks - 1;
+    }
+    return Arrays.binarySearch(keys, 0, blocks, key);
+  }
+
+  private void insertBlock(int index, long key, Container container) {
+    if (blocks == keys.length) {
+      keys = Arrays.copyOf(keys, blocks * 2);
+      containers = Arrays.copyOf(containers, blocks * 2);
+    }
+    System.arraycopy(keys, index, keys, index + 1, blocks - index);
+    System.arraycopy(containers, index, containers, index + 1, blocks - index);
+    keys[index] = key;
+    containers[index] = container;
+    blocks++;
+  }
+
+  private void appendBlock(long key, Container container) {
+    insertBlock(blocks, key, container);
+  }
+
+  /** The low 16 bits of one block: a sorted array, or a bitset once it is dense. */
+  private static final class Container {
+    // Exactly one of these is set
+    char[] array = new char[4];
+    long[] bits;
+    int cardinality;
+
+    boolean contains(char low) {
+      if (bits != null) {
+        return (bits[low >>> 6] & (1L << low)) != 0;
+      }
+      return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+    }
+
+    boolean add(char low) {
+      if (bits != null) {
+        long before = bits[low >>> 6];
+        bits[low >>> 6] = before | (1L << low);
+        if (before == bits[low >>> 6]) {
+          return false;
+        }
+        cardinality++;
+        return true;
+      }
+      int index = Arrays.binarySearch(array, 0, cardinality, low);
+      if (index >= 0) {
+        return false;
+      }
+      index = -index - 1;
+      if (cardinality == ARRAY_MAX) {
+        toBits();
+        return add(low);
+      }
+      if (cardinality == array.length) {
+        array = Arrays.copyOf(array, Math.min(ARRAY_MAX, cardinality * 2));
+      }
+      System.arraycopy(array, index, array, index + 1, cardinality - index);
+      array[index] = low;
+      cardinality++;
+      return true;
+    }
+
+    boolean remove(char low) {
+      if (bits != null) {
+        long before = bits[low >>> 6];
+        bits[low >>> 6] = before & ~(1L << low);
+        if (before == bits[low >>> 6]) {
+          return false;
+        }
+        if (--cardinality <= ARRAY_MAX) {
+          toArray();
+        }
+        return true;
+      }
+      int index = Arrays.binarySearch(array, 0, cardinality, low);
+      if (index < 0) {
+        return false;
+      }
+      System.arraycopy(array, index + 1, array, index, cardinality - index - 1);
+      if (--cardinality < array.length / 4) {
+        array = Arrays.copyOf(array, Math.max(4, array.length / 2));
+      }
+      return true;
+    }
+
+    Container and(Container other) {
+      Container result = new Container();
+      if (bits != null && other.bits != null) {
+        result.bits = new long[WORDS];
+        for (int w = 0; w < WORDS; w++) {
+          result.bits[w] = bits[w] & other.bits[w];
+          result.cardinality += Long.bitCount(result.bits[w]);
+        }
+        result.array = null;
+        if (result.cardinality <= ARRAY_MAX) {
+          result.toArray();
+        }
+        return result;
+      }
+      Container small = bits == null ? this : other;
+      Container large = small == this ? other : this;
+      result.array = new char[Math.max(4, Math.min(small.cardinality, large.cardinality))];
+      if (large.bits != null) {
+        for (int i = 0; i < small.cardinality; i++) {
+          char low = small.array[i];
+          if ((large.bits[low >>> 6] & (1L << low)) != 0) {
+            result.array[result.cardinality++] = low;
+          }
+        }
+        return result;
+      }
+      int i = 0;
+      int j = 0;
+      while (i < small.cardinality && j < large.cardinality) {
+        if (small.array[i] < large.array[j]) {
+          i++;
+        } else if (small.array[i] > large.array[j]) {
+          j++;
+        } else {
+          result.array[result.cardinality++] = small.array[i];
+          i++;
+          j++;
+        }
+      }
+      return result;
+    }
+
+    Container andNot(Container other) {
+      Container result = new Container();
+      if (bits != null) {
+        result.bits = Arrays.copyOf(bits, WORDS);
+        result.array = null;
+        result.cardinality = cardinality;
+        if (other.bits != null) {
+          result.cardinality = 0;
+          for (int w = 0; w < WORDS; w++) {
+            result.bits[w] &= ~other.bits[w];
+            result.cardinality += Long.bitCount(result.bits[w]);
+          }
+        } else {
+          for (int i = 0; i < other.cardinality; i++) {
+            char low = other.array[i];
+            if ((result.bits[low >>> 6] & (1L << low)) != 0) {
+              result.bits[low >>> 6] &= ~(1L << low);
+              result.cardinality--;
+            }
+          }
+        }
+        if (result.cardinality <= ARRAY_MAX) {
+          result.toArray();
+        }
+        return result;
+      }
+      result.array = new char[Math.max(4, cardinality)];
+      for (int i = 0; i < cardinality; i++) {
+        if (!other.contains(array[i])) {
+          result.array[result.cardinality++] = array[i];
+        }
+      }
+      return result;
+    }
+
+    int andCardinality(Container other) {
+      int count = 0;
+      if (bits != null && other.bits != null) {
+        for (int w = 0; w < WORDS; w++) {
+          count += Long.bitCount(bits[w] & other.bits[w]);
+        }
+        return count;
+      }
+      Container small = bits == null ? this : other;
+      Container large = small == this ? other : this;
+      if (large.bits != null) {
+        for (int i = 0; i < small.cardinality; i++) {
+          char low = small.array[i];
+          if ((large.bits[low >>> 6] & (1L << low)) != 0) {
+            count++;
+          }
+        }
+        return count;
+      }
+      int i = 0;
+      int j = 0;
+      while (i < small.cardinality && j < large.cardinality) {
+        if (small.array[i] < large.array[j]) {
+          i++;
+        } else if (small.array[i] > large.array[j]) {
+          j++;
+        } else {
+          count++;
+          i++;
+          j++;
+        }
+      }
+      return count;
+    }
+
+    Container copy() {
+      Container copy = new Container();
+      copy.cardinality = cardinality;
+      if (bits != null) {
+        copy.bits = Arrays.copyOf(bits, WORDS);
+        copy.array = null;
+      } else {
+        copy.array = Arrays.copyOf(array, Math.max(4, cardinality));
+      }
+      return copy;
+    }
+
+    void forEach(long base, LongConsumer consumer) {
+      if (bits == null) {
+        for (int i = 0; i < cardinality; i++) {
+          consumer.accept(base | array[i]);
+        }
+        return;
+      }
+      for (int w = 0; w < WORDS; w++) {
+        for (long word = bits[w]; word != 0; word &= word - 1) {
+          consumer.accept(base | ((long) w << 6) | Long.numberOfTrailingZeros(word));
+        }
+      }
+    }
+
+    int fill(long base, int from, long[] values, int filled) {
+      if (bits == null) {
+        int i = Arrays.binarySearch(array, 0, cardinality, (char) from);
+        for (i = i >= 0 ? i : -i - 1; i < cardinality && filled < values.length; i++) {
+          values[filled++] = base | array[i];
+        }
+        return filled;
+      }
+      for (int w = from >>> 6; w < WORDS && filled < values.length; w++) {
+        long first = w == from >>> 6 ? bits[w] & (-1L << from) : bits[w];
+        for (long word = first; word != 0 && filled < values.length; word &= word - 1) {
+          values[filled++] = base | ((long) w << 6) | Long.numberOfTrailingZeros(word);
+        }
+      }
+      return filled;
+    }
+
+    private void toBits() {
+      bits = new long[WORDS];
+      for (int i = 0; i < cardinality; i++) {
+        bits[array[i] >>> 6] |= 1L << array[i];
+      }
+      array = null;
+    }
+
+    private void toArray() {
+      array = new char[Math.max(4, cardinality)];
+      int filled = 0;
+      for (int w = 0; w < WORDS; w++) {
+        for (long word = bits[w]; word != 0; word &= word - 1) {
+          array[filled++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+        }
+      }
+      bits = null;
+    }
+  }
+}
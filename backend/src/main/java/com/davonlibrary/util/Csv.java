@@ -0,0 +1,37 @@
+package com.davonlibrary.util;
+
+/** CSV field formatting shared by the report and export writers. */
+public final class Csv {
+
+  private Csv() {}
+
+  /**
+   * Appends a value as one CSV field. Null is written as an empty field; a value containing a
+   * comma, quote or line break is quoted, with quotes doubled.
+   *
+   * @param line the line being built
+   * @param value the field value, may be null
+   */
+  public static void append(StringBuilder line, Object value) {
+    if (value == null) {
+      return;
+    }
+    String text = value.toString();
+    if (text.indexOf(',') < 0
+        && text.indexOf('"') < 0
+        && text.indexOf('\n') < 0
+        && text.indexOf('\r') < 0) {
+      line.append(text);
+      return;
+    }
+    line.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (ch == '"') {
+        line.append('"');
+      }
+      line.append(ch);
+    }
+    line.append('"');
+  }
+}
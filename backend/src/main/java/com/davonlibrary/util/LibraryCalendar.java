@@ -0,0 +1,192 @@
+package com.davonlibrary.util;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Collection;
+
+/**
+ * Weekends and holidays of the library, answering how many fall in a date range in O(1).
+ *
+ * <p>Weekend days are counted arithmetically from the epoch day. Holidays are precomputed for a
+ * range of years as one 366-bit set per year, with running totals of the holidays before each
+ * year, so the count up to any date is a running total plus the bit count of part of one year's
+ * set. A second set per year marks the holidays that fall on a weekend. Holidays outside the
+ * calendar's years are not counted. Immutable and thread-safe.
+ */
+public class LibraryCalendar {
+
+  private static final int WORDS_PER_YEAR = 6; // 6 * 64 bits >= 366 days
+
+  private final int firstYear;
+  private final int lastYear;
+  // Per year, bit (dayOfYear - 1) is set for each holiday / each holiday on a weekend
+  private final long[][] holidays;
+  private final long[][] weekendHolidays;
+  // Holidays / weekend holidays in all calendar years before the year at each index
+  private final int[] holidaysBefore;
+  private final int[] weekendHolidaysBefore;
+
+  /**
+   * Builds the calendar.
+   *
+   * @param annual holidays observed on the same date every year; February 29 only in leap years
+   * @param oneOff holidays observed on a single date
+   * @param firstYear the first year to cover
+   * @param lastYear the last year to cover
+   */
+  public LibraryCalendar(
+      Collection<MonthDay> annual, Collection<LocalDate> oneOff, int firstYear, int lastYear) {
+    if (lastYear < firstYear) {
+      throw new IllegalArgumentException("Last year must not be before first year");
+    }
+    this.firstYear = firstYear;
+    this.lastYear = lastYear;
+    int years = lastYear - firstYear + 1;
+    holidays = new long[years][WORDS_PER_YEAR];
+    weekendHolidays = new long[years][WORDS_PER_YEAR];
+    for (int year = firstYear; year <= lastYear; year++) {
+      for (MonthDay monthDay : annual) {
+        if (monthDay.isValidYear(year)) {
+          mark(monthDay.atYear(year));
+        }
+      }
+    }
+    for (LocalDate date : oneOff) {
+      if (date.getYear() >= firstYear && date.getYear() <= lastYear) {
+        mark(date);
+      }
+    }
+    holidaysBefore = new int[years + 1];
+    weekendHolidaysBefore = new int[years + 1];
+    for (int i = 0; i < years; i++) {
+      holidaysBefore[i + 1] = holidaysBefore[i] + bitCount(holidays[i], WORDS_PER_YEAR * 64);
+      weekendHolidaysBefore[i + 1] =
+          weekendHolidaysBefore[i] + bitCount(weekendHolidays[i], WORDS_PER_YEAR * 64);
+    }
+  }
+
+  /**
+   * Checks whether a date is a holiday.
+   *
+   * @param date the date
+   * @return true if the date is a holiday within the calendar's years
+   */
+  public boolean isHoliday(LocalDate date) {
+    int year = date.getYear();
+    if (year < firstYear || year > lastYear) {
+      return false;
+    }
+    int bit = date.getDayOfYear() - 1;
+    return (holidays[year - firstYear][bit >>> 6] & (1L << bit)) != 0;
+  }
+
+  /**
+   * Checks whether a date falls on a weekend.
+   *
+   * @param date the date
+   * @return true on Saturday and Sunday
+   */
+  public static boolean isWeekend(LocalDate date) {
+    DayOfWeek day = date.getDayOfWeek();
+    return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+  }
+
+  /**
+   * Counts the Saturdays and Sundays in a date range.
+   *
+   * @param from the first date, inclusive
+   * @param to the last date, inclusive
+   * @return the number of weekend days, or 0 if the range is empty
+   */
+  public static long countWeekendDays(LocalDate from, LocalDate to) {
+    if (to.isBefore(from)) {
+      return 0;
+    }
+    return weekendDaysBefore(to.toEpochDay() + 1) - weekendDaysBefore(from.toEpochDay());
+  }
+
+  /**
+   * Counts the holidays in a date range.
+   *
+   * @param from the first date, inclusive
+   * @param to the last date, inclusive
+   * @return the number of holidays, or 0 if the range is empty
+   */
+  public long countHolidays(LocalDate from, LocalDate to) {
+    if (to.isBefore(from)) {
+      return 0;
+    }
+    return before(to.plusDays(1), holidays, holidaysBefore)
+        - before(from, holidays, holidaysBefore);
+  }
+
+  /**
+   * Counts the holidays that fall on a weekend in a date range.
+   *
+   * @param from the first date, inclusive
+   * @param to the last date, inclusive
+   * @return the number of weekend holidays, or 0 if the range is empty
+   */
+  public long countWeekendHolidays(LocalDate from, LocalDate to) {
+    if (to.isBefore(from)) {
+      return 0;
+    }
+    return before(to.plusDays(1), weekendHolidays, weekendHolidaysBefore)
+        - before(from, weekendHolidays, weekendHolidaysBefore);
+  }
+
+  /** Returns the first year covered. */
+  public int getFirstYear() {
+    return firstYear;
+  }
+
+  /** Returns the last year covered. */
+  public int getLastYear() {
+    return lastYear;
+  }
+
+  private void mark(LocalDate date) {
+    int index = date.getYear() - firstYear;
+    int bit = date.getDayOfYear() - 1;
+    holidays[index][bit >>> 6] |= 1L << bit;
+    if (isWeekend(date)) {
+      weekendHolidays[index][bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  /** Counts the marked days of the calendar strictly before a date. */
+  private int before(LocalDate date, long[][] bits, int[] totalsBefore) {
+    int year = date.getYear();
+    if (year < firstYear) {
+      return 0;
+    }
+    if (year > lastYear) {
+      return totalsBefore[totalsBefore.length - 1];
+    }
+    int index = year - firstYear;
+    return totalsBefore[index] + bitCount(bits[index], date.getDayOfYear() - 1);
+  }
+
+  /** Counts the set bits below a bit index. */
+  private static int bitCount(long[] words, int bits) {
+    int count = 0;
+    int word = 0;
+    for (; word < bits >>> 6; word++) {
+      count += Long.bitCount(words[word]);
+    }
+    int rest = bits & 63;
+    if (rest > 0) {
+      count += Long.bitCount(words[word] & ((1L << rest) - 1));
+    }
+    return count;
+  }
+
+  /** Counts the weekend days before an epoch day; day 0, 1970-01-01, was a Thursday. */
+  private static long weekendDaysBefore(long epochDay) {
+    long weeks = Math.floorDiv(epochDay, 7);
+    int rest = Math.floorMod(epochDay, 7);
+    // A week starting on Thursday reaches Saturday after 3 days and Sunday after 4
+    return weeks * 2 + Math.max(0, Math.min(2, rest - 2));
+  }
+}
@@ -0,0 +1,246 @@
+package com.davonlibrary.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code long} keys to {@code long} values, without boxing.
+ *
+ * <p>Uses linear probing with backward-shift deletion, so there are no tombstones and lookups
+ * stay short under churn. Not thread-safe; callers guard access themselves.
+ */
+public class LongLongHashMap {
+
+  private static final long EMPTY = 0L;
+  private static final float LOAD_FACTOR = 0.6f;
+
+  private long[] keys;
+  private long[] values;
+  private int mask;
+  private int size;
+  private int resizeAt;
+  // Key 0 is the empty-slot marker, so its entry is kept outside the table
+  private boolean hasZeroKey;
+  private long zeroValue;
+
+  /** Creates an empty map. */
+  public LongLongHashMap() {
+    this(16);
+  }
+
+  /**
+   * Creates an empty map sized for the expected number of entries.
+   *
+   * @param expectedSize the expected number of entries
+   */
+  public LongLongHashMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    allocate(capacity);
+  }
+
+  /**
+   * Gets the value for a key.
+   *
+   * @param key the key
+   * @param defaultValue value returned when the key is absent
+   * @return the value, or {@code defaultValue} if absent
+   */
+  public long get(long key, long defaultValue) {
+    if (key == EMPTY) {
+      return hasZeroKey ? zeroValue : defaultValue;
+    }
+    int slot = slot(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Checks whether a key is present.
+   *
+   * @param key the key
+   * @return true if the map contains the key
+   */
+  public boolean containsKey(long key) {
+    if (key == EMPTY) {
+      return hasZeroKey;
+    }
+    int slot = slot(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Associates a value with a key.
+   *
+   * @param key the key
+   * @param value the value
+   */
+  public void put(long key, long value) {
+    if (key == EMPTY) {
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        size++;
+      }
+      zeroValue = value;
+      return;
+    }
+    int slot = slot(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size >= resizeAt) {
+      rehash(keys.length << 1);
+    }
+  }
+
+  /**
+   * Adds a delta to the value of a key, treating an absent key as zero.
+   *
+   * @param key the key
+   * @param delta the amount to add
+   * @return the new value
+   */
+  public long addTo(long key, long delta) {
+    long value = get(key, 0L) + delta;
+    put(key, value);
+    return value;
+  }
+
+  /**
+   * Removes a key.
+   *
+   * @param key the key
+   * @return true if the key was present
+   */
+  public boolean remove(long key) {
+    if (key == EMPTY) {
+      boolean had = hasZeroKey;
+      if (had) {
+        hasZeroKey = false;
+        zeroValue = 0L;
+        size--;
+      }
+      return had;
+    }
+    int slot = slot(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        shiftBack(slot);
+        size--;
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  /** Returns the number of entries. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns true if the map has no entries. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Removes all entries. */
+  public void clear() {
+    Arrays.fill(keys, EMPTY);
+    hasZeroKey = false;
+    zeroValue = 0L;
+    size = 0;
+  }
+
+  /**
+   * Calls the consumer for every entry, in no particular order.
+   *
+   * @param consumer the entry consumer
+   */
+  public void forEach(EntryConsumer consumer) {
+    if (hasZeroKey) {
+      consumer.accept(EMPTY, zeroValue);
+    }
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != EMPTY) {
+        consumer.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  /**
+   * Estimates the heap used by the map's arrays.
+   *
+   * @return estimated footprint in bytes
+   */
+  public long estimatedBytes() {
+    return 2L * (16 + 8L * keys.length);
+  }
+
+  /** Receives map entries. */
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(long key, long value);
+  }
+
+  private int slot(long key) {
+    // Fibonacci hashing spreads sequential IDs across the table
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+  }
+
+  private void shiftBack(int slot) {
+    int gap = slot;
+    int next = (gap + 1) & mask;
+    while (keys[next] != EMPTY) {
+      int ideal = slot(keys[next]);
+      // Move the entry into the gap unless its ideal slot lies cyclically in (gap, next]
+      if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next + 1) & mask;
+    }
+    keys[gap] = EMPTY;
+    values[gap] = 0L;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new long[capacity];
+    mask = capacity - 1;
+    resizeAt = (int) (capacity * LOAD_FACTOR);
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    long[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      long key = oldKeys[i];
+      if (key != EMPTY) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
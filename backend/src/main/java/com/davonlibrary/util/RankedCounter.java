@@ -0,0 +1,226 @@
+package com.davonlibrary.util;
+
+import java.util.Arrays;
+
+/**
+ * Counters for {@code long} keys kept sorted by count, highest first, so the top K keys can be read
+ * in O(K) at any time.
+ *
+ * <p>Keys sit in an array ordered by count, with a map from each key to its slot. Keys with equal
+ * counts form a run, and a counter changes by moving its key to the edge of its run with one swap
+ * (found by binary search) before changing the count, which keeps the array sorted. A change of
+ * one is therefore O(log n), and a larger change is O(log n) per run of equal counts it crosses.
+ * Keys whose count drops to zero are removed. Keys with equal counts are in no particular order.
+ * Not thread-safe; callers guard access themselves.
+ */
+public class RankedCounter {
+
+  private static final int MIN_CAPACITY = 8;
+
+  private long[] keys;
+  private long[] counts;
+  private int size;
+  // key -> slot
+  private final LongLongHashMap slots;
+
+  /** Creates an empty counter. */
+  public RankedCounter() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Creates an empty counter.
+   *
+   * @param expectedSize the number of keys the counter should hold without growing
+   */
+  public RankedCounter(int expectedSize) {
+    int capacity = Math.max(MIN_CAPACITY, expectedSize);
+    keys = new long[capacity];
+    counts = new long[capacity];
+    slots = new LongLongHashMap(capacity);
+  }
+
+  /**
+   * Creates a counter holding the given counts, sorting them once. Keys with counts below one are
+   * left out.
+   *
+   * @param initial key -> count
+   * @return the counter
+   */
+  public static RankedCounter of(LongLongHashMap initial) {
+    int n = initial.size();
+    long[] initialKeys = new long[n];
+    long[] initialCounts = new long[n];
+    int[] filled = new int[1];
+    initial.forEach(
+        (key, count) -> {
+          if (count > 0) {
+            initialKeys[filled[0]] = key;
+            initialCounts[filled[0]] = count;
+            filled[0]++;
+          }
+        });
+    Integer[] order = new Integer[filled[0]];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(initialCounts[b], initialCounts[a]));
+    RankedCounter counter = new RankedCounter(order.length);
+    for (int i = 0; i < order.length; i++) {
+      counter.keys[i] = initialKeys[order[i]];
+      counter.counts[i] = initialCounts[order[i]];
+      counter.slots.put(counter.keys[i], i);
+    }
+    counter.size = order.length;
+    return counter;
+  }
+
+  /**
+   * Gets the count of a key.
+   *
+   * @param key the key
+   * @return the count, or 0 if the key is not counted
+   */
+  public long get(long key) {
+    int slot = (int) slots.get(key, -1);
+    return slot < 0 ? 0 : counts[slot];
+  }
+
+  /**
+   * Adds a delta to the count of a key, treating an absent key as zero.
+   *
+   * @param key the key
+   * @param delta the amount to add, negative to subtract
+   * @return the new count
+   * @throws IllegalArgumentException if the count would drop below zero
+   */
+  public long add(long key, long delta) {
+    int slot = (int) slots.get(key, -1);
+    long current = slot < 0 ? 0 : counts[slot];
+    if (current + delta < 0) {
+      throw new IllegalArgumentException(
+          "Count of " + key + " would drop below zero: " + current + " + " + delta);
+    }
+    if (delta > 0) {
+      if (slot < 0) {
+        // Zero sorts after every counted key, so a new key starts at the end
+        if (size == keys.length) {
+          keys = Arrays.copyOf(keys, size * 2);
+          counts = Arrays.copyOf(counts, size * 2);
+        }
+        slot = size++;
+        keys[slot] = key;
+        counts[slot] = 0;
+        slots.put(key, slot);
+      }
+      increase(slot, delta);
+    } else if (delta < 0) {
+      decrease(slot, -delta);
+    }
+    return current + delta;
+  }
+
+  /**
+   * Gets the keys with the highest counts.
+   *
+   * @param limit the maximum number of keys
+   * @return the keys, highest count first
+   */
+  public long[] topKeys(int limit) {
+    return Arrays.copyOf(keys, Math.max(0, Math.min(limit, size)));
+  }
+
+  /**
+   * Gets the highest counts, in the same order as {@link #topKeys(int)}.
+   *
+   * @param limit the maximum number of counts
+   * @return the counts, highest first
+   */
+  public long[] topCounts(int limit) {
+    return Arrays.copyOf(counts, Math.max(0, Math.min(limit, size)));
+  }
+
+  /** Returns the number of counted keys. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns true if no keys are counted. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  private void increase(int slot, long delta) {
+    while (delta > 0) {
+      // Move to the front of the run of equal counts, then raise at most to the run above
+      int front = firstSlotWithCountAtMost(counts[slot], slot);
+      swap(slot, front);
+      slot = front;
+      long step = slot == 0 ? delta : Math.min(delta, counts[slot - 1] - counts[slot]);
+      counts[slot] += step;
+      delta -= step;
+    }
+  }
+
+  private void decrease(int slot, long delta) {
+    while (delta > 0) {
+      // Move to the back of the run of equal counts, then lower at most to the run below
+      int back = lastSlotWithCountAtLeast(counts[slot], slot);
+      swap(slot, back);
+      slot = back;
+      long below = slot + 1 < size ? counts[slot + 1] : 0;
+      long step = Math.min(delta, counts[slot] - below);
+      counts[slot] -= step;
+      delta -= step;
+    }
+    if (counts[slot] == 0) {
+      // Only the last key can reach zero, as every other key is above it
+      slots.remove(keys[slot]);
+      size--;
+    }
+  }
+
+  /** Finds the first slot in [0, to] whose count is at most the given count. */
+  private int firstSlotWithCountAtMost(long count, int to) {
+    int low = 0;
+    int high = to;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (counts[mid] <= count) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /** Finds the last slot in [from, size) whose count is at least the given count. */
+  private int lastSlotWithCountAtLeast(long count, int from) {
+    int low = from;
+    int high = size - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (counts[mid] >= count) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  private void swap(int a, int b) {
+    if (a == b) {
+      return;
+    }
+    long key = keys[a];
+    long count = counts[a];
+    keys[a] = keys[b];
+    counts[a] = counts[b];
+    keys[b] = key;
+    counts[b] = count;
+    slots.put(keys[a], a);
+    slots.put(keys[b], b);
+  }
+}
@@ -0,0 +1,201 @@
+package com.davonlibrary.util;
+
+import java.util.Arrays;
+
+/**
+ * First-in first-out queue of distinct {@code long} keys that can also remove any key and report
+ * the 1-based position of any key.
+ *
+ * <p>Keys occupy slots in arrival order and a Fenwick tree counts the live slots, so adding,
+ * removing, finding a key's position and finding the key at a position are all O(log n). Removed
+ * keys leave empty slots behind; when the slots run out the live keys are compacted, or the arrays
+ * grown if more than half the slots are live, so the slot count stays within twice the size plus
+ * the initial capacity. Not thread-safe; callers guard access themselves.
+ */
+public class RankedQueue {
+
+  private static final int MIN_CAPACITY = 8;
+
+  private long[] keys;
+  // Fenwick tree over slots: tree[i] counts the live slots in (i - lowbit(i), i], 1-based
+  private int[] tree;
+  private boolean[] live;
+  // key -> slot
+  private final LongLongHashMap slots;
+  private int tail;
+  private int size;
+
+  /** Creates an empty queue. */
+  public RankedQueue() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Creates an empty queue.
+   *
+   * @param expectedSize the number of keys the queue should hold without growing
+   */
+  public RankedQueue(int expectedSize) {
+    int capacity = Math.max(MIN_CAPACITY, expectedSize);
+    keys = new long[capacity];
+    tree = new int[capacity + 1];
+    live = new boolean[capacity];
+    slots = new LongLongHashMap(capacity);
+  }
+
+  /**
+   * Adds a key at the back of the queue.
+   *
+   * @param key the key
+   * @return false, without moving it, if the key is already queued
+   */
+  public boolean add(long key) {
+    if (slots.containsKey(key)) {
+      return false;
+    }
+    if (tail == keys.length) {
+      relayout(size * 2 > keys.length ? keys.length * 2 : keys.length);
+    }
+    keys[tail] = key;
+    live[tail] = true;
+    slots.put(key, tail);
+    increment(tail, 1);
+    tail++;
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes a key from anywhere in the queue; keys behind it move up one position.
+   *
+   * @param key the key
+   * @return true if the key was queued
+   */
+  public boolean remove(long key) {
+    int slot = (int) slots.get(key, -1);
+    if (slot < 0) {
+      return false;
+    }
+    slots.remove(key);
+    live[slot] = false;
+    increment(slot, -1);
+    size--;
+    if (size == 0) {
+      // Reuse the slots from the start rather than compacting later
+      tail = 0;
+      Arrays.fill(tree, 0);
+    }
+    return true;
+  }
+
+  /**
+   * Gets the position of a key.
+   *
+   * @param key the key
+   * @return the 1-based position from the front, or 0 if the key is not queued
+   */
+  public int position(long key) {
+    int slot = (int) slots.get(key, -1);
+    if (slot < 0) {
+      return 0;
+    }
+    // Live slots up to and including this one
+    int count = 0;
+    for (int i = slot + 1; i > 0; i -= i & -i) {
+      count += tree[i];
+    }
+    return count;
+  }
+
+  /**
+   * Gets the key at a position.
+   *
+   * @param position the 1-based position from the front
+   * @return the key
+   * @throws IndexOutOfBoundsException if the position is not between 1 and the size
+   */
+  public long get(int position) {
+    if (position < 1 || position > size) {
+      throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+    }
+    // Descend the tree to the last slot with fewer than position live slots before it
+    int slot = 0;
+    int remaining = position;
+    for (int step = Integer.highestOneBit(keys.length); step > 0; step >>= 1) {
+      int next = slot + step;
+      if (next <= keys.length && tree[next] < remaining) {
+        slot = next;
+        remaining -= tree[next];
+      }
+    }
+    return keys[slot];
+  }
+
+  /**
+   * Returns true if the key is queued.
+   *
+   * @param key the key
+   * @return true if queued
+   */
+  public boolean contains(long key) {
+    return slots.containsKey(key);
+  }
+
+  /** Returns the number of queued keys. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns true if no keys are queued. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the queued keys from front to back. */
+  public long[] toArray() {
+    long[] result = new long[size];
+    int n = 0;
+    for (int slot = 0; slot < tail; slot++) {
+      if (live[slot]) {
+        result[n++] = keys[slot];
+      }
+    }
+    return result;
+  }
+
+  private void increment(int slot, int delta) {
+    for (int i = slot + 1; i <= keys.length; i += i & -i) {
+      tree[i] += delta;
+    }
+  }
+
+  /** Moves the live keys to the front of arrays of the given capacity and rebuilds the tree. */
+  private void relayout(int capacity) {
+    long[] newKeys = new long[capacity];
+    boolean[] newLive = new boolean[capacity];
+    int[] newTree = new int[capacity + 1];
+    int n = 0;
+    for (int slot = 0; slot < tail; slot++) {
+      if (live[slot]) {
+        newKeys[n] = keys[slot];
+        newLive[n] = true;
+        slots.put(keys[slot], n);
+        n++;
+      }
+    }
+    // Linear-time Fenwick construction: each node passes its count on to its parent
+    for (int i = 1; i <= capacity; i++) {
+      if (i <= n) {
+        newTree[i]++;
+      }
+      int parent = i + (i & -i);
+      if (parent <= capacity) {
+        newTree[parent] += newTree[i];
+      }
+    }
+    keys = newKeys;
+    live = newLive;
+    tree = newTree;
+    tail = n;
+  }
+}
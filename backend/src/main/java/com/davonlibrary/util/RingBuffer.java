@@ -0,0 +1,100 @@
+package com.davonlibrary.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded buffer keeping the latest values added, overwriting the oldest once full.
+ *
+ * <p>Lock-free: a writer takes the next sequence number from a counter and publishes its value
+ * into the slot that sequence maps to with a compare-and-set, never replacing a value with a
+ * higher sequence, so a writer that stalls cannot clobber a newer value once the buffer has
+ * wrapped. Readers walk back from the latest sequence and skip slots whose value is not yet
+ * published or has already been overwritten. A read therefore sees each value at most once and
+ * in newest-first order, but may miss a value still being added concurrently. Thread-safe.
+ *
+ * @param <T> the type of the values
+ */
+public class RingBuffer<T> {
+
+  private final AtomicReferenceArray<Slot<T>> slots;
+  private final AtomicLong nextSequence = new AtomicLong();
+
+  /**
+   * Creates an empty buffer.
+   *
+   * @param capacity the number of values kept
+   */
+  public RingBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    slots = new AtomicReferenceArray<>(capacity);
+  }
+
+  /**
+   * Adds a value, overwriting the oldest value if the buffer is full.
+   *
+   * @param value the value
+   */
+  public void add(T value) {
+    long sequence = nextSequence.getAndIncrement();
+    int index = (int) (sequence % slots.length());
+    Slot<T> slot = new Slot<>(sequence, value);
+    while (true) {
+      Slot<T> current = slots.get(index);
+      if (current != null && current.sequence > sequence) {
+        return; // Lapped while stalled; the value is already older than the buffer holds
+      }
+      if (slots.compareAndSet(index, current, slot)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Gets the latest values, newest first.
+   *
+   * @param limit the maximum number of values
+   * @return up to {@code limit} values
+   */
+  public List<T> latest(int limit) {
+    long end = nextSequence.get();
+    long start = Math.max(0, end - slots.length());
+    List<T> values = new ArrayList<>((int) Math.min(Math.max(limit, 0), end - start));
+    for (long sequence = end - 1; sequence >= start && values.size() < limit; sequence--) {
+      Slot<T> slot = slots.get((int) (sequence % slots.length()));
+      if (slot != null && slot.sequence == sequence) {
+        values.add(slot.value);
+      }
+    }
+    return values;
+  }
+
+  /** Returns the number of values the buffer keeps. */
+  public int capacity() {
+    return slots.length();
+  }
+
+  /** Returns the number of values held, at most the capacity. */
+  public int size() {
+    return (int) Math.min(nextSequence.get(), slots.length());
+  }
+
+  /** Returns the number of values ever added. */
+  public long added() {
+    return nextSequence.get();
+  }
+
+  private static final class Slot<T> {
+    final long sequence;
+    final T value;
+
+    Slot(long sequence, T value) {
+      this.sequence = sequence;
+      this.value = value;
+    }
+  }
+}
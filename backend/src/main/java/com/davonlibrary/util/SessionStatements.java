@@ -0,0 +1,30 @@
+package com.davonlibrary.util;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+
+/**
+ * Runs native statements that change session settings rather than data. Hibernate treats a native
+ * update without declared query spaces as touching every table and drops the whole second-level
+ * cache after it; declaring a space no entity maps to keeps the cache intact.
+ */
+public final class SessionStatements {
+
+  private static final String SESSION_SETTINGS_SPACE = "session_settings";
+
+  private SessionStatements() {}
+
+  /**
+   * Executes a session-level statement such as {@code SET QUOTED_IDENTIFIER ON}.
+   *
+   * @param entityManager the entity manager whose connection the statement applies to
+   * @param sql the statement
+   */
+  public static void execute(EntityManager entityManager, String sql) {
+    entityManager
+        .createNativeQuery(sql)
+        .unwrap(NativeQuery.class)
+        .addSynchronizedQuerySpace(SESSION_SETTINGS_SPACE)
+        .executeUpdate();
+  }
+}
@@ -0,0 +1,290 @@
+package com.davonlibrary.util;
+
+import java.util.Arrays;
+
+/**
+ * Sparse matrix of {@code int} counts indexed by non-negative {@code int} rows and columns,
+ * without boxing.
+ *
+ * <p>Each row is its own open-addressing table of column to count, using linear probing with
+ * backward-shift deletion like {@link LongLongHashMap}, so reading a whole row touches two arrays
+ * and a cell that drops to zero is removed. Rows are allocated on first write. Not thread-safe;
+ * callers guard access themselves.
+ */
+public class SparseIntMatrix {
+
+  private static final float LOAD_FACTOR = 0.6f;
+  private static final int INITIAL_ROW_CAPACITY = 4;
+  private static final int[] EMPTY_ROW = new int[0];
+
+  // Per row: column + 1 in each used slot (0 marks an empty slot), and the count beside it
+  private int[][] columns;
+  private int[][] counts;
+  private int[] sizes;
+  private long nonZeros;
+
+  /** Creates an empty matrix. */
+  public SparseIntMatrix() {
+    this(16);
+  }
+
+  /**
+   * Creates an empty matrix sized for the expected number of rows.
+   *
+   * @param expectedRows the expected number of rows
+   */
+  public SparseIntMatrix(int expectedRows) {
+    int rows = Math.max(1, expectedRows);
+    columns = new int[rows][];
+    counts = new int[rows][];
+    sizes = new int[rows];
+  }
+
+  /**
+   * Gets a cell.
+   *
+   * @param row the row
+   * @param column the column
+   * @return the count, or 0 if the cell is empty
+   */
+  public int get(int row, int column) {
+    if (row >= columns.length || columns[row] == null) {
+      return 0;
+    }
+    int[] keys = columns[row];
+    int mask = keys.length - 1;
+    int key = column + 1;
+    int slot = slot(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        return counts[row][slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return 0;
+  }
+
+  /**
+   * Adds a delta to a cell, removing the cell when it reaches zero.
+   *
+   * @param row the row
+   * @param column the column
+   * @param delta the amount to add
+   * @return the new count
+   */
+  public int add(int row, int column, int delta) {
+    if (delta == 0) {
+      return get(row, column);
+    }
+    ensureRows(row + 1);
+    if (columns[row] == null) {
+      columns[row] = new int[INITIAL_ROW_CAPACITY];
+      counts[row] = new int[INITIAL_ROW_CAPACITY];
+    }
+    int[] keys = columns[row];
+    int mask = keys.length - 1;
+    int key = column + 1;
+    int slot = slot(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        int value = counts[row][slot] + delta;
+        if (value == 0) {
+          shiftBack(row, slot);
+          sizes[row]--;
+          nonZeros--;
+        } else {
+          counts[row][slot] = value;
+        }
+        return value;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    counts[row][slot] = delta;
+    nonZeros++;
+    if (++sizes[row] >= (int) (keys.length * LOAD_FACTOR)) {
+      rehash(row, keys.length << 1, Integer.MIN_VALUE);
+    }
+    return delta;
+  }
+
+  /**
+   * Adds every cell of another matrix to this one.
+   *
+   * @param other the matrix to add
+   */
+  public void addAll(SparseIntMatrix other) {
+    ensureRows(other.columns.length);
+    for (int row = 0; row < other.columns.length; row++) {
+      int[] keys = other.columns[row];
+      if (keys == null) {
+        continue;
+      }
+      if (columns[row] == null) {
+        // Copy whole rows this matrix does not have yet
+        columns[row] = keys.clone();
+        counts[row] = other.counts[row].clone();
+        sizes[row] = other.sizes[row];
+        nonZeros += other.sizes[row];
+        continue;
+      }
+      int[] values = other.counts[row];
+      for (int slot = 0; slot < keys.length; slot++) {
+        if (keys[slot] != 0) {
+          add(row, keys[slot] - 1, values[slot]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes every cell whose count is below a minimum, shrinking the rows to what they keep.
+   *
+   * @param min the smallest count kept
+   * @return the number of cells removed
+   */
+  public long removeBelow(int min) {
+    long removed = 0;
+    for (int row = 0; row < columns.length; row++) {
+      int[] keys = columns[row];
+      if (keys == null) {
+        continue;
+      }
+      int kept = 0;
+      for (int slot = 0; slot < keys.length; slot++) {
+        if (keys[slot] != 0 && counts[row][slot] >= min) {
+          kept++;
+        }
+      }
+      if (kept == sizes[row]) {
+        continue;
+      }
+      removed += sizes[row] - kept;
+      sizes[row] = kept;
+      if (kept == 0) {
+        columns[row] = null;
+        counts[row] = null;
+        continue;
+      }
+      int capacity = INITIAL_ROW_CAPACITY;
+      while (kept >= (int) (capacity * LOAD_FACTOR)) {
+        capacity <<= 1;
+      }
+      rehash(row, capacity, min);
+    }
+    nonZeros -= removed;
+    return removed;
+  }
+
+  /**
+   * Calls the consumer for every non-empty cell of a row, in no particular order.
+   *
+   * @param row the row
+   * @param consumer the cell consumer
+   */
+  public void forEachInRow(int row, CellConsumer consumer) {
+    int[] keys = row < columns.length && columns[row] != null ? columns[row] : EMPTY_ROW;
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != 0) {
+        consumer.accept(keys[slot] - 1, counts[row][slot]);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of non-empty cells in a row.
+   *
+   * @param row the row
+   * @return the number of cells
+   */
+  public int rowSize(int row) {
+    return row < sizes.length ? sizes[row] : 0;
+  }
+
+  /** Returns one more than the highest row written, or more. */
+  public int rowCount() {
+    return columns.length;
+  }
+
+  /** Returns the number of non-empty cells. */
+  public long nonZeroCount() {
+    return nonZeros;
+  }
+
+  /**
+   * Estimates the heap used by the matrix's arrays.
+   *
+   * @return estimated footprint in bytes
+   */
+  public long estimatedBytes() {
+    long bytes = 3 * (16 + 8L * columns.length);
+    for (int[] keys : columns) {
+      if (keys != null) {
+        bytes += 2 * (16 + 4L * keys.length);
+      }
+    }
+    return bytes;
+  }
+
+  /** Receives matrix cells. */
+  @FunctionalInterface
+  public interface CellConsumer {
+    void accept(int column, int count);
+  }
+
+  private static int slot(int key, int mask) {
+    // Fibonacci hashing spreads sequential columns across the table
+    int hash = key * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private void ensureRows(int rows) {
+    if (rows <= columns.length) {
+      return;
+    }
+    int capacity = Math.max(rows, columns.length + (columns.length >> 1));
+    columns = Arrays.copyOf(columns, capacity);
+    counts = Arrays.copyOf(counts, capacity);
+    sizes = Arrays.copyOf(sizes, capacity);
+  }
+
+  private void shiftBack(int row, int slot) {
+    int[] keys = columns[row];
+    int[] values = counts[row];
+    int mask = keys.length - 1;
+    int gap = slot;
+    int next = (gap + 1) & mask;
+    while (keys[next] != 0) {
+      int ideal = slot(keys[next], mask);
+      // Move the entry into the gap unless its ideal slot lies cyclically in (gap, next]
+      if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next + 1) & mask;
+    }
+    keys[gap] = 0;
+    values[gap] = 0;
+  }
+
+  private void rehash(int row, int capacity, int min) {
+    int[] oldKeys = columns[row];
+    int[] oldValues = counts[row];
+    int[] keys = new int[capacity];
+    int[] values = new int[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0 && oldValues[i] >= min) {
+        int slot = slot(oldKeys[i], mask);
+        while (keys[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+    columns[row] = keys;
+    counts[row] = values;
+  }
+}
@@ -0,0 +1,48 @@
+package com.davonlibrary.util;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks shared by {@code long} keys. Equal keys always map to the same lock, so work
+ * on one key is serialized while unrelated keys rarely contend, without keeping a lock per key.
+ */
+public class StripedLock {
+
+  private final ReentrantLock[] locks;
+  private final int mask;
+
+  /**
+   * Creates the lock pool.
+   *
+   * @param stripes the minimum number of locks; rounded up to a power of two
+   */
+  public StripedLock(int stripes) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("Stripe count must be positive");
+    }
+    int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+    locks = new ReentrantLock[stripes == 1 ? 1 : size];
+    for (int i = 0; i < locks.length; i++) {
+      // Fair, so a burst of borrowers for one title is served in arrival order
+      locks[i] = new ReentrantLock(true);
+    }
+    mask = locks.length - 1;
+  }
+
+  /**
+   * Gets the lock for a key.
+   *
+   * @param key the key
+   * @return the lock shared by all keys in the same stripe
+   */
+  public Lock get(long key) {
+    // Fibonacci hashing spreads sequential IDs across stripes
+    return locks[(int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask];
+  }
+
+  /** Returns the number of stripes. */
+  public int stripes() {
+    return locks.length;
+  }
+}
@@ -0,0 +1,186 @@
+package com.davonlibrary.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Hierarchical timing wheel that expires {@code long} keys at integer ticks.
+ *
+ * <p>Four levels of 64 slots cover deadlines up to 64^4 ticks ahead; anything further waits in an
+ * overflow bucket. Scheduling and cancelling are O(1); advancing one tick touches one level-0
+ * slot, plus one slot of a higher level whenever that level's boundary is crossed, at which point
+ * its entries cascade down. Cancelled and rescheduled keys leave stale entries behind that are
+ * dropped when their slot is next visited. Not thread-safe; callers guard access themselves.
+ */
+public class TimingWheel {
+
+  private static final int LEVELS = 4;
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final long NONE = Long.MIN_VALUE;
+
+  private final Bucket[][] wheels = new Bucket[LEVELS][SLOTS];
+  private final Bucket overflow = new Bucket();
+  // key -> deadline of its live entry
+  private final LongLongHashMap deadlines = new LongLongHashMap(1024);
+  private long now;
+
+  /**
+   * Creates an empty wheel.
+   *
+   * @param startTick the current tick; deadlines at or before it are already expired
+   */
+  public TimingWheel(long startTick) {
+    for (Bucket[] level : wheels) {
+      for (int i = 0; i < SLOTS; i++) {
+        level[i] = new Bucket();
+      }
+    }
+    now = startTick;
+  }
+
+  /**
+   * Schedules a key to expire at a tick, replacing any earlier schedule of the same key.
+   *
+   * @param key the key
+   * @param deadline the tick at which the key expires
+   * @return false, without scheduling, if the deadline is not after the current tick
+   */
+  public boolean schedule(long key, long deadline) {
+    if (deadline <= now) {
+      deadlines.remove(key);
+      return false;
+    }
+    deadlines.put(key, deadline);
+    place(key, deadline);
+    return true;
+  }
+
+  /**
+   * Cancels a scheduled key.
+   *
+   * @param key the key
+   * @return true if the key was scheduled
+   */
+  public boolean cancel(long key) {
+    return deadlines.remove(key);
+  }
+
+  /**
+   * Gets the deadline of a scheduled key.
+   *
+   * @param key the key
+   * @return the deadline, or {@code Long.MIN_VALUE} if the key is not scheduled
+   */
+  public long deadline(long key) {
+    return deadlines.get(key, NONE);
+  }
+
+  /**
+   * Advances the wheel, expiring every key whose deadline is reached, in deadline order.
+   *
+   * @param tick the tick to advance to; ignored if not after the current tick
+   * @param expired receives each expired key
+   */
+  public void advanceTo(long tick, LongConsumer expired) {
+    while (now < tick) {
+      now++;
+      for (int level = LEVELS - 1; level >= 1; level--) {
+        if ((now & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+          if (level == LEVELS - 1) {
+            cascade(overflow, expired);
+          }
+          cascade(wheels[level][slot(now, level)], expired);
+        }
+      }
+      cascade(wheels[0][slot(now, 0)], expired);
+      if (deadlines.isEmpty()) {
+        // Nothing left to expire; skip straight to the target
+        clearStale();
+        now = tick;
+      }
+    }
+  }
+
+  /** Returns the current tick. */
+  public long currentTick() {
+    return now;
+  }
+
+  /** Returns the number of scheduled keys. */
+  public int size() {
+    return deadlines.size();
+  }
+
+  private void place(long key, long deadline) {
+    long delta = deadline - now;
+    for (int level = 0; level < LEVELS; level++) {
+      if (delta < 1L << (SLOT_BITS * (level + 1))) {
+        wheels[level][slot(deadline, level)].add(key, deadline);
+        return;
+      }
+    }
+    overflow.add(key, deadline);
+  }
+
+  /** Empties a bucket, expiring due entries and re-placing later ones relative to now. */
+  private void cascade(Bucket bucket, LongConsumer expired) {
+    if (bucket.size == 0) {
+      return;
+    }
+    long[] keys = Arrays.copyOf(bucket.keys, bucket.size);
+    long[] due = Arrays.copyOf(bucket.deadlines, bucket.size);
+    bucket.clear();
+    for (int i = 0; i < keys.length; i++) {
+      if (deadlines.get(keys[i], NONE) != due[i]) {
+        continue; // cancelled or rescheduled since this entry was placed
+      }
+      if (due[i] <= now) {
+        deadlines.remove(keys[i]);
+        expired.accept(keys[i]);
+      } else {
+        place(keys[i], due[i]);
+      }
+    }
+  }
+
+  private void clearStale() {
+    for (Bucket[] level : wheels) {
+      for (Bucket bucket : level) {
+        bucket.clear();
+      }
+    }
+    overflow.clear();
+  }
+
+  private static int slot(long tick, int level) {
+    return (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+  }
+
+  /** Growable list of (key, deadline) entries. */
+  private static class Bucket {
+    long[] keys = new long[0];
+    long[] deadlines = new long[0];
+    int size;
+
+    void add(long key, long deadline) {
+      if (size == keys.length) {
+        int capacity = Math.max(4, size << 1);
+        keys = Arrays.copyOf(keys, capacity);
+        deadlines = Arrays.copyOf(deadlines, capacity);
+      }
+      keys[size] = key;
+      deadlines[size] = deadline;
+      size++;
+    }
+
+    void clear() {
+      size = 0;
+      if (keys.length > 64) {
+        // Release the memory of a slot that held a burst of entries
+        keys = new long[0];
+        deadlines = new long[0];
+      }
+    }
+  }
+}
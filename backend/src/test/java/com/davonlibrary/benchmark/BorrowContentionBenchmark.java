@@ -0,0 +1,219 @@
+package com.davonlibrary.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.davonlibrary.entity.Author;
+import com.davonlibrary.entity.Book;
+import com.davonlibrary.entity.BookCopy;
+import com.davonlibrary.entity.Library;
+import com.davonlibrary.entity.Loan;
+import com.davonlibrary.entity.User;
+import com.davonlibrary.service.BookAvailabilityService;
+import com.davonlibrary.service.LibraryService;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures borrow throughput while a growing number of borrowers rush the same title. Each round
+ * resets the title's copies and lets N threads borrow until the copies run out, then checks that no
+ * copy was handed out twice.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dtest=BorrowContentionBenchmark}. Tune with {@code
+ * -Dbenchmark.borrow.threads=1,2,4,8}, {@code -Dbenchmark.borrow.copies=2000}.
+ */
+@QuarkusTest
+@Tag("benchmark")
+class BorrowContentionBenchmark {
+
+  @Inject LibraryService libraryService;
+
+  @Inject BookAvailabilityService availabilityService;
+
+  @Test
+  void borrowThroughputUnderContention() throws Exception {
+    int[] threadCounts =
+        Arrays.stream(System.getProperty("benchmark.borrow.threads", "1,2,4,8,16,32").split(","))
+            .mapToInt(value -> Integer.parseInt(value.trim()))
+            .toArray();
+    int copies = Integer.getInteger("benchmark.borrow.copies", 2000);
+    int maxThreads = Arrays.stream(threadCounts).max().orElse(1);
+
+    long bookId = seed(copies, maxThreads);
+    List<Long> userIds = userIds(maxThreads);
+
+    // Warm up connections, JIT and caches
+    runRound(bookId, userIds, Math.min(4, maxThreads), copies);
+
+    System.out.println();
+    System.out.printf("Borrow contention: one title, %d copies per round%n", copies);
+    System.out.printf(
+        "%8s %12s %10s %10s %10s%n", "threads", "borrows/s", "p50 ms", "p99 ms", "timeouts");
+    for (int threads : threadCounts) {
+      Round round = runRound(bookId, userIds, threads, copies);
+      System.out.printf(
+          "%8d %12.0f %10.2f %10.2f %10d%n",
+          threads,
+          round.borrowed * 1_000_000_000.0 / round.elapsedNanos,
+          round.percentileMillis(0.50),
+          round.percentileMillis(0.99),
+          round.rejected);
+    }
+  }
+
+  private Round runRound(long bookId, List<Long> userIds, int threads, int copies)
+      throws Exception {
+    reset(bookId);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<long[]>> results = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      long userId = userIds.get(t);
+      results.add(
+          pool.submit(
+              () -> {
+                start.await();
+                long[] latencies = new long[copies + 1];
+                int count = 0;
+                long rejected = 0;
+                while (true) {
+                  long begin = System.nanoTime();
+                  try {
+                    libraryService.borrowBook(userId, bookId);
+                    latencies[count++] = System.nanoTime() - begin;
+                  } catch (IllegalStateException e) {
+                    if (!availabilityService.isKnownUnavailable(bookId)) {
+                      rejected++;
+                      continue;
+                    }
+                    break;
+                  }
+                }
+                long[] result = Arrays.copyOf(latencies, count + 1);
+                result[count] = rejected;
+                return result;
+              }));
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    Round round = new Round();
+    for (Future<long[]> result : results) {
+      round.add(result.get());
+    }
+    round.elapsedNanos = System.nanoTime() - begin;
+    pool.shutdown();
+
+    assertEquals(copies, round.borrowed, "every copy should be borrowed exactly once");
+    long distinctCopies =
+        QuarkusTransaction.requiringNew()
+            .call(
+                () ->
+                    Loan.getEntityManager()
+                        .createQuery(
+                            "SELECT COUNT(DISTINCT l.bookCopy.id) FROM Loan l"
+                                + " WHERE l.bookCopy.book.id = ?1 AND l.returnDate IS NULL",
+                            Long.class)
+                        .setParameter(1, bookId)
+                        .getSingleResult());
+    assertEquals(copies, distinctCopies, "no copy should be on two active loans");
+    return round;
+  }
+
+  private long seed(int copies, int users) {
+    return QuarkusTransaction.requiringNew()
+        .call(
+            () -> {
+              Author author = new Author();
+              author.firstName = "Bench";
+              author.lastName = "Mark";
+              author.persist();
+              Library library = new Library();
+              library.name = "Benchmark Library";
+              library.address = "1 Benchmark Way";
+              library.persist();
+              Book book = new Book();
+              book.title = "Release Day " + System.nanoTime();
+              book.author = author;
+              book.persist();
+              for (int i = 0; i < copies; i++) {
+                BookCopy copy = new BookCopy();
+                copy.book = book;
+                copy.library = library;
+                copy.barcode = "BENCH-" + book.id + "-" + i;
+                copy.status = BookCopy.BookCopyStatus.AVAILABLE;
+                copy.persist();
+              }
+              for (int i = 0; i < users; i++) {
+                User user = new User();
+                user.firstName = "Borrower";
+                user.lastName = String.valueOf(i);
+                user.email = "borrower" + i + "." + book.id + "@bench.local";
+                user.passwordHash = "x";
+                user.role = "USER";
+                user.joinDate = LocalDate.now();
+                user.persist();
+              }
+              return book.id;
+            });
+  }
+
+  private List<Long> userIds(int count) {
+    return QuarkusTransaction.requiringNew()
+        .call(
+            () ->
+                User.getEntityManager()
+                    .createQuery(
+                        "SELECT u.id FROM User u WHERE u.email LIKE 'borrower%@bench.local'"
+                            + " ORDER BY u.id DESC",
+                        Long.class)
+                    .setMaxResults(count)
+                    .getResultList());
+  }
+
+  private void reset(long bookId) {
+    QuarkusTransaction.requiringNew()
+        .run(
+            () -> {
+              Loan.delete(
+                  "bookCopy.id IN (SELECT c.id FROM BookCopy c WHERE c.book.id = ?1)", bookId);
+              BookCopy.update(
+                  "status = ?1 WHERE book.id = ?2", BookCopy.BookCopyStatus.AVAILABLE, bookId);
+            });
+    availabilityService.reconcile();
+  }
+
+  /** Merged results of all borrower threads in one round. */
+  private static class Round {
+    final List<Long> latencies = new ArrayList<>();
+    long borrowed;
+    long rejected;
+    long elapsedNanos;
+
+    void add(long[] result) {
+      for (int i = 0; i < result.length - 1; i++) {
+        latencies.add(result[i]);
+      }
+      borrowed += result.length - 1;
+      rejected += result[result.length - 1];
+    }
+
+    double percentileMillis(double percentile) {
+      if (latencies.isEmpty()) {
+        return 0;
+      }
+      latencies.sort(null);
+      int index = (int) Math.ceil(percentile * latencies.size()) - 1;
+      return latencies.get(Math.max(0, Math.min(latencies.size() - 1, index))) / 1_000_000.0;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.davonlibrary.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.davonlibrary.recommend.CooccurrenceModel;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the in-memory part of a related-books rebuild: counting the pairs of every borrower's
+ * window on a fork/join pool of all processors, over generated loan histories of up to 10 million
+ * loans. There are about a tenth as many users as loans, with skewed history lengths, and 200,000
+ * books whose popularity is skewed like borrow counts. Reading the loans from the database is not
+ * included. The windows are loaded before each run, which is timed once.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dtest=CooccurrenceBuildBenchmark}. Tune with {@code
+ * -Dbenchmark.cooccurrence.iterations=3}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CooccurrenceBuildBenchmark {
+
+  private static final int BOOKS = 200_000;
+  private static final int MAX_HISTORY = 100;
+
+  @Param({"1000000", "10000000"})
+  public int loans;
+
+  private CooccurrenceModel.Loader loader;
+
+  @Test
+  void buildTime() throws Exception {
+    Options options =
+        new OptionsBuilder()
+            .include(CooccurrenceBuildBenchmark.class.getName() + "\\.")
+            .forks(1)
+            .jvmArgsAppend("-Xmx8g")
+            .warmupIterations(1)
+            .measurementIterations(Integer.getInteger("benchmark.cooccurrence.iterations", 3))
+            .build();
+    assertFalse(new Runner(options).run().isEmpty());
+  }
+
+  @Setup(Level.Invocation)
+  public void setUp() {
+    Random random = new Random(42);
+    loader = new CooccurrenceModel.Loader(MAX_HISTORY, 2);
+    int remaining = loans;
+    for (long user = 0; remaining > 0; user++) {
+      // Most users borrow a few books, some borrow a hundred or more; about ten on average
+      int count = Math.min(remaining, 1 + (int) (-10 * Math.log(1 - random.nextDouble())));
+      for (int i = 0; i < count; i++) {
+        loader.loan(user, (long) Math.floor(Math.pow(random.nextDouble(), 3) * BOOKS));
+      }
+      remaining -= count;
+    }
+  }
+
+  @Benchmark
+  public CooccurrenceModel build() {
+    ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    try {
+      return loader.finish(pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
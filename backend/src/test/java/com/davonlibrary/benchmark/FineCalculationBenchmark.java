@@ -0,0 +1,115 @@
+package com.davonlibrary.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.davonlibrary.service.EnhancedFineService;
+import com.davonlibrary.util.LibraryCalendar;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Compares the closed-form enhanced fine with day-by-day loops for loans 1 to 3650 days overdue:
+ * the loop the service used before, with its approximate weekends and holidays, and a loop over the
+ * real calendar that charges exactly what the closed form does.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dtest=FineCalculationBenchmark}. Tune with {@code
+ * -Dbenchmark.fines.forks=1}, {@code -Dbenchmark.fines.iterations=5}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FineCalculationBenchmark {
+
+  private static final BigDecimal BASE_DAILY_RATE = new BigDecimal("0.50");
+  private static final BigDecimal WEEKEND_MULTIPLIER = new BigDecimal("1.5");
+  private static final BigDecimal HOLIDAY_MULTIPLIER = new BigDecimal("2.0");
+
+  @Param({"1", "7", "30", "365", "3650"})
+  public int daysOverdue;
+
+  private LibraryCalendar calendar;
+  private LocalDate dueDate;
+  private LocalDate asOf;
+
+  @Test
+  void closedFormAgainstDailyLoops() throws Exception {
+    int iterations = Integer.getInteger("benchmark.fines.iterations", 5);
+    Options options =
+        new OptionsBuilder()
+            .include(FineCalculationBenchmark.class.getName() + "\\.")
+            .forks(Integer.getInteger("benchmark.fines.forks", 1))
+            .warmupIterations(3)
+            .warmupTime(TimeValue.seconds(1))
+            .measurementIterations(iterations)
+            .measurementTime(TimeValue.seconds(1))
+            .build();
+    assertFalse(new Runner(options).run().isEmpty());
+  }
+
+  @Setup
+  public void setUp() {
+    calendar = EnhancedFineService.buildCalendar(List.of("01-01", "07-04", "12-25", "12-26"));
+    asOf = LocalDate.of(2026, 3, 17);
+    dueDate = asOf.minusDays(daysOverdue);
+    assertEquals(
+        calendarLoop().movePointRight(2).longValueExact(),
+        closedForm(),
+        "closed form must charge what the day-by-day walk charges");
+  }
+
+  @Benchmark
+  public long closedForm() {
+    return EnhancedFineService.enhancedFineCents(calendar, dueDate, asOf);
+  }
+
+  @Benchmark
+  public BigDecimal calendarLoop() {
+    BigDecimal total = BigDecimal.ZERO;
+    for (LocalDate day = dueDate.plusDays(1); !day.isAfter(asOf); day = day.plusDays(1)) {
+      BigDecimal rate = BASE_DAILY_RATE;
+      if (LibraryCalendar.isWeekend(day)) {
+        rate = rate.multiply(WEEKEND_MULTIPLIER);
+      }
+      if (calendar.isHoliday(day)) {
+        rate = rate.multiply(HOLIDAY_MULTIPLIER);
+      }
+      total = total.add(rate);
+    }
+    return total.setScale(2, RoundingMode.HALF_UP);
+  }
+
+  /** The calculation the service used before, kept as the baseline. */
+  @Benchmark
+  public BigDecimal previousLoop() {
+    BigDecimal total = BigDecimal.ZERO;
+    for (int day = 1; day <= daysOverdue; day++) {
+      BigDecimal rate = BASE_DAILY_RATE;
+      if (day % 7 == 6 || day % 7 == 0) {
+        rate = rate.multiply(WEEKEND_MULTIPLIER);
+      }
+      if (day % 30 == 0) {
+        rate = rate.multiply(HOLIDAY_MULTIPLIER);
+      }
+      total = total.add(rate);
+    }
+    return total.setScale(2, RoundingMode.HALF_UP);
+  }
+}
@@ -0,0 +1,141 @@
+package com.davonlibrary.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.davonlibrary.search.FuzzyMatcher;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Measures "did you mean" lookups over generated vocabularies of 10,000 to 5 million words, shaped
+ * like title words: four to thirteen letters built from common English syllables. Each query is a
+ * vocabulary word with one or two random typos past its first letter, matched with the edit bound
+ * and fixed prefix the search uses for its length, as {@link
+ * com.davonlibrary.search.CatalogSearchIndex#didYouMean} does. Sample mode reports the
+ * percentiles; the pruning keeps a lookup to a small slice of the vocabulary, so latency grows far
+ * slower than its size.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dtest=FuzzyMatcherBenchmark}. Tune with {@code
+ * -Dbenchmark.fuzzy.forks=1}, {@code -Dbenchmark.fuzzy.iterations=5}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FuzzyMatcherBenchmark {
+
+  private static final String[] SYLLABLES = {
+    "an", "ar", "be", "ca", "co", "de", "di", "en", "er", "es", "fa", "ge", "ha", "in", "is", "la",
+    "le", "li", "lo", "ma", "me", "mo", "na", "ne", "no", "on", "or", "pa", "po", "ra", "re", "ri",
+    "ro", "sa", "se", "si", "st", "ta", "te", "th", "ti", "to", "tr", "un", "ve", "wa", "wi", "ry"
+  };
+  private static final int QUERIES = 4096;
+
+  @Param({"10000", "100000", "1000000", "5000000"})
+  public int words;
+
+  private NavigableMap<String, Long> vocabulary;
+  private String[] queries;
+  private int next;
+
+  @Test
+  void didYouMeanLatency() throws Exception {
+    int iterations = Integer.getInteger("benchmark.fuzzy.iterations", 5);
+    Options options =
+        new OptionsBuilder()
+            .include(FuzzyMatcherBenchmark.class.getName() + "\\.")
+            .forks(Integer.getInteger("benchmark.fuzzy.forks", 1))
+            .jvmArgsAppend("-Xmx4g")
+            .warmupIterations(3)
+            .warmupTime(TimeValue.seconds(1))
+            .measurementIterations(iterations)
+            .measurementTime(TimeValue.seconds(2))
+            .build();
+    assertFalse(new Runner(options).run().isEmpty());
+  }
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    vocabulary = new TreeMap<>();
+    while (vocabulary.size() < words) {
+      vocabulary.put(word(random), (long) Math.floor(Math.pow(random.nextDouble(), 8) * 5000));
+    }
+    String[] terms = vocabulary.keySet().toArray(new String[0]);
+    queries = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      String term = terms[random.nextInt(terms.length)];
+      String query = typo(term, random);
+      if (random.nextBoolean()) {
+        // A second typo only where the search would still accept two edits
+        String twice = typo(query, random);
+        query = FuzzyMatcher.maxEditsFor(twice) >= 2 ? twice : query;
+      }
+      queries[i] = query;
+    }
+    assertFalse(lookup(queries[0]).isEmpty());
+  }
+
+  @Benchmark
+  public List<FuzzyMatcher.Match> didYouMean() {
+    next = (next + 1) & (QUERIES - 1);
+    return lookup(queries[next]);
+  }
+
+  private List<FuzzyMatcher.Match> lookup(String query) {
+    return FuzzyMatcher.find(
+        vocabulary,
+        "",
+        query,
+        FuzzyMatcher.prefixLengthFor(query),
+        FuzzyMatcher.maxEditsFor(query),
+        Long::longValue,
+        5);
+  }
+
+  private static String word(Random random) {
+    int syllables = 2 + random.nextInt(5);
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i < syllables; i++) {
+      word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+    }
+    if (random.nextInt(3) == 0) {
+      word.append((char) ('a' + random.nextInt(26)));
+    }
+    return word.toString();
+  }
+
+  /** Applies one random insertion, deletion, substitution or swap past the first letter. */
+  private static String typo(String word, Random random) {
+    StringBuilder typo = new StringBuilder(word);
+    int at = 1 + random.nextInt(word.length() - 2);
+    char letter = (char) ('a' + random.nextInt(26));
+    switch (random.nextInt(4)) {
+      case 0 -> typo.insert(at, letter);
+      case 1 -> typo.deleteCharAt(at);
+      case 2 -> typo.setCharAt(at, letter);
+      default -> {
+        typo.setCharAt(at, word.charAt(at + 1));
+        typo.setCharAt(at + 1, word.charAt(at));
+      }
+    }
+    return typo.toString();
+  }
+}
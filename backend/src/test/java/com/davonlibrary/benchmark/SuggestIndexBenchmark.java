@@ -0,0 +1,124 @@
+package com.davonlibrary.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.davonlibrary.search.SuggestIndex;
+import com.davonlibrary.search.SuggestIndex.Kind;
+import com.davonlibrary.search.SuggestIndex.Suggestion;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Measures typeahead latency over generated catalogs of up to a million titles, with a tenth as
+ * many authors and 10,000 titles in the delta as just before a compaction. Prefixes are one to
+ * four words long, cut mid-word, and are drawn from the generated titles, so the short ones match
+ * hundreds of thousands of entries. Sample mode reports the percentiles; the p99 should stay well
+ * under 2 ms at a million titles.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dtest=SuggestIndexBenchmark}. Tune with {@code
+ * -Dbenchmark.suggest.forks=1}, {@code -Dbenchmark.suggest.iterations=5}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SuggestIndexBenchmark {
+
+  private static final String[] WORDS = {
+    "the", "a", "of", "and", "history", "harry", "house", "heart", "night", "north", "war",
+    "water", "winter", "garden", "girl", "game", "love", "light", "lost", "last", "secret",
+    "silent", "stone", "star", "city", "children", "dark", "dream", "empire", "fire", "king",
+    "queen", "river", "road", "shadow", "sea", "time", "tale", "world", "wild"
+  };
+  private static final int DELTA = 10_000;
+  private static final int PREFIXES = 4096;
+
+  @Param({"10000", "100000", "1000000"})
+  public int titles;
+
+  private SuggestIndex index;
+  private String[] prefixes;
+  private int next;
+
+  @Test
+  void suggestLatency() throws Exception {
+    int iterations = Integer.getInteger("benchmark.suggest.iterations", 5);
+    Options options =
+        new OptionsBuilder()
+            .include(SuggestIndexBenchmark.class.getName() + "\\.")
+            .forks(Integer.getInteger("benchmark.suggest.forks", 1))
+            .jvmArgsAppend("-Xmx2g")
+            .warmupIterations(3)
+            .warmupTime(TimeValue.seconds(1))
+            .measurementIterations(iterations)
+            .measurementTime(TimeValue.seconds(2))
+            .build();
+    assertFalse(new Runner(options).run().isEmpty());
+  }
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    SuggestIndex.Builder builder = new SuggestIndex.Builder(titles + titles / 10);
+    String[] generated = new String[titles];
+    for (int id = 0; id < titles; id++) {
+      generated[id] = title(random);
+      builder.add(Kind.BOOK, id, generated[id], popularity(random));
+    }
+    for (int id = 0; id < titles / 10; id++) {
+      builder.add(Kind.AUTHOR, id, WORDS[random.nextInt(WORDS.length)] + " " + id, 0);
+    }
+    index = builder.build();
+    for (int id = titles; id < titles + Math.min(DELTA, titles / 10); id++) {
+      index.put(Kind.BOOK, id, title(random), popularity(random));
+    }
+
+    prefixes = new String[PREFIXES];
+    for (int i = 0; i < PREFIXES; i++) {
+      String[] words = generated[random.nextInt(titles)].split(" ");
+      int count = 1 + random.nextInt(Math.min(4, words.length));
+      String last = words[count - 1];
+      StringBuilder prefix = new StringBuilder();
+      for (int w = 0; w < count - 1; w++) {
+        prefix.append(words[w]).append(' ');
+      }
+      prefixes[i] = prefix.append(last, 0, 1 + random.nextInt(last.length())).toString();
+    }
+    assertFalse(index.suggest(prefixes[0], 10).isEmpty());
+  }
+
+  @Benchmark
+  public List<Suggestion> suggest() {
+    next = (next + 1) & (PREFIXES - 1);
+    return index.suggest(prefixes[next], 10);
+  }
+
+  private static String title(Random random) {
+    int length = 2 + random.nextInt(5);
+    StringBuilder title = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+    for (int i = 1; i < length; i++) {
+      title.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return title.append(' ').append(random.nextInt(1000)).toString();
+  }
+
+  /** Skewed like borrow counts: most titles are rarely borrowed, a few very often. */
+  private static long popularity(Random random) {
+    return (long) Math.floor(Math.pow(random.nextDouble(), 8) * 5000);
+  }
+}
@@ -0,0 +1,155 @@
+package com.davonlibrary.recommend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.davonlibrary.recommend.CooccurrenceModel.Recommendation;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("CooccurrenceModel Tests")
+class CooccurrenceModelTest {
+
+  private static List<Long> ids(List<Recommendation> recommendations) {
+    return recommendations.stream().map(r -> r.bookId).collect(Collectors.toList());
+  }
+
+  @Test
+  @DisplayName("Should rank books borrowed by the same users")
+  void shouldRankCoBorrowedBooks() {
+    CooccurrenceModel.Loader loader = new CooccurrenceModel.Loader(10, 1);
+    // Users 1 and 2 borrowed books 10 and 11; user 3 borrowed 10 and the popular book 12
+    loader.loan(1L, 11L);
+    loader.loan(1L, 10L);
+    loader.loan(2L, 10L);
+    loader.loan(2L, 11L);
+    loader.loan(2L, 11L);
+    loader.loan(3L, 12L);
+    loader.loan(3L, 10L);
+    loader.loan(4L, 12L);
+    loader.loan(5L, 12L);
+    CooccurrenceModel model = loader.finish(new ForkJoinPool(2));
+
+    assertEquals(9, model.loanCount());
+    assertEquals(5, model.userCount());
+    assertEquals(2, model.pairCount());
+    assertEquals(2, model.together(10L, 11L));
+    assertEquals(List.of(11L, 12L), ids(model.related(10L, 5)));
+    assertEquals(List.of(11L), ids(model.related(10L, 1)));
+    assertEquals(2, model.related(10L, 1).get(0).borrowedTogether);
+    assertTrue(model.related(99L, 5).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should leave out pairs below the minimum support")
+  void shouldApplyMinimumSupport() {
+    CooccurrenceModel model = new CooccurrenceModel(10, 2);
+    model.borrow(1L, 10L);
+    model.borrow(1L, 11L);
+    model.borrow(1L, 12L);
+    model.borrow(2L, 10L);
+    model.borrow(2L, 11L);
+
+    assertEquals(List.of(11L), ids(model.related(10L, 5)));
+  }
+
+  @Test
+  @DisplayName("Should update lists as borrows arrive and ignore repeated borrows")
+  void shouldApplyBorrowsIncrementally() {
+    CooccurrenceModel model = new CooccurrenceModel(10, 1);
+    assertTrue(model.borrow(1L, 10L));
+    assertTrue(model.related(10L, 5).isEmpty());
+
+    assertTrue(model.borrow(1L, 11L));
+    assertFalse(model.borrow(1L, 10L));
+    assertEquals(List.of(11L), ids(model.related(10L, 5)));
+    assertEquals(1, model.together(10L, 11L));
+  }
+
+  @Test
+  @DisplayName("Should drop the oldest book of a full window")
+  void shouldSlideFullWindows() {
+    CooccurrenceModel model = new CooccurrenceModel(2, 1);
+    model.borrow(1L, 10L);
+    model.borrow(1L, 11L);
+    model.borrow(1L, 12L);
+
+    assertEquals(0, model.together(10L, 11L));
+    assertEquals(1, model.together(11L, 12L));
+    assertTrue(model.related(10L, 5).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should build the same counts in parallel as borrow by borrow")
+  void shouldMatchIncrementalBuild() {
+    Random random = new Random(11);
+    int users = 3000;
+    long[][] loans = new long[users][];
+    for (int user = 0; user < users; user++) {
+      loans[user] = new long[1 + random.nextInt(15)];
+      for (int i = 0; i < loans[user].length; i++) {
+        loans[user][i] = random.nextInt(200);
+      }
+    }
+
+    CooccurrenceModel incremental = new CooccurrenceModel(8, 1);
+    CooccurrenceModel.Loader loader = new CooccurrenceModel.Loader(8, 1);
+    for (int user = 0; user < users; user++) {
+      for (long book : loans[user]) {
+        incremental.borrow(user, book);
+      }
+      // The loader reads each user's loans most recent first
+      for (int i = loans[user].length - 1; i >= 0; i--) {
+        loader.loan(user, loans[user][i]);
+      }
+    }
+    CooccurrenceModel built = loader.finish(new ForkJoinPool(4));
+
+    assertEquals(incremental.pairCount(), built.pairCount());
+    for (long a = 0; a < 200; a++) {
+      for (long b = 0; b < 200; b++) {
+        assertEquals(incremental.together(a, b), built.together(a, b));
+      }
+    }
+    assertEquals(ids(incremental.related(7L, 20)), ids(built.related(7L, 20)));
+  }
+
+  @Test
+  @DisplayName("Should drop pairs below the minimum support after a build")
+  void shouldDropUnsupportedPairsAfterBuild() {
+    CooccurrenceModel.Loader loader = new CooccurrenceModel.Loader(2, 2);
+    loader.loan(1L, 11L);
+    loader.loan(1L, 10L);
+    loader.loan(2L, 11L);
+    loader.loan(2L, 10L);
+    loader.loan(3L, 12L);
+    loader.loan(3L, 10L);
+    CooccurrenceModel model = loader.finish(new ForkJoinPool(2));
+
+    assertEquals(1, model.pairCount());
+    assertEquals(0, model.together(10L, 12L));
+    assertEquals(List.of(11L), ids(model.related(10L, 5)));
+
+    // User 3's window slides past the dropped pair without counting it below zero
+    model.borrow(3L, 13L);
+    assertEquals(0, model.together(10L, 12L));
+    assertEquals(1, model.together(12L, 13L));
+    // A dropped pair counts again from its next borrow
+    model.borrow(4L, 10L);
+    model.borrow(4L, 12L);
+    assertEquals(1, model.together(10L, 12L));
+    assertEquals(List.of(11L), ids(model.related(10L, 5)));
+  }
+
+  @Test
+  @DisplayName("Should reject loans not grouped by user")
+  void shouldRejectUngroupedLoans() {
+    CooccurrenceModel.Loader loader = new CooccurrenceModel.Loader(10, 1);
+    loader.loan(1L, 10L);
+    loader.loan(2L, 10L);
+    assertThrows(IllegalArgumentException.class, () -> loader.loan(1L, 11L));
+  }
+}
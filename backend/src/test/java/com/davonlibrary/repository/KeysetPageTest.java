@@ -0,0 +1,53 @@
+package com.davonlibrary.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("KeysetPage Tests")
+class KeysetPageTest {
+
+  @Test
+  @DisplayName("Should return the last page without a cursor")
+  void shouldReturnLastPageWithoutCursor() {
+    KeysetPage<Long> page = KeysetPage.of(List.of(1L, 2L, 3L), 3, Function.identity());
+    assertEquals(List.of(1L, 2L, 3L), page.items);
+    assertNull(page.nextCursor);
+  }
+
+  @Test
+  @DisplayName("Should trim the extra row and point the cursor at the last item")
+  void shouldTrimExtraRow() {
+    KeysetPage<Long> page = KeysetPage.of(List.of(10L, 20L, 30L), 2, Function.identity());
+    assertEquals(List.of(10L, 20L), page.items);
+    assertNotNull(page.nextCursor);
+    assertEquals(20L, KeysetPage.after(page.nextCursor));
+  }
+
+  @Test
+  @DisplayName("Should treat a missing cursor as the first page")
+  void shouldTreatMissingCursorAsFirstPage() {
+    assertNull(KeysetPage.after(null));
+    assertNull(KeysetPage.after(" "));
+  }
+
+  @Test
+  @DisplayName("Should reject malformed cursors")
+  void shouldRejectMalformedCursors() {
+    assertThrows(IllegalArgumentException.class, () -> KeysetPage.after("not a cursor"));
+    assertThrows(IllegalArgumentException.class, () -> KeysetPage.after("eDox"));
+  }
+
+  @Test
+  @DisplayName("Should apply the default and bounds to the page size")
+  void shouldBoundPageSize() {
+    assertEquals(KeysetPage.DEFAULT_LIMIT, KeysetPage.limit(null));
+    assertEquals(10, KeysetPage.limit(10));
+    assertEquals(KeysetPage.MAX_LIMIT, KeysetPage.limit(KeysetPage.MAX_LIMIT));
+    assertThrows(IllegalArgumentException.class, () -> KeysetPage.limit(0));
+    assertThrows(IllegalArgumentException.class, () -> KeysetPage.limit(KeysetPage.MAX_LIMIT + 1));
+  }
+}
@@ -0,0 +1,109 @@
+package com.davonlibrary.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.davonlibrary.entity.Book.BookStatus;
+import com.davonlibrary.entity.BookCopy.BookCopyStatus;
+import com.davonlibrary.search.FacetIndex.Filter;
+import com.davonlibrary.search.FacetIndex.Result;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("FacetIndex Tests")
+class FacetIndexTest {
+
+  private FacetIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new FacetIndex();
+    index.putBook(1, 10L);
+    index.putBook(2, 10L);
+    index.putBook(3, 20L);
+    index.putBook(4, null);
+    // Library 100 holds books 1 to 3, library 200 holds books 1 and 4
+    index.putCopy(1001, 1, 100L, BookCopyStatus.AVAILABLE);
+    index.putCopy(1002, 1, 200L, BookCopyStatus.CHECKED_OUT);
+    index.putCopy(2001, 2, 100L, BookCopyStatus.CHECKED_OUT);
+    index.putCopy(3001, 3, 100L, BookCopyStatus.AVAILABLE);
+    index.putCopy(4001, 4, 200L, BookCopyStatus.AVAILABLE);
+  }
+
+  @Test
+  @DisplayName("Should intersect facet values")
+  void shouldIntersectFacetValues() {
+    assertArrayEquals(new long[] {1, 2, 3, 4}, index.filter(filter(null, null, null, null)));
+    assertArrayEquals(new long[] {1, 2}, index.filter(filter(10L, null, null, null)));
+    assertArrayEquals(
+        new long[] {1}, index.filter(filter(10L, 100L, BookCopyStatus.AVAILABLE, null)));
+    assertArrayEquals(
+        new long[0], index.filter(filter(10L, 200L, BookCopyStatus.AVAILABLE, null)));
+    assertArrayEquals(
+        new long[] {1, 3, 4}, index.filter(filter(null, null, null, BookStatus.AVAILABLE)));
+    assertArrayEquals(
+        new long[] {2}, index.filter(filter(null, null, null, BookStatus.UNAVAILABLE)));
+    assertArrayEquals(new long[0], index.filter(filter(99L, null, null, null)));
+  }
+
+  @Test
+  @DisplayName("Should count each facet under the filters on the other facets")
+  void shouldCountFacets() {
+    Result result = index.query(filter(10L, 100L, null, null), -1, 10, 10);
+    assertEquals(2, result.total);
+    assertArrayEquals(new long[] {1, 2}, result.bookIds);
+    // Authors of the books at library 100, whatever the author filter
+    assertEquals(Map.of(10L, 2L, 20L, 1L), result.authors);
+    // Libraries holding books by author 10
+    assertEquals(Map.of(100L, 2L, 200L, 1L), result.libraries);
+    assertEquals(1L, result.availability.get(BookCopyStatus.AVAILABLE));
+    assertEquals(1L, result.availability.get(BookCopyStatus.CHECKED_OUT));
+    assertEquals(0L, result.availability.get(BookCopyStatus.LOST));
+    assertEquals(1L, result.statuses.get(BookStatus.AVAILABLE));
+    assertEquals(1L, result.statuses.get(BookStatus.UNAVAILABLE));
+
+    Result availableAt =
+        index.query(filter(null, null, BookCopyStatus.AVAILABLE, null), -1, 1, 1);
+    assertEquals(3, availableAt.total);
+    assertArrayEquals(new long[] {1}, availableAt.bookIds);
+    // The next page starts after the last book ID of the previous one
+    Result nextPage = index.query(filter(null, null, BookCopyStatus.AVAILABLE, null), 1, 5, 1);
+    assertEquals(3, nextPage.total);
+    assertArrayEquals(new long[] {3, 4}, nextPage.bookIds);
+    // Libraries by books available there; the top one only
+    assertEquals(Map.of(100L, 2L), availableAt.libraries);
+  }
+
+  @Test
+  @DisplayName("Should follow copy status changes and removals")
+  void shouldFollowCopyChanges() {
+    index.putCopy(1001, 1, 100L, BookCopyStatus.CHECKED_OUT);
+    assertArrayEquals(
+        new long[] {3}, index.filter(filter(null, 100L, BookCopyStatus.AVAILABLE, null)));
+    assertArrayEquals(
+        new long[] {3, 4}, index.filter(filter(null, null, null, BookStatus.AVAILABLE)));
+
+    // Applying the same change again has no further effect
+    index.putCopy(1001, 1, 100L, BookCopyStatus.CHECKED_OUT);
+    index.putCopy(2001, 2, 100L, BookCopyStatus.AVAILABLE);
+    assertArrayEquals(
+        new long[] {2, 3}, index.filter(filter(null, 100L, BookCopyStatus.AVAILABLE, null)));
+
+    index.removeCopy(1001);
+    index.removeCopy(1002);
+    assertArrayEquals(new long[] {2, 3}, index.filter(filter(null, 100L, null, null)));
+    assertArrayEquals(new long[] {4}, index.filter(filter(null, 200L, null, null)));
+    assertEquals(3, index.copyCount());
+
+    index.putBook(2, 20L);
+    index.removeBook(3);
+    assertArrayEquals(new long[] {2}, index.filter(filter(20L, null, null, null)));
+    assertArrayEquals(new long[] {2}, index.filter(filter(null, 100L, null, null)));
+  }
+
+  private static Filter filter(
+      Long authorId, Long libraryId, BookCopyStatus availability, BookStatus status) {
+    return new Filter(authorId, libraryId, availability, status);
+  }
+}
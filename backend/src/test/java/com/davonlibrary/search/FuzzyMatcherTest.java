@@ -0,0 +1,151 @@
+package com.davonlibrary.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("FuzzyMatcher Tests")
+class FuzzyMatcherTest {
+
+  private static NavigableMap<String, Long> dictionary(String prefix, String... terms) {
+    NavigableMap<String, Long> dictionary = new TreeMap<>();
+    for (int i = 0; i < terms.length; i++) {
+      dictionary.put(prefix + terms[i], (long) i + 1);
+    }
+    return dictionary;
+  }
+
+  private static List<String> terms(List<FuzzyMatcher.Match> matches) {
+    return matches.stream().map(match -> match.term).collect(Collectors.toList());
+  }
+
+  @Test
+  @DisplayName("Should count insertions, deletions, substitutions and swaps as one edit")
+  void shouldCountSingleEdits() {
+    NavigableMap<String, Long> dictionary = dictionary("", "potter", "pottery", "poter", "hobbit");
+    List<FuzzyMatcher.Match> matches =
+        FuzzyMatcher.find(dictionary, "", "poter", 0, 1, v -> v, 10);
+    assertEquals(List.of("poter", "potter"), terms(matches));
+    assertEquals(0, matches.get(0).distance);
+    assertEquals(1, matches.get(1).distance);
+
+    assertEquals(
+        List.of("hobbit"),
+        terms(FuzzyMatcher.find(dictionary, "", "hobibt", 0, 1, v -> v, 10)));
+    assertEquals(
+        List.of("hobbit"), terms(FuzzyMatcher.find(dictionary, "", "hobit", 0, 1, v -> v, 10)));
+    assertTrue(FuzzyMatcher.find(dictionary, "", "hbobti", 0, 1, v -> v, 10).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should rank closer terms first, then more frequent ones")
+  void shouldRankByDistanceThenFrequency() {
+    NavigableMap<String, Long> dictionary = new TreeMap<>();
+    dictionary.put("stone", 3L);
+    dictionary.put("store", 9L);
+    dictionary.put("stove", 5L);
+    dictionary.put("stones", 50L);
+    assertEquals(
+        List.of("stone", "stones", "store"),
+        terms(FuzzyMatcher.find(dictionary, "", "stone", 0, 1, v -> v, 3)));
+  }
+
+  @Test
+  @DisplayName("Should only match keys under the given prefix")
+  void shouldOnlyMatchKeysUnderPrefix() {
+    NavigableMap<String, Long> dictionary = dictionary("t:", "potter", "rowling");
+    dictionary.putAll(dictionary("a:", "rowlng", "potter"));
+    List<FuzzyMatcher.Match> matches =
+        FuzzyMatcher.find(dictionary, "t:", "rowlin", 0, 2, v -> v, 10);
+    assertEquals(List.of("rowling"), terms(matches));
+  }
+
+  @Test
+  @DisplayName("Should keep the fixed leading letters")
+  void shouldKeepFixedPrefix() {
+    NavigableMap<String, Long> dictionary = dictionary("t:", "potter", "rotter", "pottery");
+    assertEquals(
+        List.of("potter", "pottery", "rotter"),
+        terms(FuzzyMatcher.find(dictionary, "t:", "potter", 0, 1, v -> v, 10)));
+    List<FuzzyMatcher.Match> matches =
+        FuzzyMatcher.find(dictionary, "t:", "pottre", 1, 2, v -> v, 10);
+    assertEquals(List.of("potter", "pottery"), terms(matches));
+    assertEquals(1, matches.get(0).distance);
+  }
+
+  @Test
+  @DisplayName("Should agree with a full scan of the dictionary")
+  void shouldAgreeWithFullScan() {
+    Random random = new Random(7);
+    NavigableMap<String, Long> dictionary = new TreeMap<>();
+    for (int i = 0; i < 5000; i++) {
+      dictionary.put(randomWord(random), (long) random.nextInt(100));
+    }
+    for (int i = 0; i < 200; i++) {
+      String word = randomWord(random);
+      int maxEdits = 1 + random.nextInt(2);
+      int prefixLength = random.nextInt(2);
+      List<String> expected =
+          dictionary.keySet().stream()
+              .filter(term -> term.startsWith(word.substring(0, prefixLength)))
+              .filter(term -> distance(term, word) <= maxEdits)
+              .sorted()
+              .collect(Collectors.toList());
+      List<String> actual =
+          terms(
+              FuzzyMatcher.find(
+                  dictionary, "", word, prefixLength, maxEdits, v -> v, Integer.MAX_VALUE));
+      actual.sort(null);
+      assertEquals(expected, actual, word);
+    }
+  }
+
+  @Test
+  @DisplayName("Should not correct short words")
+  void shouldScaleEditBoundWithLength() {
+    assertEquals(0, FuzzyMatcher.maxEditsFor("of"));
+    assertEquals(1, FuzzyMatcher.maxEditsFor("harry"));
+    assertEquals(2, FuzzyMatcher.maxEditsFor("potter"));
+    assertEquals(0, FuzzyMatcher.prefixLengthFor("harry"));
+    assertEquals(1, FuzzyMatcher.prefixLengthFor("potter"));
+  }
+
+  private static String randomWord(Random random) {
+    int length = 2 + random.nextInt(6);
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      word.append((char) ('a' + random.nextInt(5)));
+    }
+    return word.toString();
+  }
+
+  /** Optimal string alignment distance, computed over the full table. */
+  private static int distance(String a, String b) {
+    int[][] d = new int[a.length() + 1][b.length() + 1];
+    for (int i = 0; i <= a.length(); i++) {
+      d[i][0] = i;
+    }
+    for (int j = 0; j <= b.length(); j++) {
+      d[0][j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+        if (i > 1
+            && j > 1
+            && a.charAt(i - 1) == b.charAt(j - 2)
+            && a.charAt(i - 2) == b.charAt(j - 1)) {
+          d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+        }
+      }
+    }
+    return d[a.length()][b.length()];
+  }
+}
@@ -0,0 +1,101 @@
+package com.davonlibrary.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.davonlibrary.search.InvertedIndex.Field;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("InvertedIndex Tests")
+class InvertedIndexTest {
+
+  private InvertedIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new InvertedIndex();
+    index.put(1L, 10L, "Harry Potter and the Philosopher's Stone", "978-0747532699", "J.K.", "Rowling");
+    index.put(2L, 10L, "Harry Potter and the Chamber of Secrets", "978-0747538493", "J.K.", "Rowling");
+    index.put(3L, 20L, "Pride and Prejudice", "978-0141439518", "Jane", "Austen");
+    index.put(4L, 30L, "Cien años de soledad", "978-0307474728", "Gabriel", "García Márquez");
+  }
+
+  @Test
+  @DisplayName("Should match every word as a prefix across fields")
+  void shouldMatchWordPrefixesAcrossFields() {
+    assertArrayEquals(new long[] {1L, 2L}, index.search(InvertedIndex.parse("harry pot", null)));
+    assertArrayEquals(new long[] {2L}, index.search(InvertedIndex.parse("rowling chamber", null)));
+    assertArrayEquals(new long[] {3L}, index.search(InvertedIndex.parse("PRIDE", null)));
+    assertArrayEquals(new long[0], index.search(InvertedIndex.parse("harry austen", null)));
+  }
+
+  @Test
+  @DisplayName("Should ignore accents and punctuation")
+  void shouldIgnoreAccentsAndPunctuation() {
+    assertArrayEquals(new long[] {4L}, index.search(InvertedIndex.parse("anos marquez", null)));
+    assertArrayEquals(
+        new long[] {1L}, index.search(InvertedIndex.parse("philosopher's", Field.TITLE)));
+  }
+
+  @Test
+  @DisplayName("Should restrict matches to the requested field")
+  void shouldRestrictMatchesToField() {
+    assertArrayEquals(new long[0], index.search(InvertedIndex.parse("rowling", Field.TITLE)));
+    assertArrayEquals(
+        new long[] {1L, 2L}, index.search(InvertedIndex.parse("rowling", Field.AUTHOR)));
+    assertArrayEquals(
+        new long[] {3L}, index.search(InvertedIndex.parse("978-01414", Field.ISBN)));
+  }
+
+  @Test
+  @DisplayName("Should reflect updates and removals")
+  void shouldReflectUpdatesAndRemovals() {
+    index.put(3L, 20L, "Sense and Sensibility", "978-0141439662", "Jane", "Austen");
+    assertArrayEquals(new long[0], index.search(InvertedIndex.parse("pride", null)));
+    assertArrayEquals(new long[] {3L}, index.search(InvertedIndex.parse("sensibility", null)));
+
+    index.remove(1L);
+    assertArrayEquals(new long[] {2L}, index.search(InvertedIndex.parse("harry", null)));
+    assertEquals(3, index.documentCount());
+  }
+
+  @Test
+  @DisplayName("Should re-index books when their author is renamed or deleted")
+  void shouldReindexBooksOnAuthorChanges() {
+    index.updateAuthor(10L, "Robert", "Galbraith");
+    assertArrayEquals(new long[0], index.search(InvertedIndex.parse("rowling", null)));
+    assertArrayEquals(
+        new long[] {1L, 2L}, index.search(InvertedIndex.parse("galbraith harry", null)));
+
+    index.removeAuthor(10L);
+    assertArrayEquals(new long[0], index.search(InvertedIndex.parse("harry", null)));
+    assertEquals(2, index.documentCount());
+  }
+
+  @Test
+  @DisplayName("Should find indexed words close to a misspelled token")
+  void shouldFindSimilarTerms() {
+    assertFalse(index.matchesAny(InvertedIndex.parse("poter", Field.TITLE).get(0)));
+    assertTrue(index.matchesAny(InvertedIndex.parse("pott", Field.TITLE).get(0)));
+
+    List<FuzzyMatcher.Match> title = index.similarTerms(Field.TITLE, "poter", 0, 1, 5);
+    assertEquals(1, title.size());
+    assertEquals("potter", title.get(0).term);
+    assertEquals(2L, title.get(0).frequency);
+
+    List<FuzzyMatcher.Match> any = index.similarTerms(null, "rowlnig", 1, 2, 5);
+    assertEquals("rowling", any.get(0).term);
+    assertTrue(index.similarTerms(Field.TITLE, "rowlnig", 1, 2, 5).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should report size statistics")
+  void shouldReportSizeStatistics() {
+    assertEquals(4, index.documentCount());
+    assertTrue(index.termCount() > 10);
+    assertTrue(index.postingCount() >= index.termCount());
+    assertTrue(index.estimatedBytes() > 0);
+  }
+}
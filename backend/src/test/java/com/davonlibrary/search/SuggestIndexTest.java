@@ -0,0 +1,144 @@
+package com.davonlibrary.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.davonlibrary.search.SuggestIndex.Kind;
+import com.davonlibrary.search.SuggestIndex.Suggestion;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("SuggestIndex Tests")
+class SuggestIndexTest {
+
+  private SuggestIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index =
+        new SuggestIndex.Builder(8)
+            .add(Kind.BOOK, 1, "Harry Potter and the Philosopher's Stone", 40)
+            .add(Kind.BOOK, 2, "Harry Potter and the Chamber of Secrets", 25)
+            .add(Kind.BOOK, 3, "Pride and Prejudice", 12)
+            .add(Kind.BOOK, 4, "Cien años de soledad", 7)
+            .add(Kind.AUTHOR, 1, "Harriet Beecher Stowe", 30)
+            .add(Kind.AUTHOR, 2, "Gabriel García Márquez", 7)
+            .build();
+  }
+
+  @Test
+  @DisplayName("Should rank titles and authors by score within a prefix")
+  void shouldRankByScore() {
+    assertEquals(List.of("BOOK:1", "AUTHOR:1", "BOOK:2"), keys(index.suggest("har", 10)));
+    assertEquals(List.of("BOOK:1", "AUTHOR:1"), keys(index.suggest("Har", 2)));
+    assertEquals(List.of("BOOK:1", "BOOK:2"), keys(index.suggest("harry potter", 10)));
+    assertEquals(List.of("BOOK:3"), keys(index.suggest("pri", 10)));
+    assertEquals(List.of(), keys(index.suggest("zzz", 10)));
+    assertEquals(List.of(), keys(index.suggest("  ", 10)));
+    assertEquals("Harry Potter and the Philosopher's Stone", index.suggest("harry", 1).get(0).text);
+  }
+
+  @Test
+  @DisplayName("Should ignore accents, case and punctuation")
+  void shouldNormalizePrefixes() {
+    assertEquals(List.of("BOOK:4"), keys(index.suggest("CIEN ANOS", 10)));
+    assertEquals(List.of("AUTHOR:2"), keys(index.suggest("gabriel garcia m", 10)));
+    assertEquals(List.of("BOOK:1"), keys(index.suggest("harry potter and the philosopher's", 10)));
+    // A trailing space only matches whole words
+    assertEquals(List.of(), keys(index.suggest("harr ", 10)));
+    assertEquals(List.of("BOOK:1", "BOOK:2"), keys(index.suggest("harry ", 10)));
+  }
+
+  @Test
+  @DisplayName("Should apply puts, removals and score changes incrementally")
+  void shouldApplyIncrementalChanges() {
+    index.put(Kind.BOOK, 5, "Harvest Moon", 35);
+    assertEquals(List.of("BOOK:1", "BOOK:5", "AUTHOR:1"), keys(index.suggest("har", 3)));
+
+    index.put(Kind.BOOK, 1, "Hamlet", 40);
+    assertEquals(List.of("BOOK:5", "AUTHOR:1", "BOOK:2"), keys(index.suggest("har", 3)));
+    assertEquals(List.of("BOOK:1"), keys(index.suggest("ham", 3)));
+
+    index.addScore(Kind.BOOK, 2, 20);
+    index.addScore(Kind.BOOK, 5, 1);
+    assertEquals(List.of("BOOK:2", "BOOK:5", "AUTHOR:1"), keys(index.suggest("har", 3)));
+
+    index.remove(Kind.BOOK, 5);
+    index.remove(Kind.AUTHOR, 1);
+    assertEquals(List.of("BOOK:2"), keys(index.suggest("har", 3)));
+    assertEquals(5, index.size());
+    assertEquals(1, index.deltaSize());
+  }
+
+  @Test
+  @DisplayName("Should agree with a scan under random churn")
+  void shouldAgreeWithScanUnderChurn() {
+    String[] words = {"alpha", "alps", "beta", "bet", "gamma", "game", "delta", "del"};
+    Random random = new Random(11);
+    Map<Long, String> texts = new HashMap<>();
+    Map<Long, Long> scores = new HashMap<>();
+    SuggestIndex.Builder builder = new SuggestIndex.Builder(500);
+    for (long id = 0; id < 500; id++) {
+      String text = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+      long score = random.nextInt(50);
+      builder.add(Kind.BOOK, id, text, score);
+      texts.put(id, text);
+      scores.put(id, score);
+    }
+    SuggestIndex churned = builder.build();
+
+    for (int i = 0; i < 2_000; i++) {
+      long id = random.nextInt(600);
+      switch (random.nextInt(3)) {
+        case 0:
+          String text = words[random.nextInt(words.length)];
+          long score = random.nextInt(50);
+          churned.put(Kind.BOOK, id, text, score);
+          texts.put(id, text);
+          scores.put(id, score);
+          break;
+        case 1:
+          churned.remove(Kind.BOOK, id);
+          texts.remove(id);
+          scores.remove(id);
+          break;
+        default:
+          churned.addScore(Kind.BOOK, id, 3);
+          scores.computeIfPresent(id, (key, value) -> value + 3);
+          break;
+      }
+      String prefix = words[random.nextInt(words.length)].substring(0, 1 + random.nextInt(3));
+      List<Suggestion> found = churned.suggest(prefix, 5);
+      List<Long> expected = new ArrayList<>();
+      texts.forEach(
+          (key, value) -> {
+            if (value.startsWith(prefix)) {
+              expected.add(scores.get(key));
+            }
+          });
+      expected.sort(Comparator.reverseOrder());
+      List<Long> actual = new ArrayList<>();
+      for (Suggestion suggestion : found) {
+        assertTrue(texts.get(suggestion.id).startsWith(prefix));
+        assertEquals(scores.get(suggestion.id).longValue(), suggestion.score);
+        actual.add(suggestion.score);
+      }
+      assertEquals(expected.subList(0, Math.min(5, expected.size())), actual);
+    }
+    assertEquals(texts.size(), churned.size());
+  }
+
+  private static List<String> keys(List<Suggestion> suggestions) {
+    List<String> keys = new ArrayList<>();
+    for (Suggestion suggestion : suggestions) {
+      keys.add(suggestion.kind + ":" + suggestion.id);
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,117 @@
+package com.davonlibrary.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("CompressedBitmap Tests")
+class CompressedBitmapTest {
+
+  @Test
+  @DisplayName("Should add, remove and list values across blocks")
+  void shouldAddAndRemoveValues() {
+    CompressedBitmap bitmap = CompressedBitmap.of(5, 70_000, 1, 1L << 40);
+    assertTrue(bitmap.contains(70_000));
+    assertFalse(bitmap.contains(70_001));
+    assertFalse(bitmap.add(5));
+    assertEquals(4, bitmap.cardinality());
+    assertArrayEquals(new long[] {1, 5, 70_000, 1L << 40}, bitmap.toArray(10));
+    assertArrayEquals(new long[] {1, 5}, bitmap.toArray(2));
+
+    assertTrue(bitmap.remove(70_000));
+    assertFalse(bitmap.remove(70_000));
+    assertFalse(bitmap.remove(-1));
+    assertArrayEquals(new long[] {1, 5, 1L << 40}, bitmap.toArray(10));
+    assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+  }
+
+  @Test
+  @DisplayName("Should switch dense blocks to bitsets and back")
+  void shouldSwitchContainers() {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    for (long value = 0; value < 10_000; value++) {
+      bitmap.add(value * 3);
+    }
+    long dense = bitmap.estimatedBytes();
+    assertEquals(10_000, bitmap.cardinality());
+    for (long value = 0; value < 9_000; value++) {
+      assertTrue(bitmap.remove(value * 3));
+    }
+    assertEquals(1_000, bitmap.cardinality());
+    assertTrue(bitmap.estimatedBytes() < dense);
+    assertArrayEquals(new long[] {27_000, 27_003}, bitmap.toArray(2));
+  }
+
+  @Test
+  @DisplayName("Should intersect and subtract like sorted sets")
+  void shouldAgreeWithSortedSets() {
+    Random random = new Random(3);
+    for (int round = 0; round < 20; round++) {
+      // Mix sparse and dense blocks
+      TreeSet<Long> left = randomSet(random, round % 2 == 0 ? 200 : 30_000);
+      TreeSet<Long> right = randomSet(random, round % 3 == 0 ? 300 : 20_000);
+      CompressedBitmap a = bitmapOf(left);
+      CompressedBitmap b = bitmapOf(right);
+
+      TreeSet<Long> both = new TreeSet<>(left);
+      both.retainAll(right);
+      TreeSet<Long> onlyLeft = new TreeSet<>(left);
+      onlyLeft.removeAll(right);
+
+      assertEquals(List.copyOf(both), values(CompressedBitmap.and(a, b)));
+      assertEquals(both.size(), CompressedBitmap.andCardinality(a, b));
+      assertEquals(List.copyOf(onlyLeft), values(CompressedBitmap.andNot(a, b)));
+      assertEquals(List.copyOf(left), values(a.copy()));
+    }
+  }
+
+  @Test
+  @DisplayName("Should read values a page at a time after a given value")
+  void shouldReadPagesAfterValue() {
+    Random random = new Random(5);
+    for (int round = 0; round < 10; round++) {
+      TreeSet<Long> set = randomSet(random, round % 2 == 0 ? 300 : 30_000);
+      CompressedBitmap bitmap = bitmapOf(set);
+      List<Long> paged = new ArrayList<>();
+      long after = -1;
+      for (long[] page = bitmap.toArray(after, 97);
+          page.length > 0;
+          page = bitmap.toArray(after, 97)) {
+        for (long value : page) {
+          paged.add(value);
+        }
+        after = page[page.length - 1];
+      }
+      assertEquals(List.copyOf(set), paged);
+      long middle = set.first() + 100_000;
+      assertEquals(set.higher(middle), bitmap.toArray(middle, 1)[0]);
+    }
+    assertEquals(0, CompressedBitmap.of(1, 2).toArray(Long.MAX_VALUE, 10).length);
+  }
+
+  private static TreeSet<Long> randomSet(Random random, int size) {
+    TreeSet<Long> set = new TreeSet<>();
+    while (set.size() < size) {
+      set.add((long) random.nextInt(200_000));
+    }
+    return set;
+  }
+
+  private static CompressedBitmap bitmapOf(TreeSet<Long> set) {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    set.descendingSet().forEach(bitmap::add);
+    return bitmap;
+  }
+
+  private static List<Long> values(CompressedBitmap bitmap) {
+    List<Long> values = new ArrayList<>();
+    bitmap.forEach(values::add);
+    assertEquals(values.size(), bitmap.cardinality());
+    return values;
+  }
+}
@@ -0,0 +1,33 @@
+package com.davonlibrary.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Csv Tests")
+class CsvTest {
+
+  private static String field(Object value) {
+    StringBuilder line = new StringBuilder();
+    Csv.append(line, value);
+    return line.toString();
+  }
+
+  @Test
+  @DisplayName("Should write plain values as they are and null as empty")
+  void shouldWritePlainValues() {
+    assertEquals("plain", field("plain"));
+    assertEquals("42", field(42));
+    assertEquals("", field(null));
+  }
+
+  @Test
+  @DisplayName("Should quote values with separators, quotes or line breaks")
+  void shouldQuoteSpecialValues() {
+    assertEquals("\"a,b\"", field("a,b"));
+    assertEquals("\"say \"\"hi\"\"\"", field("say \"hi\""));
+    assertEquals("\"two\nlines\"", field("two\nlines"));
+    assertEquals("\"cr\rhere\"", field("cr\rhere"));
+  }
+}
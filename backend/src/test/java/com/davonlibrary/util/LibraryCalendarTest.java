@@ -0,0 +1,64 @@
+package com.davonlibrary.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("LibraryCalendar Tests")
+class LibraryCalendarTest {
+
+  private final LibraryCalendar calendar =
+      new LibraryCalendar(
+          List.of(MonthDay.of(1, 1), MonthDay.of(2, 29), MonthDay.of(12, 25)),
+          List.of(LocalDate.of(2024, 6, 15), LocalDate.of(1999, 5, 5)),
+          2000,
+          2040);
+
+  @Test
+  @DisplayName("Should mark annual, leap-day and one-off holidays inside its years")
+  void shouldMarkHolidays() {
+    assertTrue(calendar.isHoliday(LocalDate.of(2026, 12, 25)));
+    assertTrue(calendar.isHoliday(LocalDate.of(2024, 2, 29)));
+    assertTrue(calendar.isHoliday(LocalDate.of(2024, 6, 15)));
+    assertFalse(calendar.isHoliday(LocalDate.of(2025, 6, 15)));
+    assertFalse(calendar.isHoliday(LocalDate.of(1999, 5, 5)), "outside the calendar's years");
+    assertFalse(calendar.isHoliday(LocalDate.of(2041, 1, 1)));
+
+    // 2024-06-15 was a Saturday; in 2022 New Year's Day was a Saturday and Christmas a Sunday
+    assertEquals(
+        1, calendar.countWeekendHolidays(LocalDate.of(2024, 1, 2), LocalDate.of(2024, 12, 24)));
+    assertEquals(
+        2, calendar.countWeekendHolidays(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31)));
+  }
+
+  @Test
+  @DisplayName("Should count weekends and holidays like a day-by-day walk")
+  void shouldAgreeWithDayByDayWalk() {
+    Random random = new Random(5);
+    for (int i = 0; i < 2_000; i++) {
+      LocalDate from = LocalDate.of(1995, 1, 1).plusDays(random.nextInt(50 * 365));
+      LocalDate to = from.plusDays(random.nextInt(random.nextBoolean() ? 40 : 4_000) - 1);
+
+      long weekends = 0;
+      long holidays = 0;
+      long weekendHolidays = 0;
+      for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+        boolean weekend = LibraryCalendar.isWeekend(day);
+        boolean holiday = calendar.isHoliday(day);
+        weekends += weekend ? 1 : 0;
+        holidays += holiday ? 1 : 0;
+        weekendHolidays += weekend && holiday ? 1 : 0;
+      }
+
+      String range = from + ".." + to;
+      assertEquals(weekends, LibraryCalendar.countWeekendDays(from, to), range);
+      assertEquals(holidays, calendar.countHolidays(from, to), range);
+      assertEquals(weekendHolidays, calendar.countWeekendHolidays(from, to), range);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.davonlibrary.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("LongLongHashMap Tests")
+class LongLongHashMapTest {
+
+  @Test
+  @DisplayName("Should put, update and remove entries including key zero")
+  void shouldPutUpdateAndRemoveEntries() {
+    LongLongHashMap map = new LongLongHashMap();
+    map.put(0L, 7L);
+    map.put(42L, 1L);
+    map.addTo(42L, 5L);
+
+    assertEquals(2, map.size());
+    assertEquals(7L, map.get(0L, -1L));
+    assertEquals(6L, map.get(42L, -1L));
+    assertEquals(-1L, map.get(43L, -1L));
+
+    assertTrue(map.remove(0L));
+    assertFalse(map.containsKey(0L));
+    assertTrue(map.remove(42L));
+    assertFalse(map.remove(42L));
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Should agree with HashMap under random churn")
+  void shouldAgreeWithHashMapUnderChurn() {
+    LongLongHashMap map = new LongLongHashMap(4);
+    Map<Long, Long> expected = new HashMap<>();
+    Random random = new Random(7);
+
+    for (int i = 0; i < 200_000; i++) {
+      long key = random.nextInt(5_000);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key) != null, map.remove(key));
+      } else {
+        long value = random.nextLong();
+        map.put(key, value);
+        expected.put(key, value);
+      }
+    }
+
+    assertEquals(expected.size(), map.size());
+    expected.forEach((key, value) -> assertEquals(value.longValue(), map.get(key, 0L)));
+    int[] visited = new int[1];
+    map.forEach(
+        (key, value) -> {
+          assertEquals(expected.get(key).longValue(), value);
+          visited[0]++;
+        });
+    assertEquals(expected.size(), visited[0]);
+  }
+}
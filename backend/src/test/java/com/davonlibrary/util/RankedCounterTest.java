@@ -0,0 +1,77 @@
+package com.davonlibrary.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("RankedCounter Tests")
+class RankedCounterTest {
+
+  @Test
+  @DisplayName("Should keep keys ordered by count and drop keys at zero")
+  void shouldKeepKeysOrderedByCount() {
+    RankedCounter counter = new RankedCounter();
+    counter.add(1, 1);
+    counter.add(2, 5);
+    counter.add(3, 3);
+    assertArrayEquals(new long[] {2, 3, 1}, counter.topKeys(10));
+    assertArrayEquals(new long[] {5, 3}, counter.topCounts(2));
+
+    assertEquals(6, counter.add(1, 5));
+    assertArrayEquals(new long[] {1, 2, 3}, counter.topKeys(3));
+    assertEquals(0, counter.add(2, -5));
+    assertEquals(0, counter.get(2));
+    assertEquals(2, counter.size());
+    assertArrayEquals(new long[] {1, 3}, counter.topKeys(3));
+    assertThrows(IllegalArgumentException.class, () -> counter.add(3, -4));
+    assertEquals(3, counter.get(3));
+  }
+
+  @Test
+  @DisplayName("Should build sorted from a map of counts")
+  void shouldBuildFromMap() {
+    LongLongHashMap counts = new LongLongHashMap();
+    counts.put(7, 2);
+    counts.put(8, 9);
+    counts.put(9, 0);
+    counts.put(0, 4);
+    RankedCounter counter = RankedCounter.of(counts);
+    assertArrayEquals(new long[] {8, 0, 7}, counter.topKeys(5));
+    counter.add(7, 3);
+    assertArrayEquals(new long[] {8, 7, 0}, counter.topKeys(5));
+  }
+
+  @Test
+  @DisplayName("Should agree with a map under random churn")
+  void shouldAgreeWithMapUnderChurn() {
+    RankedCounter counter = new RankedCounter(2);
+    Map<Long, Long> expected = new HashMap<>();
+    Random random = new Random(5);
+
+    for (int i = 0; i < 100_000; i++) {
+      long key = random.nextInt(200);
+      long current = expected.getOrDefault(key, 0L);
+      long delta =
+          random.nextInt(3) == 0 ? -random.nextInt((int) current + 1) : 1 + random.nextInt(4);
+      assertEquals(current + delta, counter.add(key, delta));
+      if (current + delta == 0) {
+        expected.remove(key);
+      } else {
+        expected.put(key, current + delta);
+      }
+      assertEquals(expected.size(), counter.size());
+    }
+    long[] keys = counter.topKeys(Integer.MAX_VALUE);
+    long[] counts = counter.topCounts(Integer.MAX_VALUE);
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(expected.get(keys[i]).longValue(), counts[i]);
+      if (i > 0) {
+        assertTrue(counts[i - 1] >= counts[i], "counts are in descending order");
+      }
+    }
+  }
+}
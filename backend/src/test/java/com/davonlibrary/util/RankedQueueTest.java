@@ -0,0 +1,69 @@
+package com.davonlibrary.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("RankedQueue Tests")
+class RankedQueueTest {
+
+  @Test
+  @DisplayName("Should keep positions dense as keys leave from anywhere")
+  void shouldKeepPositionsDense() {
+    RankedQueue queue = new RankedQueue();
+    for (long key = 10; key <= 14; key++) {
+      assertTrue(queue.add(key));
+    }
+    assertFalse(queue.add(12), "a queued key keeps its place");
+
+    assertTrue(queue.remove(12));
+    assertFalse(queue.remove(12));
+    assertEquals(1, queue.position(10));
+    assertEquals(3, queue.position(13));
+    assertEquals(4, queue.position(14));
+    assertEquals(0, queue.position(12));
+    assertEquals(10L, queue.get(1));
+    assertEquals(14L, queue.get(4));
+    assertArrayEquals(new long[] {10, 11, 13, 14}, queue.toArray());
+
+    queue.remove(10);
+    assertEquals(11L, queue.get(1));
+    assertThrows(IndexOutOfBoundsException.class, () -> queue.get(4));
+  }
+
+  @Test
+  @DisplayName("Should agree with a list under random churn")
+  void shouldAgreeWithListUnderChurn() {
+    RankedQueue queue = new RankedQueue(2);
+    List<Long> expected = new ArrayList<>();
+    Random random = new Random(3);
+    long nextKey = 0;
+
+    for (int i = 0; i < 100_000; i++) {
+      int op = random.nextInt(10);
+      if (op < 4 || expected.isEmpty()) {
+        queue.add(nextKey);
+        expected.add(nextKey++);
+      } else if (op < 7) {
+        Long key = expected.remove(random.nextInt(expected.size()));
+        assertTrue(queue.remove(key));
+      } else if (op < 9) {
+        int index = random.nextInt(expected.size());
+        assertEquals(index + 1, queue.position(expected.get(index)));
+        assertEquals(expected.get(index).longValue(), queue.get(index + 1));
+      } else {
+        // Drain the front, as fulfilling reservations would
+        while (!expected.isEmpty() && random.nextBoolean()) {
+          assertEquals(expected.get(0).longValue(), queue.get(1));
+          queue.remove(expected.remove(0));
+        }
+      }
+      assertEquals(expected.size(), queue.size());
+    }
+    assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), queue.toArray());
+  }
+}
@@ -0,0 +1,106 @@
+package com.davonlibrary.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("RingBuffer Tests")
+class RingBufferTest {
+
+  @Test
+  @DisplayName("Should return the latest values newest first")
+  void shouldReturnLatestNewestFirst() {
+    RingBuffer<Integer> buffer = new RingBuffer<>(4);
+    assertEquals(List.of(), buffer.latest(10));
+
+    buffer.add(1);
+    buffer.add(2);
+    assertEquals(List.of(2, 1), buffer.latest(10));
+    assertEquals(List.of(2), buffer.latest(1));
+    assertEquals(List.of(), buffer.latest(0));
+    assertEquals(2, buffer.size());
+  }
+
+  @Test
+  @DisplayName("Should overwrite the oldest values once full")
+  void shouldOverwriteOldest() {
+    RingBuffer<Integer> buffer = new RingBuffer<>(4);
+    for (int i = 1; i <= 10; i++) {
+      buffer.add(i);
+    }
+    assertEquals(List.of(10, 9, 8, 7), buffer.latest(100));
+    assertEquals(4, buffer.size());
+    assertEquals(10, buffer.added());
+  }
+
+  @Test
+  @DisplayName("Should keep every value of concurrent writers once they finish")
+  void shouldKeepConcurrentWrites() throws InterruptedException {
+    int writers = 8;
+    int perWriter = 10_000;
+    RingBuffer<Integer> buffer = new RingBuffer<>(writers * perWriter);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int w = 0; w < writers; w++) {
+      int base = w * perWriter;
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  return;
+                }
+                for (int i = 0; i < perWriter; i++) {
+                  buffer.add(base + i);
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    List<Integer> values = buffer.latest(Integer.MAX_VALUE);
+    assertEquals(writers * perWriter, values.size());
+    assertEquals(writers * perWriter, new HashSet<>(values).size());
+  }
+
+  @Test
+  @DisplayName("Should never return a value twice while wrapping under contention")
+  void shouldNotDuplicateWhileWrapping() throws InterruptedException {
+    RingBuffer<Integer> buffer = new RingBuffer<>(16);
+    Thread writer =
+        new Thread(
+            () -> {
+              for (int i = 0; i < 200_000; i++) {
+                buffer.add(i);
+              }
+            });
+    writer.start();
+    while (writer.isAlive()) {
+      List<Integer> values = buffer.latest(16);
+      Set<Integer> distinct = new HashSet<>(values);
+      assertEquals(values.size(), distinct.size());
+      for (int i = 1; i < values.size(); i++) {
+        assertTrue(values.get(i) < values.get(i - 1), "newest first");
+      }
+    }
+    writer.join();
+    assertEquals(16, buffer.latest(16).size());
+  }
+
+  @Test
+  @DisplayName("Should reject a non-positive capacity")
+  void shouldRejectNonPositiveCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new RingBuffer<Integer>(0));
+  }
+}
@@ -0,0 +1,106 @@
+package com.davonlibrary.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("SparseIntMatrix Tests")
+class SparseIntMatrixTest {
+
+  @Test
+  @DisplayName("Should add to cells and drop those reaching zero")
+  void shouldAddAndDropCells() {
+    SparseIntMatrix matrix = new SparseIntMatrix(2);
+    matrix.add(0, 0, 2);
+    matrix.add(0, 7, 1);
+    matrix.add(40, 3, 5);
+
+    assertEquals(2, matrix.get(0, 0));
+    assertEquals(5, matrix.get(40, 3));
+    assertEquals(0, matrix.get(40, 4));
+    assertEquals(0, matrix.get(99, 0));
+    assertEquals(3, matrix.nonZeroCount());
+
+    assertEquals(0, matrix.add(0, 7, -1));
+    assertEquals(1, matrix.rowSize(0));
+    assertEquals(2, matrix.nonZeroCount());
+  }
+
+  @Test
+  @DisplayName("Should sum another matrix into this one")
+  void shouldAddAll() {
+    SparseIntMatrix left = new SparseIntMatrix();
+    left.add(1, 2, 3);
+    SparseIntMatrix right = new SparseIntMatrix();
+    right.add(1, 2, 4);
+    right.add(1, 5, 1);
+    right.add(9, 1, 2);
+
+    left.addAll(right);
+    assertEquals(7, left.get(1, 2));
+    assertEquals(1, left.get(1, 5));
+    assertEquals(2, left.get(9, 1));
+    assertEquals(3, left.nonZeroCount());
+
+    Map<Integer, Integer> row = new HashMap<>();
+    left.forEachInRow(1, row::put);
+    assertEquals(Map.of(2, 7, 5, 1), row);
+  }
+
+  @Test
+  @DisplayName("Should remove cells below a minimum count")
+  void shouldRemoveCellsBelowMinimum() {
+    SparseIntMatrix matrix = new SparseIntMatrix();
+    for (int column = 0; column < 100; column++) {
+      matrix.add(1, column, column % 3 == 0 ? 2 : 1);
+    }
+    matrix.add(2, 0, 1);
+
+    assertEquals(67, matrix.removeBelow(2));
+    assertEquals(34, matrix.nonZeroCount());
+    assertEquals(34, matrix.rowSize(1));
+    assertEquals(0, matrix.rowSize(2));
+    assertEquals(2, matrix.get(1, 99));
+    assertEquals(0, matrix.get(1, 98));
+    assertEquals(0, matrix.get(2, 0));
+
+    // Shrunk rows still grow and take new cells
+    matrix.add(2, 5, 1);
+    for (int column = 100; column < 200; column++) {
+      matrix.add(1, column, 1);
+    }
+    assertEquals(1, matrix.get(2, 5));
+    assertEquals(134, matrix.rowSize(1));
+    assertEquals(2, matrix.get(1, 0));
+  }
+
+  @Test
+  @DisplayName("Should agree with HashMap under random churn")
+  void shouldAgreeWithHashMapUnderChurn() {
+    SparseIntMatrix matrix = new SparseIntMatrix();
+    Map<Long, Integer> expected = new HashMap<>();
+    Random random = new Random(7);
+    for (int i = 0; i < 50_000; i++) {
+      int row = random.nextInt(20);
+      int column = random.nextInt(500);
+      int delta = random.nextInt(3) - 1;
+      long cell = (long) row << 32 | column;
+      int value = expected.getOrDefault(cell, 0) + delta;
+      if (value == 0) {
+        expected.remove(cell);
+      } else {
+        expected.put(cell, value);
+      }
+      assertEquals(value, matrix.add(row, column, delta));
+    }
+    assertEquals(expected.size(), matrix.nonZeroCount());
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      long cell = entry.getKey();
+      assertEquals((int) entry.getValue(), matrix.get((int) (cell >>> 32), (int) cell));
+    }
+  }
+}
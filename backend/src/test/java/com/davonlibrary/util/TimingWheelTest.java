@@ -0,0 +1,83 @@
+package com.davonlibrary.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("TimingWheel Tests")
+class TimingWheelTest {
+
+  @Test
+  @DisplayName("Should expire keys at their deadline and honour cancel and reschedule")
+  void shouldExpireAtDeadline() {
+    TimingWheel wheel = new TimingWheel(100);
+    assertFalse(wheel.schedule(1, 100), "deadline at the current tick is already expired");
+    assertTrue(wheel.schedule(2, 101));
+    assertTrue(wheel.schedule(3, 105));
+    assertTrue(wheel.schedule(4, 105));
+    assertTrue(wheel.schedule(5, 100 + 64 * 64 * 64 * 64 + 10)); // beyond the top level
+    wheel.cancel(3);
+    wheel.schedule(4, 107);
+
+    List<Long> expired = new ArrayList<>();
+    wheel.advanceTo(106, expired::add);
+    assertEquals(List.of(2L), expired);
+    assertEquals(107L, wheel.deadline(4));
+    assertEquals(Long.MIN_VALUE, wheel.deadline(3));
+
+    wheel.advanceTo(107, expired::add);
+    assertEquals(List.of(2L, 4L), expired);
+
+    wheel.advanceTo(100 + 64 * 64 * 64 * 64 + 10, expired::add);
+    assertEquals(List.of(2L, 4L, 5L), expired);
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  @DisplayName("Should agree with a brute-force scan under random churn")
+  void shouldAgreeWithBruteForce() {
+    long start = 19_000;
+    TimingWheel wheel = new TimingWheel(start);
+    Map<Long, Long> expected = new HashMap<>();
+    Random random = new Random(11);
+    long now = start;
+
+    for (int round = 0; round < 2_000; round++) {
+      for (int i = 0; i < 50; i++) {
+        long key = random.nextInt(3_000);
+        if (random.nextInt(4) == 0) {
+          assertEquals(expected.remove(key) != null, wheel.cancel(key));
+        } else {
+          // Mostly near deadlines, some months and years ahead
+          long deadline =
+              now + 1 + (random.nextInt(10) == 0 ? random.nextInt(400_000) : random.nextInt(60));
+          wheel.schedule(key, deadline);
+          expected.put(key, deadline);
+        }
+      }
+
+      long target = now + random.nextInt(random.nextInt(20) == 0 ? 5_000 : 5);
+      List<Long> expired = new ArrayList<>();
+      wheel.advanceTo(target, expired::add);
+      List<Long> due = new ArrayList<>();
+      for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+        if (entry.getValue() <= target) {
+          due.add(entry.getKey());
+        }
+      }
+      due.forEach(expected::remove);
+      now = target;
+
+      expired.sort(null);
+      due.sort(null);
+      assertEquals(due, expired, "keys expired by tick " + now);
+      assertEquals(expected.size(), wheel.size());
+    }
+  }
+}
@@ -0,0 +1,39 @@
+-- =====================================================
+-- Script: add_batch_jobs_table.sql
+-- Purpose: Store bulk maintenance jobs (overdue fines, fine recalculation, reminders,
+--          notification cleanup) and their checkpoints
+-- Notes:
+--   - Each chunk a job processes updates last_id and the counters in the chunk's own
+--     transaction, so a job interrupted by a crash or redeploy resumes after last_id
+--   - Workers claim the oldest pending jobs; idx_batch_jobs_status_id serves that and the
+--     one-unfinished-job-per-type check
+-- =====================================================
+
+IF OBJECT_ID('batch_jobs', 'U') IS NULL
+BEGIN
+    CREATE TABLE batch_jobs (
+        id BIGINT PRIMARY KEY IDENTITY(1,1),
+        type VARCHAR(50) NOT NULL,
+        status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+        chunk_size INT NOT NULL,
+        cutoff_date DATETIME2,
+        last_id BIGINT,
+        total_rows BIGINT,
+        processed_rows BIGINT NOT NULL DEFAULT 0,
+        affected_rows BIGINT NOT NULL DEFAULT 0,
+        chunks INT NOT NULL DEFAULT 0,
+        attempts INT NOT NULL DEFAULT 0,
+        created_date DATETIME2 NOT NULL DEFAULT GETDATE(),
+        started_date DATETIME2,
+        checkpoint_date DATETIME2,
+        completed_date DATETIME2,
+        error_message VARCHAR(1000)
+    );
+END
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_batch_jobs_status_id')
+BEGIN
+    CREATE INDEX idx_batch_jobs_status_id ON batch_jobs(status, id);
+END
+GO
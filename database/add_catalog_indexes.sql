@@ -0,0 +1,16 @@
+-- =====================================================
+-- Script: add_catalog_indexes.sql
+-- Purpose: Support the grouped, keyset-paginated catalog listing (GET /api/books)
+-- Notes:
+--   - Copy counts are aggregated per book with a conditional SUM on status, so an
+--     index on (book_id, status) lets SQL Server answer them from the index alone
+--   - Keyset pages seek on (title, id); idx_books_title already carries the clustered
+--     key, so no extra books index is needed
+-- =====================================================
+
+IF COL_LENGTH('book_copies', 'status') IS NOT NULL
+   AND NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_book_copies_book_status')
+BEGIN
+    CREATE INDEX idx_book_copies_book_status ON book_copies(book_id, status);
+END
+GO
@@ -0,0 +1,25 @@
+-- =====================================================
+-- Script: add_keyset_indexes.sql
+-- Purpose: Support keyset-paginated list endpoints (users, staff, book copies, reports,
+--          per-user notifications and loans, active fines)
+-- Notes:
+--   - Pages are ordered by id and seek past the last id of the previous page; whole-table
+--     lists use the clustered primary key directly
+--   - Per-user and per-status lists seek on (filter columns, id); nonclustered indexes
+--     carry the clustered key, so an index on the filter columns is enough
+--   - idx_loans_user_id already serves loan history by user
+-- =====================================================
+
+IF COL_LENGTH('notifications', 'is_read') IS NOT NULL
+   AND NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_notifications_user_read')
+BEGIN
+    CREATE INDEX idx_notifications_user_read ON notifications(user_id, is_read);
+END
+GO
+
+IF COL_LENGTH('fines', 'status') IS NOT NULL
+   AND NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_fines_status')
+BEGIN
+    CREATE INDEX idx_fines_status ON fines(status);
+END
+GO
@@ -0,0 +1,14 @@
+-- =====================================================
+-- Script: add_report_retry_not_before.sql
+-- Purpose: Keep the retry backoff of failed reports across restarts
+-- Notes:
+--   - A failed report goes back to PENDING with retry_count raised and retry_not_before set to
+--     the end of its backoff; report workers do not claim it before then
+--   - A report left PROCESSING when the backend stopped counts as a failed attempt on startup
+-- =====================================================
+
+IF COL_LENGTH('reports', 'retry_not_before') IS NULL
+BEGIN
+    ALTER TABLE reports ADD retry_not_before DATETIME2;
+END
+GO
@@ -0,0 +1,54 @@
+-- =====================================================
+-- Script: add_scheduler_leases.sql
+-- Purpose: Coordinate scheduled work between backend instances sharing the database
+-- Notes:
+--   - scheduler_leases holds the scheduler leader lease, one liveness lease per instance
+--     ('node:<id>') and one row per daily task ('task:<type>') whose last_period records the
+--     last day the task was submitted for
+--   - Leases are taken and renewed with conditional updates on owner and expires_at
+--   - A liveness lease is deleted when its instance shuts down, and the leader deletes expired
+--     ones, as instances get a new node ID on every start
+--   - batch_jobs.owner is the instance running a job; its chunks only commit while it is the
+--     owner, and the leader requeues the jobs of instances whose liveness lease has expired
+--   - batch_jobs.range_start and range_end limit a job to a range of user, book or loan IDs, so a
+--     task split into several jobs runs on several instances
+--   - reports.owner is the instance generating a report; only the owner records its outcome, and
+--     the leader requeues the reports of instances whose liveness lease has expired
+--   - Requires add_batch_jobs_table.sql
+-- =====================================================
+
+IF OBJECT_ID('scheduler_leases', 'U') IS NULL
+BEGIN
+    CREATE TABLE scheduler_leases (
+        name VARCHAR(100) PRIMARY KEY,
+        owner VARCHAR(100),
+        acquired_at DATETIME2,
+        expires_at DATETIME2,
+        last_period VARCHAR(50)
+    );
+END
+GO
+
+IF COL_LENGTH('batch_jobs', 'owner') IS NULL
+BEGIN
+    ALTER TABLE batch_jobs ADD owner VARCHAR(100);
+END
+GO
+
+IF COL_LENGTH('batch_jobs', 'range_start') IS NULL
+BEGIN
+    ALTER TABLE batch_jobs ADD range_start BIGINT;
+END
+GO
+
+IF COL_LENGTH('batch_jobs', 'range_end') IS NULL
+BEGIN
+    ALTER TABLE batch_jobs ADD range_end BIGINT;
+END
+GO
+
+IF COL_LENGTH('reports', 'owner') IS NULL
+BEGIN
+    ALTER TABLE reports ADD owner VARCHAR(100);
+END
+GO
@@ -0,0 +1,23 @@
+-- =====================================================
+-- Script: drop_copy_recount_triggers.sql
+-- Purpose: Remove the triggers that recount books.available_copies on every
+--          book copy status change and loan return
+-- Notes:
+--   - The backend now applies +1/-1 deltas to books.total_copies and
+--     books.available_copies when a copy changes status, and a background
+--     reconciler corrects any drift, so the triggers only duplicated that work
+--   - Run sync_available_copies.sql once afterwards if the counts may already
+--     have drifted
+-- =====================================================
+
+IF OBJECT_ID('tr_book_copies_status_update', 'TR') IS NOT NULL
+BEGIN
+    DROP TRIGGER tr_book_copies_status_update;
+END
+GO
+
+IF OBJECT_ID('tr_loans_book_copy_update', 'TR') IS NOT NULL
+BEGIN
+    DROP TRIGGER tr_loans_book_copy_update;
+END
+GO
@@ -403,55 +403,9 @@ ALTER TABLE reservation_queues ADD CONSTRAINT chk_max_queue_size CHECK (max_queu
 -- TRIGGERS FOR DATA INTEGRITY
 -- =====================================================
 
--- Trigger to update book available copies when book copy status changes
-CREATE TRIGGER tr_book_copies_status_update
-ON book_copies
-AFTER UPDATE
-AS
-BEGIN
-    IF UPDATE(status_id)
-    BEGIN
-        UPDATE b
-        SET available_copies = (
-            SELECT COUNT(*)
-            FROM book_copies bc
-            WHERE bc.book_id = b.id 
-            AND bc.status_id = (SELECT id FROM book_copy_status WHERE status_name = 'AVAILABLE')
-        )
-        FROM books b
-        INNER JOIN inserted i ON b.id = i.book_id;
-    END
-END;
-
--- Trigger to update book available copies when loans are created/updated
-CREATE TRIGGER tr_loans_book_copy_update
-ON loans
-AFTER INSERT, UPDATE
-AS
-BEGIN
-    IF UPDATE(return_date)
-    BEGIN
-        -- Update book copy availability when loan is returned
-        UPDATE bc
-        SET status_id = (SELECT id FROM book_copy_status WHERE status_name = 'AVAILABLE')
-        FROM book_copies bc
-        INNER JOIN inserted i ON bc.id = i.book_copy_id
-        WHERE i.return_date IS NOT NULL;
-        
-        -- Update book available copies count
-        UPDATE b
-        SET available_copies = (
-            SELECT COUNT(*)
-            FROM book_copies bc
-            WHERE bc.book_id = b.id 
-            AND bc.status_id = (SELECT id FROM book_copy_status WHERE status_name = 'AVAILABLE')
-        )
-        FROM books b
-        INNER JOIN book_copies bc ON b.id = bc.book_id
-        INNER JOIN inserted i ON bc.id = i.book_copy_id
-        WHERE i.return_date IS NOT NULL;
-    END
-END;
+-- books.total_copies / available_copies are maintained by the application
+-- (BookAvailabilityService applies per-transition deltas and reconciles drift),
+-- so no recount triggers are defined on book_copies or loans.
 
 -- =====================================================
 -- VIEWS FOR COMMON QUERIES
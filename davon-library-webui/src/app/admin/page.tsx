@@ -72,7 +72,7 @@ const AdminDashboardPage = () => {
                         setStats(prev => ({ ...prev, totalUsers: usersResponse.total }));
                     }
                     if (booksResponse) {
-                        setStats(prev => ({ ...prev, totalBooks: booksResponse.total }));
+                        setStats(prev => ({ ...prev, totalBooks: booksResponse.total ?? booksResponse.books.length }));
                     }
                     if (loanedOutCount) {
                         setStats(prev => ({ ...prev, booksLoaned: loanedOutCount }));
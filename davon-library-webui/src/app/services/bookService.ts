@@ -26,12 +26,18 @@ const mapBookDTOToBook = (dto: BookDTO): Book => ({
 });
 
 export const bookService = {
-  async getAllBooks(page = 1, limit = 10, sort = 'title', order = 'asc'): Promise<{ books: Book[], total: number }> {
+  // Without a limit the backend returns the whole catalog; with one it returns a keyset page
+  // and a nextCursor to pass back for the following page. The total is only sent with the
+  // first page.
+  async getAllBooks(limit?: number, sort = 'title', order = 'asc', cursor?: string): Promise<{ books: Book[], total?: number, nextCursor?: string }> {
     try {
+      const params = new URLSearchParams({ sort, order });
+      if (limit !== undefined) params.set('limit', String(limit));
+      if (cursor) params.set('cursor', cursor);
       // The endpoint '/books' - apiClient already has baseURL with /api
-      const response = await apiClient.get<{ books: BookDTO[], total: number }>(`/books?page=${page}&limit=${limit}&sort=${sort}&order=${order}`);
+      const response = await apiClient.get<{ books: BookDTO[], total?: number, nextCursor?: string }>(`/books?${params.toString()}`);
       const mapped = response.data.books.map(mapBookDTOToBook);
-      return { books: mapped, total: response.data.total };
+      return { books: mapped, total: response.data.total, nextCursor: response.data.nextCursor };
     } catch (error) {
       console.error('Failed to fetch book:', error);
 
@@ -1,11 +1,23 @@
 import apiClient from './api';
 import { Loan } from '@/lib/types';
 
+// Largest page the backend serves; GET /loans/user/{id} returns one page at a time
+const PAGE_SIZE = 500;
+
 export const loanService = {
+  // Follows the X-Next-Cursor header until every page of the user's loans has been read
   async getLoansByUserId(userId: number): Promise<Loan[]> {
     try {
-      const response = await apiClient.get<Loan[]>(`/loans/user/${userId}`);
-      return response.data;
+      const loans: Loan[] = [];
+      let cursor: string | undefined;
+      do {
+        const params = new URLSearchParams({ limit: String(PAGE_SIZE) });
+        if (cursor) params.set('cursor', cursor);
+        const response = await apiClient.get<Loan[]>(`/loans/user/${userId}?${params.toString()}`);
+        loans.push(...response.data);
+        cursor = response.headers['x-next-cursor'] || undefined;
+      } while (cursor);
+      return loans;
     } catch (error) {
       console.error('Failed to fetch loans:', error);
       return [];
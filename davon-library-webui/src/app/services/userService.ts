@@ -1,14 +1,28 @@
 import apiClient from './api';
 import { User } from '@/lib/types';
 
+// Largest page the backend serves; GET /users returns one page at a time
+const PAGE_SIZE = 500;
+
 export const userService = {
+  // Follows nextCursor until every page has been read. The total is sent with the first page.
   async getAllUsers(): Promise<{ users: User[], total: number }> {
     try {
-      const response = await apiClient.get<{ users: User[], total: number }>('/users');
-      return response.data;
+      const users: User[] = [];
+      let total = 0;
+      let cursor: string | undefined;
+      do {
+        const params = new URLSearchParams({ limit: String(PAGE_SIZE) });
+        if (cursor) params.set('cursor', cursor);
+        const response = await apiClient.get<{ users: User[], total?: number, nextCursor?: string }>(`/users?${params.toString()}`);
+        users.push(...response.data.users);
+        total = response.data.total ?? total;
+        cursor = response.data.nextCursor ?? undefined;
+      } while (cursor);
+      return { users, total: Math.max(total, users.length) };
     } catch (error) {
       console.error('Failed to fetch users:', error);
       return { users: [], total: 0 };
     }
   },
-}; 
\ No newline at end of file
+}; 